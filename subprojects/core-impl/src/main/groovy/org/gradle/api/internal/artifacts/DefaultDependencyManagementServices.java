@@ -35,6 +35,7 @@ import org.gradle.api.internal.artifacts.repositories.DefaultResolverFactory;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.project.DefaultServiceRegistry;
 import org.gradle.api.internal.project.ServiceRegistry;
+import org.gradle.cache.CacheRepository;
 import org.gradle.logging.LoggingManagerInternal;
 
 public class DefaultDependencyManagementServices extends DefaultServiceRegistry implements DependencyManagementServices {
@@ -47,7 +48,8 @@ public class DefaultDependencyManagementServices extends DefaultServiceRegistry
     }
 
     protected ResolverFactory createResolverFactory() {
-        return new DefaultResolverFactory(getFactory(LoggingManagerInternal.class), get(MavenFactory.class), new DefaultLocalMavenCacheLocator());
+        return new DefaultResolverFactory(getFactory(LoggingManagerInternal.class), get(MavenFactory.class), new DefaultLocalMavenCacheLocator(),
+                get(CacheRepository.class));
     }
 
     protected MavenFactory createMavenFactory() {
@@ -15,18 +15,28 @@
  */
 package org.gradle.api.internal.artifacts.repositories;
 
+import org.apache.commons.httpclient.Header;
 import org.apache.commons.httpclient.HttpClient;
 import org.apache.commons.httpclient.HttpMethod;
+import org.apache.commons.httpclient.HttpMethodBase;
 import org.apache.commons.httpclient.HttpMethodRetryHandler;
+import org.apache.commons.httpclient.MultiThreadedHttpConnectionManager;
 import org.apache.commons.httpclient.UsernamePasswordCredentials;
 import org.apache.commons.httpclient.auth.AuthScope;
 import org.apache.commons.httpclient.methods.GetMethod;
+import org.apache.commons.httpclient.methods.HeadMethod;
 import org.apache.commons.httpclient.methods.PutMethod;
 import org.apache.commons.httpclient.methods.RequestEntity;
 import org.apache.commons.httpclient.params.HttpMethodParams;
+import org.apache.commons.httpclient.util.DateParseException;
+import org.apache.commons.httpclient.util.DateUtil;
 import org.apache.commons.io.output.CloseShieldOutputStream;
 import org.apache.ivy.plugins.repository.*;
+import org.apache.ivy.util.CopyProgressEvent;
+import org.apache.ivy.util.CopyProgressListener;
 import org.apache.ivy.util.FileUtil;
+import org.apache.ivy.util.url.ApacheURLLister;
+import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.util.GUtil;
 import org.gradle.util.GradleVersion;
 import org.gradle.util.UncheckedException;
@@ -34,58 +44,249 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
-import java.util.Collections;
-import java.util.HashMap;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A repository which uses commons-httpclient to access resources using HTTP/HTTPS.
+ *
+ * <p>Connections are pooled and kept alive between requests. A resource which has not been seen before is requested
+ * with a GET, and the response is kept open so that its content can be downloaded without a second request. A
+ * resource which has been seen before is checked with a HEAD request, which is made conditional on the ETag and
+ * Last-Modified time last seen for the resource. The Last-Modified time is passed on to Ivy, so that Ivy only
+ * downloads resources which have changed. The state of each resource can be kept in a persistent cache, and is reused
+ * without a request for the given timeout.</p>
+ *
+ * <p>This repository can be used by several threads at once. Each transfer fires its own events, rather than using
+ * the single shared event of {@link AbstractRepository}.</p>
  */
-public class CommonsHttpClientBackedRepository extends AbstractRepository {
+public class CommonsHttpClientBackedRepository extends AbstractRepository implements ThreadSafeRepository {
     private static final Logger LOGGER = LoggerFactory.getLogger(CommonsHttpClientBackedRepository.class);
-    private final Map<String, HttpResource> resources = new HashMap<String, HttpResource>();
-    private final HttpClient client = new HttpClient();
-    private final RepositoryCopyProgressListener progress = new RepositoryCopyProgressListener(this);
+    private static final int MAX_CONNECTIONS_PER_HOST = 8;
+    private static final int MAX_CONNECTIONS = 20;
+    private final Map<String, HttpResourceState> states = new ConcurrentHashMap<String, HttpResourceState>();
+    private final ThreadLocal<OpenResponse> openResponse = new ThreadLocal<OpenResponse>();
+    private final PersistentIndexedCache<String, HttpResourceState> stateCache;
+    private final long cacheTimeoutMillis;
+    private final HttpClient client;
+    private final ApacheURLLister lister = new ApacheURLLister();
 
     public CommonsHttpClientBackedRepository(String username, String password) {
+        this(username, password, null, 0);
+    }
+
+    /**
+     * Creates a repository.
+     *
+     * @param stateCache The persistent cache for the state of the remote resources. May be null.
+     * @param cacheTimeoutMillis The time for which the state of a resource is used without checking it again.
+     */
+    public CommonsHttpClientBackedRepository(String username, String password, PersistentIndexedCache<String, HttpResourceState> stateCache, long cacheTimeoutMillis) {
+        this.stateCache = stateCache;
+        this.cacheTimeoutMillis = cacheTimeoutMillis;
+        MultiThreadedHttpConnectionManager connectionManager = new MultiThreadedHttpConnectionManager();
+        connectionManager.getParams().setDefaultMaxConnectionsPerHost(MAX_CONNECTIONS_PER_HOST);
+        connectionManager.getParams().setMaxTotalConnections(MAX_CONNECTIONS);
+        client = new HttpClient(connectionManager);
         if (GUtil.isTrue(username)) {
             client.getParams().setAuthenticationPreemptive(true);
             client.getState().setCredentials(new AuthScope(null, -1, null), new UsernamePasswordCredentials(username, password));
         }
+        configureProxy();
+    }
+
+    /**
+     * Uses the proxy given by the standard system properties, as Ivy's URL repository does.
+     */
+    private void configureProxy() {
+        String proxyHost = System.getProperty("http.proxyHost");
+        if (!GUtil.isTrue(proxyHost)) {
+            return;
+        }
+        client.getHostConfiguration().setProxy(proxyHost, Integer.parseInt(System.getProperty("http.proxyPort", "80")));
+        String proxyUser = System.getProperty("http.proxyUser");
+        if (GUtil.isTrue(proxyUser)) {
+            client.getState().setProxyCredentials(AuthScope.ANY, new UsernamePasswordCredentials(proxyUser, System.getProperty("http.proxyPassword")));
+        }
     }
 
     public Resource getResource(final String source) throws IOException {
         LOGGER.debug("Attempting to get resource {}.", source);
+        discardOpenResponse();
+        long now = System.currentTimeMillis();
+        HttpResourceState state = getState(source);
+        if (state != null && state.isFresh(now, cacheTimeoutMillis)) {
+            LOGGER.debug("Using cached state for resource {}.", source);
+        } else if (state == null) {
+            state = fetchResource(source, now);
+            putState(source, state);
+        } else {
+            state = checkResource(source, state, now);
+            putState(source, state);
+        }
+        if (!state.isExists()) {
+            return new MissingResource(source);
+        }
+        return new HttpResource(source, state);
+    }
+
+    /**
+     * Requests a resource which has not been seen before. The response is kept open for this thread, so that {@link
+     * #get(String, File)} can download its content.
+     */
+    private HttpResourceState fetchResource(String source, long now) throws IOException {
         GetMethod method = new GetMethod(source);
         configureMethod(method);
-        int result = client.executeMethod(method);
-        if (result == 404) {
-            return new MissingResource(source);
+        boolean keepOpen = false;
+        try {
+            int result = client.executeMethod(method);
+            if (result == 404) {
+                return HttpResourceState.missing(now);
+            }
+            if (result != 200) {
+                throw new IOException(String.format("Could not GET '%s'. Received status code %s from server: %s", source, result, method.getStatusText()));
+            }
+            HttpResourceState state = toState(method, null, now);
+            openResponse.set(new OpenResponse(source, method, now));
+            keepOpen = true;
+            return state;
+        } finally {
+            if (!keepOpen) {
+                method.releaseConnection();
+            }
         }
-        if (result != 200) {
-            throw new IOException(String.format("Could not GET '%s'. Received status code %s from server: %s", source, result, method.getStatusText()));
+    }
+
+    /**
+     * Returns the response which was kept open for the given resource by this thread, if any.
+     */
+    private OpenResponse takeOpenResponse(String source) {
+        OpenResponse response = openResponse.get();
+        if (response != null && response.source.equals(source)) {
+            openResponse.remove();
+            return response;
         }
+        return null;
+    }
 
-        HttpResource resource = new HttpResource(source, method);
-        resources.put(source, resource);
-        return resource;
+    private void discardOpenResponse() {
+        OpenResponse response = openResponse.get();
+        if (response != null) {
+            openResponse.remove();
+            // Close the connection rather than reading the rest of the content
+            response.method.abort();
+            response.method.releaseConnection();
+        }
+    }
+
+    private HttpResourceState checkResource(String source, HttpResourceState previous, long now) throws IOException {
+        HttpMethodBase method = new HeadMethod(source);
+        try {
+            int result = executeCheck(method, previous);
+            if (result == 405 || result == 501) {
+                // The server does not support HEAD, so use a GET and discard the content
+                method.releaseConnection();
+                method = new GetMethod(source);
+                result = executeCheck(method, previous);
+                method.abort();
+            }
+            if (result == 304 && previous != null && previous.isExists()) {
+                LOGGER.debug("Resource {} has not been modified.", source);
+                return previous.checkedAt(now);
+            }
+            if (result == 404) {
+                return HttpResourceState.missing(now);
+            }
+            if (result != 200) {
+                throw new IOException(String.format("Could not %s '%s'. Received status code %s from server: %s", method.getName(), source, result, method.getStatusText()));
+            }
+            return toState(method, previous, now);
+        } finally {
+            method.releaseConnection();
+        }
+    }
+
+    private int executeCheck(HttpMethod method, HttpResourceState previous) throws IOException {
+        configureMethod(method);
+        if (previous != null && previous.isExists()) {
+            if (previous.getEtag() != null) {
+                method.setRequestHeader("If-None-Match", previous.getEtag());
+            }
+            if (previous.getLastModified() > 0) {
+                method.setRequestHeader("If-Modified-Since", DateUtil.formatDate(new Date(previous.getLastModified())));
+            }
+        }
+        return client.executeMethod(method);
+    }
+
+    private HttpResourceState toState(HttpMethodBase method, HttpResourceState previous, long now) {
+        String etag = getHeader(method, "ETag");
+        long lastModified = 0;
+        String lastModifiedHeader = getHeader(method, "Last-Modified");
+        if (lastModifiedHeader != null) {
+            try {
+                lastModified = DateUtil.parseDate(lastModifiedHeader).getTime();
+            } catch (DateParseException e) {
+                LOGGER.debug("Ignoring invalid Last-Modified header '{}'.", lastModifiedHeader);
+            }
+        }
+        if (lastModified == 0) {
+            // Use the time the change was noticed instead, so that Ivy can tell that the resource has changed
+            boolean unchanged = previous != null && previous.isExists() && etag != null && etag.equals(previous.getEtag());
+            lastModified = unchanged ? previous.getLastModified() : now;
+        }
+        return new HttpResourceState(true, lastModified, method.getResponseContentLength(), etag, now);
+    }
+
+    private static String getHeader(HttpMethod method, String name) {
+        Header header = method.getResponseHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    private HttpResourceState getState(String source) {
+        HttpResourceState state = states.get(source);
+        if (state == null && stateCache != null) {
+            synchronized (stateCache) {
+                state = stateCache.get(source);
+            }
+        }
+        return state;
+    }
+
+    private void putState(String source, HttpResourceState state) {
+        states.put(source, state);
+        if (stateCache != null) {
+            synchronized (stateCache) {
+                stateCache.put(source, state);
+            }
+        }
+    }
+
+    private void removeState(String source) {
+        states.remove(source);
+        if (stateCache != null) {
+            synchronized (stateCache) {
+                stateCache.remove(source);
+            }
+        }
     }
 
     public void get(String source, File destination) throws IOException {
-        HttpResource resource = resources.get(source);
-        fireTransferInitiated(resource, TransferEvent.REQUEST_GET);
+        HttpResource resource = new HttpResource(source, getState(source));
+        TransferProgress progress = new TransferProgress(resource, TransferEvent.REQUEST_GET);
+        progress.initiated();
         try {
-            progress.setTotalLength(resource.getContentLength());
-            resource.downloadTo(destination);
+            resource.downloadTo(destination, progress);
         } catch (IOException e) {
-            fireTransferError(e);
+            progress.failed(e);
             throw e;
         } catch (Exception e) {
-            fireTransferError(e);
+            progress.failed(e);
             throw UncheckedException.asUncheckedException(e);
-        } finally {
-            progress.setTotalLength(null);
         }
     }
 
@@ -93,28 +294,33 @@ public class CommonsHttpClientBackedRepository extends AbstractRepository {
     protected void put(final File source, String destination, boolean overwrite) throws IOException {
         LOGGER.debug("Attempting to put resource {}.", destination);
         assert source.isFile();
-        fireTransferInitiated(new BasicResource(destination, true, source.length(), source.lastModified(), false), TransferEvent.REQUEST_PUT);
+        TransferProgress progress = new TransferProgress(new BasicResource(destination, true, source.length(), source.lastModified(), false), TransferEvent.REQUEST_PUT);
+        progress.initiated();
         try {
             progress.setTotalLength(source.length());
-            doPut(source, destination);
+            doPut(source, destination, progress);
         } catch (IOException e) {
-            fireTransferError(e);
+            progress.failed(e);
             throw e;
         } catch (Exception e) {
-            fireTransferError(e);
+            progress.failed(e);
             throw UncheckedException.asUncheckedException(e);
         } finally {
-            progress.setTotalLength(null);
+            removeState(destination);
         }
     }
 
-    private void doPut(File source, String destination) throws IOException {
+    private void doPut(File source, String destination, CopyProgressListener progress) throws IOException {
         PutMethod method = new PutMethod(destination);
         configureMethod(method);
-        method.setRequestEntity(new FileRequestEntity(source));
-        int result = client.executeMethod(method);
-        if (result != 200) {
-            throw new IOException(String.format("Could not PUT '%s'. Received status code %s from server: %s", destination, result, method.getStatusText()));
+        method.setRequestEntity(new FileRequestEntity(source, progress));
+        try {
+            int result = client.executeMethod(method);
+            if (result != 200) {
+                throw new IOException(String.format("Could not PUT '%s'. Received status code %s from server: %s", destination, result, method.getStatusText()));
+            }
+        } finally {
+            method.releaseConnection();
         }
     }
 
@@ -127,17 +333,43 @@ public class CommonsHttpClientBackedRepository extends AbstractRepository {
         });
     }
 
+    private GetMethod executeGet(String source) throws IOException {
+        GetMethod method = new GetMethod(source);
+        configureMethod(method);
+        boolean success = false;
+        try {
+            int result = client.executeMethod(method);
+            if (result != 200) {
+                throw new IOException(String.format("Could not GET '%s'. Received status code %s from server: %s", source, result, method.getStatusText()));
+            }
+            success = true;
+            return method;
+        } finally {
+            if (!success) {
+                method.releaseConnection();
+            }
+        }
+    }
+
+    /**
+     * Lists the resources in the given directory from the HTML listing returned by the server, in the same way as
+     * Ivy's URL repository.
+     */
     public List list(String parent) throws IOException {
-        return Collections.EMPTY_LIST;
+        List<String> resources = new ArrayList<String>();
+        for (Object url : lister.listAll(new URL(parent))) {
+            resources.add(((URL) url).toExternalForm());
+        }
+        return resources;
     }
 
     private class HttpResource implements Resource {
         private final String source;
-        private final GetMethod method;
+        private final HttpResourceState state;
 
-        public HttpResource(String source, GetMethod method) {
+        public HttpResource(String source, HttpResourceState state) {
             this.source = source;
-            this.method = method;
+            this.state = state;
         }
 
         public String getName() {
@@ -150,11 +382,11 @@ public class CommonsHttpClientBackedRepository extends AbstractRepository {
         }
 
         public long getLastModified() {
-            return 0;
+            return state == null ? 0 : state.getLastModified();
         }
 
         public long getContentLength() {
-            return method.getResponseContentLength();
+            return state == null ? -1 : state.getContentLength();
         }
 
         public boolean exists() {
@@ -170,20 +402,110 @@ public class CommonsHttpClientBackedRepository extends AbstractRepository {
         }
 
         public InputStream openStream() throws IOException {
-            return method.getResponseBodyAsStream();
+            OpenResponse response = takeOpenResponse(source);
+            final GetMethod method = response != null ? response.method : executeGet(source);
+            return new FilterInputStream(method.getResponseBodyAsStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        method.releaseConnection();
+                    }
+                }
+            };
         }
 
-        public void downloadTo(File destination) throws IOException {
-            FileOutputStream output = new FileOutputStream(destination);
+        public void downloadTo(File destination, TransferProgress progress) throws IOException {
+            OpenResponse response = takeOpenResponse(source);
+            long now = response != null ? response.requestTime : System.currentTimeMillis();
+            GetMethod method = response != null ? response.method : executeGet(source);
             try {
-                InputStream input = openStream();
+                long contentLength = method.getResponseContentLength();
+                progress.setTotalLength(contentLength);
+                FileOutputStream output = new FileOutputStream(destination);
                 try {
-                    FileUtil.copy(input, output, progress);
+                    InputStream input = method.getResponseBodyAsStream();
+                    try {
+                        FileUtil.copy(input, output, progress);
+                    } finally {
+                        input.close();
+                    }
                 } finally {
-                    input.close();
+                    output.close();
                 }
+                // Remember the validators of the content which was actually downloaded
+                putState(source, toState(method, state, now));
             } finally {
-                output.close();
+                method.releaseConnection();
+            }
+        }
+    }
+
+    private static class OpenResponse {
+        private final String source;
+        private final GetMethod method;
+        private final long requestTime;
+
+        public OpenResponse(String source, GetMethod method, long requestTime) {
+            this.source = source;
+            this.method = method;
+            this.requestTime = requestTime;
+        }
+    }
+
+    /**
+     * Fires the events of a single transfer.
+     */
+    private class TransferProgress implements CopyProgressListener {
+        private final Resource resource;
+        private final int requestType;
+        private long totalLength = -1;
+
+        public TransferProgress(Resource resource, int requestType) {
+            this.resource = resource;
+            this.requestType = requestType;
+        }
+
+        public void setTotalLength(long totalLength) {
+            this.totalLength = totalLength;
+        }
+
+        public void initiated() {
+            fire(TransferEvent.TRANSFER_INITIATED, 0, -1);
+        }
+
+        public void start(CopyProgressEvent evt) {
+            fire(TransferEvent.TRANSFER_STARTED, 0, totalLength);
+        }
+
+        public void progress(CopyProgressEvent evt) {
+            fire(TransferEvent.TRANSFER_PROGRESS, evt.getReadBytes(), totalLength);
+        }
+
+        public void end(CopyProgressEvent evt) {
+            if (evt.getReadBytes() > 0) {
+                progress(evt);
+            }
+            fire(TransferEvent.TRANSFER_COMPLETED, 0, evt.getTotalReadBytes());
+        }
+
+        public void failed(Exception failure) {
+            fireTransferEvent(new TransferEvent(CommonsHttpClientBackedRepository.this, resource, failure, requestType));
+        }
+
+        private void fire(int eventType, long length, long totalLength) {
+            fireTransferEvent(new HttpTransferEvent(CommonsHttpClientBackedRepository.this, resource, eventType, requestType, length, totalLength));
+        }
+    }
+
+    private static class HttpTransferEvent extends TransferEvent {
+        public HttpTransferEvent(Repository repository, Resource resource, int eventType, int requestType, long length, long totalLength) {
+            super(repository, resource, eventType, requestType);
+            setLength(length);
+            if (totalLength >= 0) {
+                setTotalLength(totalLength);
+                setTotalLengthSet(true);
             }
         }
     }
@@ -224,11 +546,13 @@ public class CommonsHttpClientBackedRepository extends AbstractRepository {
         }
     }
 
-    private class FileRequestEntity implements RequestEntity {
+    private static class FileRequestEntity implements RequestEntity {
         private final File source;
+        private final CopyProgressListener progress;
 
-        public FileRequestEntity(File source) {
+        public FileRequestEntity(File source, CopyProgressListener progress) {
             this.source = source;
+            this.progress = progress;
         }
 
         public boolean isRepeatable() {
@@ -21,6 +21,7 @@ import org.apache.ivy.plugins.resolver.RepositoryResolver;
 import org.apache.ivy.plugins.resolver.URLResolver;
 import org.gradle.api.artifacts.dsl.IvyArtifactRepository;
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.cache.PersistentIndexedCache;
 
 import java.net.URI;
 import java.util.Collection;
@@ -32,10 +33,17 @@ public class DefaultIvyArtifactRepository implements IvyArtifactRepository, Arti
     private String username;
     private String password;
     private final Set<String> artifactPatterns = new LinkedHashSet<String>();
+    private int changingModuleCacheSeconds;
     private final FileResolver resolver;
+    private final PersistentIndexedCache<String, HttpResourceState> httpResourceStates;
 
     public DefaultIvyArtifactRepository(FileResolver resolver) {
+        this(resolver, null);
+    }
+
+    public DefaultIvyArtifactRepository(FileResolver resolver, PersistentIndexedCache<String, HttpResourceState> httpResourceStates) {
         this.resolver = resolver;
+        this.httpResourceStates = httpResourceStates;
     }
 
     public void createResolvers(Collection<DependencyResolver> resolvers) {
@@ -73,7 +81,7 @@ public class DefaultIvyArtifactRepository implements IvyArtifactRepository, Arti
 
     private RepositoryResolver http() {
         RepositoryResolver resolver = new RepositoryResolver();
-        resolver.setRepository(new CommonsHttpClientBackedRepository(username, password));
+        resolver.setRepository(new CommonsHttpClientBackedRepository(username, password, httpResourceStates, changingModuleCacheSeconds * 1000L));
         return resolver;
     }
 
@@ -104,4 +112,12 @@ public class DefaultIvyArtifactRepository implements IvyArtifactRepository, Arti
     public void setUserName(String username) {
         this.username = username;
     }
+
+    public int getChangingModuleCacheSeconds() {
+        return changingModuleCacheSeconds;
+    }
+
+    public void setChangingModuleCacheSeconds(int seconds) {
+        this.changingModuleCacheSeconds = seconds;
+    }
 }
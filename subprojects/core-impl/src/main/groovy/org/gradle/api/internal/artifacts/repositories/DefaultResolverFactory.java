@@ -16,6 +16,7 @@
 
 package org.gradle.api.internal.artifacts.repositories;
 
+import org.apache.ivy.plugins.repository.Repository;
 import org.apache.ivy.plugins.resolver.*;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.artifacts.ConfigurationContainer;
@@ -32,6 +33,8 @@ import org.gradle.api.internal.artifacts.publish.maven.deploy.BasePomFilterConta
 import org.gradle.api.internal.artifacts.publish.maven.deploy.DefaultArtifactPomContainer;
 import org.gradle.api.internal.artifacts.publish.maven.deploy.groovy.DefaultGroovyMavenDeployer;
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.logging.LoggingManagerInternal;
 
 import java.io.File;
@@ -44,11 +47,19 @@ public class DefaultResolverFactory implements ResolverFactory {
     private final Factory<LoggingManagerInternal> loggingManagerFactory;
     private final MavenFactory mavenFactory;
     private final LocalMavenCacheLocator localMavenCacheLocator;
+    private final CacheRepository cacheRepository;
+    private PersistentIndexedCache<String, HttpResourceState> httpResourceStates;
 
     public DefaultResolverFactory(Factory<LoggingManagerInternal> loggingManagerFactory, MavenFactory mavenFactory, LocalMavenCacheLocator localMavenCacheLocator) {
+        this(loggingManagerFactory, mavenFactory, localMavenCacheLocator, null);
+    }
+
+    public DefaultResolverFactory(Factory<LoggingManagerInternal> loggingManagerFactory, MavenFactory mavenFactory, LocalMavenCacheLocator localMavenCacheLocator,
+                                  CacheRepository cacheRepository) {
         this.loggingManagerFactory = loggingManagerFactory;
         this.mavenFactory = mavenFactory;
         this.localMavenCacheLocator = localMavenCacheLocator;
+        this.cacheRepository = cacheRepository;
     }
 
     public DependencyResolver createResolver(Object userDescription) {
@@ -85,18 +96,44 @@ public class DefaultResolverFactory implements ResolverFactory {
     }
 
     public AbstractResolver createMavenRepoResolver(String name, String root, String... jarRepoUrls) {
-        GradleIBiblioResolver iBiblioResolver = createIBiblioResolver(name, root);
+        Repository repository = createMavenRepository(root, jarRepoUrls);
+        GradleIBiblioResolver iBiblioResolver = createIBiblioResolver(name, root, repository);
         if (jarRepoUrls.length == 0) {
             iBiblioResolver.setDescriptor(IBiblioResolver.DESCRIPTOR_OPTIONAL);
             return iBiblioResolver;
         }
         iBiblioResolver.setName(iBiblioResolver.getName() + "_poms");
-        URLResolver urlResolver = createUrlResolver(name, root, jarRepoUrls);
+        URLResolver urlResolver = createUrlResolver(name, root, repository, jarRepoUrls);
         return createDualResolver(name, iBiblioResolver, urlResolver);
     }
 
-    private GradleIBiblioResolver createIBiblioResolver(String name, String root) {
+    /**
+     * Creates the repository shared by the resolvers of a Maven repository. When all its URLs use HTTP, this is a
+     * thread-safe repository, so that artifacts can be downloaded in parallel. Returns null otherwise, in which case
+     * the resolvers keep their default repository.
+     */
+    private Repository createMavenRepository(String root, String... jarRepoUrls) {
+        if (!isHttp(root)) {
+            return null;
+        }
+        for (String jarRepoUrl : jarRepoUrls) {
+            if (!isHttp(jarRepoUrl)) {
+                return null;
+            }
+        }
+        return new CommonsHttpClientBackedRepository(null, null, getHttpResourceStates(), 0);
+    }
+
+    private static boolean isHttp(String url) {
+        String lowerCaseUrl = url.toLowerCase();
+        return lowerCaseUrl.startsWith("http://") || lowerCaseUrl.startsWith("https://");
+    }
+
+    private GradleIBiblioResolver createIBiblioResolver(String name, String root, Repository repository) {
         GradleIBiblioResolver iBiblioResolver = new GradleIBiblioResolver();
+        if (repository != null) {
+            iBiblioResolver.setRepository(repository);
+        }
         iBiblioResolver.setUsepoms(true);
         iBiblioResolver.setName(name);
         iBiblioResolver.setRoot(root);
@@ -106,8 +143,11 @@ public class DefaultResolverFactory implements ResolverFactory {
         return iBiblioResolver;
     }
 
-    private URLResolver createUrlResolver(String name, String root, String... jarRepoUrls) {
+    private URLResolver createUrlResolver(String name, String root, Repository repository, String... jarRepoUrls) {
         URLResolver urlResolver = new URLResolver();
+        if (repository != null) {
+            urlResolver.setRepository(repository);
+        }
         urlResolver.setName(name + "_jars");
         urlResolver.setM2compatible(true);
         urlResolver.addArtifactPattern(root + '/' + ResolverContainer.MAVEN_REPO_PATTERN);
@@ -149,7 +189,17 @@ public class DefaultResolverFactory implements ResolverFactory {
     }
 
     public IvyArtifactRepository createIvyRepository(FileResolver resolver) {
-        return new DefaultIvyArtifactRepository(resolver);
+        return new DefaultIvyArtifactRepository(resolver, getHttpResourceStates());
+    }
+
+    private PersistentIndexedCache<String, HttpResourceState> getHttpResourceStates() {
+        if (cacheRepository == null) {
+            return null;
+        }
+        if (httpResourceStates == null) {
+            httpResourceStates = cacheRepository.cache("httpResources").open().openIndexedCache();
+        }
+        return httpResourceStates;
     }
 
     private PomFilterContainer createPomFilterContainer(Factory<MavenPom> mavenPomFactory) {
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.repositories;
+
+import java.io.Serializable;
+
+/**
+ * The state of a remote HTTP resource, as last seen by a {@link CommonsHttpClientBackedRepository}.
+ */
+public class HttpResourceState implements Serializable {
+    private final boolean exists;
+    private final long lastModified;
+    private final long contentLength;
+    private final String etag;
+    private final long checkedAt;
+
+    public HttpResourceState(boolean exists, long lastModified, long contentLength, String etag, long checkedAt) {
+        this.exists = exists;
+        this.lastModified = lastModified;
+        this.contentLength = contentLength;
+        this.etag = etag;
+        this.checkedAt = checkedAt;
+    }
+
+    public static HttpResourceState missing(long checkedAt) {
+        return new HttpResourceState(false, 0, -1, null, checkedAt);
+    }
+
+    public boolean isExists() {
+        return exists;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * Returns the entity tag of the resource, or null if the server did not send one.
+     */
+    public String getEtag() {
+        return etag;
+    }
+
+    /**
+     * Returns the time at which this state was last confirmed with the server.
+     */
+    public long getCheckedAt() {
+        return checkedAt;
+    }
+
+    /**
+     * Returns a copy of this state, confirmed with the server at the given time.
+     */
+    public HttpResourceState checkedAt(long time) {
+        return new HttpResourceState(exists, lastModified, contentLength, etag, time);
+    }
+
+    public boolean isFresh(long now, long timeoutMillis) {
+        return now >= checkedAt && now - checkedAt < timeoutMillis;
+    }
+}
@@ -81,6 +81,26 @@ class DefaultResolverFactoryTest {
         checkIBiblio(factory.createMavenRepoResolver(TEST_REPO_NAME, TEST_REPO_URL), "")
     }
 
+    @Test
+    public void testCreateMavenRepoUsesThreadSafeRepositoryForHttpUrls() {
+        DualResolver dualResolver = factory.createMavenRepoResolver(TEST_REPO_NAME, TEST_REPO_URL, 'https://www.gradle2.org')
+        assert dualResolver.ivyResolver.repository instanceof CommonsHttpClientBackedRepository
+        assert dualResolver.artifactResolver.repository.is(dualResolver.ivyResolver.repository)
+
+        IBiblioResolver iBiblioResolver = factory.createMavenRepoResolver(TEST_REPO_NAME, TEST_REPO_URL)
+        assert iBiblioResolver.repository instanceof CommonsHttpClientBackedRepository
+    }
+
+    @Test
+    public void testCreateMavenRepoUsesDefaultRepositoryForOtherUrls() {
+        DualResolver dualResolver = factory.createMavenRepoResolver(TEST_REPO_NAME, TEST_REPO_URL, 'file:/jars')
+        assert !(dualResolver.ivyResolver.repository instanceof ThreadSafeRepository)
+        assert !(dualResolver.artifactResolver.repository instanceof ThreadSafeRepository)
+
+        IBiblioResolver iBiblioResolver = factory.createMavenRepoResolver(TEST_REPO_NAME, 'file:/repo')
+        assert !(iBiblioResolver.repository instanceof ThreadSafeRepository)
+    }
+
     private void checkIBiblio(IBiblioResolver iBiblioResolver, String expectedNameSuffix) {
         assert iBiblioResolver.usepoms
         assert iBiblioResolver.m2compatible
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.repositories
+
+import spock.lang.Specification
+
+class HttpResourceStateTest extends Specification {
+    def stateIsFreshUntilTheTimeoutHasElapsed() {
+        def state = new HttpResourceState(true, 100, 5, '"v1"', 1000)
+
+        expect:
+        state.isFresh(1000, 10)
+        state.isFresh(1009, 10)
+        !state.isFresh(1010, 10)
+        !state.isFresh(999, 10)
+        !state.isFresh(1000, 0)
+    }
+
+    def checkedAtKeepsTheValidatorsOfTheResource() {
+        def state = new HttpResourceState(true, 100, 5, '"v1"', 1000)
+
+        when:
+        def checked = state.checkedAt(2000)
+
+        then:
+        checked.exists
+        checked.lastModified == 100
+        checked.contentLength == 5
+        checked.etag == '"v1"'
+        checked.checkedAt == 2000
+    }
+
+    def missingStateHasNoValidators() {
+        def state = HttpResourceState.missing(1000)
+
+        expect:
+        !state.exists
+        state.etag == null
+        state.checkedAt == 1000
+    }
+}
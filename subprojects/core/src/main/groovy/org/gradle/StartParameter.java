@@ -80,6 +80,8 @@ public class StartParameter {
     private boolean noOpt;
     private boolean colorOutput = true;
     private boolean profile;
+    private int parallelThreadCount;
+    private int hashingThreadCount;
 
     /**
      * Creates a {@code StartParameter} with default values. This is roughly equivalent to running Gradle on the
@@ -125,6 +127,8 @@ public class StartParameter {
         startParameter.dryRun = dryRun;
         startParameter.noOpt = noOpt;
         startParameter.profile = profile;
+        startParameter.parallelThreadCount = parallelThreadCount;
+        startParameter.hashingThreadCount = hashingThreadCount;
         return startParameter;
     }
 
@@ -525,6 +529,43 @@ public class StartParameter {
         return profile;
     }
 
+    /**
+     * Returns the number of threads which should be used to execute tasks. A value of 0 or 1 means that tasks are
+     * executed one at a time by the build thread.
+     */
+    public int getParallelThreadCount() {
+        return parallelThreadCount;
+    }
+
+    /**
+     * Specifies the number of threads which should be used to execute tasks. When greater than 1, any task whose
+     * dependencies have completed may be executed concurrently with other such tasks.
+     *
+     * @param parallelThreadCount The number of threads. Use 0 to execute tasks one at a time.
+     */
+    public void setParallelThreadCount(int parallelThreadCount) {
+        this.parallelThreadCount = parallelThreadCount;
+    }
+
+    /**
+     * Returns the number of threads which should be used to hash the input and output files of a task. A value of 0
+     * means one thread per available processor.
+     */
+    public int getHashingThreadCount() {
+        return hashingThreadCount;
+    }
+
+    /**
+     * Specifies the number of threads which should be used to hash the input and output files of a task. This is
+     * independent of the number of threads used to execute tasks.
+     *
+     * @param hashingThreadCount The number of threads. Use 1 to hash files one at a time, or 0 to use one thread per
+     * available processor.
+     */
+    public void setHashingThreadCount(int hashingThreadCount) {
+        this.hashingThreadCount = hashingThreadCount;
+    }
+
     @Override
     public String toString() {
         return "StartParameter{"
@@ -547,6 +588,8 @@ public class StartParameter {
                 + ", dryRun=" + dryRun
                 + ", noOpt=" + noOpt
                 + ", profile=" + profile
+                + ", parallelThreadCount=" + parallelThreadCount
+                + ", hashingThreadCount=" + hashingThreadCount
                 + '}';
     }
 }
\ No newline at end of file
@@ -47,6 +47,23 @@ public interface IvyArtifactRepository extends ArtifactRepository {
      */
     void setPassword(String password);
 
+    /**
+     * Returns the number of seconds for which the state of a resource in this repository is cached before it is
+     * checked again. Changing modules, such as snapshots, are otherwise checked on every resolve. Only applies to
+     * HTTP and HTTPS repositories. The default is 0.
+     *
+     * @return The number of seconds.
+     */
+    int getChangingModuleCacheSeconds();
+
+    /**
+     * Sets the number of seconds for which the state of a resource in this repository is cached before it is checked
+     * again.
+     *
+     * @param seconds The number of seconds.
+     */
+    void setChangingModuleCacheSeconds(int seconds);
+
     /**
      * Adds an Ivy artifact pattern to use to locate artifacts in this repository.
      *
@@ -37,6 +37,10 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
         this.resolvedEngine = resolvedEngine;
     }
 
+    public Artifact getIvyArtifact() {
+        return artifact;
+    }
+
     public ResolvedDependency getResolvedDependency() {
         return resolvedDependency;
     }
@@ -70,7 +74,7 @@ public class DefaultResolvedArtifact implements ResolvedArtifact {
         return getResolvedDependency() == null ? null : getResolvedDependency().getModuleName();
     }
 
-    public File getFile() {
+    public synchronized File getFile() {
         if (file == null) {
             file = resolvedEngine.download(artifact, new DownloadOptions()).getLocalFile();
         }
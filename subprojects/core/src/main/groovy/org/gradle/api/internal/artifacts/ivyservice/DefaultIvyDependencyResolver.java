@@ -41,14 +41,34 @@ public class DefaultIvyDependencyResolver implements IvyDependencyResolver {
     private static Logger logger = LoggerFactory.getLogger(DefaultIvyDependencyResolver.class);
 
     private IvyReportConverter ivyReportTranslator;
+    private final ResolvedConfigurationCache resolvedConfigurationCache;
+    private final ParallelArtifactDownloader artifactDownloader;
 
     public DefaultIvyDependencyResolver(IvyReportConverter ivyReportTranslator) {
+        this(ivyReportTranslator, null, null);
+    }
+
+    public DefaultIvyDependencyResolver(IvyReportConverter ivyReportTranslator, ResolvedConfigurationCache resolvedConfigurationCache,
+                                        ParallelArtifactDownloader artifactDownloader) {
         this.ivyReportTranslator = ivyReportTranslator;
+        this.resolvedConfigurationCache = resolvedConfigurationCache;
+        this.artifactDownloader = artifactDownloader;
         Message.setDefaultLogger(new IvyLoggingAdaper());
     }
 
     public ResolvedConfiguration resolve(Configuration configuration, Ivy ivy, ModuleDescriptor moduleDescriptor) {
         Clock clock = new Clock();
+        String cacheKey = null;
+        if (resolvedConfigurationCache != null) {
+            cacheKey = resolvedConfigurationCache.getKey(configuration, ivy, moduleDescriptor);
+            if (cacheKey != null) {
+                IvyConversionResult cachedResult = resolvedConfigurationCache.get(cacheKey, configuration, ivy.getResolveEngine());
+                if (cachedResult != null) {
+                    logger.debug("Timing: Using cached result for {} took {}", configuration, clock.getTime());
+                    return new ResolvedConfigurationImpl(cachedResult, ivy, configuration);
+                }
+            }
+        }
         ResolveOptions resolveOptions = createResolveOptions(configuration);
         ResolveReport resolveReport;
         try {
@@ -57,7 +77,11 @@ public class DefaultIvyDependencyResolver implements IvyDependencyResolver {
             throw new RuntimeException(e);
         }
         logger.debug("Timing: Ivy resolve took {}", clock.getTime());
-        return new ResolvedConfigurationImpl(resolveReport, configuration);
+        ResolvedConfigurationImpl resolvedConfiguration = new ResolvedConfigurationImpl(resolveReport, ivy, configuration);
+        if (cacheKey != null && !resolvedConfiguration.hasError()) {
+            resolvedConfigurationCache.put(cacheKey, ivy, resolveReport, resolvedConfiguration.conversionResult);
+        }
+        return resolvedConfiguration;
     }
 
     private ResolveOptions createResolveOptions(Configuration configuration) {
@@ -72,10 +96,13 @@ public class DefaultIvyDependencyResolver implements IvyDependencyResolver {
         private boolean hasError;
         private List<String> problemMessages;
         private IvyConversionResult conversionResult;
+        private Ivy ivy;
+        private final Set<ResolvedArtifact> downloadedArtifacts = new HashSet<ResolvedArtifact>();
         private final CachingDirectedGraphWalker<ResolvedDependency, ResolvedArtifact> walker
                 = new CachingDirectedGraphWalker<ResolvedDependency, ResolvedArtifact>(new ResolvedDependencyArtifactsGraph());
 
-        public ResolvedConfigurationImpl(ResolveReport resolveReport, Configuration configuration) {
+        public ResolvedConfigurationImpl(ResolveReport resolveReport, Ivy ivy, Configuration configuration) {
+            this.ivy = ivy;
             this.hasError = resolveReport.hasError();
             if (this.hasError) {
                 this.problemMessages = resolveReport.getAllProblemMessages();
@@ -87,6 +114,12 @@ public class DefaultIvyDependencyResolver implements IvyDependencyResolver {
             this.configuration = configuration;
         }
 
+        public ResolvedConfigurationImpl(IvyConversionResult conversionResult, Ivy ivy, Configuration configuration) {
+            this.conversionResult = conversionResult;
+            this.ivy = ivy;
+            this.configuration = configuration;
+        }
+
         public boolean hasError() {
             return hasError;
         }
@@ -110,6 +143,7 @@ public class DefaultIvyDependencyResolver implements IvyDependencyResolver {
             }
 
             artifacts.addAll(walker.findValues());
+            downloadArtifacts(artifacts);
 
             Set<File> files = new LinkedHashSet<File>();
             for (ResolvedArtifact artifact : artifacts) {
@@ -123,6 +157,16 @@ public class DefaultIvyDependencyResolver implements IvyDependencyResolver {
             return files;
         }
 
+        private void downloadArtifacts(Set<ResolvedArtifact> artifacts) {
+            if (artifactDownloader == null) {
+                return;
+            }
+            Set<ResolvedArtifact> notDownloaded = new LinkedHashSet<ResolvedArtifact>(artifacts);
+            notDownloaded.removeAll(downloadedArtifacts);
+            downloadedArtifacts.addAll(notDownloaded);
+            artifactDownloader.download(ivy, notDownloaded, configuration);
+        }
+
         public Set<ResolvedDependency> getFirstLevelModuleDependencies() {
             rethrowFailure();
             return conversionResult.getRoot().getChildren();
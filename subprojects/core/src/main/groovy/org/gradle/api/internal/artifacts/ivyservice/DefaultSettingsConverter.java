@@ -183,27 +183,35 @@ public class DefaultSettingsConverter implements SettingsConverter {
     }
 
     private class ProgressLoggingTransferListener implements TransferListener {
-        private ProgressLogger logger;
-        private long total;
+        // Artifacts may be downloaded by several threads at once, so track the transfer of each thread separately
+        private final ThreadLocal<Transfer> transfer = new ThreadLocal<Transfer>();
 
         public void transferProgress(TransferEvent evt) {
             if (evt.getResource().isLocal()) {
                 return;
             }
+            Transfer current = transfer.get();
             if (evt.getEventType() == TransferEvent.TRANSFER_STARTED) {
-                total = 0;
-                logger = progressLoggerFactory.newOperation(DefaultSettingsConverter.class);
+                if (current != null) {
+                    current.logger.completed();
+                }
+                current = new Transfer(progressLoggerFactory.newOperation(DefaultSettingsConverter.class));
                 String description = String.format("%s %s", StringUtils.capitalize(getRequestType(evt)), evt.getResource().getName());
-                logger.setDescription(description);
-                logger.setLoggingHeader(description);
-                logger.started();
+                current.logger.setDescription(description);
+                current.logger.setLoggingHeader(description);
+                current.logger.started();
+                transfer.set(current);
+            }
+            if (current == null) {
+                return;
             }
             if (evt.getEventType() == TransferEvent.TRANSFER_PROGRESS) {
-                total += evt.getLength();
-                logger.progress(String.format("%s/%s %sed", getLengthText(total), getLengthText(evt), getRequestType(evt)));
+                current.total += evt.getLength();
+                current.logger.progress(String.format("%s/%s %sed", getLengthText(current.total), getLengthText(evt), getRequestType(evt)));
             }
             if (evt.getEventType() == TransferEvent.TRANSFER_COMPLETED) {
-                logger.completed();
+                current.logger.completed();
+                transfer.remove();
             }
         }
 
@@ -215,4 +223,13 @@ public class DefaultSettingsConverter implements SettingsConverter {
             }
         }
     }
+
+    private static class Transfer {
+        private final ProgressLogger logger;
+        private long total;
+
+        private Transfer(ProgressLogger logger) {
+            this.logger = logger;
+        }
+    }
 }
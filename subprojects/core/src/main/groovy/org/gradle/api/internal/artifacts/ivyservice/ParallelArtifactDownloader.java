@@ -0,0 +1,174 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.IvyContext;
+import org.apache.ivy.plugins.resolver.ChainResolver;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.plugins.resolver.DualResolver;
+import org.apache.ivy.plugins.resolver.RepositoryResolver;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.ResolvedDependency;
+import org.gradle.api.internal.artifacts.repositories.InternalRepository;
+import org.gradle.api.internal.artifacts.repositories.ThreadSafeRepository;
+import org.gradle.logging.ProgressLogger;
+import org.gradle.logging.ProgressLoggerFactory;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Downloads the files of a set of resolved artifacts using a bounded pool of worker threads, once the dependency
+ * graph has been resolved. The files are downloaded into the Ivy cache as usual, so the cache layout does not change.
+ *
+ * <p>This is an optimisation only. An artifact which fails to download is left for the caller, which reports the
+ * failure when it asks the artifact for its file.</p>
+ *
+ * <p>The artifacts are downloaded in parallel only when every resolver which may download them uses a {@link
+ * ThreadSafeRepository}. The artifacts of a module revision are downloaded one at a time by the same thread, as Ivy
+ * updates the same files in its cache for each of them.</p>
+ */
+public class ParallelArtifactDownloader {
+    public static final int DEFAULT_MAX_THREADS = 4;
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelArtifactDownloader.class);
+    private final ExecutorFactory executorFactory;
+    private final ProgressLoggerFactory progressLoggerFactory;
+    private final int maxThreads;
+
+    public ParallelArtifactDownloader(ExecutorFactory executorFactory, ProgressLoggerFactory progressLoggerFactory, int maxThreads) {
+        this.executorFactory = executorFactory;
+        this.progressLoggerFactory = progressLoggerFactory;
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * Downloads the files of the given artifacts, blocking until all downloads have completed.
+     *
+     * @param ivy The Ivy instance which resolved the artifacts.
+     * @param artifacts The artifacts to download.
+     * @param displayName The display name of the thing which the artifacts belong to, used for progress reporting.
+     */
+    public void download(final Ivy ivy, Collection<? extends ResolvedArtifact> artifacts, Object displayName) {
+        if (!isThreadSafe(ivy.getSettings().getDefaultResolver())) {
+            LOGGER.debug("Not downloading artifacts for {} in parallel, as a resolver is not thread-safe.", displayName);
+            return;
+        }
+
+        // Artifacts which share a file are downloaded once, so that two threads never write the same file
+        Map<String, Map<String, ResolvedArtifact>> modules = new LinkedHashMap<String, Map<String, ResolvedArtifact>>();
+        int total = 0;
+        for (ResolvedArtifact artifact : artifacts) {
+            String moduleKey = getModuleKey(artifact);
+            Map<String, ResolvedArtifact> moduleArtifacts = modules.get(moduleKey);
+            if (moduleArtifacts == null) {
+                moduleArtifacts = new LinkedHashMap<String, ResolvedArtifact>();
+                modules.put(moduleKey, moduleArtifacts);
+            }
+            String key = getKey(artifact);
+            if (!moduleArtifacts.containsKey(key)) {
+                moduleArtifacts.put(key, artifact);
+                total++;
+            }
+        }
+        int threadCount = Math.min(maxThreads, modules.size());
+        if (threadCount <= 1) {
+            return;
+        }
+
+        final Queue<Collection<ResolvedArtifact>> queue = new ConcurrentLinkedQueue<Collection<ResolvedArtifact>>();
+        for (Map<String, ResolvedArtifact> moduleArtifacts : modules.values()) {
+            queue.add(moduleArtifacts.values());
+        }
+        final int artifactCount = total;
+        final AtomicInteger completed = new AtomicInteger();
+        final ProgressLogger progressLogger = progressLoggerFactory.newOperation(ParallelArtifactDownloader.class);
+        progressLogger.setDescription(String.format("Download artifacts for %s", displayName));
+        progressLogger.setShortDescription(String.format("Download %s", displayName));
+        progressLogger.started();
+
+        StoppableExecutor executor = executorFactory.create(String.format("Download artifacts for %s", displayName));
+        try {
+            for (int i = 0; i < threadCount; i++) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        // Ivy keeps its current instance per thread
+                        IvyContext.pushNewContext().setIvy(ivy);
+                        try {
+                            Collection<ResolvedArtifact> moduleArtifacts;
+                            while ((moduleArtifacts = queue.poll()) != null) {
+                                for (ResolvedArtifact artifact : moduleArtifacts) {
+                                    download(artifact);
+                                    int count = completed.incrementAndGet();
+                                    synchronized (progressLogger) {
+                                        progressLogger.progress(String.format("%s/%s artifacts", count, artifactCount));
+                                    }
+                                }
+                            }
+                        } finally {
+                            IvyContext.popContext();
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.stop();
+            progressLogger.completed();
+        }
+    }
+
+    private void download(ResolvedArtifact artifact) {
+        try {
+            artifact.getFile();
+        } catch (Throwable e) {
+            LOGGER.debug(String.format("Could not download %s. Leaving it for later.", artifact), e);
+        }
+    }
+
+    private static boolean isThreadSafe(DependencyResolver resolver) {
+        if (resolver instanceof ChainResolver) {
+            for (Object child : ((ChainResolver) resolver).getResolvers()) {
+                if (!isThreadSafe((DependencyResolver) child)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (resolver instanceof DualResolver) {
+            // Only the artifact resolver downloads artifacts
+            return isThreadSafe(((DualResolver) resolver).getArtifactResolver());
+        }
+        if (resolver instanceof RepositoryResolver) {
+            return ((RepositoryResolver) resolver).getRepository() instanceof ThreadSafeRepository;
+        }
+        // These resolvers do not download anything
+        return resolver instanceof ClientModuleResolver || resolver instanceof InternalRepository;
+    }
+
+    private static String getModuleKey(ResolvedArtifact artifact) {
+        ResolvedDependency owner = artifact.getResolvedDependency();
+        return owner == null ? null : String.format("%s:%s:%s", owner.getModuleGroup(), owner.getModuleName(), owner.getModuleVersion());
+    }
+
+    private static String getKey(ResolvedArtifact artifact) {
+        return String.format("%s:%s:%s", artifact.getName(), artifact.getType(), artifact.getExtension());
+    }
+}
@@ -0,0 +1,590 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice;
+
+import org.apache.ivy.Ivy;
+import org.apache.ivy.core.module.descriptor.Artifact;
+import org.apache.ivy.core.module.descriptor.DefaultArtifact;
+import org.apache.ivy.core.module.descriptor.DependencyArtifactDescriptor;
+import org.apache.ivy.core.module.descriptor.DependencyDescriptor;
+import org.apache.ivy.core.module.descriptor.ExcludeRule;
+import org.apache.ivy.core.module.descriptor.IncludeRule;
+import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
+import org.apache.ivy.core.module.id.ModuleRevisionId;
+import org.apache.ivy.core.report.ArtifactDownloadReport;
+import org.apache.ivy.core.report.ResolveReport;
+import org.apache.ivy.core.resolve.IvyNode;
+import org.apache.ivy.core.resolve.ResolveEngine;
+import org.apache.ivy.plugins.resolver.AbstractPatternsBasedResolver;
+import org.apache.ivy.plugins.resolver.ChainResolver;
+import org.apache.ivy.plugins.resolver.DependencyResolver;
+import org.apache.ivy.plugins.resolver.DualResolver;
+import org.apache.ivy.plugins.version.VersionMatcher;
+import org.gradle.api.artifacts.ClientModule;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.artifacts.Dependency;
+import org.gradle.api.artifacts.DependencyArtifact;
+import org.gradle.api.artifacts.ModuleDependency;
+import org.gradle.api.artifacts.ResolvedArtifact;
+import org.gradle.api.artifacts.ResolvedDependency;
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact;
+import org.gradle.api.internal.artifacts.DefaultResolvedDependency;
+import org.gradle.api.internal.artifacts.ivyservice.moduleconverter.dependencies.DependencyDescriptorFactory;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.Serializer;
+import org.gradle.util.HashUtil;
+import org.gradle.util.UncheckedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.*;
+
+/**
+ * A persistent cache of the results of resolving configurations, so that Ivy does not need to be used when nothing
+ * which affects the result has changed. An entry is keyed by a hash of the dependencies, excludes and configurations
+ * of the module descriptor which are relevant to the configuration, along with the repositories. An entry holds the
+ * resolved dependency graph and the identity of each artifact, and is used only if the module descriptors in the Ivy
+ * cache have not changed since the entry was created. The artifact files are not part of an entry. They are downloaded
+ * using Ivy when they are requested, as they are when the result does not come from the cache.
+ *
+ * <p>Only configurations whose dependencies all have static versions are cached. Configurations which depend on other
+ * projects or on client modules are not cached, as their result depends on more than the module descriptor.</p>
+ */
+public class ResolvedConfigurationCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResolvedConfigurationCache.class);
+    private final CacheRepository cacheRepository;
+    private PersistentIndexedCache<String, CachedConfiguration> cache;
+
+    public ResolvedConfigurationCache(CacheRepository cacheRepository) {
+        this.cacheRepository = cacheRepository;
+    }
+
+    /**
+     * Returns the cache key for resolving the given configuration, or null if the result cannot be cached.
+     */
+    public String getKey(Configuration configuration, Ivy ivy, ModuleDescriptor moduleDescriptor) {
+        Set<String> confs = new TreeSet<String>();
+        for (Configuration conf : configuration.getHierarchy()) {
+            confs.add(conf.getName());
+        }
+        VersionMatcher versionMatcher = ivy.getSettings().getVersionMatcher();
+
+        StringBuilder description = new StringBuilder();
+        description.append("configuration ").append(configuration.getName()).append('\n');
+        for (String confName : confs) {
+            org.apache.ivy.core.module.descriptor.Configuration conf = moduleDescriptor.getConfiguration(confName);
+            if (conf != null) {
+                description.append("conf ").append(conf.getName()).append(' ').append(Arrays.asList(conf.getExtends()))
+                        .append(' ').append(conf.isTransitive()).append('\n');
+            }
+        }
+        for (ExcludeRule rule : moduleDescriptor.getAllExcludeRules()) {
+            appendRule("exclude", rule.getId(), rule.getMatcher().getName(), rule.getConfigurations(), description);
+        }
+        for (DependencyDescriptor dependency : moduleDescriptor.getDependencies()) {
+            if (!containsAny(confs, dependency.getModuleConfigurations())) {
+                continue;
+            }
+            ModuleRevisionId id = dependency.getDependencyRevisionId();
+            if (dependency.isChanging() || versionMatcher.isDynamic(id)
+                    || id.getAttribute(DependencyDescriptorFactory.PROJECT_PATH_KEY) != null
+                    || id.getAttribute(ClientModule.CLIENT_MODULE_KEY) != null) {
+                return null;
+            }
+            description.append("dependency ").append(id.encodeToString()).append(' ').append(dependency.isTransitive())
+                    .append(' ').append(dependency.isForce()).append('\n');
+            for (String conf : dependency.getModuleConfigurations()) {
+                description.append("  conf ").append(conf).append(" -> ")
+                        .append(Arrays.asList(dependency.getDependencyConfigurations(conf))).append('\n');
+                for (DependencyArtifactDescriptor artifact : dependency.getDependencyArtifacts(conf)) {
+                    description.append("  artifact ").append(artifact.getName()).append(' ').append(artifact.getType())
+                            .append(' ').append(artifact.getExt()).append(' ').append(artifact.getUrl()).append(' ')
+                            .append(new TreeMap<Object, Object>(artifact.getQualifiedExtraAttributes())).append('\n');
+                }
+                for (IncludeRule rule : dependency.getIncludeRules(conf)) {
+                    appendRule("  include", rule.getId(), rule.getMatcher().getName(), rule.getConfigurations(), description);
+                }
+                for (ExcludeRule rule : dependency.getExcludeRules(conf)) {
+                    appendRule("  exclude", rule.getId(), rule.getMatcher().getName(), rule.getConfigurations(), description);
+                }
+            }
+        }
+        description.append("cache ").append(ivy.getSettings().getDefaultCache()).append('\n');
+        appendResolver(ivy.getSettings().getDefaultResolver(), description);
+        return HashUtil.createHash(description.toString());
+    }
+
+    /**
+     * Returns the cached result for the given key, or null if there is no usable result.
+     *
+     * @param resolveEngine The engine to use to download the files of the artifacts of the result.
+     */
+    public IvyConversionResult get(String key, Configuration configuration, ResolveEngine resolveEngine) {
+        CachedConfiguration cachedConfiguration;
+        synchronized (this) {
+            cachedConfiguration = getCache().get(key);
+        }
+        if (cachedConfiguration == null) {
+            return null;
+        }
+        if (!cachedConfiguration.isUpToDate()) {
+            LOGGER.debug("Cached result for {} is out of date.", configuration);
+            return null;
+        }
+        return cachedConfiguration.toConversionResult(configuration, resolveEngine);
+    }
+
+    /**
+     * Caches the given result, if possible. Does not download the artifacts of the result.
+     */
+    public void put(String key, Ivy ivy, ResolveReport resolveReport, IvyConversionResult result) {
+        VersionMatcher versionMatcher = ivy.getSettings().getVersionMatcher();
+        List<File> metaDataFiles = new ArrayList<File>();
+        for (Object dependency : resolveReport.getDependencies()) {
+            IvyNode node = (IvyNode) dependency;
+            if (!node.isLoaded()) {
+                continue;
+            }
+            if (versionMatcher.isDynamic(node.getId())
+                    || node.getResolvedId().getAttribute(DependencyDescriptorFactory.PROJECT_PATH_KEY) != null) {
+                // The result depends on more than the direct dependencies
+                return;
+            }
+            ArtifactDownloadReport metaDataReport = node.getModuleRevision().getReport();
+            if (metaDataReport != null && metaDataReport.getLocalFile() != null) {
+                metaDataFiles.add(metaDataReport.getLocalFile());
+            }
+        }
+
+        CachedConfiguration cachedConfiguration = CachedConfiguration.create(result, metaDataFiles);
+        if (cachedConfiguration != null) {
+            synchronized (this) {
+                getCache().put(key, cachedConfiguration);
+            }
+        }
+    }
+
+    private PersistentIndexedCache<String, CachedConfiguration> getCache() {
+        if (cache == null) {
+            cache = cacheRepository.cache("resolvedConfigurations").open().openIndexedCache(new CachedConfigurationSerializer());
+        }
+        return cache;
+    }
+
+    private static boolean containsAny(Set<String> confs, String[] candidates) {
+        for (String candidate : candidates) {
+            if (confs.contains(candidate)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void appendRule(String type, Object id, String matcher, String[] confs, StringBuilder description) {
+        description.append(type).append(' ').append(id).append(' ').append(matcher).append(' ')
+                .append(Arrays.asList(confs)).append('\n');
+    }
+
+    private static void appendResolver(DependencyResolver resolver, StringBuilder description) {
+        if (resolver == null) {
+            return;
+        }
+        description.append("resolver ").append(resolver.getClass().getName()).append(' ').append(resolver.getName());
+        if (resolver instanceof AbstractPatternsBasedResolver) {
+            AbstractPatternsBasedResolver patternsBasedResolver = (AbstractPatternsBasedResolver) resolver;
+            description.append(' ').append(patternsBasedResolver.getIvyPatterns()).append(' ')
+                    .append(patternsBasedResolver.getArtifactPatterns()).append(' ')
+                    .append(patternsBasedResolver.isM2compatible());
+        }
+        description.append('\n');
+        if (resolver instanceof ChainResolver) {
+            for (Object child : ((ChainResolver) resolver).getResolvers()) {
+                appendResolver((DependencyResolver) child, description);
+            }
+        }
+        if (resolver instanceof DualResolver) {
+            appendResolver(((DualResolver) resolver).getIvyResolver(), description);
+            appendResolver(((DualResolver) resolver).getArtifactResolver(), description);
+        }
+    }
+
+    static class CachedConfiguration {
+        final List<CachedFile> files = new ArrayList<CachedFile>();
+        final List<CachedArtifact> artifacts = new ArrayList<CachedArtifact>();
+        final List<CachedNode> nodes = new ArrayList<CachedNode>();
+        final List<Integer> resolvedArtifacts = new ArrayList<Integer>();
+        final Map<String, List<Integer>> firstLevelDependencies = new LinkedHashMap<String, List<Integer>>();
+        int root;
+
+        /**
+         * Creates the cached form of the given result, or returns null if it cannot be cached.
+         */
+        static CachedConfiguration create(IvyConversionResult result, Collection<File> metaDataFiles) {
+            CachedConfiguration cachedConfiguration = new CachedConfiguration();
+            for (File file : metaDataFiles) {
+                cachedConfiguration.files.add(new CachedFile(file));
+            }
+
+            // Number the nodes of the graph
+            Map<ResolvedDependency, Integer> nodeIndexes = new LinkedHashMap<ResolvedDependency, Integer>();
+            LinkedList<ResolvedDependency> queue = new LinkedList<ResolvedDependency>();
+            queue.add(result.getRoot());
+            while (!queue.isEmpty()) {
+                ResolvedDependency dependency = queue.removeFirst();
+                if (!nodeIndexes.containsKey(dependency)) {
+                    nodeIndexes.put(dependency, nodeIndexes.size());
+                    queue.addAll(dependency.getChildren());
+                }
+            }
+
+            Map<ResolvedArtifact, Integer> artifactIndexes = new IdentityHashMap<ResolvedArtifact, Integer>();
+            for (Map.Entry<ResolvedDependency, Integer> entry : nodeIndexes.entrySet()) {
+                ResolvedDependency dependency = entry.getKey();
+                CachedNode node = new CachedNode(dependency.getName(), dependency.getModuleGroup(),
+                        dependency.getModuleName(), dependency.getModuleVersion(), dependency.getConfiguration());
+                for (ResolvedArtifact artifact : dependency.getModuleArtifacts()) {
+                    node.moduleArtifacts.add(cachedConfiguration.addArtifact(artifact, artifactIndexes, nodeIndexes));
+                }
+                for (ResolvedDependency child : dependency.getChildren()) {
+                    node.children.add(nodeIndexes.get(child));
+                }
+                for (ResolvedDependency parent : dependency.getParents()) {
+                    Integer parentIndex = nodeIndexes.get(parent);
+                    if (parentIndex == null) {
+                        return null;
+                    }
+                    List<Integer> parentArtifacts = new ArrayList<Integer>();
+                    for (ResolvedArtifact artifact : dependency.getParentArtifacts(parent)) {
+                        parentArtifacts.add(cachedConfiguration.addArtifact(artifact, artifactIndexes, nodeIndexes));
+                    }
+                    node.parents.put(parentIndex, parentArtifacts);
+                }
+                cachedConfiguration.nodes.add(node);
+            }
+            for (ResolvedArtifact artifact : result.getResolvedArtifacts()) {
+                cachedConfiguration.resolvedArtifacts.add(cachedConfiguration.addArtifact(artifact, artifactIndexes, nodeIndexes));
+            }
+            for (Map.Entry<Dependency, Set<ResolvedDependency>> entry : result.getFirstLevelResolvedDependencies().entrySet()) {
+                List<Integer> indexes = new ArrayList<Integer>();
+                for (ResolvedDependency dependency : entry.getValue()) {
+                    indexes.add(nodeIndexes.get(dependency));
+                }
+                cachedConfiguration.firstLevelDependencies.put(getKey(entry.getKey()), indexes);
+            }
+            if (cachedConfiguration.artifacts.contains(null)) {
+                return null;
+            }
+            return cachedConfiguration;
+        }
+
+        private int addArtifact(ResolvedArtifact artifact, Map<ResolvedArtifact, Integer> artifactIndexes,
+                                Map<ResolvedDependency, Integer> nodeIndexes) {
+            Integer index = artifactIndexes.get(artifact);
+            if (index == null) {
+                index = artifacts.size();
+                artifactIndexes.put(artifact, index);
+                Integer owner = nodeIndexes.get(artifact.getResolvedDependency());
+                if (!(artifact instanceof DefaultResolvedArtifact) || owner == null) {
+                    artifacts.add(null);
+                } else {
+                    Artifact ivyArtifact = ((DefaultResolvedArtifact) artifact).getIvyArtifact();
+                    URL url = ivyArtifact.getUrl();
+                    artifacts.add(new CachedArtifact(owner, ivyArtifact.getName(), ivyArtifact.getType(), ivyArtifact.getExt(),
+                            url == null ? null : url.toString(), toStringMap(ivyArtifact.getQualifiedExtraAttributes())));
+                }
+            }
+            return index;
+        }
+
+        private static Map<String, String> toStringMap(Map<?, ?> attributes) {
+            Map<String, String> result = new TreeMap<String, String>();
+            for (Map.Entry<?, ?> entry : attributes.entrySet()) {
+                result.put(entry.getKey().toString(), entry.getValue().toString());
+            }
+            return result;
+        }
+
+        private static String getKey(Dependency dependency) {
+            if (!(dependency instanceof ModuleDependency)) {
+                return String.format("%s:%s:%s", dependency.getGroup(), dependency.getName(), dependency.getVersion());
+            }
+            ModuleDependency moduleDependency = (ModuleDependency) dependency;
+            // Dependencies on the same module which select different artifacts resolve to different nodes
+            Set<String> artifacts = new TreeSet<String>();
+            for (DependencyArtifact artifact : moduleDependency.getArtifacts()) {
+                artifacts.add(String.format("%s:%s:%s:%s:%s", artifact.getName(), artifact.getType(), artifact.getExtension(),
+                        artifact.getClassifier(), artifact.getUrl()));
+            }
+            return String.format("%s:%s:%s:%s:%s", dependency.getGroup(), dependency.getName(), dependency.getVersion(),
+                    moduleDependency.getConfiguration(), artifacts);
+        }
+
+        boolean isUpToDate() {
+            for (CachedFile file : files) {
+                if (!file.isUpToDate()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        IvyConversionResult toConversionResult(Configuration configuration, ResolveEngine resolveEngine) {
+            List<DefaultResolvedDependency> dependencies = new ArrayList<DefaultResolvedDependency>();
+            List<ResolvedArtifact> resolvedArtifacts = new ArrayList<ResolvedArtifact>();
+            for (CachedNode node : nodes) {
+                dependencies.add(new DefaultResolvedDependency(node.name, node.group, node.module, node.version,
+                        node.configuration, new LinkedHashSet<ResolvedArtifact>()));
+            }
+            for (CachedArtifact artifact : artifacts) {
+                DefaultResolvedDependency owner = dependencies.get(artifact.owner);
+                ModuleRevisionId id = ModuleRevisionId.newInstance(owner.getModuleGroup(), owner.getModuleName(), owner.getModuleVersion());
+                DefaultArtifact ivyArtifact = new DefaultArtifact(id, null, artifact.name, artifact.type, artifact.extension,
+                        toUrl(artifact.url), artifact.extraAttributes);
+                DefaultResolvedArtifact resolvedArtifact = new DefaultResolvedArtifact(ivyArtifact, resolveEngine);
+                resolvedArtifact.setResolvedDependency(owner);
+                resolvedArtifacts.add(resolvedArtifact);
+            }
+            for (int i = 0; i < nodes.size(); i++) {
+                CachedNode node = nodes.get(i);
+                DefaultResolvedDependency dependency = dependencies.get(i);
+                for (Integer artifact : node.moduleArtifacts) {
+                    dependency.getModuleArtifacts().add(resolvedArtifacts.get(artifact));
+                }
+                for (Integer child : node.children) {
+                    dependency.getChildren().add(dependencies.get(child));
+                }
+                for (Map.Entry<Integer, List<Integer>> entry : node.parents.entrySet()) {
+                    DefaultResolvedDependency parent = dependencies.get(entry.getKey());
+                    dependency.getParents().add(parent);
+                    dependency.addParentSpecificArtifacts(parent, select(resolvedArtifacts, entry.getValue()));
+                }
+            }
+
+            Map<Dependency, Set<ResolvedDependency>> firstLevelResolvedDependencies = new LinkedHashMap<Dependency, Set<ResolvedDependency>>();
+            for (ModuleDependency dependency : configuration.getAllDependencies(ModuleDependency.class)) {
+                Set<ResolvedDependency> resolvedDependencies = new LinkedHashSet<ResolvedDependency>();
+                List<Integer> indexes = firstLevelDependencies.get(getKey(dependency));
+                if (indexes != null) {
+                    resolvedDependencies.addAll(select(dependencies, indexes));
+                }
+                firstLevelResolvedDependencies.put(dependency, resolvedDependencies);
+            }
+            return new DefaultIvyConversionResult(dependencies.get(root), firstLevelResolvedDependencies,
+                    select(resolvedArtifacts, this.resolvedArtifacts));
+        }
+
+        private static URL toUrl(String url) {
+            if (url == null) {
+                return null;
+            }
+            try {
+                return new URL(url);
+            } catch (MalformedURLException e) {
+                throw UncheckedException.asUncheckedException(e);
+            }
+        }
+
+        private static <T> Set<T> select(List<? extends T> values, List<Integer> indexes) {
+            Set<T> selected = new LinkedHashSet<T>();
+            for (Integer index : indexes) {
+                selected.add(values.get(index));
+            }
+            return selected;
+        }
+    }
+
+    static class CachedFile {
+        final File file;
+        final long length;
+        final long lastModified;
+
+        CachedFile(File file) {
+            this(file, file.length(), file.lastModified());
+        }
+
+        CachedFile(File file, long length, long lastModified) {
+            this.file = file;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+        boolean isUpToDate() {
+            return file.isFile() && file.length() == length && file.lastModified() == lastModified;
+        }
+    }
+
+    static class CachedArtifact {
+        final int owner;
+        final String name;
+        final String type;
+        final String extension;
+        final String url;
+        final Map<String, String> extraAttributes;
+
+        CachedArtifact(int owner, String name, String type, String extension, String url, Map<String, String> extraAttributes) {
+            this.owner = owner;
+            this.name = name;
+            this.type = type;
+            this.extension = extension;
+            this.url = url;
+            this.extraAttributes = extraAttributes;
+        }
+    }
+
+    static class CachedNode {
+        final String name;
+        final String group;
+        final String module;
+        final String version;
+        final String configuration;
+        final List<Integer> moduleArtifacts = new ArrayList<Integer>();
+        final List<Integer> children = new ArrayList<Integer>();
+        final Map<Integer, List<Integer>> parents = new LinkedHashMap<Integer, List<Integer>>();
+
+        CachedNode(String name, String group, String module, String version, String configuration) {
+            this.name = name;
+            this.group = group;
+            this.module = module;
+            this.version = version;
+            this.configuration = configuration;
+        }
+    }
+
+    static class CachedConfigurationSerializer implements Serializer<CachedConfiguration> {
+        public CachedConfiguration read(InputStream instr) throws Exception {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(instr));
+            CachedConfiguration cachedConfiguration = new CachedConfiguration();
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                cachedConfiguration.files.add(new CachedFile(new File(input.readUTF()), input.readLong(), input.readLong()));
+            }
+            count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                int owner = input.readInt();
+                String name = readString(input);
+                String type = readString(input);
+                String extension = readString(input);
+                String url = readString(input);
+                Map<String, String> extraAttributes = new TreeMap<String, String>();
+                int attributeCount = input.readInt();
+                for (int j = 0; j < attributeCount; j++) {
+                    extraAttributes.put(input.readUTF(), input.readUTF());
+                }
+                cachedConfiguration.artifacts.add(new CachedArtifact(owner, name, type, extension, url, extraAttributes));
+            }
+            count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                CachedNode node = new CachedNode(readString(input), readString(input), readString(input),
+                        readString(input), readString(input));
+                readIndexes(input, node.moduleArtifacts);
+                readIndexes(input, node.children);
+                int parentCount = input.readInt();
+                for (int j = 0; j < parentCount; j++) {
+                    int parent = input.readInt();
+                    List<Integer> artifacts = new ArrayList<Integer>();
+                    readIndexes(input, artifacts);
+                    node.parents.put(parent, artifacts);
+                }
+                cachedConfiguration.nodes.add(node);
+            }
+            readIndexes(input, cachedConfiguration.resolvedArtifacts);
+            count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = input.readUTF();
+                List<Integer> indexes = new ArrayList<Integer>();
+                readIndexes(input, indexes);
+                cachedConfiguration.firstLevelDependencies.put(key, indexes);
+            }
+            cachedConfiguration.root = input.readInt();
+            return cachedConfiguration;
+        }
+
+        public void write(OutputStream outstr, CachedConfiguration value) throws Exception {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outstr));
+            output.writeInt(value.files.size());
+            for (CachedFile file : value.files) {
+                output.writeUTF(file.file.getPath());
+                output.writeLong(file.length);
+                output.writeLong(file.lastModified);
+            }
+            output.writeInt(value.artifacts.size());
+            for (CachedArtifact artifact : value.artifacts) {
+                output.writeInt(artifact.owner);
+                writeString(output, artifact.name);
+                writeString(output, artifact.type);
+                writeString(output, artifact.extension);
+                writeString(output, artifact.url);
+                output.writeInt(artifact.extraAttributes.size());
+                for (Map.Entry<String, String> entry : artifact.extraAttributes.entrySet()) {
+                    output.writeUTF(entry.getKey());
+                    output.writeUTF(entry.getValue());
+                }
+            }
+            output.writeInt(value.nodes.size());
+            for (CachedNode node : value.nodes) {
+                writeString(output, node.name);
+                writeString(output, node.group);
+                writeString(output, node.module);
+                writeString(output, node.version);
+                writeString(output, node.configuration);
+                writeIndexes(output, node.moduleArtifacts);
+                writeIndexes(output, node.children);
+                output.writeInt(node.parents.size());
+                for (Map.Entry<Integer, List<Integer>> entry : node.parents.entrySet()) {
+                    output.writeInt(entry.getKey());
+                    writeIndexes(output, entry.getValue());
+                }
+            }
+            writeIndexes(output, value.resolvedArtifacts);
+            output.writeInt(value.firstLevelDependencies.size());
+            for (Map.Entry<String, List<Integer>> entry : value.firstLevelDependencies.entrySet()) {
+                output.writeUTF(entry.getKey());
+                writeIndexes(output, entry.getValue());
+            }
+            output.writeInt(value.root);
+            output.flush();
+        }
+
+        private static String readString(DataInputStream input) throws IOException {
+            return input.readBoolean() ? input.readUTF() : null;
+        }
+
+        private static void writeString(DataOutputStream output, String value) throws IOException {
+            output.writeBoolean(value != null);
+            if (value != null) {
+                output.writeUTF(value);
+            }
+        }
+
+        private static void readIndexes(DataInputStream input, List<Integer> indexes) throws IOException {
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                indexes.add(input.readInt());
+            }
+        }
+
+        private static void writeIndexes(DataOutputStream output, List<Integer> indexes) throws IOException {
+            output.writeInt(indexes.size());
+            for (Integer index : indexes) {
+                output.writeInt(index);
+            }
+        }
+    }
+}
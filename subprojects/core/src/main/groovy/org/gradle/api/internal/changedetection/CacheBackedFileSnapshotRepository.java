@@ -15,41 +15,137 @@
  */
 package org.gradle.api.internal.changedetection;
 
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
+import org.gradle.api.invocation.Gradle;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.util.UncheckedException;
 
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Stores snapshots by content. Each snapshot is encoded using {@link FileSnapshotEncoder}, and stored once under the
+ * hash of its encoded form, regardless of how many ids refer to it. A reference count is kept for each stored
+ * snapshot, and it is removed when the last id referring to it is removed.
+ *
+ * <p>The snapshots are stored in the cache of the build, as are the task histories which refer to them, so the
+ * {@link PathTable} only holds the paths of a single build. New paths are written when the build finishes.</p>
+ */
 public class CacheBackedFileSnapshotRepository implements FileSnapshotRepository {
+    private static final String SNAPSHOT_KEY_PREFIX = "snapshot:";
+    private static final String REF_COUNT_KEY_PREFIX = "refs:";
     private final CacheRepository repository;
     private PersistentIndexedCache<Object, Object> cache;
+    private PathTable pathTable;
+    private FileSnapshotEncoder encoder;
 
     public CacheBackedFileSnapshotRepository(CacheRepository repository) {
         this.repository = repository;
     }
 
-    public Long add(FileCollectionSnapshot snapshot) {
-        open();
+    /**
+     * Opens the cache of the given build. Must be called before snapshots are added or fetched.
+     */
+    public synchronized void open(Gradle gradle) {
+        if (cache != null) {
+            return;
+        }
+        cache = repository.cache("fileSnapshots").forObject(gradle).open().openIndexedCache();
+        pathTable = new PathTable(cache);
+        encoder = new FileSnapshotEncoder(pathTable);
+        gradle.addBuildListener(new BuildAdapter() {
+            @Override
+            public void buildFinished(BuildResult result) {
+                flush();
+            }
+        });
+    }
+
+    /**
+     * Writes the paths which have been added since the last flush.
+     */
+    public synchronized void flush() {
+        if (pathTable != null) {
+            pathTable.flush();
+        }
+    }
+
+    public synchronized Long add(FileCollectionSnapshot snapshot) {
         Long id = (Long) cache.get("nextId");
         if (id == null) {
             id = 1L;
         }
         cache.put("nextId", id + 1);
-        cache.put(id, snapshot);
+
+        byte[] encoded = encode(snapshot);
+        pathTable.reserve();
+        String hash = hash(encoded);
+        Integer refCount = (Integer) cache.get(REF_COUNT_KEY_PREFIX + hash);
+        if (refCount == null) {
+            cache.put(SNAPSHOT_KEY_PREFIX + hash, encoded);
+            refCount = 0;
+        }
+        cache.put(REF_COUNT_KEY_PREFIX + hash, refCount + 1);
+        cache.put(id, hash);
         return id;
     }
 
-    public FileCollectionSnapshot get(Long id) {
-        open();
-        return (FileCollectionSnapshot) cache.get(id);
+    public synchronized FileCollectionSnapshot get(Long id) {
+        Object value = cache.get(id);
+        if (!(value instanceof String)) {
+            // Not found, or stored by an older version
+            return (FileCollectionSnapshot) value;
+        }
+        byte[] encoded = (byte[]) cache.get(SNAPSHOT_KEY_PREFIX + value);
+        if (encoded == null) {
+            return null;
+        }
+        try {
+            return encoder.decode(encoded);
+        } catch (PathTable.UnknownPathException e) {
+            // The paths were never written, for example because the build was killed
+            return null;
+        } catch (Exception e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
     }
 
-    public void remove(Long id) {
-        open();
+    public synchronized void remove(Long id) {
+        Object value = cache.get(id);
         cache.remove(id);
+        if (!(value instanceof String)) {
+            return;
+        }
+        String hash = (String) value;
+        Integer refCount = (Integer) cache.get(REF_COUNT_KEY_PREFIX + hash);
+        if (refCount == null || refCount <= 1) {
+            cache.remove(REF_COUNT_KEY_PREFIX + hash);
+            cache.remove(SNAPSHOT_KEY_PREFIX + hash);
+        } else {
+            cache.put(REF_COUNT_KEY_PREFIX + hash, refCount - 1);
+        }
+    }
+
+    private byte[] encode(FileCollectionSnapshot snapshot) {
+        try {
+            return encoder.encode(snapshot);
+        } catch (IOException e) {
+            throw UncheckedException.asUncheckedException(e);
+        }
     }
 
-    private void open() {
-        if (cache == null) {
-            cache = repository.cache("fileSnapshots").open().openIndexedCache();
+    private static String hash(byte[] encoded) {
+        MessageDigest messageDigest;
+        try {
+            messageDigest = MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw UncheckedException.asUncheckedException(e);
         }
+        messageDigest.update(encoded);
+        return new BigInteger(1, messageDigest.digest()).toString(32);
     }
 }
@@ -17,32 +17,29 @@ package org.gradle.api.internal.changedetection;
 
 import org.gradle.api.internal.TaskInternal;
 import org.gradle.cache.CacheRepository;
-import org.gradle.cache.DefaultSerializer;
 import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.Serializer;
+import org.gradle.util.ClassLoaderObjectInputStream;
 
-import java.io.File;
-import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.io.*;
+import java.util.*;
 
+/**
+ * Stores the history of each task in the taskArtifacts cache. Tasks may be executed concurrently, so all access to the
+ * cache and to its serializer is serialized using the lock of this repository.
+ */
 public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
     private final CacheRepository repository;
-    private final FileSnapshotRepository snapshotRepository;
+    private final CacheBackedFileSnapshotRepository snapshotRepository;
     private PersistentIndexedCache<String, TaskHistory> taskHistoryCache;
-    private DefaultSerializer<TaskHistory> serializer;
+    private TaskHistorySerializer serializer;
 
-    public CacheBackedTaskHistoryRepository(CacheRepository repository, FileSnapshotRepository snapshotRepository) {
+    public CacheBackedTaskHistoryRepository(CacheRepository repository, CacheBackedFileSnapshotRepository snapshotRepository) {
         this.repository = repository;
         this.snapshotRepository = snapshotRepository;
     }
 
     public History getHistory(final TaskInternal task) {
-        if (taskHistoryCache == null) {
-            serializer = new DefaultSerializer<TaskHistory>();
-            taskHistoryCache = repository.cache("taskArtifacts").forObject(task.getProject().getGradle()).open().openIndexedCache(serializer);
-        }
         final TaskHistory history = loadHistory(task);
         final LazyTaskExecution currentExecution = new LazyTaskExecution();
         currentExecution.snapshotRepository = snapshotRepository;
@@ -63,27 +60,35 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
             }
 
             public void update() {
-                if (currentExecution.inputFilesSnapshotId == null && currentExecution.inputFilesSnapshot != null) {
-                    currentExecution.inputFilesSnapshotId = snapshotRepository.add(currentExecution.inputFilesSnapshot);
-                }
-                if (currentExecution.outputFilesSnapshotId == null && currentExecution.outputFilesSnapshot != null) {
-                    currentExecution.outputFilesSnapshotId = snapshotRepository.add(currentExecution.outputFilesSnapshot);
-                }
-                while (history.configurations.size() > TaskHistory.MAX_HISTORY_ENTRIES) {
-                    LazyTaskExecution execution = history.configurations.remove(history.configurations.size() - 1);
-                    if (execution.inputFilesSnapshotId != null) {
-                        snapshotRepository.remove(execution.inputFilesSnapshotId);
+                synchronized (CacheBackedTaskHistoryRepository.this) {
+                    if (currentExecution.inputFilesSnapshotId == null && currentExecution.inputFilesSnapshot != null) {
+                        currentExecution.inputFilesSnapshotId = snapshotRepository.add(currentExecution.inputFilesSnapshot);
+                    }
+                    if (currentExecution.outputFilesSnapshotId == null && currentExecution.outputFilesSnapshot != null) {
+                        currentExecution.outputFilesSnapshotId = snapshotRepository.add(currentExecution.outputFilesSnapshot);
                     }
-                    if (execution.outputFilesSnapshotId != null) {
-                        snapshotRepository.remove(execution.outputFilesSnapshotId);
+                    while (history.configurations.size() > TaskHistory.MAX_HISTORY_ENTRIES) {
+                        LazyTaskExecution execution = history.configurations.remove(history.configurations.size() - 1);
+                        if (execution.inputFilesSnapshotId != null) {
+                            snapshotRepository.remove(execution.inputFilesSnapshotId);
+                        }
+                        if (execution.outputFilesSnapshotId != null) {
+                            snapshotRepository.remove(execution.outputFilesSnapshotId);
+                        }
                     }
+                    taskHistoryCache.put(task.getPath(), history);
                 }
-                taskHistoryCache.put(task.getPath(), history);
             }
         };
     }
 
-    private TaskHistory loadHistory(TaskInternal task) {
+    private synchronized TaskHistory loadHistory(TaskInternal task) {
+        if (taskHistoryCache == null) {
+            serializer = new TaskHistorySerializer();
+            taskHistoryCache = repository.cache("taskArtifacts").forObject(task.getProject().getGradle()).open().openIndexedCache(serializer);
+            snapshotRepository.open(task.getProject().getGradle());
+        }
+        // The serializer is shared, so only change its class loader while holding the lock
         ClassLoader original = serializer.getClassLoader();
         serializer.setClassLoader(task.getClass().getClassLoader());
         try {
@@ -127,12 +132,12 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
         return bestMatch;
     }
 
-    private static class TaskHistory implements Serializable {
+    static class TaskHistory {
         private static final int MAX_HISTORY_ENTRIES = 3;
         private final List<LazyTaskExecution> configurations = new ArrayList<LazyTaskExecution>();
     }
 
-    private static class LazyTaskExecution extends TaskExecution {
+    static class LazyTaskExecution extends TaskExecution {
         private Long inputFilesSnapshotId;
         private Long outputFilesSnapshotId;
         private transient FileSnapshotRepository snapshotRepository;
@@ -167,4 +172,228 @@ public class CacheBackedTaskHistoryRepository implements TaskHistoryRepository {
             outputFilesSnapshotId = null;
         }
     }
+
+    /**
+     * Writes task history using a compact binary format. Input property values of unknown types are written using
+     * Java serialization, and are read using the class loader of the task.
+     */
+    static class TaskHistorySerializer implements Serializer<TaskHistory> {
+        private static final byte FORMAT_VERSION = 1;
+        private static final byte NULL = 0;
+        private static final byte STRING = 1;
+        private static final byte BOOLEAN = 2;
+        private static final byte INTEGER = 3;
+        private static final byte LONG = 4;
+        private static final byte FILE = 5;
+        private static final byte SERIALIZED = 6;
+        private ClassLoader classLoader = getClass().getClassLoader();
+
+        public ClassLoader getClassLoader() {
+            return classLoader;
+        }
+
+        public void setClassLoader(ClassLoader classLoader) {
+            this.classLoader = classLoader;
+        }
+
+        public TaskHistory read(InputStream instr) throws Exception {
+            Decoder decoder = new Decoder(new DataInputStream(instr));
+            if (decoder.input.readByte() != FORMAT_VERSION) {
+                // Written by an incompatible version: discard
+                return null;
+            }
+            TaskHistory history = new TaskHistory();
+            int count = decoder.input.readInt();
+            for (int i = 0; i < count; i++) {
+                LazyTaskExecution execution = new LazyTaskExecution();
+                execution.setTaskClass(decoder.readString());
+                execution.inputFilesSnapshotId = decoder.readId();
+                execution.outputFilesSnapshotId = decoder.readId();
+                execution.setOutputFiles(decoder.readStrings());
+                execution.setInputProperties(decoder.readProperties());
+                history.configurations.add(execution);
+            }
+            return history;
+        }
+
+        public void write(OutputStream outstr, TaskHistory value) throws Exception {
+            Encoder encoder = new Encoder(new DataOutputStream(outstr));
+            encoder.output.writeByte(FORMAT_VERSION);
+            encoder.output.writeInt(value.configurations.size());
+            for (LazyTaskExecution execution : value.configurations) {
+                encoder.writeString(execution.getTaskClass());
+                encoder.writeId(execution.inputFilesSnapshotId);
+                encoder.writeId(execution.outputFilesSnapshotId);
+                encoder.writeStrings(execution.getOutputFiles());
+                encoder.writeProperties(execution.getInputProperties());
+            }
+            encoder.output.flush();
+        }
+
+        /**
+         * Strings are written once per entry, and referred to by index after that. Output file paths in particular are
+         * usually shared between the executions of a task.
+         */
+        private static class Encoder {
+            private final DataOutputStream output;
+            private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+            private Encoder(DataOutputStream output) {
+                this.output = output;
+            }
+
+            void writeId(Long id) throws IOException {
+                output.writeBoolean(id != null);
+                if (id != null) {
+                    output.writeLong(id);
+                }
+            }
+
+            void writeString(String value) throws IOException {
+                if (value == null) {
+                    output.writeInt(-1);
+                    return;
+                }
+                Integer index = strings.get(value);
+                if (index != null) {
+                    output.writeInt(index + 1);
+                    return;
+                }
+                strings.put(value, strings.size());
+                output.writeInt(0);
+                byte[] bytes = value.getBytes("UTF-8");
+                output.writeInt(bytes.length);
+                output.write(bytes);
+            }
+
+            void writeStrings(Set<String> values) throws IOException {
+                if (values == null) {
+                    output.writeInt(-1);
+                    return;
+                }
+                output.writeInt(values.size());
+                for (String value : values) {
+                    writeString(value);
+                }
+            }
+
+            void writeProperties(Map<String, Object> properties) throws IOException {
+                if (properties == null) {
+                    output.writeInt(-1);
+                    return;
+                }
+                output.writeInt(properties.size());
+                for (Map.Entry<String, Object> entry : properties.entrySet()) {
+                    writeString(entry.getKey());
+                    writeValue(entry.getValue());
+                }
+            }
+
+            void writeValue(Object value) throws IOException {
+                if (value == null) {
+                    output.writeByte(NULL);
+                } else if (value.getClass() == String.class) {
+                    output.writeByte(STRING);
+                    writeString((String) value);
+                } else if (value.getClass() == Boolean.class) {
+                    output.writeByte(BOOLEAN);
+                    output.writeBoolean((Boolean) value);
+                } else if (value.getClass() == Integer.class) {
+                    output.writeByte(INTEGER);
+                    output.writeInt((Integer) value);
+                } else if (value.getClass() == Long.class) {
+                    output.writeByte(LONG);
+                    output.writeLong((Long) value);
+                } else if (value.getClass() == File.class) {
+                    output.writeByte(FILE);
+                    writeString(((File) value).getPath());
+                } else {
+                    output.writeByte(SERIALIZED);
+                    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                    ObjectOutputStream objectStream = new ObjectOutputStream(bytes);
+                    objectStream.writeObject(value);
+                    objectStream.close();
+                    output.writeInt(bytes.size());
+                    bytes.writeTo(output);
+                }
+            }
+        }
+
+        private class Decoder {
+            private final DataInputStream input;
+            private final List<String> strings = new ArrayList<String>();
+
+            private Decoder(DataInputStream input) {
+                this.input = input;
+            }
+
+            Long readId() throws IOException {
+                return input.readBoolean() ? input.readLong() : null;
+            }
+
+            String readString() throws IOException {
+                int index = input.readInt();
+                if (index < 0) {
+                    return null;
+                }
+                if (index > 0) {
+                    return strings.get(index - 1);
+                }
+                byte[] bytes = new byte[input.readInt()];
+                input.readFully(bytes);
+                String value = new String(bytes, "UTF-8");
+                strings.add(value);
+                return value;
+            }
+
+            Set<String> readStrings() throws IOException {
+                int count = input.readInt();
+                if (count < 0) {
+                    return null;
+                }
+                Set<String> values = new HashSet<String>();
+                for (int i = 0; i < count; i++) {
+                    values.add(readString());
+                }
+                return values;
+            }
+
+            Map<String, Object> readProperties() throws Exception {
+                int count = input.readInt();
+                if (count < 0) {
+                    return null;
+                }
+                Map<String, Object> properties = new HashMap<String, Object>();
+                for (int i = 0; i < count; i++) {
+                    String key = readString();
+                    properties.put(key, readValue());
+                }
+                return properties;
+            }
+
+            Object readValue() throws Exception {
+                byte tag = input.readByte();
+                switch (tag) {
+                    case NULL:
+                        return null;
+                    case STRING:
+                        return readString();
+                    case BOOLEAN:
+                        return input.readBoolean();
+                    case INTEGER:
+                        return input.readInt();
+                    case LONG:
+                        return input.readLong();
+                    case FILE:
+                        return new File(readString());
+                    case SERIALIZED:
+                        byte[] bytes = new byte[input.readInt()];
+                        input.readFully(bytes);
+                        return new ClassLoaderObjectInputStream(new ByteArrayInputStream(bytes), classLoader).readObject();
+                    default:
+                        throw new IOException(String.format("Unexpected input property value type %s.", tag));
+                }
+            }
+        }
+    }
 }
@@ -20,31 +20,79 @@ import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.Serializer;
 
 import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
 
+/**
+ * A {@link Hasher} which caches the hash of each file, along with its length and timestamp. Entries are held in an
+ * {@link InMemoryFileHashCache}, which may be shared with later builds, and changed entries are written to the
+ * persistent cache when {@link #flush()} is called.
+ */
 public class CachingHasher implements Hasher {
     private final PersistentIndexedCache<File, FileInfo> cache;
     private final Hasher hasher;
-    private long timestamp;
+    private final InMemoryFileHashCache inMemoryCache;
+    private final Map<File, FileInfo> dirty = new HashMap<File, FileInfo>();
 
     public CachingHasher(Hasher hasher, CacheRepository cacheRepository) {
+        this(hasher, cacheRepository, new InMemoryFileHashCache());
+    }
+
+    public CachingHasher(Hasher hasher, CacheRepository cacheRepository, InMemoryFileHashCache inMemoryCache) {
         this.hasher = hasher;
+        this.inMemoryCache = inMemoryCache;
         cache = cacheRepository.cache("fileHashes").open().openIndexedCache(new FileInfoSerializer());
     }
 
     public byte[] hash(File file) {
-        FileInfo info = cache.get(file);
+        FileInfo info = lookup(file);
 
         long length = file.length();
-        timestamp = file.lastModified();
+        long timestamp = file.lastModified();
         if (info != null && length == info.length && timestamp == info.timestamp) {
             return info.hash;
         }
 
+        // Files may be hashed concurrently, so only access to the caches is serialized
         byte[] hash = hasher.hash(file);
-        cache.put(file, new FileInfo(hash, length, timestamp));
+        info = new FileInfo(hash, length, timestamp);
+        inMemoryCache.put(file, info);
+        synchronized (dirty) {
+            dirty.put(file, info);
+        }
         return hash;
     }
 
+    private FileInfo lookup(File file) {
+        FileInfo info = inMemoryCache.get(file);
+        if (info != null) {
+            return info;
+        }
+        synchronized (dirty) {
+            info = dirty.get(file);
+            if (info == null) {
+                info = cache.get(file);
+            }
+        }
+        if (info != null) {
+            inMemoryCache.put(file, info);
+        }
+        return info;
+    }
+
+    /**
+     * Writes the entries which have changed since the last flush to the persistent cache.
+     */
+    public void flush() {
+        synchronized (dirty) {
+            if (dirty.isEmpty()) {
+                return;
+            }
+            cache.putAll(dirty);
+            dirty.clear();
+        }
+    }
+
     public static class FileInfo implements Serializable {
         private final byte[] hash;
         private final long timestamp;
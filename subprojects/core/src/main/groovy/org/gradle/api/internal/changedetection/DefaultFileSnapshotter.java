@@ -18,6 +18,8 @@ package org.gradle.api.internal.changedetection;
 
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.file.collections.SimpleFileCollection;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
 import org.gradle.util.ChangeListener;
 import org.gradle.util.NoOpChangeListener;
 
@@ -25,12 +27,30 @@ import java.io.File;
 import java.io.Serializable;
 import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class DefaultFileSnapshotter implements FileSnapshotter {
     private final Hasher hasher;
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
+    private final Semaphore workers;
 
     public DefaultFileSnapshotter(Hasher hasher) {
+        this(hasher, null, 1);
+    }
+
+    /**
+     * Creates a snapshotter which hashes files using up to the given number of threads. The threads are shared by
+     * all snapshots which are taken at the same time, for example by tasks executing in parallel. The resulting
+     * snapshot is the same as the one produced when hashing serially.
+     */
+    public DefaultFileSnapshotter(Hasher hasher, ExecutorFactory executorFactory, int maxThreads) {
         this.hasher = hasher;
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
+        // The thread taking the snapshot also hashes files
+        this.workers = new Semaphore(Math.max(0, maxThreads - 1));
     }
 
     public FileCollectionSnapshot emptySnapshot() {
@@ -39,29 +59,74 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
 
     public FileCollectionSnapshot snapshot(FileCollection sourceFiles) {
         Map<String, FileSnapshot> snapshots = new HashMap<String, FileSnapshot>();
+        List<File> filesToHash = new ArrayList<File>();
         for (File file : sourceFiles.getAsFileTree()) {
             if (file.isFile()) {
-                snapshots.put(file.getAbsolutePath(), new FileHashSnapshot(hasher.hash(file)));
+                filesToHash.add(file);
             } else if (file.isDirectory()) {
                 snapshots.put(file.getAbsolutePath(), new DirSnapshot());
             } else {
                 snapshots.put(file.getAbsolutePath(), new MissingFileSnapshot());
             }
         }
+
+        byte[][] hashes = hash(filesToHash);
+        for (int i = 0; i < hashes.length; i++) {
+            snapshots.put(filesToHash.get(i).getAbsolutePath(), new FileHashSnapshot(hashes[i]));
+        }
         return new FileCollectionSnapshotImpl(snapshots);
     }
 
-    private interface FileSnapshot extends Serializable {
+    private byte[][] hash(final List<File> files) {
+        final byte[][] hashes = new byte[files.size()][];
+        int wanted = Math.min(maxThreads, files.size()) - 1;
+        int extraThreads = 0;
+        while (executorFactory != null && extraThreads < wanted && workers.tryAcquire()) {
+            extraThreads++;
+        }
+
+        // Each worker pulls the next unhashed file, so a few large files do not hold up the others
+        final AtomicInteger next = new AtomicInteger();
+        Runnable worker = new Runnable() {
+            public void run() {
+                for (int index = next.getAndIncrement(); index < hashes.length; index = next.getAndIncrement()) {
+                    hashes[index] = hasher.hash(files.get(index));
+                }
+            }
+        };
+        if (extraThreads == 0) {
+            worker.run();
+            return hashes;
+        }
+
+        StoppableExecutor executor = executorFactory.create("File hasher");
+        try {
+            for (int i = 0; i < extraThreads; i++) {
+                executor.execute(worker);
+            }
+            worker.run();
+        } finally {
+            executor.stop();
+            workers.release(extraThreads);
+        }
+        return hashes;
+    }
+
+    interface FileSnapshot extends Serializable {
         boolean isUpToDate(FileSnapshot snapshot);
     }
 
-    private static class FileHashSnapshot implements FileSnapshot {
+    static class FileHashSnapshot implements FileSnapshot {
         private final byte[] hash;
 
         public FileHashSnapshot(byte[] hash) {
             this.hash = hash;
         }
 
+        public byte[] getHash() {
+            return hash;
+        }
+
         public boolean isUpToDate(FileSnapshot snapshot) {
             if (!(snapshot instanceof FileHashSnapshot)) {
                 return false;
@@ -77,25 +142,29 @@ public class DefaultFileSnapshotter implements FileSnapshotter {
         }
     }
 
-    private static class DirSnapshot implements FileSnapshot {
+    static class DirSnapshot implements FileSnapshot {
         public boolean isUpToDate(FileSnapshot snapshot) {
             return snapshot instanceof DirSnapshot;
         }
     }
 
-    private static class MissingFileSnapshot implements FileSnapshot {
+    static class MissingFileSnapshot implements FileSnapshot {
         public boolean isUpToDate(FileSnapshot snapshot) {
             return snapshot instanceof MissingFileSnapshot;
         }
     }
 
-    private static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
+    static class FileCollectionSnapshotImpl implements FileCollectionSnapshot {
         private final Map<String, FileSnapshot> snapshots;
 
         public FileCollectionSnapshotImpl(Map<String, FileSnapshot> snapshots) {
             this.snapshots = snapshots;
         }
 
+        public Map<String, FileSnapshot> getSnapshots() {
+            return snapshots;
+        }
+
         public FileCollection getFiles() {
             List<File> files = new ArrayList<File>();
             for (Map.Entry<String, FileSnapshot> entry : snapshots.entrySet()) {
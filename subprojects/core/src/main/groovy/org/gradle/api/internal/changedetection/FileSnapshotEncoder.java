@@ -0,0 +1,138 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.internal.changedetection.DefaultFileSnapshotter.*;
+import org.gradle.api.internal.changedetection.OutputFilesSnapshotter.OutputFilesSnapshot;
+import org.gradle.util.ClassLoaderObjectInputStream;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Encodes snapshots in a compact form. Paths are replaced with their id from a {@link PathTable}, and the entries of a
+ * snapshot are written in path id order. This means that snapshots with the same content have the same encoded form.
+ * Snapshots of unknown types are encoded using Java serialization.
+ */
+class FileSnapshotEncoder {
+    private static final byte SERIALIZED = 0;
+    private static final byte FILES = 1;
+    private static final byte OUTPUT_FILES = 2;
+    private static final byte MISSING_FILE = 0;
+    private static final byte DIR = 1;
+    private static final byte FILE = 2;
+    private final PathTable pathTable;
+
+    FileSnapshotEncoder(PathTable pathTable) {
+        this.pathTable = pathTable;
+    }
+
+    public byte[] encode(FileCollectionSnapshot snapshot) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        write(output, snapshot);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    public FileCollectionSnapshot decode(byte[] encoded) throws Exception {
+        return read(new DataInputStream(new ByteArrayInputStream(encoded)));
+    }
+
+    private void write(DataOutputStream output, FileCollectionSnapshot snapshot) throws IOException {
+        if (snapshot instanceof FileCollectionSnapshotImpl) {
+            output.writeByte(FILES);
+            SortedMap<Integer, FileSnapshot> entries = new TreeMap<Integer, FileSnapshot>();
+            for (Map.Entry<String, FileSnapshot> entry : ((FileCollectionSnapshotImpl) snapshot).getSnapshots().entrySet()) {
+                entries.put(pathTable.getId(entry.getKey()), entry.getValue());
+            }
+            output.writeInt(entries.size());
+            for (Map.Entry<Integer, FileSnapshot> entry : entries.entrySet()) {
+                output.writeInt(entry.getKey());
+                FileSnapshot fileSnapshot = entry.getValue();
+                if (fileSnapshot instanceof FileHashSnapshot) {
+                    byte[] hash = ((FileHashSnapshot) fileSnapshot).getHash();
+                    output.writeByte(FILE);
+                    output.writeShort(hash.length);
+                    output.write(hash);
+                } else if (fileSnapshot instanceof DirSnapshot) {
+                    output.writeByte(DIR);
+                } else {
+                    output.writeByte(MISSING_FILE);
+                }
+            }
+        } else if (snapshot instanceof OutputFilesSnapshot) {
+            OutputFilesSnapshot outputFilesSnapshot = (OutputFilesSnapshot) snapshot;
+            output.writeByte(OUTPUT_FILES);
+            SortedMap<Integer, Long> rootFileIds = new TreeMap<Integer, Long>();
+            for (Map.Entry<String, Long> entry : outputFilesSnapshot.getRootFileIds().entrySet()) {
+                rootFileIds.put(pathTable.getId(entry.getKey()), entry.getValue());
+            }
+            output.writeInt(rootFileIds.size());
+            for (Map.Entry<Integer, Long> entry : rootFileIds.entrySet()) {
+                output.writeInt(entry.getKey());
+                output.writeBoolean(entry.getValue() != null);
+                if (entry.getValue() != null) {
+                    output.writeLong(entry.getValue());
+                }
+            }
+            write(output, outputFilesSnapshot.getFilesSnapshot());
+        } else {
+            output.writeByte(SERIALIZED);
+            ObjectOutputStream objectStream = new ObjectOutputStream(output);
+            objectStream.writeObject(snapshot);
+            objectStream.flush();
+        }
+    }
+
+    private FileCollectionSnapshot read(DataInputStream input) throws Exception {
+        byte type = input.readByte();
+        switch (type) {
+            case FILES:
+                int fileCount = input.readInt();
+                Map<String, FileSnapshot> snapshots = new HashMap<String, FileSnapshot>(fileCount * 2);
+                for (int i = 0; i < fileCount; i++) {
+                    String path = pathTable.getPath(input.readInt());
+                    byte fileType = input.readByte();
+                    if (fileType == FILE) {
+                        byte[] hash = new byte[input.readShort()];
+                        input.readFully(hash);
+                        snapshots.put(path, new FileHashSnapshot(hash));
+                    } else if (fileType == DIR) {
+                        snapshots.put(path, new DirSnapshot());
+                    } else {
+                        snapshots.put(path, new MissingFileSnapshot());
+                    }
+                }
+                return new FileCollectionSnapshotImpl(snapshots);
+            case OUTPUT_FILES:
+                int rootCount = input.readInt();
+                Map<String, Long> rootFileIds = new HashMap<String, Long>(rootCount * 2);
+                for (int i = 0; i < rootCount; i++) {
+                    String path = pathTable.getPath(input.readInt());
+                    rootFileIds.put(path, input.readBoolean() ? input.readLong() : null);
+                }
+                return new OutputFilesSnapshot(rootFileIds, read(input));
+            case SERIALIZED:
+                return (FileCollectionSnapshot) new ClassLoaderObjectInputStream(input, getClass().getClassLoader()).readObject();
+            default:
+                throw new IOException(String.format("Unexpected snapshot type %s.", type));
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.api.internal.changedetection.CachingHasher.FileInfo;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded in-memory cache of the most recently used file hashes. An instance is shared by all builds run in a given
+ * process, so that a long running process does not need to read hashes from the persistent cache on each build. Each
+ * entry carries the length and timestamp of the file, so a stale entry is detected in the same way as a stale
+ * persistent entry.
+ */
+public class InMemoryFileHashCache {
+    public static final int DEFAULT_MAX_ENTRIES = 50000;
+    private final Map<File, FileInfo> entries;
+
+    public InMemoryFileHashCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public InMemoryFileHashCache(final int maxEntries) {
+        entries = new LinkedHashMap<File, FileInfo>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<File, FileInfo> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public synchronized FileInfo get(File file) {
+        return entries.get(file);
+    }
+
+    public synchronized void put(File file, FileInfo info) {
+        entries.put(file, info);
+    }
+}
@@ -20,6 +20,7 @@ import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.util.UncheckedException;
 
 import java.io.*;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -58,4 +59,21 @@ public class InMemoryIndexedCache<K, V> implements PersistentIndexedCache<K, V>
     public void remove(K key) {
         entries.remove(key);
     }
+
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new HashMap<K, V>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        for (Map.Entry<? extends K, ? extends V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
 }
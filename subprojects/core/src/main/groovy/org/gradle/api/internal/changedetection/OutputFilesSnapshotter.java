@@ -57,24 +57,27 @@ public class OutputFilesSnapshotter implements FileSnapshotter {
 
     public FileCollectionSnapshot snapshot(FileCollection files) {
         Map<String, Long> snapshotDirIds = new HashMap<String, Long>();
-        for (File file : files) {
-            Long dirId;
-            if (file.exists()) {
-                dirId = dirIdentiferCache.get(file.getAbsolutePath());
-                if (dirId == null) {
-                    dirId = idGenerator.generateId();
-                    dirIdentiferCache.put(file.getAbsolutePath(), dirId);
+        // Tasks may be executed concurrently, so serialize access to the cache
+        synchronized (dirIdentiferCache) {
+            for (File file : files) {
+                Long dirId;
+                if (file.exists()) {
+                    dirId = dirIdentiferCache.get(file.getAbsolutePath());
+                    if (dirId == null) {
+                        dirId = idGenerator.generateId();
+                        dirIdentiferCache.put(file.getAbsolutePath(), dirId);
+                    }
+                } else {
+                    dirIdentiferCache.remove(file.getAbsolutePath());
+                    dirId = null;
                 }
-            } else {
-                dirIdentiferCache.remove(file.getAbsolutePath());
-                dirId = null;
+                snapshotDirIds.put(file.getAbsolutePath(), dirId);
             }
-            snapshotDirIds.put(file.getAbsolutePath(), dirId);
         }
         return new OutputFilesSnapshot(snapshotDirIds, snapshotter.snapshot(files));
     }
 
-    private static class OutputFilesSnapshot implements FileCollectionSnapshot {
+    static class OutputFilesSnapshot implements FileCollectionSnapshot {
         private final Map<String, Long> rootFileIds;
         private final FileCollectionSnapshot filesSnapshot;
 
@@ -83,6 +86,14 @@ public class OutputFilesSnapshotter implements FileSnapshotter {
             this.filesSnapshot = filesSnapshot;
         }
 
+        public Map<String, Long> getRootFileIds() {
+            return rootFileIds;
+        }
+
+        public FileCollectionSnapshot getFilesSnapshot() {
+            return filesSnapshot;
+        }
+
         public FileCollection getFiles() {
             return filesSnapshot.getFiles();
         }
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection;
+
+import org.gradle.cache.PersistentIndexedCache;
+
+import java.util.*;
+
+/**
+ * Assigns a persistent integer id to each path, so that snapshots can refer to paths by id. Ids are never reused.
+ * The paths are stored in the given cache in fixed size chunks, and are loaded into memory on first use.
+ *
+ * <p>New paths are only written to the cache by {@link #flush()}, so that each chunk is written once per build rather
+ * than once per snapshot. The number of ids handed out is written by {@link #reserve()} before a snapshot which uses
+ * them is stored, so that ids are not reused when the process stops before the paths are flushed. The path of such an
+ * id is unknown.</p>
+ */
+class PathTable {
+    static final int CHUNK_SIZE = 1024;
+    private static final String PATH_COUNT_KEY = "pathCount";
+    private static final String CHUNK_KEY_PREFIX = "paths:";
+    private final PersistentIndexedCache<Object, Object> cache;
+    private final Set<Integer> dirtyChunks = new TreeSet<Integer>();
+    private List<String> paths;
+    private Map<String, Integer> ids;
+    private int reservedCount;
+
+    PathTable(PersistentIndexedCache<Object, Object> cache) {
+        this.cache = cache;
+    }
+
+    public int getId(String path) {
+        load();
+        Integer id = ids.get(path);
+        if (id == null) {
+            id = paths.size();
+            paths.add(path);
+            ids.put(path, id);
+            dirtyChunks.add(id / CHUNK_SIZE);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the path with the given id.
+     *
+     * @throws UnknownPathException When the path of the id was never flushed.
+     */
+    public String getPath(int id) {
+        load();
+        String path = id < paths.size() ? paths.get(id) : null;
+        if (path == null) {
+            throw new UnknownPathException(String.format("Path %s is missing from %s.", id, cache));
+        }
+        return path;
+    }
+
+    /**
+     * Writes the number of ids handed out so far to the backing cache, so that they are not handed out again.
+     */
+    public void reserve() {
+        if (paths != null && paths.size() > reservedCount) {
+            cache.put(PATH_COUNT_KEY, paths.size());
+            reservedCount = paths.size();
+        }
+    }
+
+    /**
+     * Writes the chunks which contain newly added paths to the backing cache.
+     */
+    public void flush() {
+        if (dirtyChunks.isEmpty()) {
+            return;
+        }
+        Map<Object, Object> entries = new HashMap<Object, Object>();
+        for (Integer chunk : dirtyChunks) {
+            int start = chunk * CHUNK_SIZE;
+            int end = Math.min(start + CHUNK_SIZE, paths.size());
+            entries.put(CHUNK_KEY_PREFIX + chunk, paths.subList(start, end).toArray(new String[end - start]));
+        }
+        entries.put(PATH_COUNT_KEY, paths.size());
+        cache.putAll(entries);
+        reservedCount = paths.size();
+        dirtyChunks.clear();
+    }
+
+    private void load() {
+        if (paths != null) {
+            return;
+        }
+        paths = new ArrayList<String>();
+        ids = new HashMap<String, Integer>();
+        Integer count = (Integer) cache.get(PATH_COUNT_KEY);
+        if (count == null) {
+            return;
+        }
+        for (int chunk = 0; paths.size() < count; chunk++) {
+            String[] chunkPaths = (String[]) cache.get(CHUNK_KEY_PREFIX + chunk);
+            int chunkEnd = Math.min((chunk + 1) * CHUNK_SIZE, count);
+            for (int i = 0; paths.size() < chunkEnd; i++) {
+                // The paths of ids which were reserved but never flushed are unknown
+                String path = chunkPaths != null && i < chunkPaths.length ? chunkPaths[i] : null;
+                if (path != null) {
+                    ids.put(path, paths.size());
+                }
+                paths.add(path);
+            }
+        }
+        reservedCount = count;
+    }
+
+    /**
+     * Thrown when a snapshot refers to a path which is not in the table.
+     */
+    static class UnknownPathException extends RuntimeException {
+        UnknownPathException(String message) {
+            super(message);
+        }
+    }
+}
@@ -66,6 +66,15 @@ public abstract class AbstractFileTreeElement implements FileTreeElement {
         }
     }
 
+    /**
+     * Returns true if the given target is known to be an unchanged copy of this element, made by {@link
+     * #copyTo(File)}. Returns false when this cannot be determined, which is the case for all elements except files in
+     * the file system.
+     */
+    public boolean isUpToDate(File target) {
+        return false;
+    }
+
     private void copyFile(File target) throws IOException {
         FileOutputStream outputStream = new FileOutputStream(target);
         try {
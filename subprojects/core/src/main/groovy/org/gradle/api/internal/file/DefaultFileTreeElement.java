@@ -57,4 +57,16 @@ public class DefaultFileTreeElement extends AbstractFileTreeElement {
     public RelativePath getRelativePath() {
         return relativePath;
     }
+
+    /**
+     * Returns true if the given target has the same size and timestamp as this file. {@link #copyTo(File)} sets the
+     * timestamp of the target to the timestamp of this file, so this identifies a previous copy.
+     */
+    @Override
+    public boolean isUpToDate(File target) {
+        if (file.isDirectory()) {
+            return target.isDirectory();
+        }
+        return target.isFile() && target.lastModified() == file.lastModified() && target.length() == file.length();
+    }
 }
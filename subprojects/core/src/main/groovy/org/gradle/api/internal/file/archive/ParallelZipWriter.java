@@ -0,0 +1,592 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.archive;
+
+import org.apache.tools.zip.UnixStat;
+import org.apache.tools.zip.ZipEntry;
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.gradle.util.GFileUtils;
+import org.gradle.util.UncheckedException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes a ZIP file whose entries are compressed concurrently. Each entry is compressed into a buffer by a pool of worker
+ * threads, and the entries are then written to the file in the order they were added. This means the file is the same
+ * regardless of the number of worker threads.
+ *
+ * <p>The number of buffered entries is bounded, so adding an entry blocks until earlier entries have been written. The
+ * content of an entry is held in memory, unless it is larger than the spool threshold, in which case it is held in a
+ * temporary file alongside the ZIP file.</p>
+ *
+ * <p>Entry names are encoded the same way as by Ant's {@link org.apache.tools.zip.ZipOutputStream} with its default
+ * settings: using the platform's default encoding, and flagged as UTF-8 when that is the default encoding.</p>
+ *
+ * <p>When updating an existing file, the compressed content of each entry whose content has not changed is copied from
+ * the existing file, rather than compressed again. The new file is written to a temporary file alongside the existing
+ * file, and replaces the existing file when closed.</p>
+ */
+public class ParallelZipWriter implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ParallelZipWriter.class);
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int PLATFORM_UNIX = 3;
+    private static final int VERSION_STORED = 10;
+    private static final int VERSION_DEFLATED = 20;
+    private static final int UTF8_NAMES = 1 << 11;
+    private static final long MAX_SIZE = 0xFFFFFFFFL;
+    private static final int DEFAULT_SPOOL_THRESHOLD = 1024 * 1024;
+    private static final int NAME_FLAGS = isDefaultEncodingUtf8() ? UTF8_NAMES : 0;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<Entry>();
+    private final LinkedList<Entry> pending = new LinkedList<Entry>();
+    private final List<Entry> written = new ArrayList<Entry>();
+    private final Entry endOfQueue = new Entry("", 0, 0, null, true);
+    private final File zipFile;
+    private final File outputFile;
+    private final RawZipFile existingFile;
+    private final OutputStream outstr;
+    private final StoppableExecutor executor;
+    private final int workerCount;
+    private final int maxPending;
+    private final int spoolThreshold;
+    private long offset;
+
+    /**
+     * Creates a writer for the given file.
+     *
+     * @param zipFile The file to write.
+     * @param updateExistingFile true if the entries of any existing file should be reused.
+     * @param executorFactory The factory for the worker threads.
+     * @param workerCount The number of worker threads.
+     */
+    public ParallelZipWriter(File zipFile, boolean updateExistingFile, ExecutorFactory executorFactory, int workerCount) throws IOException {
+        this(zipFile, updateExistingFile, executorFactory, workerCount, DEFAULT_SPOOL_THRESHOLD);
+    }
+
+    /**
+     * Creates a writer for the given file, which holds the content of entries larger than the given number of bytes
+     * in temporary files.
+     */
+    ParallelZipWriter(File zipFile, boolean updateExistingFile, ExecutorFactory executorFactory, int workerCount, int spoolThreshold) throws IOException {
+        this.zipFile = zipFile;
+        this.workerCount = workerCount;
+        this.spoolThreshold = spoolThreshold;
+        maxPending = 4 * workerCount;
+        existingFile = updateExistingFile ? openExistingFile(zipFile) : null;
+        try {
+            outputFile = existingFile == null ? zipFile : File.createTempFile(zipFile.getName(), ".tmp", zipFile.getParentFile());
+            outstr = new BufferedOutputStream(new FileOutputStream(outputFile));
+        } catch (IOException e) {
+            closeExistingFile();
+            throw e;
+        }
+        executor = executorFactory.create(String.format("Compress %s", zipFile.getName()));
+        for (int i = 0; i < workerCount; i++) {
+            executor.execute(new Runnable() {
+                public void run() {
+                    compressEntries();
+                }
+            });
+        }
+    }
+
+    private static RawZipFile openExistingFile(File zipFile) {
+        if (!zipFile.isFile()) {
+            return null;
+        }
+        try {
+            return new RawZipFile(zipFile);
+        } catch (IOException e) {
+            LOGGER.debug(String.format("Could not read existing ZIP '%s'. Creating it from scratch.", zipFile), e);
+            return null;
+        }
+    }
+
+    private static boolean isDefaultEncodingUtf8() {
+        // The same check as Ant's ZipOutputStream, which uses the platform's default encoding unless told otherwise
+        String encoding = System.getProperty("file.encoding");
+        return "UTF-8".equalsIgnoreCase(encoding) || "UTF8".equalsIgnoreCase(encoding);
+    }
+
+    /**
+     * Adds a directory entry. The name should end with a slash.
+     */
+    public void putDirectory(String name, long lastModified, int mode) throws IOException {
+        Entry entry = new Entry(name, lastModified, UnixStat.DIR_FLAG | mode, null, true);
+        entry.done = true;
+        pending.add(entry);
+        writeCompletedEntries(maxPending);
+    }
+
+    /**
+     * Adds a file entry with the given content. The content is read before this method returns, and is compressed
+     * asynchronously, unless {@code store} is true, in which case the content is written to the archive uncompressed.
+     * When updating an existing file, and the existing file contains an entry with the same name, method and content,
+     * the content of that entry is used.
+     */
+    public void putFile(String name, long lastModified, int mode, InputStream content, boolean store) throws IOException {
+        ContentBuffer buffer = new ContentBuffer();
+        try {
+            IOUtils.copyLarge(content, buffer);
+            buffer.close();
+        } catch (IOException e) {
+            buffer.discard();
+            throw e;
+        }
+        Entry entry = new Entry(name, lastModified, UnixStat.FILE_FLAG | mode, buffer, store);
+        pending.add(entry);
+        queue.add(entry);
+        writeCompletedEntries(maxPending);
+    }
+
+    /**
+     * Writes the remaining entries and the central directory, and closes the file.
+     */
+    public void close() throws IOException {
+        try {
+            writeCompletedEntries(0);
+            long centralDirectoryOffset = offset;
+            for (Entry entry : written) {
+                writeCentralFileHeader(entry);
+            }
+            writeEndOfCentralDirectory(centralDirectoryOffset, offset - centralDirectoryOffset);
+        } catch (IOException e) {
+            abort();
+            throw e;
+        } catch (RuntimeException e) {
+            abort();
+            throw e;
+        }
+
+        try {
+            outstr.close();
+        } finally {
+            stopWorkers();
+            closeExistingFile();
+        }
+        if (outputFile != zipFile) {
+            GFileUtils.forceDelete(zipFile);
+            GFileUtils.moveFile(outputFile, zipFile);
+        }
+    }
+
+    /**
+     * Discards the remaining entries and closes the file, without completing it.
+     */
+    public void abort() {
+        try {
+            outstr.close();
+        } catch (IOException e) {
+            // Ignore
+        } finally {
+            stopWorkers();
+            closeExistingFile();
+        }
+        if (outputFile != zipFile) {
+            GFileUtils.deleteQuietly(outputFile);
+        }
+    }
+
+    private void closeExistingFile() {
+        if (existingFile == null) {
+            return;
+        }
+        try {
+            existingFile.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void stopWorkers() {
+        List<Entry> discarded = new ArrayList<Entry>(pending);
+        pending.clear();
+        queue.clear();
+        for (int i = 0; i < workerCount; i++) {
+            queue.add(endOfQueue);
+        }
+        executor.stop();
+        for (Entry entry : discarded) {
+            entry.discard();
+        }
+    }
+
+    private void compressEntries() {
+        while (true) {
+            Entry entry;
+            try {
+                entry = queue.take();
+            } catch (InterruptedException e) {
+                throw UncheckedException.asUncheckedException(e);
+            }
+            if (entry == endOfQueue) {
+                return;
+            }
+            entry.compress();
+        }
+    }
+
+    private void writeCompletedEntries(int maxPending) throws IOException {
+        while (!pending.isEmpty()) {
+            Entry entry = pending.getFirst();
+            lock.lock();
+            try {
+                while (!entry.done) {
+                    if (pending.size() <= maxPending) {
+                        return;
+                    }
+                    condition.await();
+                }
+            } catch (InterruptedException e) {
+                throw UncheckedException.asUncheckedException(e);
+            } finally {
+                lock.unlock();
+            }
+            pending.removeFirst();
+            if (entry.failure != null) {
+                throw new GradleException(String.format("Could not compress ZIP entry '%s'.", entry.name), entry.failure);
+            }
+            writeLocalFile(entry);
+        }
+    }
+
+    private void writeLocalFile(Entry entry) throws IOException {
+        if (offset + 30 + entry.nameBytes.length + entry.compressedSize > MAX_SIZE || entry.size > MAX_SIZE) {
+            throw new GradleException(String.format("Cannot add entry '%s' to ZIP '%s', as the file would be larger than 4GB.", entry.name, zipFile));
+        }
+        entry.offset = offset;
+        writeInt(LOCAL_FILE_HEADER);
+        writeShort(entry.getVersionNeeded());
+        writeShort(NAME_FLAGS);
+        writeShort(entry.getMethod());
+        writeInt(entry.dosTime);
+        writeInt(entry.crc);
+        writeInt(entry.compressedSize);
+        writeInt(entry.size);
+        writeShort(entry.nameBytes.length);
+        writeShort(0);
+        write(entry.nameBytes);
+        try {
+            if (entry.existingEntry != null) {
+                existingFile.copyTo(entry.existingEntry, outstr);
+            } else if (entry.data != null) {
+                entry.data.writeTo(outstr);
+            }
+            offset += entry.compressedSize;
+        } finally {
+            // Release the content, only the header details are needed for the central directory
+            entry.discard();
+        }
+        written.add(entry);
+    }
+
+    private void writeCentralFileHeader(Entry entry) throws IOException {
+        writeInt(CENTRAL_FILE_HEADER);
+        writeShort((PLATFORM_UNIX << 8) | VERSION_DEFLATED);
+        writeShort(entry.getVersionNeeded());
+        writeShort(NAME_FLAGS);
+        writeShort(entry.getMethod());
+        writeInt(entry.dosTime);
+        writeInt(entry.crc);
+        writeInt(entry.compressedSize);
+        writeInt(entry.size);
+        writeShort(entry.nameBytes.length);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeInt(entry.externalAttributes);
+        writeInt(entry.offset);
+        write(entry.nameBytes);
+    }
+
+    private void writeEndOfCentralDirectory(long centralDirectoryOffset, long centralDirectoryLength) throws IOException {
+        // Without ZIP64 extensions the entry count wraps at 2^16. Readers handle this by reading the whole central
+        // directory, which is also what the Ant ZIP implementation relies on
+        int entryCount = written.size() & 0xFFFF;
+        writeInt(END_OF_CENTRAL_DIRECTORY);
+        writeShort(0);
+        writeShort(0);
+        writeShort(entryCount);
+        writeShort(entryCount);
+        writeInt(centralDirectoryLength);
+        writeInt(centralDirectoryOffset);
+        writeShort(0);
+    }
+
+    private void writeShort(int value) throws IOException {
+        outstr.write(value & 0xFF);
+        outstr.write((value >> 8) & 0xFF);
+        offset += 2;
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xFFFF));
+        writeShort((int) ((value >> 16) & 0xFFFF));
+    }
+
+    private void write(byte[] bytes) throws IOException {
+        outstr.write(bytes);
+        offset += bytes.length;
+    }
+
+    private static long toDosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            // The earliest time which can be represented: 1 January 1980
+            return (1 << 21) | (1 << 16);
+        }
+        return ((long) (year - 1980) << 25)
+                | (calendar.get(Calendar.MONTH) + 1) << 21
+                | calendar.get(Calendar.DAY_OF_MONTH) << 16
+                | calendar.get(Calendar.HOUR_OF_DAY) << 11
+                | calendar.get(Calendar.MINUTE) << 5
+                | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    private class Entry {
+        private final String name;
+        private final byte[] nameBytes;
+        private final long dosTime;
+        private final long externalAttributes;
+        private final boolean store;
+        private ContentBuffer content;
+        private ContentBuffer data;
+        private RawZipFile.Entry existingEntry;
+        private boolean done;
+        private Throwable failure;
+        private long crc;
+        private long size;
+        private long compressedSize;
+        private long offset;
+
+        private Entry(String name, long lastModified, int mode, ContentBuffer content, boolean store) {
+            this.name = name;
+            dosTime = toDosTime(lastModified);
+            this.content = content;
+            this.store = store;
+            nameBytes = name.getBytes();
+            ZipEntry zipEntry = new ZipEntry(name);
+            zipEntry.setUnixMode(mode);
+            externalAttributes = zipEntry.getExternalAttributes();
+        }
+
+        int getMethod() {
+            return store ? ZipEntry.STORED : ZipEntry.DEFLATED;
+        }
+
+        int getVersionNeeded() {
+            return store ? VERSION_STORED : VERSION_DEFLATED;
+        }
+
+        void compress() {
+            ContentBuffer data = null;
+            RawZipFile.Entry existingEntry = null;
+            Throwable failure = null;
+            long crc = 0;
+            try {
+                existingEntry = existingFile == null ? null : existingFile.getEntry(name);
+                if (existingEntry != null || store) {
+                    crc = copy(content, null);
+                }
+                if (existingEntry != null && (existingEntry.getCrc() != crc
+                        || existingEntry.getSize() != content.length() || existingEntry.getMethod() != getMethod())) {
+                    existingEntry = null;
+                }
+                if (existingEntry != null) {
+                    // Unchanged, so the compressed content is copied from the existing file when the entry is written
+                } else if (store) {
+                    data = content;
+                } else {
+                    data = new ContentBuffer();
+                    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+                    try {
+                        DeflaterOutputStream deflaterStream = new DeflaterOutputStream(data, deflater);
+                        crc = copy(content, deflaterStream);
+                        deflaterStream.finish();
+                        data.close();
+                    } finally {
+                        deflater.end();
+                    }
+                }
+            } catch (Throwable throwable) {
+                failure = throwable;
+                if (data != null && data != content) {
+                    data.discard();
+                }
+            }
+
+            lock.lock();
+            try {
+                if (failure != null) {
+                    this.failure = failure;
+                } else {
+                    this.crc = crc;
+                    size = content.length();
+                    compressedSize = existingEntry != null ? existingEntry.getCompressedSize() : data.length();
+                    this.data = data;
+                    this.existingEntry = existingEntry;
+                }
+                if (this.data != content) {
+                    content.discard();
+                }
+                content = null;
+                done = true;
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Reads the given content, copying it to the given stream if not null, and returns its checksum.
+         */
+        private long copy(ContentBuffer content, OutputStream outstr) throws IOException {
+            CheckedInputStream instr = new CheckedInputStream(content.open(), new CRC32());
+            try {
+                if (outstr != null) {
+                    IOUtils.copyLarge(instr, outstr);
+                } else {
+                    IOUtils.copyLarge(instr, new NullOutputStream());
+                }
+            } finally {
+                instr.close();
+            }
+            return instr.getChecksum().getValue();
+        }
+
+        /**
+         * Deletes any temporary files which hold the content of this entry.
+         */
+        void discard() {
+            lock.lock();
+            try {
+                if (content != null) {
+                    content.discard();
+                    content = null;
+                }
+                if (data != null) {
+                    data.discard();
+                    data = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Holds content in memory, until it grows larger than the spool threshold, after which it is held in a temporary
+     * file.
+     */
+    private class ContentBuffer extends OutputStream {
+        private ExposedByteArrayOutputStream memory = new ExposedByteArrayOutputStream();
+        private File file;
+        private OutputStream fileOutput;
+        private long length;
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            if (file == null && this.length + length > spoolThreshold) {
+                file = File.createTempFile(zipFile.getName(), ".entry", zipFile.getAbsoluteFile().getParentFile());
+                fileOutput = new BufferedOutputStream(new FileOutputStream(file));
+                memory.writeTo(fileOutput);
+                memory = null;
+            }
+            if (file != null) {
+                fileOutput.write(bytes, offset, length);
+            } else {
+                memory.write(bytes, offset, length);
+            }
+            this.length += length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (fileOutput != null) {
+                fileOutput.close();
+            }
+        }
+
+        long length() {
+            return length;
+        }
+
+        InputStream open() throws IOException {
+            if (file != null) {
+                return new BufferedInputStream(new FileInputStream(file));
+            }
+            return memory.toInputStream();
+        }
+
+        void writeTo(OutputStream outstr) throws IOException {
+            if (file == null) {
+                memory.writeTo(outstr);
+                return;
+            }
+            InputStream instr = open();
+            try {
+                IOUtils.copyLarge(instr, outstr);
+            } finally {
+                instr.close();
+            }
+        }
+
+        void discard() {
+            memory = null;
+            if (file != null) {
+                IOUtils.closeQuietly(fileOutput);
+                GFileUtils.deleteQuietly(file);
+            }
+        }
+    }
+
+    private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.archive;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Provides access to the compressed content of the entries of an existing ZIP file, so that the content can be copied
+ * to another ZIP file without being inflated and deflated again. Only the central directory is read up front.
+ *
+ * <p>ZIP64 and encrypted entries are not supported. Entries which cannot be copied are not returned by {@link
+ * #getEntry(String)}.</p>
+ */
+public class RawZipFile implements Closeable {
+    private static final int LOCAL_FILE_HEADER = 0x04034b50;
+    private static final int CENTRAL_FILE_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_LENGTH = 22;
+    private static final int MAX_COMMENT_LENGTH = 0xFFFF;
+    private static final int ENCRYPTED = 1;
+    private static final int UTF8_NAMES = 1 << 11;
+    private final Map<String, Entry> entries = new HashMap<String, Entry>();
+    private final File zipFile;
+    private final RandomAccessFile file;
+
+    public RawZipFile(File zipFile) throws IOException {
+        this.zipFile = zipFile;
+        file = new RandomAccessFile(zipFile, "r");
+        try {
+            readCentralDirectory();
+        } catch (IOException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the entry with the given name, or null if there is no such entry which can be copied.
+     */
+    public Entry getEntry(String name) {
+        return entries.get(name);
+    }
+
+    /**
+     * Copies the compressed content of the given entry to the given stream.
+     */
+    public void copyTo(Entry entry, OutputStream outstr) throws IOException {
+        byte[] header = new byte[30];
+        file.seek(entry.localHeaderOffset);
+        file.readFully(header);
+        if (readInt(header, 0) != LOCAL_FILE_HEADER) {
+            throw new IOException(String.format("Could not find entry '%s' in ZIP '%s'.", entry.name, zipFile));
+        }
+        file.seek(entry.localHeaderOffset + header.length + readShort(header, 26) + readShort(header, 28));
+
+        byte[] buffer = new byte[8192];
+        long remaining = entry.compressedSize;
+        while (remaining > 0) {
+            int count = file.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (count < 0) {
+                throw new EOFException(String.format("Unexpected end of ZIP '%s'.", zipFile));
+            }
+            outstr.write(buffer, 0, count);
+            remaining -= count;
+        }
+    }
+
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private void readCentralDirectory() throws IOException {
+        byte[] end = findEndOfCentralDirectory();
+        long directoryLength = readInt(end, 12);
+        long directoryOffset = readInt(end, 16);
+        if (directoryOffset + directoryLength > file.length()) {
+            throw new IOException(String.format("Could not read the central directory of ZIP '%s'.", zipFile));
+        }
+
+        byte[] directory = new byte[(int) directoryLength];
+        file.seek(directoryOffset);
+        file.readFully(directory);
+
+        int pos = 0;
+        while (pos + 46 <= directory.length && readInt(directory, pos) == CENTRAL_FILE_HEADER) {
+            int flags = readShort(directory, pos + 8);
+            int nameLength = readShort(directory, pos + 28);
+            int extraLength = readShort(directory, pos + 30);
+            int commentLength = readShort(directory, pos + 32);
+            Charset charset = (flags & UTF8_NAMES) != 0 ? Charset.forName("UTF-8") : Charset.defaultCharset();
+            String name = new String(directory, pos + 46, nameLength, charset.name());
+            if ((flags & ENCRYPTED) == 0) {
+                entries.put(name, new Entry(name, readShort(directory, pos + 10), readInt(directory, pos + 16),
+                        readInt(directory, pos + 20), readInt(directory, pos + 24), readInt(directory, pos + 42)));
+            }
+            pos += 46 + nameLength + extraLength + commentLength;
+        }
+    }
+
+    private byte[] findEndOfCentralDirectory() throws IOException {
+        long length = file.length();
+        int searchLength = (int) Math.min(length, END_OF_CENTRAL_DIRECTORY_LENGTH + MAX_COMMENT_LENGTH);
+        byte[] tail = new byte[searchLength];
+        file.seek(length - searchLength);
+        file.readFully(tail);
+        for (int pos = searchLength - END_OF_CENTRAL_DIRECTORY_LENGTH; pos >= 0; pos--) {
+            if (readInt(tail, pos) == END_OF_CENTRAL_DIRECTORY) {
+                byte[] end = new byte[END_OF_CENTRAL_DIRECTORY_LENGTH];
+                System.arraycopy(tail, pos, end, 0, end.length);
+                return end;
+            }
+        }
+        throw new IOException(String.format("Could not find the central directory of ZIP '%s'.", zipFile));
+    }
+
+    private static int readShort(byte[] buffer, int pos) {
+        return (buffer[pos] & 0xFF) | (buffer[pos + 1] & 0xFF) << 8;
+    }
+
+    private static long readInt(byte[] buffer, int pos) {
+        return readShort(buffer, pos) | (long) readShort(buffer, pos + 2) << 16;
+    }
+
+    public static class Entry {
+        private final String name;
+        private final int method;
+        private final long crc;
+        private final long compressedSize;
+        private final long size;
+        private final long localHeaderOffset;
+
+        private Entry(String name, int method, long crc, long compressedSize, long size, long localHeaderOffset) {
+            this.name = name;
+            this.method = method;
+            this.crc = crc;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getMethod() {
+            return method;
+        }
+
+        public long getCrc() {
+            return crc;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+}
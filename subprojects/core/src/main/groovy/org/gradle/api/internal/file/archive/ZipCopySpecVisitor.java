@@ -18,25 +18,54 @@ package org.gradle.api.internal.file.archive;
 import org.apache.tools.zip.*;
 import org.gradle.api.GradleException;
 import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.RelativePath;
 import org.gradle.api.internal.file.copy.CopyAction;
 import org.gradle.api.file.FileVisitDetails;
-import org.gradle.api.internal.file.copy.ArchiveCopyAction;
 import org.gradle.api.internal.file.copy.EmptyCopySpecVisitor;
 import org.gradle.api.internal.file.copy.ReadableCopySpec;
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
+import org.gradle.messaging.concurrent.ExecutorFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Set;
 
 public class ZipCopySpecVisitor extends EmptyCopySpecVisitor {
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
     private ZipOutputStream zipOutStr;
+    private ParallelZipWriter parallelZipWriter;
     private File zipFile;
     private ReadableCopySpec spec;
+    private Set<String> storedFileExtensions;
+
+    public ZipCopySpecVisitor() {
+        this(new DefaultExecutorFactory(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public ZipCopySpecVisitor(ExecutorFactory executorFactory, int maxThreads) {
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
+    }
 
     public void startVisit(CopyAction action) {
-        ArchiveCopyAction archiveAction = (ArchiveCopyAction) action;
+        ZipCopyAction archiveAction = (ZipCopyAction) action;
         zipFile = archiveAction.getArchivePath();
+        storedFileExtensions = new HashSet<String>();
+        for (String extension : archiveAction.getStoredFileExtensions()) {
+            storedFileExtensions.add(extension.toLowerCase());
+        }
         try {
-            zipOutStr = new ZipOutputStream(zipFile);
+            if (archiveAction.isParallelCompression()) {
+                parallelZipWriter = new ParallelZipWriter(zipFile, archiveAction.isReuseUnchangedEntries(), executorFactory, maxThreads);
+            } else if (archiveAction.isReuseUnchangedEntries()) {
+                // Ant's ZIP implementation cannot copy compressed content, so use a single compression thread instead
+                parallelZipWriter = new ParallelZipWriter(zipFile, true, executorFactory, 1);
+            } else {
+                zipOutStr = new ZipOutputStream(zipFile);
+            }
         } catch (Exception e) {
             throw new GradleException(String.format("Could not create ZIP '%s'.", zipFile), e);
         }
@@ -44,12 +73,17 @@ public class ZipCopySpecVisitor extends EmptyCopySpecVisitor {
 
     public void endVisit() {
         try {
-            zipOutStr.close();
+            if (parallelZipWriter != null) {
+                parallelZipWriter.close();
+            } else {
+                zipOutStr.close();
+            }
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         } finally {
             spec = null;
             zipOutStr = null;
+            parallelZipWriter = null;
         }
     }
 
@@ -59,14 +93,29 @@ public class ZipCopySpecVisitor extends EmptyCopySpecVisitor {
 
     public void visitFile(FileVisitDetails fileDetails) {
         try {
-            ZipEntry archiveEntry = new ZipEntry(fileDetails.getRelativePath().getPathString());
-            archiveEntry.setMethod(ZipEntry.DEFLATED);
+            String name = fileDetails.getRelativePath().getPathString();
+            boolean store = isStored(fileDetails.getRelativePath());
+            if (parallelZipWriter != null) {
+                // Read the content on this thread, as the details may not be usable once the visit moves on
+                InputStream content = fileDetails.open();
+                try {
+                    parallelZipWriter.putFile(name, fileDetails.getLastModified(), spec.getFileMode(), content, store);
+                } finally {
+                    content.close();
+                }
+                return;
+            }
+
+            ZipEntry archiveEntry = new ZipEntry(name);
             archiveEntry.setTime(fileDetails.getLastModified());
             archiveEntry.setUnixMode(UnixStat.FILE_FLAG | spec.getFileMode());
+            // The ZIP is written to a file, so the size and CRC of a stored entry are filled in when the entry is closed
+            archiveEntry.setMethod(store ? ZipEntry.STORED : ZipEntry.DEFLATED);
             zipOutStr.putNextEntry(archiveEntry);
             fileDetails.copyTo(zipOutStr);
             zipOutStr.closeEntry();
         } catch (Exception e) {
+            abort();
             throw new GradleException(String.format("Could not add %s to ZIP '%s'.", fileDetails, zipFile), e);
         }
     }
@@ -74,12 +123,19 @@ public class ZipCopySpecVisitor extends EmptyCopySpecVisitor {
     public void visitDir(FileVisitDetails dirDetails) {
         try {
             // Trailing slash in name indicates that entry is a directory
-            ZipEntry archiveEntry = new ZipEntry(dirDetails.getRelativePath().getPathString() + '/');
+            String name = dirDetails.getRelativePath().getPathString() + '/';
+            if (parallelZipWriter != null) {
+                parallelZipWriter.putDirectory(name, dirDetails.getLastModified(), spec.getDirMode());
+                return;
+            }
+
+            ZipEntry archiveEntry = new ZipEntry(name);
             archiveEntry.setTime(dirDetails.getLastModified());
             archiveEntry.setUnixMode(UnixStat.DIR_FLAG | spec.getDirMode());
             zipOutStr.putNextEntry(archiveEntry);
             zipOutStr.closeEntry();
         } catch (Exception e) {
+            abort();
             throw new GradleException(String.format("Could not add %s to ZIP '%s'.", dirDetails, zipFile), e);
         }
     }
@@ -87,4 +143,18 @@ public class ZipCopySpecVisitor extends EmptyCopySpecVisitor {
     public boolean getDidWork() {
         return true;
     }
+
+    private boolean isStored(RelativePath path) {
+        String name = path.getLastName();
+        int pos = name.lastIndexOf('.');
+        return pos >= 0 && storedFileExtensions.contains(name.substring(pos + 1).toLowerCase());
+    }
+
+    private void abort() {
+        // Stop the compression threads, as the visit does not complete after a failure
+        if (parallelZipWriter != null) {
+            parallelZipWriter.abort();
+            parallelZipWriter = null;
+        }
+    }
 }
@@ -19,4 +19,10 @@ import java.io.File;
 
 public interface FileCopyAction extends CopyAction {
     File getDestinationDir();
+
+    /**
+     * Returns true if files should not be copied when the target already has the same size and timestamp as the
+     * source file.
+     */
+    boolean isSkipUnchangedFiles();
 }
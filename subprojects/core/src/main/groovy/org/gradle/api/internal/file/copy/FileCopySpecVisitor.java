@@ -18,6 +18,7 @@ package org.gradle.api.internal.file.copy;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.internal.file.AbstractFileTreeElement;
 
 import java.io.File;
 
@@ -26,6 +27,7 @@ import java.io.File;
  */
 public class FileCopySpecVisitor extends EmptyCopySpecVisitor {
     private File baseDestDir;
+    private boolean skipUnchangedFiles;
     private boolean didWork;
 
     public void startVisit(CopyAction action) {
@@ -33,6 +35,7 @@ public class FileCopySpecVisitor extends EmptyCopySpecVisitor {
         if (baseDestDir == null) {
             throw new InvalidUserDataException("No copy destination directory has been specified, use 'into' to specify a target directory.");
         }
+        skipUnchangedFiles = ((FileCopyAction) action).isSkipUnchangedFiles();
     }
 
     public void visitFile(FileVisitDetails source) {
@@ -53,6 +56,10 @@ public class FileCopySpecVisitor extends EmptyCopySpecVisitor {
     }
 
     private void copyFile(FileTreeElement srcFile, File destFile) {
+        if (skipUnchangedFiles && srcFile instanceof AbstractFileTreeElement
+                && ((AbstractFileTreeElement) srcFile).isUpToDate(destFile)) {
+            return;
+        }
         boolean copied = srcFile.copyTo(destFile);
         if (copied) {
             didWork = true;
@@ -120,6 +120,15 @@ public class MappingCopySpecVisitor extends DelegatingCopySpecVisitor {
             }
         }
 
+        @Override
+        public boolean isUpToDate(File target) {
+            // The filtered content can change when the source file does not, so always copy it
+            if (filterChain.hasFilters() || !(fileDetails instanceof AbstractFileTreeElement)) {
+                return false;
+            }
+            return ((AbstractFileTreeElement) fileDetails).isUpToDate(target);
+        }
+
         public RelativePath getRelativePath() {
             if (relativePath == null) {
                 RelativePath path = fileDetails.getRelativePath();
@@ -16,10 +16,7 @@
 package org.gradle.api.internal.file.copy;
 
 import org.gradle.api.file.FileVisitDetails;
-import org.gradle.api.file.FileVisitor;
 import org.gradle.api.file.RelativePath;
-import org.gradle.api.internal.file.collections.DirectoryFileTree;
-import org.gradle.api.internal.file.collections.MinimalFileTree;
 import org.gradle.util.GFileUtils;
 
 import java.io.File;
@@ -54,33 +51,35 @@ public class SyncCopySpecVisitor extends DelegatingCopySpecVisitor {
 
     @Override
     public void endVisit() {
-        FileVisitor visitor = new FileVisitor() {
-            public void visitDir(FileVisitDetails dirDetails) {
-                maybeDelete(dirDetails, true);
-            }
+        deleteStrays(baseDestDir, new RelativePath(false));
+        visited.clear();
 
-            public void visitFile(FileVisitDetails fileDetails) {
-                maybeDelete(fileDetails, false);
-            }
+        getVisitor().endVisit();
+    }
 
-            private void maybeDelete(FileVisitDetails fileDetails, boolean isDir) {
-                RelativePath path = fileDetails.getRelativePath();
-                if (!visited.contains(path)) {
-                    if (isDir) {
-                        GFileUtils.deleteDirectory(fileDetails.getFile());
-                    } else {
-                        GFileUtils.deleteQuietly(fileDetails.getFile());
-                    }
-                    didWork = true;
+    /**
+     * Deletes those files and directories in the given directory which were not visited. Only descends into
+     * directories which were visited, as everything under a stray directory is deleted along with it.
+     */
+    private void deleteStrays(File dir, RelativePath path) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        for (File child : children) {
+            boolean isFile = !child.isDirectory();
+            RelativePath childPath = path.append(isFile, child.getName());
+            if (!visited.contains(childPath)) {
+                if (isFile) {
+                    GFileUtils.deleteQuietly(child);
+                } else {
+                    GFileUtils.deleteDirectory(child);
                 }
+                didWork = true;
+            } else if (!isFile) {
+                deleteStrays(child, childPath);
             }
-        };
-
-        MinimalFileTree walker = new DirectoryFileTree(baseDestDir).depthFirst();
-        walker.visit(visitor);
-        visited.clear();
-
-        getVisitor().endVisit();
+        }
     }
 
     @Override
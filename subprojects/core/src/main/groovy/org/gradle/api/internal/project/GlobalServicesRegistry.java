@@ -23,7 +23,11 @@ import org.gradle.api.internal.DefaultClassPathRegistry;
 import org.gradle.api.internal.GradleDistributionLocator;
 import org.gradle.cache.AutoCloseCacheFactory;
 import org.gradle.cache.CacheFactory;
+import org.gradle.api.internal.changedetection.InMemoryFileHashCache;
 import org.gradle.cache.DefaultCacheFactory;
+import org.gradle.groovy.scripts.CachingScriptCompilationHandler;
+import org.gradle.groovy.scripts.DefaultScriptCompilationHandler;
+import org.gradle.groovy.scripts.ScriptCompilationHandler;
 import org.gradle.initialization.*;
 import org.gradle.initialization.ClassLoaderRegistry;
 import org.gradle.initialization.DefaultClassLoaderRegistry;
@@ -76,4 +80,12 @@ public class GlobalServicesRegistry extends DefaultServiceRegistry {
     protected ClassLoaderFactory createClassLoaderFactory() {
         return new DefaultClassLoaderFactory();
     }
+
+    protected ScriptCompilationHandler createScriptCompilationHandler() {
+        return new CachingScriptCompilationHandler(new DefaultScriptCompilationHandler());
+    }
+
+    protected InMemoryFileHashCache createInMemoryFileHashCache() {
+        return new InMemoryFileHashCache();
+    }
 }
@@ -18,6 +18,8 @@ package org.gradle.api.internal.project;
 
 import org.apache.ivy.core.module.descriptor.ModuleDescriptor;
 import org.apache.ivy.plugins.resolver.ChainResolver;
+import org.gradle.BuildAdapter;
+import org.gradle.BuildResult;
 import org.gradle.StartParameter;
 import org.gradle.api.Project;
 import org.gradle.api.artifacts.Module;
@@ -65,6 +67,7 @@ import org.gradle.messaging.remote.MessagingServer;
 import org.gradle.messaging.remote.internal.TcpMessagingServer;
 import org.gradle.process.internal.DefaultWorkerProcessFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
+import org.gradle.process.internal.WorkerProcessPool;
 import org.gradle.process.internal.child.WorkerProcessClassPathProvider;
 import org.gradle.util.*;
 
@@ -205,7 +208,10 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
                 new DefaultIvyFactory(),
                 new SelfResolvingDependencyResolver(
                         new DefaultIvyDependencyResolver(
-                                new DefaultIvyReportConverter(dependencyDescriptorFactoryDelegate))),
+                                new DefaultIvyReportConverter(dependencyDescriptorFactoryDelegate),
+                                new ResolvedConfigurationCache(get(CacheRepository.class)),
+                                new ParallelArtifactDownloader(get(ExecutorFactory.class), get(ProgressLoggerFactory.class),
+                                        ParallelArtifactDownloader.DEFAULT_MAX_THREADS))),
                 new DefaultIvyDependencyPublisher(new DefaultPublishOptionsFactory()),
                 get(ClassGenerator.class));
     }
@@ -244,12 +250,28 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
                                 get(ClassGenerator.class))));
     }
 
+    protected Hasher createHasher() {
+        final CachingHasher hasher = new CachingHasher(
+                new DefaultHasher(),
+                get(CacheRepository.class),
+                get(InMemoryFileHashCache.class));
+        get(ListenerManager.class).addListener(new BuildAdapter() {
+            @Override
+            public void buildFinished(BuildResult result) {
+                hasher.flush();
+            }
+        });
+        return hasher;
+    }
+
     protected TaskArtifactStateRepository createTaskArtifactStateRepository() {
         CacheRepository cacheRepository = get(CacheRepository.class);
+        // The hashing threads are shared by all tasks, including tasks which are executed in parallel
+        int hashingThreads = startParameter.getHashingThreadCount() > 0 ? startParameter.getHashingThreadCount() : Runtime.getRuntime().availableProcessors();
         FileSnapshotter fileSnapshotter = new DefaultFileSnapshotter(
-                new CachingHasher(
-                        new DefaultHasher(),
-                        cacheRepository));
+                get(Hasher.class),
+                get(ExecutorFactory.class),
+                hashingThreads);
 
         FileSnapshotter outputFilesSnapshotter = new OutputFilesSnapshotter(fileSnapshotter, new RandomLongIdGenerator(), cacheRepository);
         return new FileCacheBroadcastTaskArtifactStateRepository(
@@ -264,8 +286,7 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
     protected ScriptCompilerFactory createScriptCompileFactory() {
         ScriptExecutionListener scriptExecutionListener = get(ListenerManager.class).getBroadcaster(ScriptExecutionListener.class);
         return new DefaultScriptCompilerFactory(
-                new CachingScriptCompilationHandler(
-                        new DefaultScriptCompilationHandler()),
+                get(ScriptCompilationHandler.class),
                 new DefaultScriptRunnerFactory(
                         scriptExecutionListener),
                 get(CacheRepository.class));
@@ -318,8 +339,16 @@ public class TopLevelBuildServiceRegistry extends DefaultServiceRegistry impleme
 
     protected Factory<WorkerProcessBuilder> createWorkerProcessFactory() {
         ClassPathRegistry classPathRegistry = get(ClassPathRegistry.class);
-        return new DefaultWorkerProcessFactory(startParameter.getLogLevel(), get(MessagingServer.class), classPathRegistry,
-                new IdentityFileResolver(), new LongIdGenerator());
+        MessagingServer messagingServer = get(MessagingServer.class);
+        final WorkerProcessPool pool = new WorkerProcessPool(messagingServer);
+        get(ListenerManager.class).addListener(new BuildAdapter() {
+            @Override
+            public void buildFinished(BuildResult result) {
+                pool.stop();
+            }
+        });
+        return new DefaultWorkerProcessFactory(startParameter.getLogLevel(), messagingServer, classPathRegistry,
+                new IdentityFileResolver(), new LongIdGenerator(), pool);
     }
     
     protected MessagingServer createMessagingServer() {
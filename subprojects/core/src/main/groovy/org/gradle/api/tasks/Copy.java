@@ -96,4 +96,24 @@ public class Copy extends AbstractCopyTask {
     public void setDestinationDir(File destinationDir) {
         into(destinationDir);
     }
+
+    /**
+     * Returns whether a file is skipped when the destination directory already contains a file with the same size and
+     * timestamp. Files which are filtered or which come from an archive are always copied. The default is false.
+     *
+     * @return true if unchanged files are skipped.
+     */
+    public boolean isSkipUnchangedFiles() {
+        return getCopyAction().isSkipUnchangedFiles();
+    }
+
+    /**
+     * Sets whether a file is skipped when the destination directory already contains a file with the same size and
+     * timestamp.
+     *
+     * @param skipUnchangedFiles true to skip unchanged files.
+     */
+    public void setSkipUnchangedFiles(boolean skipUnchangedFiles) {
+        getCopyAction().setSkipUnchangedFiles(skipUnchangedFiles);
+    }
 }
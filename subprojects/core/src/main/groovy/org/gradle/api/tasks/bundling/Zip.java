@@ -16,11 +16,13 @@
 package org.gradle.api.tasks.bundling;
 
 import org.gradle.api.internal.file.FileResolver;
+import org.gradle.api.internal.file.archive.ZipCopyAction;
 import org.gradle.api.internal.file.archive.ZipCopySpecVisitor;
-import org.gradle.api.internal.file.copy.ArchiveCopyAction;
 import org.gradle.api.internal.file.copy.CopyActionImpl;
 
 import java.io.File;
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 /**
  * Assembles a ZIP archive.
@@ -30,23 +32,96 @@ import java.io.File;
 public class Zip extends AbstractArchiveTask {
     public static final String ZIP_EXTENSION = "zip";
     private final CopyActionImpl action;
+    private boolean parallelCompression;
+    private boolean reuseUnchangedEntries;
+    private Set<String> storedFileExtensions = new LinkedHashSet<String>();
 
     public Zip() {
         setExtension(ZIP_EXTENSION);
-        action = new ZipCopyAction(getServices().get(FileResolver.class));
+        action = new ZipCopyActionImpl(getServices().get(FileResolver.class));
     }
 
     protected CopyActionImpl getCopyAction() {
         return action;
     }
 
-    private class ZipCopyAction extends CopyActionImpl implements ArchiveCopyAction {
-        public ZipCopyAction(FileResolver fileResolver) {
+    /**
+     * Returns whether the entries of this archive are compressed concurrently. The entries are written to the archive
+     * in the same order either way. Defaults to false.
+     *
+     * @return true if the entries are compressed concurrently.
+     */
+    public boolean isParallelCompression() {
+        return parallelCompression;
+    }
+
+    /**
+     * Specifies whether the entries of this archive are compressed concurrently.
+     *
+     * @param parallelCompression true if the entries should be compressed concurrently.
+     */
+    public void setParallelCompression(boolean parallelCompression) {
+        this.parallelCompression = parallelCompression;
+    }
+
+    /**
+     * Returns whether the unchanged entries of an existing archive are reused when this archive is created again. The
+     * compressed content of an entry is copied from the existing archive when the entry has the same name, content and
+     * compression method, rather than being compressed again. Defaults to false.
+     *
+     * @return true if unchanged entries are reused.
+     */
+    public boolean isReuseUnchangedEntries() {
+        return reuseUnchangedEntries;
+    }
+
+    /**
+     * Specifies whether the unchanged entries of an existing archive are reused when this archive is created again.
+     *
+     * @param reuseUnchangedEntries true if unchanged entries should be reused.
+     */
+    public void setReuseUnchangedEntries(boolean reuseUnchangedEntries) {
+        this.reuseUnchangedEntries = reuseUnchangedEntries;
+    }
+
+    /**
+     * Returns the extensions of the files which are added to this archive without compression, for example {@code jar}
+     * or {@code png}. Files of these types are usually compressed already. Defaults to an empty set.
+     *
+     * @return The extensions. Never returns null.
+     */
+    public Set<String> getStoredFileExtensions() {
+        return storedFileExtensions;
+    }
+
+    /**
+     * Specifies the extensions of the files which are added to this archive without compression.
+     *
+     * @param storedFileExtensions The extensions. Should not be null.
+     */
+    public void setStoredFileExtensions(Set<String> storedFileExtensions) {
+        this.storedFileExtensions = storedFileExtensions;
+    }
+
+    private class ZipCopyActionImpl extends CopyActionImpl implements ZipCopyAction {
+        public ZipCopyActionImpl(FileResolver fileResolver) {
             super(fileResolver, new ZipCopySpecVisitor());
         }
 
         public File getArchivePath() {
             return Zip.this.getArchivePath();
         }
+
+        public boolean isParallelCompression() {
+            return Zip.this.isParallelCompression();
+        }
+
+        public boolean isReuseUnchangedEntries() {
+            return Zip.this.isReuseUnchangedEntries();
+        }
+
+        public Set<String> getStoredFileExtensions() {
+            return Zip.this.getStoredFileExtensions();
+        }
     }
 }
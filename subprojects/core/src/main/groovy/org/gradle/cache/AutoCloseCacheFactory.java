@@ -16,10 +16,13 @@
 package org.gradle.cache;
 
 import org.gradle.CacheUsage;
+import org.gradle.cache.btree.BTreeStatistics;
 import org.gradle.util.GFileUtils;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class AutoCloseCacheFactory implements CacheFactory {
@@ -30,15 +33,15 @@ public class AutoCloseCacheFactory implements CacheFactory {
         this.cacheFactory = cacheFactory;
     }
 
-    public PersistentCache open(File cacheDir, CacheUsage usage, Map<String, ?> properties) {
+    public synchronized PersistentCache open(File cacheDir, CacheUsage usage, Map<String, ?> properties, IndexedCacheStorage indexedCacheStorage) {
         File canonicalDir = GFileUtils.canonicalise(cacheDir);
         CacheInfo cacheInfo = openCaches.get(canonicalDir);
         if (cacheInfo == null) {
-            PersistentCache cache = cacheFactory.open(cacheDir, usage, properties);
-            cacheInfo = new CacheInfo(cache, properties);
+            PersistentCache cache = cacheFactory.open(cacheDir, usage, properties, indexedCacheStorage);
+            cacheInfo = new CacheInfo(cache, properties, indexedCacheStorage);
             openCaches.put(canonicalDir, cacheInfo);
         } else {
-            if (!properties.equals(cacheInfo.properties)) {
+            if (!properties.equals(cacheInfo.properties) || indexedCacheStorage != cacheInfo.indexedCacheStorage) {
                 throw new UnsupportedOperationException(String.format("Cache '%s' is already open with different state.", cacheDir));
             }
         }
@@ -46,7 +49,7 @@ public class AutoCloseCacheFactory implements CacheFactory {
         return cacheInfo.cache;
     }
 
-    public void close(PersistentCache cache) {
+    public synchronized void close(PersistentCache cache) {
         for (CacheInfo cacheInfo : openCaches.values()) {
             if (cacheInfo.cache == cache) {
                 if (cacheInfo.removeReference()) {
@@ -59,7 +62,23 @@ public class AutoCloseCacheFactory implements CacheFactory {
         throw new IllegalArgumentException("Attempting to close unknown cache " + cache);
     }
 
-    public void close() {
+    /**
+     * Returns the statistics for the indexed caches which are currently open.
+     */
+    public synchronized List<BTreeStatistics> getIndexedCacheStatistics() {
+        List<BTreeStatistics> statistics = new ArrayList<BTreeStatistics>();
+        for (CacheInfo cacheInfo : openCaches.values()) {
+            if (cacheInfo.cache instanceof DefaultPersistentDirectoryCache) {
+                BTreeStatistics cacheStatistics = ((DefaultPersistentDirectoryCache) cacheInfo.cache).getIndexedCacheStatistics();
+                if (cacheStatistics != null) {
+                    statistics.add(cacheStatistics);
+                }
+            }
+        }
+        return statistics;
+    }
+
+    public synchronized void close() {
         try {
             for (CacheInfo cacheInfo : openCaches.values()) {
                 cacheFactory.close(cacheInfo.cache);
@@ -73,10 +92,12 @@ public class AutoCloseCacheFactory implements CacheFactory {
         int count;
         final Map<String, ?> properties;
         final PersistentCache cache;
+        final IndexedCacheStorage indexedCacheStorage;
 
-        private CacheInfo(PersistentCache cache, Map<String, ?> properties) {
+        private CacheInfo(PersistentCache cache, Map<String, ?> properties, IndexedCacheStorage indexedCacheStorage) {
             this.cache = cache;
             this.properties = new HashMap<String, Object>(properties);
+            this.indexedCacheStorage = indexedCacheStorage;
         }
 
         public void addReference() {
@@ -44,6 +44,15 @@ public interface CacheBuilder {
      */
     CacheBuilder invalidateOnVersionChange();
 
+    /**
+     * Specifies how indexed caches opened from this cache access their backing file. The default is {@link
+     * IndexedCacheStorage#FILE}.
+     *
+     * @param storage The storage to use.
+     * @return this
+     */
+    CacheBuilder withIndexedCacheStorage(IndexedCacheStorage storage);
+
     /**
      * Creates the cache.
      */
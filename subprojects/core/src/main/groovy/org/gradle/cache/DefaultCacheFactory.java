@@ -23,9 +23,9 @@ import java.util.Map;
 
 public class DefaultCacheFactory implements CacheFactory {
 
-    public PersistentCache open(File cacheDir, CacheUsage usage, Map<String, ?> properties) {
+    public PersistentCache open(File cacheDir, CacheUsage usage, Map<String, ?> properties, IndexedCacheStorage indexedCacheStorage) {
         File canonicalDir = GFileUtils.canonicalise(cacheDir);
-        return new DefaultPersistentDirectoryCache(canonicalDir, usage, properties);
+        return new DefaultPersistentDirectoryCache(canonicalDir, usage, properties, indexedCacheStorage);
     }
 
     public void close(PersistentCache cache) {
@@ -17,6 +17,7 @@ package org.gradle.cache;
 
 import org.gradle.CacheUsage;
 import org.gradle.cache.btree.BTreePersistentIndexedCache;
+import org.gradle.cache.btree.BTreeStatistics;
 import org.gradle.util.GFileUtils;
 import org.gradle.util.GUtil;
 
@@ -28,12 +29,18 @@ public class DefaultPersistentDirectoryCache implements PersistentCache {
     private final File dir;
     private final File propertiesFile;
     private final Properties properties = new Properties();
+    private final IndexedCacheStorage indexedCacheStorage;
     private boolean valid;
     private BTreePersistentIndexedCache indexedCache;
     private SimpleStateCache stateCache;
 
     public DefaultPersistentDirectoryCache(File dir, CacheUsage cacheUsage, Map<String, ?> properties) {
+        this(dir, cacheUsage, properties, IndexedCacheStorage.FILE);
+    }
+
+    public DefaultPersistentDirectoryCache(File dir, CacheUsage cacheUsage, Map<String, ?> properties, IndexedCacheStorage indexedCacheStorage) {
         this.dir = dir;
+        this.indexedCacheStorage = indexedCacheStorage;
         propertiesFile = new File(dir, "cache.properties");
         this.properties.putAll(properties);
         determineIfCacheIsValid(cacheUsage, properties);
@@ -74,9 +81,9 @@ public class DefaultPersistentDirectoryCache implements PersistentCache {
         valid = true;
     }
 
-    public <K, V> BTreePersistentIndexedCache<K, V> openIndexedCache(Serializer<V> serializer) {
+    public synchronized <K, V> BTreePersistentIndexedCache<K, V> openIndexedCache(Serializer<V> serializer) {
         if (indexedCache == null) {
-            indexedCache = new BTreePersistentIndexedCache<K, V>(this, serializer);
+            indexedCache = new BTreePersistentIndexedCache<K, V>(this, serializer, indexedCacheStorage);
         }
         return indexedCache;
     }
@@ -85,7 +92,7 @@ public class DefaultPersistentDirectoryCache implements PersistentCache {
         return openIndexedCache(new DefaultSerializer<V>());
     }
 
-    public <T> SimpleStateCache<T> openStateCache() {
+    public synchronized <T> SimpleStateCache<T> openStateCache() {
         if (stateCache == null) {
             stateCache = new SimpleStateCache<T>(this, new DefaultSerializer<T>());
         }
@@ -109,7 +116,14 @@ public class DefaultPersistentDirectoryCache implements PersistentCache {
         valid = true;
     }
 
-    public void close() {
+    /**
+     * Returns the statistics for the indexed cache, or null if the indexed cache has not been opened.
+     */
+    public synchronized BTreeStatistics getIndexedCacheStatistics() {
+        return indexedCache == null ? null : indexedCache.getStatistics();
+    }
+
+    public synchronized void close() {
         if (indexedCache != null) {
             indexedCache.close();
         }
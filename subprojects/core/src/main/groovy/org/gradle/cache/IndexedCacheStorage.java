@@ -0,0 +1,32 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache;
+
+/**
+ * Specifies how the indexed caches of a {@link PersistentCache} access their backing file. Both kinds of storage use
+ * the same file format, so a cache can switch between them without being rebuilt.
+ */
+public enum IndexedCacheStorage {
+    /**
+     * Accesses the backing file using seek plus read and write calls.
+     */
+    FILE,
+
+    /**
+     * Accesses the backing file through memory mapped regions.
+     */
+    MAPPED_FILE
+}
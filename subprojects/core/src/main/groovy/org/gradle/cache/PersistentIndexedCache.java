@@ -15,6 +15,9 @@
  */
 package org.gradle.cache;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * A persistent store of objects of type V indexed by a key of type K.
  */
@@ -24,4 +27,15 @@ public interface PersistentIndexedCache<K, V> {
     void put(K key, V value);
 
     void remove(K key);
+
+    /**
+     * Returns the values for the given keys. The result contains an entry for each key which has a value in this cache.
+     */
+    Map<K, V> getAll(Collection<? extends K> keys);
+
+    /**
+     * Adds the given entries to this cache. This is more efficient than calling {@link #put(Object, Object)} for each
+     * entry.
+     */
+    void putAll(Map<? extends K, ? extends V> entries);
 }
@@ -16,6 +16,7 @@
 package org.gradle.cache.btree;
 
 import org.gradle.api.UncheckedIOException;
+import org.gradle.cache.IndexedCacheStorage;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.PersistentIndexedCache;
 import org.gradle.cache.Serializer;
@@ -45,21 +46,41 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
     private final short maxChildIndexEntries;
     private final int minIndexChildNodes;
     private final StateCheckBlockStore store;
+    private final CountingBlockStore countingStore;
+    private final CachingBlockStore cachingStore;
+    private final FreeListBlockStore freeListStore;
     private HeaderBlock header;
+    private long lookups;
+    private long indexBlocksVisited;
 
     public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer) {
-        this(backingCache, serializer, (short) 512, 512);
+        this(backingCache, serializer, IndexedCacheStorage.FILE);
+    }
+
+    public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer,
+                                       IndexedCacheStorage storage) {
+        this(backingCache, serializer, (short) 512, 512, storage);
     }
 
     public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer,
                                        short maxChildIndexEntries, int maxFreeListEntries) {
+        this(backingCache, serializer, maxChildIndexEntries, maxFreeListEntries, IndexedCacheStorage.FILE);
+    }
+
+    public BTreePersistentIndexedCache(PersistentCache backingCache, Serializer<V> serializer,
+                                       short maxChildIndexEntries, int maxFreeListEntries,
+                                       IndexedCacheStorage storage) {
         this.backingCache = backingCache;
         this.serializer = serializer;
         this.maxChildIndexEntries = maxChildIndexEntries;
         this.minIndexChildNodes = maxChildIndexEntries / 2;
         cacheFile = new File(backingCache.getBaseDir(), "cache.bin");
-        BlockStore cachingStore = new CachingBlockStore(new FileBackedBlockStore(cacheFile), IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
-        store = new StateCheckBlockStore(new FreeListBlockStore(cachingStore, maxFreeListEntries));
+        BlockStore fileStore = storage == IndexedCacheStorage.MAPPED_FILE ? new MappedFileBlockStore(cacheFile)
+                : new FileBackedBlockStore(cacheFile);
+        countingStore = new CountingBlockStore(fileStore);
+        cachingStore = new CachingBlockStore(countingStore, IndexBlock.class, FreeListBlockStore.FreeListBlock.class);
+        freeListStore = new FreeListBlockStore(cachingStore, maxFreeListEntries);
+        store = new StateCheckBlockStore(freeListStore);
         try {
             open();
         } catch (Exception e) {
@@ -126,30 +147,81 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
     }
 
-    public void put(K key, V value) {
+    public Map<K, V> getAll(Collection<? extends K> keys) {
+        Map<K, V> result = new HashMap<K, V>();
         try {
-            String keyString = key.toString();
-            long hashCode = keyString.hashCode();
-            Lookup lookup = header.getRoot().find(hashCode);
-            boolean needNewBlock = true;
-            if (lookup.entry != null) {
-                DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
-                needNewBlock = !block.useNewValue(value);
-                if (needNewBlock) {
-                    store.remove(block);
+            try {
+                // Look up the keys in index order, so that each index block is visited once
+                IndexBlock root = header.getRoot();
+                for (K key : sortByHash(keys)) {
+                    DataBlock block = root.get(key);
+                    if (block != null) {
+                        result.put(key, block.getValue());
+                    }
                 }
+                return result;
+            } catch (CorruptedCacheException e) {
+                rebuild();
+                return new HashMap<K, V>();
             }
-            if (needNewBlock) {
-                DataBlock block = new DataBlock(keyString, value);
-                store.write(block);
-                lookup.indexBlock.put(hashCode, block.getPos());
-            }
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not read entries from %s.", this), e);
+        }
+    }
+
+    public void put(K key, V value) {
+        try {
+            doPut(key, value);
             store.flush();
         } catch (Exception e) {
             throw new UncheckedIOException(String.format("Could not add entry '%s' to %s.", key, this), e);
         }
     }
 
+    public void putAll(Map<? extends K, ? extends V> entries) {
+        try {
+            // Add the entries in index order, so that consecutive entries land in the same leaf block, and write the
+            // modified blocks once at the end
+            for (K key : sortByHash(entries.keySet())) {
+                doPut(key, entries.get(key));
+            }
+            store.flush();
+        } catch (Exception e) {
+            throw new UncheckedIOException(String.format("Could not add entries to %s.", this), e);
+        }
+    }
+
+    private void doPut(K key, V value) throws Exception {
+        String keyString = key.toString();
+        long hashCode = keyString.hashCode();
+        Lookup lookup = header.getRoot().find(keyString);
+        boolean needNewBlock = true;
+        if (lookup.entry != null) {
+            DataBlock block = store.read(lookup.entry.dataBlock, DataBlock.class);
+            needNewBlock = !block.useNewValue(value);
+            if (needNewBlock) {
+                store.remove(block);
+            }
+        }
+        if (needNewBlock) {
+            DataBlock block = new DataBlock(keyString, value);
+            store.write(block);
+            lookup.indexBlock.put(hashCode, block.getPos());
+        }
+    }
+
+    private List<K> sortByHash(Collection<? extends K> keys) {
+        List<K> sorted = new ArrayList<K>(keys);
+        Collections.sort(sorted, new Comparator<K>() {
+            public int compare(K key1, K key2) {
+                int hash1 = key1.toString().hashCode();
+                int hash2 = key2.toString().hashCode();
+                return hash1 < hash2 ? -1 : hash1 == hash2 ? 0 : 1;
+            }
+        });
+        return sorted;
+    }
+
     public void remove(K key) {
         try {
             Lookup lookup = header.getRoot().find(key.toString());
@@ -201,6 +273,26 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         doOpen();
     }
 
+    /**
+     * Returns a snapshot of the statistics for this cache.
+     */
+    public BTreeStatistics getStatistics() {
+        BTreeStatistics statistics = new BTreeStatistics();
+        statistics.cacheFile = cacheFile;
+        statistics.lookups = lookups;
+        statistics.indexBlocksVisited = indexBlocksVisited;
+        statistics.indexCacheHits = cachingStore.getCacheHits();
+        statistics.indexCacheMisses = cachingStore.getCacheMisses();
+        statistics.blockReads = countingStore.getReads();
+        statistics.blockWrites = countingStore.getWrites();
+        if (isOpen()) {
+            statistics.freeBlocks = freeListStore.getFreeBlockCount();
+            statistics.freeSpace = freeListStore.getFreeSpace();
+        }
+        statistics.fileSize = cacheFile.length();
+        return statistics;
+    }
+
     public void verify() {
         try {
             doVerify();
@@ -442,10 +534,12 @@ public class BTreePersistentIndexedCache<K, V> implements PersistentIndexedCache
         }
 
         public Lookup find(String keyString) throws Exception {
+            lookups++;
             return find((long) keyString.hashCode());
         }
 
         private Lookup find(long hashCode) throws Exception {
+            indexBlocksVisited++;
             int index = Collections.binarySearch(entries, new IndexEntry(hashCode));
             if (index >= 0) {
                 return new Lookup(this, entries.get(index));
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import java.io.File;
+
+/**
+ * A snapshot of the statistics for a {@link BTreePersistentIndexedCache}. Counts are accumulated from when the cache
+ * was opened.
+ */
+public class BTreeStatistics {
+    File cacheFile;
+    long lookups;
+    long indexBlocksVisited;
+    long indexCacheHits;
+    long indexCacheMisses;
+    long blockReads;
+    long blockWrites;
+    int freeBlocks;
+    long freeSpace;
+    long fileSize;
+
+    /**
+     * Returns the file which backs the cache.
+     */
+    public File getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * Returns the number of index lookups made.
+     */
+    public long getLookups() {
+        return lookups;
+    }
+
+    /**
+     * Returns the average number of index blocks visited for each lookup.
+     */
+    public double getAverageLookupDepth() {
+        return lookups == 0 ? 0 : (double) indexBlocksVisited / lookups;
+    }
+
+    public long getIndexCacheHits() {
+        return indexCacheHits;
+    }
+
+    public long getIndexCacheMisses() {
+        return indexCacheMisses;
+    }
+
+    /**
+     * Returns the proportion of index block reads which were served from the in-memory index block cache, between 0
+     * and 1.
+     */
+    public double getIndexCacheHitRate() {
+        long total = indexCacheHits + indexCacheMisses;
+        return total == 0 ? 0 : (double) indexCacheHits / total;
+    }
+
+    /**
+     * Returns the number of blocks read from the backing file.
+     */
+    public long getBlockReads() {
+        return blockReads;
+    }
+
+    /**
+     * Returns the number of blocks written to the backing file.
+     */
+    public long getBlockWrites() {
+        return blockWrites;
+    }
+
+    /**
+     * Returns the number of blocks on the free list.
+     */
+    public int getFreeBlocks() {
+        return freeBlocks;
+    }
+
+    /**
+     * Returns the total size of the blocks on the free list, in bytes.
+     */
+    public long getFreeSpace() {
+        return freeSpace;
+    }
+
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Returns the proportion of the backing file which is taken up by free blocks, between 0 and 1.
+     */
+    public double getFragmentation() {
+        return fileSize == 0 ? 0 : (double) freeSpace / fileSize;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d lookups (average depth %.2f), index cache hit rate %.1f%%, %d block reads, "
+                + "%d block writes, %d free blocks (%.1f%% of %d bytes)", cacheFile, lookups, getAverageLookupDepth(),
+                getIndexCacheHitRate() * 100, blockReads, blockWrites, freeBlocks, getFragmentation() * 100, fileSize);
+    }
+}
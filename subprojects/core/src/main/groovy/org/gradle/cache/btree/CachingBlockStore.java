@@ -21,15 +21,32 @@ import java.util.*;
 
 public class CachingBlockStore implements BlockStore {
     private final BlockStore store;
-    private final Map<BlockPointer, BlockPayload> dirty = new LinkedHashMap<BlockPointer, BlockPayload>();
+    // Ordered by position, so that dirty blocks are written to the file sequentially
+    private final Map<BlockPointer, BlockPayload> dirty = new TreeMap<BlockPointer, BlockPayload>();
     private final Map<BlockPointer, BlockPayload> indexBlockCache = new LRUMap(100);
     private final Set<Class<?>> cachableTypes = new HashSet<Class<?>>();
+    private long cacheHits;
+    private long cacheMisses;
 
     public CachingBlockStore(BlockStore store, Class<? extends BlockPayload>... cacheableBlockTypes) {
         this.store = store;
         cachableTypes.addAll(Arrays.asList(cacheableBlockTypes));
     }
 
+    /**
+     * Returns the number of reads of cacheable blocks which were served from memory.
+     */
+    public long getCacheHits() {
+        return cacheHits;
+    }
+
+    /**
+     * Returns the number of reads of cacheable blocks which had to be read from the backing store.
+     */
+    public long getCacheMisses() {
+        return cacheMisses;
+    }
+
     public void open(Runnable initAction, Factory factory) {
         store.open(initAction, factory);
     }
@@ -73,14 +90,20 @@ public class CachingBlockStore implements BlockStore {
     }
 
     public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        boolean cacheable = cachableTypes.contains(payloadType);
         T block = payloadType.cast(dirty.get(pos));
-        if (block != null) {
-            return block;
+        if (block == null) {
+            block = payloadType.cast(indexBlockCache.get(pos));
         }
-        block = payloadType.cast(indexBlockCache.get(pos));
         if (block != null) {
+            if (cacheable) {
+                cacheHits++;
+            }
             return block;
         }
+        if (cacheable) {
+            cacheMisses++;
+        }
         block = store.read(pos, payloadType);
         maybeCache(block);
         return block;
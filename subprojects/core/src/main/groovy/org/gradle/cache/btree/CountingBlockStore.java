@@ -0,0 +1,76 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+/**
+ * Counts the blocks read from and written to a backing store.
+ */
+public class CountingBlockStore implements BlockStore {
+    private final BlockStore store;
+    private long reads;
+    private long writes;
+
+    public CountingBlockStore(BlockStore store) {
+        this.store = store;
+    }
+
+    public long getReads() {
+        return reads;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    public void open(Runnable initAction, Factory factory) {
+        store.open(initAction, factory);
+    }
+
+    public void close() {
+        store.close();
+    }
+
+    public void clear() {
+        store.clear();
+    }
+
+    public void remove(BlockPayload block) {
+        store.remove(block);
+    }
+
+    public <T extends BlockPayload> T readFirst(Class<T> payloadType) {
+        reads++;
+        return store.readFirst(payloadType);
+    }
+
+    public <T extends BlockPayload> T read(BlockPointer pos, Class<T> payloadType) {
+        reads++;
+        return store.read(pos, payloadType);
+    }
+
+    public void write(BlockPayload block) {
+        writes++;
+        store.write(block);
+    }
+
+    public void attach(BlockPayload block) {
+        store.attach(block);
+    }
+
+    public void flush() {
+        store.flush();
+    }
+}
@@ -39,8 +39,9 @@ public class FileBackedBlockStore implements BlockStore {
         this.factory = factory;
         try {
             file = new RandomAccessFile(cacheFile, "rw");
-            nextBlock = file.length();
-            if (file.length() == 0) {
+            doOpen(file);
+            nextBlock = length();
+            if (nextBlock == 0) {
                 runnable.run();
             }
         } catch (IOException e) {
@@ -50,6 +51,7 @@ public class FileBackedBlockStore implements BlockStore {
 
     public void close() {
         try {
+            doClose(file);
             file.close();
         } catch (IOException e) {
             throw new UncheckedIOException(e);
@@ -58,7 +60,7 @@ public class FileBackedBlockStore implements BlockStore {
 
     public void clear() {
         try {
-            file.setLength(0);
+            setLength(0);
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
@@ -114,6 +116,48 @@ public class FileBackedBlockStore implements BlockStore {
         return pos;
     }
 
+    /**
+     * Called after the backing file has been opened.
+     */
+    protected void doOpen(RandomAccessFile file) throws IOException {
+    }
+
+    /**
+     * Called before the backing file is closed.
+     */
+    protected void doClose(RandomAccessFile file) throws IOException {
+    }
+
+    /**
+     * Returns the number of bytes of the backing file which are in use.
+     */
+    protected long length() throws IOException {
+        return file.length();
+    }
+
+    /**
+     * Sets the number of bytes of the backing file which are in use.
+     */
+    protected void setLength(long length) throws IOException {
+        file.setLength(length);
+    }
+
+    /**
+     * Creates a stream which reads the backing file starting at the given position.
+     */
+    protected InputStream openInput(long pos) throws IOException {
+        file.seek(pos);
+        return new BufferedInputStream(new RandomAccessFileInputStream(file));
+    }
+
+    /**
+     * Creates a stream which writes the backing file starting at the given position.
+     */
+    protected OutputStream openOutput(long pos) throws IOException {
+        file.seek(pos);
+        return new BufferedOutputStream(new RandomAccessFileOutputStream(file));
+    }
+
     private final class BlockImpl extends Block {
         private static final int HEADER_SIZE = 2 + INT_SIZE;
         private static final int TAIL_SIZE = LONG_SIZE;
@@ -168,10 +212,8 @@ public class FileBackedBlockStore implements BlockStore {
 
         public void write() throws Exception {
             long pos = getPos().getPos();
-            file.seek(pos);
 
-            Crc32OutputStream checkSumOutputStream = new Crc32OutputStream(new BufferedOutputStream(
-                    new RandomAccessFileOutputStream(file)));
+            Crc32OutputStream checkSumOutputStream = new Crc32OutputStream(openOutput(pos));
             DataOutputStream outputStream = new DataOutputStream(checkSumOutputStream);
 
             BlockPayload payload = getPayload();
@@ -190,21 +232,19 @@ public class FileBackedBlockStore implements BlockStore {
             outputStream.close();
 
             // Pad
-            if (file.length() < finalSize) {
-                file.setLength(finalSize);
+            if (length() < finalSize) {
+                setLength(finalSize);
             }
         }
 
         public void read() throws Exception {
             long pos = getPos().getPos();
             assert pos >= 0;
-            if (pos + HEADER_SIZE >= file.length()) {
+            if (pos + HEADER_SIZE >= length()) {
                 throw blockCorruptedException();
             }
-            file.seek(pos);
 
-            Crc32InputStream checkSumInputStream = new Crc32InputStream(new BufferedInputStream(
-                    new RandomAccessFileInputStream(file)));
+            Crc32InputStream checkSumInputStream = new Crc32InputStream(openInput(pos));
             DataInputStream inputStream = new DataInputStream(checkSumInputStream);
 
             BlockPayload payload = getPayload();
@@ -221,7 +261,7 @@ public class FileBackedBlockStore implements BlockStore {
 
             // Read body
             payloadSize = inputStream.readInt();
-            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > file.length()) {
+            if (pos + HEADER_SIZE + TAIL_SIZE + payloadSize > length()) {
                 throw blockCorruptedException();
             }
             payload.read(inputStream);
@@ -92,6 +92,30 @@ public class FreeListBlockStore implements BlockStore {
         store.flush();
     }
 
+    /**
+     * Returns the number of free blocks in this store.
+     */
+    public int getFreeBlockCount() {
+        int count = 0;
+        for (FreeListBlock block = freeListBlock; block != null; block = block.nextBlock.isNull() ? null : block.getNextBlock()) {
+            count += block.entries.size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total size of the free blocks in this store, in bytes.
+     */
+    public long getFreeSpace() {
+        long size = 0;
+        for (FreeListBlock block = freeListBlock; block != null; block = block.nextBlock.isNull() ? null : block.getNextBlock()) {
+            for (FreeListEntry entry : block.entries) {
+                size += entry.size;
+            }
+        }
+        return size;
+    }
+
     private void verify() {
         FreeListBlock block = store.readFirst(FreeListBlock.class);
         verify(block, Integer.MAX_VALUE);
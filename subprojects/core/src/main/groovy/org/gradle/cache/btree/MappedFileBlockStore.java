@@ -0,0 +1,223 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link FileBackedBlockStore} which accesses the backing file through memory mapped regions, rather than through
+ * seek and read/write calls. Uses the same file layout as {@link FileBackedBlockStore}.
+ *
+ * <p>The file is mapped in fixed size regions, which are mapped on demand. Mapping a region past the end of the file
+ * grows the file, so the number of bytes in use is tracked separately, and the file is truncated to that length when
+ * this store is closed. Some platforms refuse to truncate a file while a region of it is still mapped. In this case
+ * the number of bytes in use is written to a trailer at the end of the file, and read back when the file is next
+ * opened. The trailer follows the bytes in use, so the file can still be read by {@link FileBackedBlockStore}.</p>
+ */
+public class MappedFileBlockStore extends FileBackedBlockStore {
+    public static final int DEFAULT_REGION_SIZE = 1024 * 1024;
+    private static final long TRAILER_MARKER = 0x4d617070656442L;
+    private static final int TRAILER_SIZE = 16;
+    private final int regionSize;
+    private final List<MappedByteBuffer> regions = new ArrayList<MappedByteBuffer>();
+    private FileChannel channel;
+    private long length;
+
+    public MappedFileBlockStore(File cacheFile) {
+        this(cacheFile, DEFAULT_REGION_SIZE);
+    }
+
+    public MappedFileBlockStore(File cacheFile, int regionSize) {
+        super(cacheFile);
+        this.regionSize = regionSize;
+    }
+
+    @Override
+    protected void doOpen(RandomAccessFile file) throws IOException {
+        channel = file.getChannel();
+        length = readTrailer(file);
+    }
+
+    @Override
+    protected void doClose(RandomAccessFile file) throws IOException {
+        unmapRegions();
+        channel = null;
+        if (!truncate(file, length)) {
+            writeTrailer(file);
+        }
+    }
+
+    /**
+     * Returns the number of bytes in use recorded in the trailer of the given file, or the length of the file when it
+     * has no trailer.
+     */
+    private long readTrailer(RandomAccessFile file) throws IOException {
+        long fileLength = file.length();
+        if (fileLength < TRAILER_SIZE) {
+            return fileLength;
+        }
+        file.seek(fileLength - TRAILER_SIZE);
+        long marker = file.readLong();
+        long usedLength = file.readLong();
+        if (marker != TRAILER_MARKER || usedLength < 0 || usedLength > fileLength - TRAILER_SIZE) {
+            return fileLength;
+        }
+        return usedLength;
+    }
+
+    private void writeTrailer(RandomAccessFile file) throws IOException {
+        // Reuse the unused space at the end of the file where possible, so that the file does not grow each time
+        long fileLength = file.length();
+        file.seek(Math.max(length, fileLength - TRAILER_SIZE));
+        file.writeLong(TRAILER_MARKER);
+        file.writeLong(length);
+        file.getFD().sync();
+    }
+
+    /**
+     * Attempts to truncate the given file to the given length.
+     *
+     * @return true if the file was truncated, false if the platform refused.
+     */
+    boolean truncate(RandomAccessFile file, long length) {
+        try {
+            file.setLength(length);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the content of the mapped regions to the file, and discards the regions. A region is only unmapped once
+     * it has been garbage collected, which is why truncating the file afterwards may still fail.
+     */
+    private void unmapRegions() {
+        for (MappedByteBuffer region : regions) {
+            region.force();
+        }
+        regions.clear();
+    }
+
+    @Override
+    protected long length() {
+        return length;
+    }
+
+    @Override
+    protected void setLength(long length) throws IOException {
+        if (length < this.length) {
+            unmapRegions();
+            try {
+                channel.truncate(length);
+            } catch (IOException e) {
+                // Leave the unused space at the end of the file. The number of bytes in use is recorded when closed
+            }
+        }
+        this.length = length;
+    }
+
+    @Override
+    protected InputStream openInput(long pos) {
+        return new RegionInputStream(pos);
+    }
+
+    @Override
+    protected OutputStream openOutput(long pos) {
+        return new RegionOutputStream(pos);
+    }
+
+    /**
+     * Returns the mapped region containing the given position, mapping the region and any regions before it if
+     * required.
+     */
+    private MappedByteBuffer region(long pos) throws IOException {
+        int index = (int) (pos / regionSize);
+        while (regions.size() <= index) {
+            long start = (long) regions.size() * regionSize;
+            regions.add(channel.map(FileChannel.MapMode.READ_WRITE, start, regionSize));
+        }
+        MappedByteBuffer region = regions.get(index);
+        region.position((int) (pos % regionSize));
+        return region;
+    }
+
+    private class RegionInputStream extends InputStream {
+        private long pos;
+
+        private RegionInputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (pos >= length) {
+                return -1;
+            }
+            int b = region(pos).get() & 0xFF;
+            pos++;
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int max) throws IOException {
+            if (pos >= length) {
+                return -1;
+            }
+            int count = (int) Math.min(max, length - pos);
+            int remaining = count;
+            while (remaining > 0) {
+                MappedByteBuffer region = region(pos);
+                int chunk = Math.min(remaining, region.remaining());
+                region.get(bytes, offset, chunk);
+                offset += chunk;
+                pos += chunk;
+                remaining -= chunk;
+            }
+            return count;
+        }
+    }
+
+    private class RegionOutputStream extends OutputStream {
+        private long pos;
+
+        private RegionOutputStream(long pos) {
+            this.pos = pos;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            region(pos).put((byte) b);
+            pos++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int count) throws IOException {
+            while (count > 0) {
+                MappedByteBuffer region = region(pos);
+                int chunk = Math.min(count, region.remaining());
+                region.put(bytes, offset, chunk);
+                offset += chunk;
+                pos += chunk;
+                count -= chunk;
+            }
+        }
+    }
+}
@@ -27,11 +27,17 @@ import org.gradle.api.specs.Spec;
 import org.gradle.api.specs.Specs;
 import org.gradle.listener.ListenerBroadcast;
 import org.gradle.listener.ListenerManager;
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
 import org.gradle.util.Clock;
+import org.gradle.util.UncheckedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
 
 /**
  * @author Hans Dockter
@@ -42,10 +48,24 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
     private final ListenerBroadcast<TaskExecutionGraphListener> graphListeners;
     private final ListenerBroadcast<TaskExecutionListener> taskListeners;
     private final Set<Task> executionPlan = new LinkedHashSet<Task>();
+    private final Map<Task, Set<Task>> dependencies = new HashMap<Task, Set<Task>>();
+    private final List<List<Task>> batches = new ArrayList<List<Task>>();
+    private final ExecutorFactory executorFactory;
+    private final int parallelThreadCount;
     private boolean populated;
     private Spec<? super Task> filter = Specs.satisfyAll();
 
     public DefaultTaskGraphExecuter(ListenerManager listenerManager) {
+        this(listenerManager, new DefaultExecutorFactory(), 0);
+    }
+
+    /**
+     * @param parallelThreadCount The maximum number of tasks to execute concurrently. When 0 or 1, the tasks are
+     * executed one at a time by the calling thread.
+     */
+    public DefaultTaskGraphExecuter(ListenerManager listenerManager, ExecutorFactory executorFactory, int parallelThreadCount) {
+        this.executorFactory = executorFactory;
+        this.parallelThreadCount = parallelThreadCount;
         graphListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionGraphListener.class);
         taskListeners = listenerManager.createAnonymousBroadcaster(TaskExecutionListener.class);
     }
@@ -63,7 +83,9 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         for (Task task : tasks) {
             sortedTasks.add(task);
         }
-        fillDag(sortedTasks);
+        List<Task> batch = new ArrayList<Task>();
+        fillDag(sortedTasks, batch);
+        batches.add(batch);
         populated = true;
 
         logger.debug("Timing: Creating the DAG took " + clock.getTime());
@@ -75,10 +97,16 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         graphListeners.getSource().graphPopulated(this);
 
         try {
-            doExecute(executionPlan);
+            if (parallelThreadCount > 1) {
+                doExecuteInParallel();
+            } else {
+                doExecute(executionPlan);
+            }
             logger.debug("Timing: Executing the DAG took " + clock.getTime());
         } finally {
             executionPlan.clear();
+            dependencies.clear();
+            batches.clear();
         }
     }
 
@@ -87,7 +115,7 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         execute();
     }
 
-    private void fillDag(Collection<? extends Task> tasks) {
+    private void fillDag(Collection<? extends Task> tasks, List<Task> batch) {
         Set<Task> visiting = new HashSet<Task>();
         List<Task> queue = new ArrayList<Task>();
         queue.addAll(tasks);
@@ -123,6 +151,10 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
                 queue.remove(0);
                 visiting.remove(task);
                 executionPlan.add(task);
+                batch.add(task);
+                Set<Task> planDependencies = new HashSet<Task>(context.getDependencies(task));
+                planDependencies.retainAll(executionPlan);
+                dependencies.put(task, planDependencies);
             }
         }
     }
@@ -161,6 +193,60 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         }
     }
 
+    /**
+     * Executes the tasks of each batch using a pool of worker threads. A task is started once all of its dependencies
+     * have completed, and all tasks of the previous batches have completed. Once a task fails, no further tasks are
+     * started, and the first failure is rethrown when the running tasks have completed. The scheduling state is only
+     * touched by the calling thread.
+     */
+    private void doExecuteInParallel() {
+        BlockingQueue<TaskResult> results = new LinkedBlockingQueue<TaskResult>();
+        Set<Task> completed = new HashSet<Task>();
+        StoppableExecutor executor = executorFactory.create("Task worker");
+        Throwable failure = null;
+        try {
+            for (List<Task> batch : batches) {
+                List<Task> pending = new LinkedList<Task>(batch);
+                int running = 0;
+                while (true) {
+                    Iterator<Task> iterator = pending.iterator();
+                    while (failure == null && running < parallelThreadCount && iterator.hasNext()) {
+                        final Task task = iterator.next();
+                        if (completed.containsAll(dependencies.get(task))) {
+                            iterator.remove();
+                            running++;
+                            executor.execute(new TaskWorker(task, results));
+                        }
+                    }
+                    if (running == 0) {
+                        break;
+                    }
+                    TaskResult result = results.take();
+                    running--;
+                    if (result.failure == null) {
+                        completed.add(result.task);
+                    } else if (failure == null) {
+                        failure = result.failure;
+                    }
+                }
+                if (failure != null) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            throw new UncheckedException(e);
+        } finally {
+            executor.stop();
+        }
+
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw UncheckedException.asUncheckedException(failure);
+        }
+    }
+
     private void executeTask(Task task) {
         taskListeners.getSource().beforeExecute(task);
         try {
@@ -170,6 +256,37 @@ public class DefaultTaskGraphExecuter implements TaskGraphExecuter {
         }
     }
 
+    private class TaskWorker implements Runnable {
+        private final Task task;
+        private final BlockingQueue<TaskResult> results;
+
+        private TaskWorker(Task task, BlockingQueue<TaskResult> results) {
+            this.task = task;
+            this.results = results;
+        }
+
+        public void run() {
+            Throwable failure = null;
+            try {
+                executeTask(task);
+            } catch (Throwable throwable) {
+                failure = throwable;
+            } finally {
+                results.add(new TaskResult(task, failure));
+            }
+        }
+    }
+
+    private static class TaskResult {
+        private final Task task;
+        private final Throwable failure;
+
+        private TaskResult(Task task, Throwable failure) {
+            this.task = task;
+            this.failure = failure;
+        }
+    }
+
     public boolean hasTask(Task task) {
         assertPopulated();
         return executionPlan.contains(task);
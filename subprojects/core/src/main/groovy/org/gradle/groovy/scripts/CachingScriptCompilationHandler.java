@@ -18,11 +18,20 @@ package org.gradle.groovy.scripts;
 import groovy.lang.Script;
 
 import java.io.File;
+import java.lang.ref.SoftReference;
 import java.util.*;
 
+/**
+ * A {@link ScriptCompilationHandler} which caches the script classes it loads, so an instance can be shared by all
+ * builds run in a given process. The classes are held per class loader. A script class is loaded by a class loader
+ * whose parent is that class loader, so the classes are only softly referenced, to allow the class loaders to be
+ * garbage collected once they are no longer in use. A changed script is compiled to a different directory, and so is
+ * never served from this cache.
+ */
 public class CachingScriptCompilationHandler implements ScriptCompilationHandler {
     private final ScriptCompilationHandler handler;
-    private final Map<Collection<Object>, Class<?>> cachedClasses = new HashMap<Collection<Object>, Class<?>>();
+    private final Map<ClassLoader, Map<Collection<Object>, SoftReference<Class<?>>>> cachedClasses
+            = new WeakHashMap<ClassLoader, Map<Collection<Object>, SoftReference<Class<?>>>>();
 
     public CachingScriptCompilationHandler(ScriptCompilationHandler handler) {
         this.handler = handler;
@@ -33,13 +42,19 @@ public class CachingScriptCompilationHandler implements ScriptCompilationHandler
         handler.compileToDir(source, classLoader, scriptCacheDir, transformer, scriptBaseClass);
     }
 
-    public <T extends Script> Class<? extends T> loadFromDir(ScriptSource source, ClassLoader classLoader,
-                                                             File scriptCacheDir, Class<T> scriptBaseClass) {
-        List<Object> key = Arrays.asList(source.getClassName(), classLoader, scriptCacheDir);
-        Class<?> c = cachedClasses.get(key);
+    public synchronized <T extends Script> Class<? extends T> loadFromDir(ScriptSource source, ClassLoader classLoader,
+                                                                          File scriptCacheDir, Class<T> scriptBaseClass) {
+        Map<Collection<Object>, SoftReference<Class<?>>> classes = cachedClasses.get(classLoader);
+        if (classes == null) {
+            classes = new HashMap<Collection<Object>, SoftReference<Class<?>>>();
+            cachedClasses.put(classLoader, classes);
+        }
+        List<Object> key = Arrays.<Object>asList(source.getClassName(), scriptCacheDir);
+        SoftReference<Class<?>> reference = classes.get(key);
+        Class<?> c = reference == null ? null : reference.get();
         if (c == null) {
             c = handler.loadFromDir(source, classLoader, scriptCacheDir, scriptBaseClass);
-            cachedClasses.put(key, c);
+            classes.put(key, new SoftReference<Class<?>>(c));
         }
         return c.asSubclass(scriptBaseClass);
     }
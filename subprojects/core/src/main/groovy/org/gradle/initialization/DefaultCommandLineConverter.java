@@ -58,6 +58,8 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
     private static final String NO_OPT = "no-opt";
     private static final String EXCLUDE_TASK = "x";
     private static final String PROFILE = "profile";
+    private static final String PARALLEL_THREADS = "parallel-threads";
+    private static final String HASHING_THREADS = "hashing-threads";
 
     private static BiMap<String, StartParameter.ShowStacktrace> showStacktraceMap = HashBiMap.create();
     private final CommandLineConverter<LoggingConfiguration> loggingConfigurationCommandLineConverter = new LoggingCommandLineConverter();
@@ -94,6 +96,8 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
         parser.option(NO_OPT).hasDescription("Ignore any task optimization.");
         parser.option(EXCLUDE_TASK, "exclude-task").hasArguments().hasDescription("Specify a task to be excluded from execution.");
         parser.option(PROFILE).hasDescription("Profiles build execution time and generates a report in the <build_dir>/reports/profile directory.");
+        parser.option(PARALLEL_THREADS).hasArgument().hasDescription("Executes tasks whose dependencies have completed in parallel, using the given number of threads.");
+        parser.option(HASHING_THREADS).hasArgument().hasDescription("Hashes the input and output files of each task using the given number of threads. Defaults to the number of processors.");
     }
 
     @Override
@@ -193,6 +197,32 @@ public class DefaultCommandLineConverter extends AbstractCommandLineConverter<St
             startParameter.setProfile(true);
         }
 
+        if (options.hasOption(PARALLEL_THREADS)) {
+            String value = options.option(PARALLEL_THREADS).getValue();
+            try {
+                int threads = Integer.parseInt(value);
+                if (threads < 0) {
+                    throw new NumberFormatException();
+                }
+                startParameter.setParallelThreadCount(threads);
+            } catch (NumberFormatException e) {
+                throw new CommandLineArgumentException(String.format("Invalid number of parallel threads '%s' specified.", value));
+            }
+        }
+
+        if (options.hasOption(HASHING_THREADS)) {
+            String value = options.option(HASHING_THREADS).getValue();
+            try {
+                int threads = Integer.parseInt(value);
+                if (threads < 1) {
+                    throw new NumberFormatException();
+                }
+                startParameter.setHashingThreadCount(threads);
+            } catch (NumberFormatException e) {
+                throw new CommandLineArgumentException(String.format("Invalid number of hashing threads '%s' specified.", value));
+            }
+        }
+
         return startParameter;
     }
 
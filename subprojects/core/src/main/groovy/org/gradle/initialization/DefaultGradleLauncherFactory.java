@@ -17,13 +17,16 @@
 package org.gradle.initialization;
 
 import org.gradle.*;
+import org.gradle.api.initialization.Settings;
 import org.gradle.api.internal.ExceptionAnalyser;
 import org.gradle.api.internal.project.GlobalServicesRegistry;
 import org.gradle.api.internal.project.IProjectFactory;
 import org.gradle.api.internal.project.ServiceRegistry;
 import org.gradle.api.internal.project.TopLevelBuildServiceRegistry;
 import org.gradle.api.logging.Logging;
+import org.gradle.api.invocation.Gradle;
 import org.gradle.api.logging.StandardOutputListener;
+import org.gradle.cache.CacheFactory;
 import org.gradle.cache.CacheRepository;
 import org.gradle.configuration.BuildConfigurer;
 import org.gradle.invocation.DefaultGradle;
@@ -112,10 +115,10 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
             listenerManager.useLogger(new BuildLogger(Logging.getLogger(BuildLogger.class), serviceRegistry.get(StyledTextOutputFactory.class), startParameter, requestMetaData));
         }
         listenerManager.addListener(tracker);
-        listenerManager.addListener(new BuildCleanupListener(serviceRegistry));
 
         if (startParameter.isProfile()) {
-            listenerManager.addListener(new ProfileListener(requestMetaData.getBuildTimeClock().getStartTime()));
+            listenerManager.addListener(new ProfileListener(requestMetaData.getBuildTimeClock().getStartTime(),
+                    serviceRegistry.get(CacheFactory.class)));
         }
 
         DefaultGradle gradle = new DefaultGradle(
@@ -139,7 +142,7 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
                         serviceRegistry.get(IProjectFactory.class)
                 ),
                 serviceRegistry.get(BuildConfigurer.class),
-                gradle.getBuildListenerBroadcaster(),
+                new BuildCleanupListener(gradle.getBuildListenerBroadcaster(), serviceRegistry),
                 serviceRegistry.get(ExceptionAnalyser.class),
                 loggingManager);
     }
@@ -149,16 +152,41 @@ public class DefaultGradleLauncherFactory implements GradleLauncherFactory {
         this.commandLineConverter = commandLineConverter;
     }
 
-    private static class BuildCleanupListener extends BuildAdapter {
+    /**
+     * Closes the build services once all other listeners have been notified that the build has finished, so that
+     * those listeners can still use the services.
+     */
+    private static class BuildCleanupListener implements BuildListener {
+        private final BuildListener listener;
         private final TopLevelBuildServiceRegistry services;
 
-        private BuildCleanupListener(TopLevelBuildServiceRegistry services) {
+        private BuildCleanupListener(BuildListener listener, TopLevelBuildServiceRegistry services) {
+            this.listener = listener;
             this.services = services;
         }
 
-        @Override
+        public void buildStarted(Gradle gradle) {
+            listener.buildStarted(gradle);
+        }
+
+        public void settingsEvaluated(Settings settings) {
+            listener.settingsEvaluated(settings);
+        }
+
+        public void projectsLoaded(Gradle gradle) {
+            listener.projectsLoaded(gradle);
+        }
+
+        public void projectsEvaluated(Gradle gradle) {
+            listener.projectsEvaluated(gradle);
+        }
+
         public void buildFinished(BuildResult result) {
-            services.close();
+            try {
+                listener.buildFinished(result);
+            } finally {
+                services.close();
+            }
         }
     }
 }
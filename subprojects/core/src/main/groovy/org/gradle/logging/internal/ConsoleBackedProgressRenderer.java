@@ -17,12 +17,13 @@ package org.gradle.logging.internal;
 
 import org.gradle.util.GUtil;
 
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class ConsoleBackedProgressRenderer implements OutputEventListener {
     private final OutputEventListener listener;
     private final Console console;
-    private final LinkedList<Operation> operations = new LinkedList<Operation>();
+    private final Map<Long, Operation> operations = new LinkedHashMap<Long, Operation>();
     private Label statusBar;
 
     public ConsoleBackedProgressRenderer(OutputEventListener listener, Console console) {
@@ -33,14 +34,14 @@ public class ConsoleBackedProgressRenderer implements OutputEventListener {
     public void onOutput(OutputEvent event) {
         if (event instanceof ProgressStartEvent) {
             ProgressStartEvent startEvent = (ProgressStartEvent) event;
-            operations.addLast(new Operation(startEvent.getShortDescription(), startEvent.getStatus()));
+            operations.put(startEvent.getOperationId(), new Operation(startEvent.getShortDescription(), startEvent.getStatus()));
             updateText();
         } else if (event instanceof ProgressCompleteEvent) {
-            operations.removeLast();
+            operations.remove(((ProgressCompleteEvent) event).getOperationId());
             updateText();
         } else if (event instanceof ProgressEvent) {
             ProgressEvent progressEvent = (ProgressEvent) event;
-            operations.getLast().status = progressEvent.getStatus();
+            operations.get(progressEvent.getOperationId()).status = progressEvent.getStatus();
             updateText();
         }
         listener.onOutput(event);
@@ -48,7 +49,7 @@ public class ConsoleBackedProgressRenderer implements OutputEventListener {
 
     private void updateText() {
         StringBuilder builder = new StringBuilder();
-        for (Operation operation : operations) {
+        for (Operation operation : operations.values()) {
             String message = operation.getMessage();
             if (message == null) {
                 continue;
@@ -21,9 +21,12 @@ import org.gradle.logging.ProgressLoggerFactory;
 import org.gradle.util.GUtil;
 import org.gradle.util.TimeProvider;
 
+import java.util.concurrent.atomic.AtomicLong;
+
 public class DefaultProgressLoggerFactory implements ProgressLoggerFactory {
     private final ProgressListener progressListener;
     private final TimeProvider timeProvider;
+    private static final AtomicLong NEXT_ID = new AtomicLong();
 
     public DefaultProgressLoggerFactory(ProgressListener progressListener, TimeProvider timeProvider) {
         this.progressListener = progressListener;
@@ -35,11 +38,12 @@ public class DefaultProgressLoggerFactory implements ProgressLoggerFactory {
     }
 
     public ProgressLogger newOperation(String loggerCategory) {
-        return new ProgressLoggerImpl(loggerCategory, progressListener, timeProvider);
+        return new ProgressLoggerImpl(NEXT_ID.incrementAndGet(), loggerCategory, progressListener, timeProvider);
     }
 
     private static class ProgressLoggerImpl implements ProgressLogger {
         private enum State { idle, started, completed }
+        private final long id;
         private final String category;
         private final ProgressListener listener;
         private final TimeProvider timeProvider;
@@ -48,7 +52,8 @@ public class DefaultProgressLoggerFactory implements ProgressLoggerFactory {
         private String loggingHeader;
         private State state = State.idle;
 
-        public ProgressLoggerImpl(String category, ProgressListener listener, TimeProvider timeProvider) {
+        public ProgressLoggerImpl(long id, String category, ProgressListener listener, TimeProvider timeProvider) {
+            this.id = id;
             this.category = category;
             this.listener = listener;
             this.timeProvider = timeProvider;
@@ -94,13 +99,13 @@ public class DefaultProgressLoggerFactory implements ProgressLoggerFactory {
             }
             assertNotCompleted();
             state = State.started;
-            listener.started(new ProgressStartEvent(timeProvider.getCurrentTime(), category, description, shortDescription, loggingHeader, toStatus(status)));
+            listener.started(new ProgressStartEvent(id, timeProvider.getCurrentTime(), category, description, shortDescription, loggingHeader, toStatus(status)));
         }
 
         public void progress(String status) {
             assertStarted();
             assertNotCompleted();
-            listener.progress(new ProgressEvent(timeProvider.getCurrentTime(), category, toStatus(status)));
+            listener.progress(new ProgressEvent(id, timeProvider.getCurrentTime(), category, toStatus(status)));
         }
 
         public void completed() {
@@ -111,7 +116,7 @@ public class DefaultProgressLoggerFactory implements ProgressLoggerFactory {
             assertStarted();
             assertNotCompleted();
             state = State.completed;
-            listener.completed(new ProgressCompleteEvent(timeProvider.getCurrentTime(), category, toStatus(status)));
+            listener.completed(new ProgressCompleteEvent(id, timeProvider.getCurrentTime(), category, toStatus(status)));
         }
 
         private String toStatus(String status) {
@@ -18,13 +18,19 @@ package org.gradle.logging.internal;
 import org.gradle.api.logging.LogLevel;
 
 public class ProgressCompleteEvent extends CategorisedOutputEvent {
+    private final long operationId;
     private final String status;
 
-    public ProgressCompleteEvent(long timestamp, String category, String status) {
+    public ProgressCompleteEvent(long operationId, long timestamp, String category, String status) {
         super(timestamp, category, LogLevel.LIFECYCLE);
+        this.operationId = operationId;
         this.status = status;
     }
 
+    public long getOperationId() {
+        return operationId;
+    }
+
     public String getStatus() {
         return status;
     }
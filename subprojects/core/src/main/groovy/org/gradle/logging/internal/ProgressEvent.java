@@ -18,13 +18,19 @@ package org.gradle.logging.internal;
 import org.gradle.api.logging.LogLevel;
 
 public class ProgressEvent extends CategorisedOutputEvent {
+    private final long operationId;
     private final String status;
 
-    public ProgressEvent(long timestamp, String category, String status) {
+    public ProgressEvent(long operationId, long timestamp, String category, String status) {
         super(timestamp, category, LogLevel.LIFECYCLE);
+        this.operationId = operationId;
         this.status = status;
     }
 
+    public long getOperationId() {
+        return operationId;
+    }
+
     public String getStatus() {
         return status;
     }
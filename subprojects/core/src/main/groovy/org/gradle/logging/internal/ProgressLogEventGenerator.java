@@ -19,7 +19,8 @@ import org.gradle.api.logging.LogLevel;
 import org.gradle.util.GUtil;
 import org.gradle.util.SystemProperties;
 
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import static org.gradle.logging.StyledTextOutput.Style;
 
@@ -32,7 +33,7 @@ public class ProgressLogEventGenerator implements OutputEventListener {
 
     private final OutputEventListener listener;
     private final boolean deferHeader;
-    private final LinkedList<Operation> operations = new LinkedList<Operation>();
+    private final Map<Long, Operation> operations = new LinkedHashMap<Long, Operation>();
 
     public ProgressLogEventGenerator(OutputEventListener listener, boolean deferHeader) {
         this.listener = listener;
@@ -52,15 +53,15 @@ public class ProgressLogEventGenerator implements OutputEventListener {
     }
 
     private void doOutput(RenderableOutputEvent event) {
-        for (Operation operation : operations) {
+        for (Operation operation : operations.values()) {
             operation.completeHeader();
         }
         listener.onOutput(event);
     }
 
     private void onComplete(ProgressCompleteEvent progressCompleteEvent) {
-        assert !operations.isEmpty();
-        Operation operation = operations.removeLast();
+        Operation operation = operations.remove(progressCompleteEvent.getOperationId());
+        assert operation != null;
         operation.status = progressCompleteEvent.getStatus();
         operation.completeTime = progressCompleteEvent.getTimestamp();
         operation.complete();
@@ -68,7 +69,7 @@ public class ProgressLogEventGenerator implements OutputEventListener {
 
     private void onStart(ProgressStartEvent progressStartEvent) {
         Operation operation = new Operation(progressStartEvent.getCategory(), progressStartEvent.getLoggingHeader(), progressStartEvent.getTimestamp());
-        operations.add(operation);
+        operations.put(progressStartEvent.getOperationId(), operation);
 
         if (!deferHeader || !(progressStartEvent.getLoggingHeader() != null && progressStartEvent.getLoggingHeader().equals(progressStartEvent.getShortDescription()))) {
             operation.startHeader();
@@ -94,7 +95,7 @@ public class ProgressLogEventGenerator implements OutputEventListener {
         }
 
         private void doOutput(RenderableOutputEvent event) {
-            for (Operation pending : operations) {
+            for (Operation pending : operations.values()) {
                 if (pending == this) {
                     break;
                 }
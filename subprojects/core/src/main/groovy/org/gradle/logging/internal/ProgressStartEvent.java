@@ -18,19 +18,28 @@ package org.gradle.logging.internal;
 import org.gradle.api.logging.LogLevel;
 
 public class ProgressStartEvent extends CategorisedOutputEvent {
+    private final long operationId;
     private final String description;
     private final String shortDescription;
     private final String loggingHeader;
     private final String status;
 
-    public ProgressStartEvent(long timestamp, String category, String description, String shortDescription, String loggingHeader, String status) {
+    public ProgressStartEvent(long operationId, long timestamp, String category, String description, String shortDescription, String loggingHeader, String status) {
         super(timestamp, category, LogLevel.LIFECYCLE);
+        this.operationId = operationId;
         this.description = description;
         this.shortDescription = shortDescription;
         this.loggingHeader = loggingHeader;
         this.status = status;
     }
 
+    /**
+     * Returns the id of the operation which this event belongs to. The id is unique within this process.
+     */
+    public long getOperationId() {
+        return operationId;
+    }
+
     public String getDescription() {
         return description;
     }
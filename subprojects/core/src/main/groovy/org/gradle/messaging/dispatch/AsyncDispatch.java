@@ -19,7 +19,9 @@ package org.gradle.messaging.dispatch;
 import org.gradle.messaging.concurrent.AsyncStoppable;
 import org.gradle.util.UncheckedException;
 
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
@@ -29,6 +31,9 @@ import java.util.concurrent.locks.ReentrantLock;
  * <p>A {@link org.gradle.messaging.dispatch.Dispatch} implementation which delivers messages asynchronously. Calls to
  * {@link #dispatch} queue the message. Worker threads delivers the messages in the order they have been received to one
  * of a pool of delegate {@link org.gradle.messaging.dispatch.Dispatch} instances.</p>
+ *
+ * <p>A worker thread can also deliver messages in batches to a {@link BatchDispatch}, so that messages which are queued
+ * while a previous batch is being delivered are delivered together.</p>
  */
 public class AsyncDispatch<T> implements StoppableDispatch<T>, AsyncStoppable {
     private enum State {
@@ -74,6 +79,25 @@ public class AsyncDispatch<T> implements StoppableDispatch<T>, AsyncStoppable {
         });
     }
 
+    /**
+     * Starts a worker thread which delivers queued messages in batches to the given target. Each batch contains all the
+     * messages queued at the time it is taken. The worker does not wait for more messages before delivering a batch, so
+     * batching adds no latency: a batch holds the first queued message plus those queued while the previous batch was
+     * being delivered.
+     */
+    public void dispatchBatchesTo(final BatchDispatch<? super T> dispatch) {
+        onDispatchThreadStart();
+        executor.execute(new Runnable() {
+            public void run() {
+                try {
+                    dispatchBatches(dispatch);
+                } finally {
+                    onDispatchThreadExit();
+                }
+            }
+        });
+    }
+
     private void onDispatchThreadStart() {
         lock.lock();
         try {
@@ -130,6 +154,43 @@ public class AsyncDispatch<T> implements StoppableDispatch<T>, AsyncStoppable {
         }
     }
 
+    private void dispatchBatches(BatchDispatch<? super T> dispatch) {
+        List<T> batch = new ArrayList<T>();
+        while (true) {
+            boolean stopped;
+            lock.lock();
+            try {
+                while (state != State.Stopped && queue.isEmpty()) {
+                    try {
+                        condition.await();
+                    } catch (InterruptedException e) {
+                        throw new UncheckedException(e);
+                    }
+                }
+                if (!queue.isEmpty()) {
+                    batch.addAll(queue);
+                    queue.clear();
+                    condition.signalAll();
+                }
+                stopped = state == State.Stopped;
+            } finally {
+                lock.unlock();
+            }
+
+            if (batch.isEmpty()) {
+                if (stopped) {
+                    // Have been stopped and nothing to deliver
+                    return;
+                }
+                // Another worker has taken the messages
+                continue;
+            }
+
+            dispatch.dispatchAll(batch);
+            batch.clear();
+        }
+    }
+
     public void dispatch(final T message) {
         lock.lock();
         try {
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.dispatch;
+
+import java.util.List;
+
+/**
+ * A {@link Dispatch} which can accept several messages at once, and so can deliver them more efficiently than one at a
+ * time.
+ */
+public interface BatchDispatch<T> extends Dispatch<T> {
+    /**
+     * Dispatches the given messages, in order. Blocks until the messages have been accepted. A failure to dispatch one
+     * message does not prevent the remaining messages from being dispatched. The failure is thrown once all the
+     * messages have been attempted.
+     *
+     * @param messages The messages.
+     */
+    void dispatchAll(List<? extends T> messages);
+}
@@ -17,12 +17,22 @@ package org.gradle.messaging.dispatch;
 
 import org.slf4j.Logger;
 
-public class DiscardOnFailureDispatch<T> implements Dispatch<T> {
+import java.util.List;
+
+public class DiscardOnFailureDispatch<T> implements BatchDispatch<T> {
     private final Dispatch<? super T> dispatch;
+    private final BatchDispatch<? super T> batchDispatch;
     private final Logger logger;
 
     public DiscardOnFailureDispatch(Dispatch<? super T> dispatch, Logger logger) {
         this.dispatch = dispatch;
+        this.batchDispatch = null;
+        this.logger = logger;
+    }
+
+    public DiscardOnFailureDispatch(BatchDispatch<? super T> dispatch, Logger logger) {
+        this.dispatch = dispatch;
+        this.batchDispatch = dispatch;
         this.logger = logger;
     }
 
@@ -33,4 +43,19 @@ public class DiscardOnFailureDispatch<T> implements Dispatch<T> {
             logger.error(String.format("Could not dispatch message %s to %s. Discarding message.", message, dispatch), e);
         }
     }
+
+    public void dispatchAll(List<? extends T> messages) {
+        if (batchDispatch == null) {
+            for (T message : messages) {
+                dispatch(message);
+            }
+            return;
+        }
+        try {
+            batchDispatch.dispatchAll(messages);
+        } catch (Throwable e) {
+            // The batch dispatch has attempted every message, so only the failed messages have been discarded
+            logger.error(String.format("Could not dispatch messages to %s. Discarding failed messages.", dispatch), e);
+        }
+    }
 }
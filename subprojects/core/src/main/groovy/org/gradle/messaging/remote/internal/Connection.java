@@ -17,8 +17,8 @@
 package org.gradle.messaging.remote.internal;
 
 import org.gradle.messaging.concurrent.AsyncStoppable;
-import org.gradle.messaging.dispatch.Dispatch;
+import org.gradle.messaging.dispatch.BatchDispatch;
 import org.gradle.messaging.dispatch.Receive;
 
-public interface Connection<T> extends Dispatch<T>, Receive<T>, AsyncStoppable {
+public interface Connection<T> extends BatchDispatch<T>, Receive<T>, AsyncStoppable {
 }
@@ -0,0 +1,364 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.remote.internal;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link MessageSerializer} which uses a compact binary encoding for a set of registered types, and Java
+ * serialization for everything else.
+ *
+ * <p>Each value is written as a tag, followed by its content. Values of a registered type are written by the {@link
+ * TypeSerializer} for that type. The messaging protocol types and the common value types are registered by default.
+ * Types must be registered in the same order at both ends of a connection.</p>
+ *
+ * <p>Other values are written using Java serialization. Each class descriptor is written in full only the first time
+ * it is used on a connection, and is referred to by id after that.</p>
+ *
+ * <p>Each message is encoded into a buffer before it is written to the connection. When a message cannot be encoded,
+ * nothing is written for it, and the class descriptor ids it allocated are discarded, so that both ends of the
+ * connection continue to agree on the ids.</p>
+ */
+public class DefaultMessageSerializer implements MessageSerializer {
+    private static final int NULL = 0;
+    private static final int SERIALIZED = 1;
+    private static final int FIRST_REGISTERED_TYPE = 2;
+    private static final int MAX_TAG = 255;
+    private final List<TypeSerializer<?>> serializers = new ArrayList<TypeSerializer<?>>();
+    private final Map<Class<?>, Integer> tags = new HashMap<Class<?>, Integer>();
+
+    public DefaultMessageSerializer() {
+        register(String.class, new StringSerializer());
+        register(Integer.class, new IntegerSerializer());
+        register(Long.class, new LongSerializer());
+        register(Boolean.class, new BooleanSerializer());
+        register(Object[].class, new ObjectArraySerializer());
+        register(ChannelMessage.class, new ChannelMessageSerializer());
+        register(ChannelMetaInfo.class, new ChannelMetaInfoSerializer());
+        register(RemoteMethodInvocation.class, new RemoteMethodInvocationSerializer());
+        register(EndOfStreamEvent.class, new EndOfStreamEventSerializer());
+    }
+
+    /**
+     * Registers a serializer for the given type. The serializer is used for values whose class is exactly the given
+     * type.
+     */
+    public <T> void register(Class<T> type, TypeSerializer<T> serializer) {
+        if (tags.containsKey(type)) {
+            throw new IllegalArgumentException(String.format("A serializer for %s has already been registered.", type));
+        }
+        int tag = FIRST_REGISTERED_TYPE + serializers.size();
+        if (tag > MAX_TAG) {
+            throw new IllegalStateException("Too many message types have been registered.");
+        }
+        serializers.add(serializer);
+        tags.put(type, tag);
+    }
+
+    public Writer newWriter(OutputStream outputStream) {
+        final OutputStream output = new BufferedOutputStream(outputStream);
+        final ValueEncoder encoder = new ValueEncoder();
+        return new Writer() {
+            public void write(Object message) throws Exception {
+                encoder.writeMessage(message, output);
+            }
+
+            public void flush() throws Exception {
+                output.flush();
+            }
+        };
+    }
+
+    public Reader newReader(InputStream inputStream, ClassLoader classLoader) {
+        final ValueDecoder decoder = new ValueDecoder(new BufferedInputStream(inputStream), classLoader);
+        return new Reader() {
+            public Object read() throws Exception {
+                return decoder.readValue();
+            }
+        };
+    }
+
+    /**
+     * Writes and reads values of a particular type.
+     */
+    public interface TypeSerializer<T> {
+        void write(Encoder encoder, T value) throws Exception;
+
+        T read(Decoder decoder) throws Exception;
+    }
+
+    public interface Encoder extends DataOutput {
+        /**
+         * Writes a nested value of any type.
+         */
+        void writeValue(Object value) throws Exception;
+    }
+
+    public interface Decoder extends DataInput {
+        /**
+         * Reads a nested value written using {@link Encoder#writeValue(Object)}.
+         */
+        Object readValue() throws Exception;
+    }
+
+    private class ValueEncoder extends DataOutputStream implements Encoder {
+        private final ByteArrayOutputStream buffer;
+        private final Map<Class<?>, Integer> classDescriptors = new HashMap<Class<?>, Integer>();
+        private final List<Class<?>> newClassDescriptors = new ArrayList<Class<?>>();
+
+        ValueEncoder() {
+            this(new ByteArrayOutputStream());
+        }
+
+        private ValueEncoder(ByteArrayOutputStream buffer) {
+            super(buffer);
+            this.buffer = buffer;
+        }
+
+        /**
+         * Encodes the given message, and writes it to the given stream only once it has been encoded successfully.
+         */
+        public void writeMessage(Object message, OutputStream outputStream) throws Exception {
+            buffer.reset();
+            newClassDescriptors.clear();
+            boolean encoded = false;
+            try {
+                writeValue(message);
+                flush();
+                encoded = true;
+            } finally {
+                if (!encoded) {
+                    for (Class<?> type : newClassDescriptors) {
+                        classDescriptors.remove(type);
+                    }
+                }
+            }
+            buffer.writeTo(outputStream);
+        }
+
+        public void writeValue(Object value) throws Exception {
+            if (value == null) {
+                writeByte(NULL);
+                return;
+            }
+            Integer tag = tags.get(value.getClass());
+            if (tag == null) {
+                writeByte(SERIALIZED);
+                ObjectOutputStream objectStream = new ClassDescriptorCachingObjectOutputStream(this, classDescriptors, newClassDescriptors);
+                objectStream.writeObject(value);
+                objectStream.flush();
+                return;
+            }
+            writeByte(tag);
+            TypeSerializer<Object> serializer = (TypeSerializer<Object>) serializers.get(tag - FIRST_REGISTERED_TYPE);
+            serializer.write(this, value);
+        }
+    }
+
+    private class ValueDecoder extends DataInputStream implements Decoder {
+        private final ClassLoader classLoader;
+        private final List<ObjectStreamClass> classDescriptors = new ArrayList<ObjectStreamClass>();
+
+        ValueDecoder(InputStream inputStream, ClassLoader classLoader) {
+            super(inputStream);
+            this.classLoader = classLoader;
+        }
+
+        public Object readValue() throws Exception {
+            int tag = readUnsignedByte();
+            if (tag == NULL) {
+                return null;
+            }
+            if (tag == SERIALIZED) {
+                return new ClassDescriptorCachingObjectInputStream(this, classLoader, classDescriptors).readObject();
+            }
+            int index = tag - FIRST_REGISTERED_TYPE;
+            if (index >= serializers.size()) {
+                throw new StreamCorruptedException(String.format("Unexpected message type %s.", tag));
+            }
+            return serializers.get(index).read(this);
+        }
+    }
+
+    private static class ClassDescriptorCachingObjectOutputStream extends Message.ExceptionReplacingObjectOutputStream {
+        private final Map<Class<?>, Integer> classDescriptors;
+        private final List<Class<?>> newClassDescriptors;
+
+        public ClassDescriptorCachingObjectOutputStream(OutputStream outputSteam, Map<Class<?>, Integer> classDescriptors, List<Class<?>> newClassDescriptors) throws IOException {
+            super(outputSteam);
+            this.classDescriptors = classDescriptors;
+            this.newClassDescriptors = newClassDescriptors;
+        }
+
+        @Override
+        protected void writeStreamHeader() {
+            // The header is not needed, as the stream is only ever read by a ClassDescriptorCachingObjectInputStream
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass desc) throws IOException {
+            Integer id = classDescriptors.get(desc.forClass());
+            if (id != null) {
+                writeInt(id);
+                return;
+            }
+            classDescriptors.put(desc.forClass(), classDescriptors.size());
+            newClassDescriptors.add(desc.forClass());
+            writeInt(-1);
+            super.writeClassDescriptor(desc);
+        }
+    }
+
+    private static class ClassDescriptorCachingObjectInputStream extends Message.ExceptionReplacingObjectInputStream {
+        private final List<ObjectStreamClass> classDescriptors;
+
+        public ClassDescriptorCachingObjectInputStream(InputStream inputSteam, ClassLoader classLoader, List<ObjectStreamClass> classDescriptors) throws IOException {
+            super(inputSteam, classLoader);
+            this.classDescriptors = classDescriptors;
+        }
+
+        @Override
+        protected void readStreamHeader() {
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            int id = readInt();
+            if (id >= 0) {
+                if (id >= classDescriptors.size()) {
+                    throw new StreamCorruptedException(String.format("Unknown class descriptor %s.", id));
+                }
+                return classDescriptors.get(id);
+            }
+            ObjectStreamClass desc = super.readClassDescriptor();
+            classDescriptors.add(desc);
+            return desc;
+        }
+    }
+
+    private static class StringSerializer implements TypeSerializer<String> {
+        public void write(Encoder encoder, String value) throws Exception {
+            byte[] bytes = value.getBytes("UTF-8");
+            encoder.writeInt(bytes.length);
+            encoder.write(bytes);
+        }
+
+        public String read(Decoder decoder) throws Exception {
+            byte[] bytes = new byte[decoder.readInt()];
+            decoder.readFully(bytes);
+            return new String(bytes, "UTF-8");
+        }
+    }
+
+    private static class IntegerSerializer implements TypeSerializer<Integer> {
+        public void write(Encoder encoder, Integer value) throws Exception {
+            encoder.writeInt(value);
+        }
+
+        public Integer read(Decoder decoder) throws Exception {
+            return decoder.readInt();
+        }
+    }
+
+    private static class LongSerializer implements TypeSerializer<Long> {
+        public void write(Encoder encoder, Long value) throws Exception {
+            encoder.writeLong(value);
+        }
+
+        public Long read(Decoder decoder) throws Exception {
+            return decoder.readLong();
+        }
+    }
+
+    private static class BooleanSerializer implements TypeSerializer<Boolean> {
+        public void write(Encoder encoder, Boolean value) throws Exception {
+            encoder.writeBoolean(value);
+        }
+
+        public Boolean read(Decoder decoder) throws Exception {
+            return decoder.readBoolean();
+        }
+    }
+
+    private static class ObjectArraySerializer implements TypeSerializer<Object[]> {
+        public void write(Encoder encoder, Object[] value) throws Exception {
+            encoder.writeInt(value.length);
+            for (Object element : value) {
+                encoder.writeValue(element);
+            }
+        }
+
+        public Object[] read(Decoder decoder) throws Exception {
+            Object[] value = new Object[decoder.readInt()];
+            for (int i = 0; i < value.length; i++) {
+                value[i] = decoder.readValue();
+            }
+            return value;
+        }
+    }
+
+    private static class ChannelMessageSerializer implements TypeSerializer<ChannelMessage> {
+        public void write(Encoder encoder, ChannelMessage value) throws Exception {
+            encoder.writeValue(value.getChannel());
+            encoder.writeValue(value.getPayload());
+        }
+
+        public ChannelMessage read(Decoder decoder) throws Exception {
+            Object channel = decoder.readValue();
+            Object payload = decoder.readValue();
+            return new ChannelMessage(channel, payload);
+        }
+    }
+
+    private static class ChannelMetaInfoSerializer implements TypeSerializer<ChannelMetaInfo> {
+        public void write(Encoder encoder, ChannelMetaInfo value) throws Exception {
+            encoder.writeValue(value.getChannelKey());
+            encoder.writeInt(value.getChannelId());
+        }
+
+        public ChannelMetaInfo read(Decoder decoder) throws Exception {
+            Object channelKey = decoder.readValue();
+            int channelId = decoder.readInt();
+            return new ChannelMetaInfo(channelKey, channelId);
+        }
+    }
+
+    private static class RemoteMethodInvocationSerializer implements TypeSerializer<RemoteMethodInvocation> {
+        public void write(Encoder encoder, RemoteMethodInvocation value) throws Exception {
+            encoder.writeValue(value.getKey());
+            encoder.writeValue(value.getArguments());
+        }
+
+        public RemoteMethodInvocation read(Decoder decoder) throws Exception {
+            Object key = decoder.readValue();
+            Object[] arguments = (Object[]) decoder.readValue();
+            return new RemoteMethodInvocation(key, arguments);
+        }
+    }
+
+    private static class EndOfStreamEventSerializer implements TypeSerializer<EndOfStreamEvent> {
+        public void write(Encoder encoder, EndOfStreamEvent value) {
+        }
+
+        public EndOfStreamEvent read(Decoder decoder) {
+            return new EndOfStreamEvent();
+        }
+    }
+}
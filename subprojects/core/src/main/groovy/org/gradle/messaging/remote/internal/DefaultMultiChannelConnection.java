@@ -19,16 +19,19 @@ package org.gradle.messaging.remote.internal;
 import org.gradle.api.GradleException;
 import org.gradle.messaging.concurrent.*;
 import org.gradle.messaging.dispatch.*;
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.URI;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 class DefaultMultiChannelConnection implements MultiChannelConnection<Object> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultMultiChannelConnection.class);
     private final URI sourceAddress;
     private final URI destinationAddress;
     private final EndOfStreamDispatch outgoingDispatch;
@@ -38,6 +41,7 @@ class DefaultMultiChannelConnection implements MultiChannelConnection<Object> {
     private final IncomingDemultiplex incomingDemux;
     private final StoppableExecutor executor;
     private final Connection<Object> connection;
+    private final OutgoingBatchDispatch outgoingBatches;
 
     DefaultMultiChannelConnection(ExecutorFactory executorFactory, String displayName, final Connection<Object> connection, URI sourceAddress, URI destinationAddress) {
         this.connection = connection;
@@ -46,9 +50,11 @@ class DefaultMultiChannelConnection implements MultiChannelConnection<Object> {
         this.sourceAddress = sourceAddress;
         this.destinationAddress = destinationAddress;
 
-        // Outgoing pipeline: <source> -> <channel-mux> -> <end-of-stream-dispatch> -> <async-queue> -> <ignore-failures> -> <connection>
+        // Outgoing pipeline: <source> -> <channel-mux> -> <end-of-stream-dispatch> -> <async-queue> -> <ignore-failures> -> <batch-counter> -> <connection>
+        outgoingBatches = new OutgoingBatchDispatch(connection);
         outgoingQueue = new AsyncDispatch<Object>(executor);
-        outgoingQueue.dispatchTo(wrapFailures(connection));
+        // Outgoing messages are never held back. Each write includes the messages queued while the previous write was in progress
+        outgoingQueue.dispatchBatchesTo(wrapFailures(outgoingBatches));
         outgoingDispatch = new EndOfStreamDispatch(new ChannelMessageMarshallingDispatch(outgoingQueue));
 
         // Incoming pipeline: <connection> -> <async-receive> -> <ignore-failures> -> <end-of-stream-filter> -> <channel-demux> -> <channel-async-queue> -> <ignore-failures> -> <handler>
@@ -66,6 +72,10 @@ class DefaultMultiChannelConnection implements MultiChannelConnection<Object> {
         return new DiscardOnFailureDispatch<Object>(dispatch, LoggerFactory.getLogger(DefaultMultiChannelConnector.class));
     }
 
+    private BatchDispatch<Object> wrapFailures(BatchDispatch<Object> dispatch) {
+        return new DiscardOnFailureDispatch<Object>(dispatch, LoggerFactory.getLogger(DefaultMultiChannelConnector.class));
+    }
+
     public URI getLocalAddress() {
         if (sourceAddress == null) {
             throw new UnsupportedOperationException();
@@ -103,6 +113,7 @@ class DefaultMultiChannelConnection implements MultiChannelConnection<Object> {
                 incomingReceive.requestStop();
                 outgoingQueue.requestStop();
                 new CompositeStoppable(outgoingQueue, connection, incomingReceive, incomingDemux).stop();
+                outgoingBatches.report();
             }
         });
         try {
@@ -157,6 +168,55 @@ class DefaultMultiChannelConnection implements MultiChannelConnection<Object> {
         }
     }
 
+    /**
+     * Writes batches of outgoing messages to the connection, and keeps track of the outgoing throughput.
+     */
+    private class OutgoingBatchDispatch implements BatchDispatch<Object> {
+        private final BatchDispatch<Object> connection;
+        private long messages;
+        private long batches;
+        private long started;
+        private long lastWrite;
+
+        private OutgoingBatchDispatch(BatchDispatch<Object> connection) {
+            this.connection = connection;
+        }
+
+        public void dispatch(Object message) {
+            try {
+                connection.dispatch(message);
+            } finally {
+                written(1);
+            }
+        }
+
+        public void dispatchAll(List<?> messages) {
+            try {
+                connection.dispatchAll(messages);
+            } finally {
+                written(messages.size());
+            }
+        }
+
+        private void written(int count) {
+            lastWrite = System.nanoTime();
+            if (batches == 0) {
+                started = lastWrite;
+            }
+            messages += count;
+            batches++;
+        }
+
+        void report() {
+            if (batches == 0 || !LOGGER.isDebugEnabled()) {
+                return;
+            }
+            double seconds = (lastWrite - started) / 1000000000.0;
+            LOGGER.debug(String.format("Sent %d messages in %d writes to %s (%.1f messages per write, %.0f messages/second).",
+                    messages, batches, connection, (double) messages / batches, seconds > 0 ? messages / seconds : messages));
+        }
+    }
+
     private static class OutgoingMultiplex implements Dispatch<Object> {
         private final Dispatch<Object> dispatch;
         private final Object channelKey;
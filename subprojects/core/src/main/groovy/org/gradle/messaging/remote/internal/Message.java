@@ -131,7 +131,7 @@ public abstract class Message implements Serializable {
         }
     }
 
-    private static class ExceptionReplacingObjectOutputStream extends ObjectOutputStream {
+    static class ExceptionReplacingObjectOutputStream extends ObjectOutputStream {
         public ExceptionReplacingObjectOutputStream(OutputStream outputSteam) throws IOException {
             super(outputSteam);
             enableReplaceObject(true);
@@ -146,7 +146,7 @@ public abstract class Message implements Serializable {
         }
     }
 
-    private static class ExceptionReplacingObjectInputStream extends ClassLoaderObjectInputStream {
+    static class ExceptionReplacingObjectInputStream extends ClassLoaderObjectInputStream {
         public ExceptionReplacingObjectInputStream(InputStream inputSteam, ClassLoader classLoader) throws IOException {
             super(inputSteam, classLoader);
             enableResolveObject(true);
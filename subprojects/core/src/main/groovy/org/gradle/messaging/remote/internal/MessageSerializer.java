@@ -0,0 +1,50 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.remote.internal;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Converts messages to and from a byte stream. A {@link Writer} and a {@link Reader} are created for each connection,
+ * and are used for all messages sent over the connection, so they can keep state about the messages already sent.
+ */
+public interface MessageSerializer {
+    Writer newWriter(OutputStream outputStream);
+
+    Reader newReader(InputStream inputStream, ClassLoader classLoader);
+
+    interface Writer {
+        /**
+         * Writes the given message. The message may be buffered until {@link #flush()} is called.
+         */
+        void write(Object message) throws Exception;
+
+        /**
+         * Flushes any buffered messages to the underlying stream.
+         */
+        void flush() throws Exception;
+    }
+
+    interface Reader {
+        /**
+         * Reads the next message.
+         *
+         * @throws java.io.EOFException When the end of the stream has been reached.
+         */
+        Object read() throws Exception;
+    }
+}
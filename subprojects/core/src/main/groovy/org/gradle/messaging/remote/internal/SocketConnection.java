@@ -28,20 +28,25 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.Selector;
 import java.nio.channels.SocketChannel;
+import java.util.List;
 
 public class SocketConnection<T> implements Connection<T> {
     private final SocketChannel socket;
     private final Object localAddress;
     private final Object remoteAddress;
-    private final ClassLoader classLoader;
     private final InputStream instr;
     private final OutputStream outstr;
+    private final MessageSerializer.Reader reader;
+    private final MessageSerializer.Writer writer;
 
     public SocketConnection(SocketChannel socket, Object localAddress, Object remoteAddress, ClassLoader classLoader) {
+        this(socket, localAddress, remoteAddress, classLoader, new DefaultMessageSerializer());
+    }
+
+    public SocketConnection(SocketChannel socket, Object localAddress, Object remoteAddress, ClassLoader classLoader, MessageSerializer serializer) {
         this.socket = socket;
         this.localAddress = localAddress;
         this.remoteAddress = remoteAddress;
-        this.classLoader = classLoader;
         try {
             // NOTE: we use non-blocking IO as there is no reliable way when using blocking IO to shutdown reads while
             // keeping writes active. For example, Socket.shutdownInput() does not work on Windows.
@@ -51,6 +56,8 @@ public class SocketConnection<T> implements Connection<T> {
         } catch (IOException e) {
             throw new UncheckedIOException(e);
         }
+        reader = serializer.newReader(instr, classLoader);
+        writer = serializer.newWriter(outstr);
     }
 
     @Override
@@ -60,7 +67,7 @@ public class SocketConnection<T> implements Connection<T> {
 
     public T receive() {
         try {
-            return (T) Message.receive(instr, classLoader);
+            return (T) reader.read();
         } catch (Exception e) {
             if (isEndOfStream(e)) {
                 return null;
@@ -81,13 +88,37 @@ public class SocketConnection<T> implements Connection<T> {
 
     public void dispatch(T message) {
         try {
-            Message.send(message, outstr);
-            outstr.flush();
+            writer.write(message);
+            writer.flush();
         } catch (Exception e) {
             throw new GradleException(String.format("Could not write message to '%s'.", remoteAddress), e);
         }
     }
 
+    public void dispatchAll(List<? extends T> messages) {
+        Exception failure = null;
+        int failed = 0;
+        for (T message : messages) {
+            try {
+                writer.write(message);
+            } catch (Exception e) {
+                // Nothing is written for a message which cannot be serialized, so carry on with the remaining messages
+                if (failure == null) {
+                    failure = e;
+                }
+                failed++;
+            }
+        }
+        try {
+            writer.flush();
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not write messages to '%s'.", remoteAddress), e);
+        }
+        if (failure != null) {
+            throw new GradleException(String.format("Could not write %s of %s messages to '%s'.", failed, messages.size(), remoteAddress), failure);
+        }
+    }
+
     public void requestStop() {
         new CompositeStoppable(instr).stop();
     }
@@ -116,7 +147,7 @@ public class SocketConnection<T> implements Connection<T> {
             if (nread <= 0) {
                 return nread;
             }
-            return readBuffer[0];
+            return readBuffer[0] & 0xff;
         }
 
         @Override
@@ -45,15 +45,26 @@ public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder
     private final ClassPathRegistry classPathRegistry;
     private final FileResolver resolver;
     private final IdGenerator<?> idGenerator;
+    private final WorkerProcessPool pool;
 
     public DefaultWorkerProcessFactory(LogLevel workerLogLevel, MessagingServer server,
                                        ClassPathRegistry classPathRegistry, FileResolver resolver,
                                        IdGenerator<?> idGenerator) {
+        this(workerLogLevel, server, classPathRegistry, resolver, idGenerator, null);
+    }
+
+    /**
+     * @param pool the pool to execute reusable workers in, or null to execute every worker in a new process.
+     */
+    public DefaultWorkerProcessFactory(LogLevel workerLogLevel, MessagingServer server,
+                                       ClassPathRegistry classPathRegistry, FileResolver resolver,
+                                       IdGenerator<?> idGenerator, WorkerProcessPool pool) {
         this.workerLogLevel = workerLogLevel;
         this.server = server;
         this.classPathRegistry = classPathRegistry;
         this.resolver = resolver;
         this.idGenerator = idGenerator;
+        this.pool = pool;
     }
 
     public WorkerProcessBuilder create() {
@@ -73,6 +84,10 @@ public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder
                 throw new IllegalStateException("No worker action specified for this worker process.");
             }
 
+            if (isReusable() && pool != null) {
+                return buildPooled();
+            }
+
             final DefaultWorkerProcess workerProcess = new DefaultWorkerProcess(120, TimeUnit.SECONDS);
             URI localAddress = server.accept(workerProcess.getConnectAction());
 
@@ -106,5 +121,29 @@ public class DefaultWorkerProcessFactory implements Factory<WorkerProcessBuilder
 
             return workerProcess;
         }
+
+        private WorkerProcess buildPooled() {
+            List<URL> implementationClassPath = ClasspathUtil.getClasspath(getWorker().getClass().getClassLoader());
+            Object id = idGenerator.generateId();
+            String displayName = String.format("Gradle Worker %s", id);
+
+            PooledWorkerProcess workerProcess = new PooledWorkerProcess(pool, displayName, 120, TimeUnit.SECONDS);
+            URI localAddress = server.accept(workerProcess.getConnectAction());
+
+            // The process is shared with other workers, so the application classes must go in an isolated ClassLoader
+            WorkerFactory workerFactory = new ApplicationClassesInIsolatedClassLoaderWorkerFactory(id, displayName, this,
+                    implementationClassPath, localAddress, classPathRegistry);
+            byte[] job = GUtil.serialize(workerFactory.create());
+
+            LOGGER.debug("Creating {}", displayName);
+            LOGGER.debug("Using application classpath {}", getApplicationClasspath());
+            LOGGER.debug("Using implementation classpath {}", implementationClassPath);
+
+            JavaExecHandleBuilder javaCommand = getJavaCommand();
+            javaCommand.classpath(workerFactory.getSystemClasspath());
+            workerProcess.setJob(javaCommand, job);
+
+            return workerProcess;
+        }
     }
 }
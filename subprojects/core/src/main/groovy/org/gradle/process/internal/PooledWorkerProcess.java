@@ -0,0 +1,208 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.process.internal;
+
+import org.gradle.api.Action;
+import org.gradle.messaging.remote.ConnectEvent;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
+import org.gradle.util.UncheckedException;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A worker which runs as a job in a process borrowed from a {@link WorkerProcessPool}. The process is returned to the
+ * pool when the worker stops.
+ */
+public class PooledWorkerProcess implements WorkerProcess, WorkerProcessPool.JobCompletion {
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final WorkerProcessPool pool;
+    private final String displayName;
+    private final long connectTimeout;
+    private JavaExecHandleBuilder javaCommand;
+    private byte[] serializedJob;
+    private WorkerProcessPool.PooledProcess process;
+    private ObjectConnection connection;
+    private boolean running;
+    private boolean stopped;
+    private final List<Runnable> stopActions = new ArrayList<Runnable>();
+    private Throwable failure;
+
+    public PooledWorkerProcess(WorkerProcessPool pool, String displayName, int connectTimeoutValue, TimeUnit connectTimeoutUnits) {
+        this.pool = pool;
+        this.displayName = displayName;
+        connectTimeout = connectTimeoutUnits.toMillis(connectTimeoutValue);
+    }
+
+    public void setJob(JavaExecHandleBuilder javaCommand, byte[] serializedJob) {
+        this.javaCommand = javaCommand;
+        this.serializedJob = serializedJob;
+    }
+
+    byte[] getSerializedJob() {
+        return serializedJob;
+    }
+
+    public Action<ConnectEvent<ObjectConnection>> getConnectAction() {
+        return new Action<ConnectEvent<ObjectConnection>>() {
+            public void execute(ConnectEvent<ObjectConnection> event) {
+                onConnect(event.getConnection());
+            }
+        };
+    }
+
+    private void onConnect(ObjectConnection connection) {
+        lock.lock();
+        try {
+            this.connection = connection;
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void jobCompleted(Throwable failure) {
+        List<Runnable> actions;
+        lock.lock();
+        try {
+            this.failure = failure;
+            running = false;
+            stopped = true;
+            actions = new ArrayList<Runnable>(stopActions);
+            stopActions.clear();
+            condition.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    public void whenStopped(Runnable action) {
+        lock.lock();
+        try {
+            if (!stopped) {
+                stopActions.add(action);
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        action.run();
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+
+    public ObjectConnection getConnection() {
+        return connection;
+    }
+
+    public void start() {
+        lock.lock();
+        try {
+            running = true;
+        } finally {
+            lock.unlock();
+        }
+
+        process = pool.acquire(javaCommand);
+        process.execute(serializedJob, this);
+
+        Date connectExpiry = new Date(System.currentTimeMillis() + connectTimeout);
+        lock.lock();
+        try {
+            while (connection == null && running) {
+                try {
+                    if (!condition.awaitUntil(connectExpiry)) {
+                        throw new ExecException(String.format("Timeout waiting for %s to connect.", displayName));
+                    }
+                } catch (InterruptedException e) {
+                    throw UncheckedException.asUncheckedException(e);
+                }
+            }
+            if (failure != null) {
+                throw UncheckedException.asUncheckedException(failure);
+            }
+            if (connection == null) {
+                throw new ExecException(String.format("Never received a connection from %s.", displayName));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public ExecResult waitForStop() {
+        ObjectConnection connection;
+        Throwable failure;
+        lock.lock();
+        try {
+            while (running) {
+                try {
+                    condition.await();
+                } catch (InterruptedException e) {
+                    throw UncheckedException.asUncheckedException(e);
+                }
+            }
+            connection = this.connection;
+            failure = this.failure;
+        } finally {
+            this.connection = null;
+            lock.unlock();
+        }
+        try {
+            if (connection != null) {
+                connection.stop();
+            }
+        } finally {
+            pool.release(process);
+        }
+        return new JobResult(failure).assertNormalExitValue();
+    }
+
+    private class JobResult implements ExecResult {
+        private final Throwable failure;
+
+        private JobResult(Throwable failure) {
+            this.failure = failure;
+        }
+
+        public int getExitValue() {
+            return failure == null ? 0 : 1;
+        }
+
+        public ExecResult assertNormalExitValue() throws ExecException {
+            return rethrowFailure();
+        }
+
+        public ExecResult rethrowFailure() throws ExecException {
+            if (failure != null) {
+                throw new ExecException(String.format("%s failed.", displayName), failure);
+            }
+            return this;
+        }
+    }
+}
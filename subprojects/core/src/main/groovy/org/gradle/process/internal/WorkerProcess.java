@@ -29,4 +29,10 @@ public interface WorkerProcess {
     void start();
 
     ExecResult waitForStop();
+
+    /**
+     * Registers an action to run when the worker stops, whether it was asked to stop or not. The action is run
+     * immediately if the worker has already stopped.
+     */
+    void whenStopped(Runnable action);
 }
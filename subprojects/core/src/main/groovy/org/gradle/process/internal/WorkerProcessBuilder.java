@@ -36,6 +36,9 @@ import java.util.Set;
  * <p>A worker process can optionally specify an application classpath. The classes of this classpath are loaded into an
  * isolated ClassLoader, which is made visible to the worker action ClassLoader. Only the packages specified in the set
  * of shared packages are visible to the worker action ClassLoader.</p>
+ *
+ * <p>A worker process can optionally be reusable. A reusable worker may be executed by a process which has already
+ * executed other workers with the same process options, rather than by a new process.</p>
  */
 public abstract class WorkerProcessBuilder {
     private final JavaExecHandleBuilder javaCommand;
@@ -44,6 +47,7 @@ public abstract class WorkerProcessBuilder {
     private Action<WorkerProcessContext> action;
     private LogLevel logLevel = LogLevel.LIFECYCLE;
     private boolean loadApplicationInSystemClassLoader;
+    private boolean reusable;
 
     public WorkerProcessBuilder(FileResolver fileResolver) {
         javaCommand = new JavaExecHandleBuilder(fileResolver);
@@ -101,5 +105,17 @@ public abstract class WorkerProcessBuilder {
         this.loadApplicationInSystemClassLoader = loadApplicationInSystemClassLoader;
     }
 
+    public boolean isReusable() {
+        return reusable;
+    }
+
+    /**
+     * Specifies whether this worker can be executed in a process which is reused for other workers. A reusable worker
+     * always loads the application classes in an isolated ClassLoader.
+     */
+    public void setReusable(boolean reusable) {
+        this.reusable = reusable;
+    }
+
     public abstract WorkerProcess build();
 }
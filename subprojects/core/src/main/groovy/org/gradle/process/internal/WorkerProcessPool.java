@@ -0,0 +1,218 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.process.internal;
+
+import org.gradle.messaging.concurrent.CompositeStoppable;
+import org.gradle.messaging.concurrent.Stoppable;
+import org.gradle.messaging.remote.MessagingServer;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.process.ExecResult;
+import org.gradle.process.internal.child.ReusableWorker;
+import org.gradle.process.internal.child.WorkerJobExecutor;
+import org.gradle.process.internal.child.WorkerJobListener;
+import org.gradle.util.GUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A pool of reusable worker processes. Each process executes a sequence of worker jobs, so that the start-up cost of
+ * a process is paid once for all jobs which use the same process options. Processes are matched on their command-line,
+ * environment and working directory.
+ *
+ * <p>A process is returned to the pool when its current job completes, and all processes are stopped when the pool is
+ * stopped.</p>
+ */
+public class WorkerProcessPool implements Stoppable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WorkerProcessPool.class);
+    private final MessagingServer server;
+    private final AtomicLong counter = new AtomicLong();
+    private final Map<List<Object>, LinkedList<PooledProcess>> idle = new HashMap<List<Object>, LinkedList<PooledProcess>>();
+    private final Set<PooledProcess> processes = new HashSet<PooledProcess>();
+    private boolean stopped;
+
+    public WorkerProcessPool(MessagingServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Returns an idle process for the given command, or starts a new process if there is none.
+     */
+    PooledProcess acquire(JavaExecHandleBuilder javaCommand) {
+        List<Object> key = Arrays.<Object>asList(javaCommand.getCommandLine(), javaCommand.getActualEnvironment(),
+                javaCommand.getWorkingDir());
+        synchronized (this) {
+            if (stopped) {
+                throw new IllegalStateException("This worker process pool has been stopped.");
+            }
+            LinkedList<PooledProcess> candidates = idle.get(key);
+            while (candidates != null && !candidates.isEmpty()) {
+                PooledProcess process = candidates.removeFirst();
+                if (process.isAlive()) {
+                    return process;
+                }
+            }
+        }
+
+        // Start the process without holding the lock, so that other jobs are not held up
+        PooledProcess process = new PooledProcess(key);
+        process.start(javaCommand);
+        synchronized (this) {
+            processes.add(process);
+        }
+        return process;
+    }
+
+    /**
+     * Returns the given process to the pool, once its job has completed.
+     */
+    void release(PooledProcess process) {
+        synchronized (this) {
+            if (!stopped && process.isAlive()) {
+                LinkedList<PooledProcess> candidates = idle.get(process.key);
+                if (candidates == null) {
+                    candidates = new LinkedList<PooledProcess>();
+                    idle.put(process.key, candidates);
+                }
+                candidates.add(process);
+                return;
+            }
+            processes.remove(process);
+        }
+        process.stop();
+    }
+
+    /**
+     * Stops all processes in this pool. Blocks until the processes have exited.
+     */
+    public void stop() {
+        List<PooledProcess> toStop;
+        synchronized (this) {
+            stopped = true;
+            toStop = new ArrayList<PooledProcess>(processes);
+            processes.clear();
+            idle.clear();
+        }
+        new CompositeStoppable(toStop).stop();
+    }
+
+    /**
+     * Receives the result of a job executed by a pooled process.
+     */
+    interface JobCompletion {
+        void jobCompleted(Throwable failure);
+    }
+
+    /**
+     * A reusable worker process, along with its current job.
+     */
+    class PooledProcess implements WorkerJobListener, Stoppable {
+        private final List<Object> key;
+        private DefaultWorkerProcess workerProcess;
+        private WorkerJobExecutor executor;
+        private JobCompletion currentJob;
+        private boolean alive;
+
+        private PooledProcess(List<Object> key) {
+            this.key = key;
+        }
+
+        private void start(JavaExecHandleBuilder javaCommand) {
+            workerProcess = new DefaultWorkerProcess(120, TimeUnit.SECONDS);
+            URI controlAddress = server.accept(workerProcess.getConnectAction());
+            String displayName = String.format("Gradle Worker Pool Process %s", counter.incrementAndGet());
+            LOGGER.debug("Creating {}", displayName);
+
+            javaCommand.setStandardInput(new ByteArrayInputStream(GUtil.serialize(new ReusableWorker(controlAddress))));
+            javaCommand.setDisplayName(displayName);
+            javaCommand.listener(new ExecHandleListener() {
+                public void executionStarted(ExecHandle execHandle) {
+                }
+
+                public void executionFinished(ExecHandle execHandle, ExecResult execResult) {
+                    processStopped();
+                }
+            });
+            workerProcess.setExecHandle(javaCommand.build());
+
+            synchronized (this) {
+                alive = true;
+            }
+            workerProcess.start();
+
+            ObjectConnection connection = workerProcess.getConnection();
+            connection.addIncoming(WorkerJobListener.class, this);
+            executor = connection.addOutgoing(WorkerJobExecutor.class);
+        }
+
+        synchronized boolean isAlive() {
+            return alive;
+        }
+
+        /**
+         * Starts the given job in this process. The given completion is notified when the job completes, or if the
+         * process stops before then.
+         */
+        void execute(byte[] serializedJob, JobCompletion completion) {
+            synchronized (this) {
+                if (!alive) {
+                    completion.jobCompleted(new ExecException("The worker process has stopped."));
+                    return;
+                }
+                currentJob = completion;
+            }
+            executor.execute(serializedJob);
+        }
+
+        public void jobCompleted(Throwable failure) {
+            JobCompletion job;
+            synchronized (this) {
+                job = currentJob;
+                currentJob = null;
+            }
+            if (job != null) {
+                job.jobCompleted(failure);
+            }
+        }
+
+        private void processStopped() {
+            JobCompletion job;
+            synchronized (this) {
+                alive = false;
+                job = currentJob;
+                currentJob = null;
+            }
+            if (job != null) {
+                job.jobCompleted(new ExecException("The worker process stopped before its job completed."));
+            }
+        }
+
+        public void stop() {
+            synchronized (this) {
+                if (!alive) {
+                    return;
+                }
+            }
+            executor.stop();
+            workerProcess.waitForStop();
+        }
+    }
+}
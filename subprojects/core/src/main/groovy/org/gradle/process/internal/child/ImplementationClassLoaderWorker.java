@@ -76,7 +76,12 @@ public class ImplementationClassLoaderWorker implements Action<WorkerContext>, S
         } catch (Exception e) {
             throw UncheckedException.asUncheckedException(e);
         }
-        action.execute(workerContext);
+        try {
+            action.execute(workerContext);
+        } finally {
+            // The process may go on to execute other workers
+            loggingManager.stop();
+        }
     }
 
     LoggingManagerInternal createLoggingManager() {
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.process.internal.child;
+
+import org.gradle.messaging.remote.MessagingClient;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.messaging.remote.internal.TcpMessagingClient;
+import org.gradle.util.ClassLoaderObjectInputStream;
+
+import java.io.ByteArrayInputStream;
+import java.io.Serializable;
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <p>The main stage of a reusable worker process. Connects to the server process, and then executes each job it
+ * receives in turn, until asked to stop. Each job is a complete worker start-up, such as an {@link
+ * IsolatedApplicationClassLoaderWorker}, so each job uses its own ClassLoaders.</p>
+ *
+ * <p>Instantiated in the system ClassLoader and called from {@link org.gradle.process.internal.launcher.GradleWorkerMain}.</p>
+ */
+public class ReusableWorker implements Callable<Void>, Serializable {
+    private final URI serverAddress;
+
+    public ReusableWorker(URI serverAddress) {
+        this.serverAddress = serverAddress;
+    }
+
+    public Void call() throws Exception {
+        MessagingClient client = createClient();
+        try {
+            JobQueue jobs = new JobQueue();
+            ObjectConnection connection = client.getConnection();
+            connection.addIncoming(WorkerJobExecutor.class, jobs);
+            WorkerJobListener listener = connection.addOutgoing(WorkerJobListener.class);
+
+            for (byte[] job = jobs.take(); job != null; job = jobs.take()) {
+                Throwable failure = null;
+                try {
+                    ClassLoaderObjectInputStream instr = new ClassLoaderObjectInputStream(new ByteArrayInputStream(job),
+                            getClass().getClassLoader());
+                    Callable<?> worker = (Callable<?>) instr.readObject();
+                    worker.call();
+                } catch (Throwable throwable) {
+                    failure = throwable;
+                }
+                listener.jobCompleted(failure);
+            }
+        } finally {
+            client.stop();
+        }
+        return null;
+    }
+
+    MessagingClient createClient() {
+        return new TcpMessagingClient(getClass().getClassLoader(), serverAddress);
+    }
+
+    private static class JobQueue implements WorkerJobExecutor {
+        private static final byte[] STOP = new byte[0];
+        private final BlockingQueue<byte[]> queue = new LinkedBlockingQueue<byte[]>();
+
+        public void execute(byte[] serializedJob) {
+            queue.add(serializedJob);
+        }
+
+        public void stop() {
+            queue.add(STOP);
+        }
+
+        byte[] take() throws InterruptedException {
+            byte[] job = queue.take();
+            return job == STOP ? null : job;
+        }
+    }
+}
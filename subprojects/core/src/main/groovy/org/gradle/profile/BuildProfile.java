@@ -17,6 +17,7 @@ package org.gradle.profile;
 
 import org.gradle.api.Project;
 import org.gradle.api.invocation.Gradle;
+import org.gradle.cache.btree.BTreeStatistics;
 
 import java.util.*;
 
@@ -44,6 +45,7 @@ public class BuildProfile {
     long projectsLoaded;
     long projectsEvaluated;
     long buildFinished;
+    List<BTreeStatistics> cacheStatistics = new ArrayList<BTreeStatistics>();
 
     public BuildProfile(Gradle gradle) {
         this.gradle = gradle;
@@ -146,6 +148,22 @@ public class BuildProfile {
         this.buildFinished = buildFinished;
     }
 
+    /**
+     * Should be set with the statistics of the caches used by the build, before the caches are closed.
+     * @param cacheStatistics
+     */
+    public void setCacheStatistics(List<BTreeStatistics> cacheStatistics) {
+        this.cacheStatistics = cacheStatistics;
+    }
+
+    /**
+     * Get the statistics of the caches used by the build.
+     * @return list
+     */
+    public List<BTreeStatistics> getCacheStatistics() {
+        return cacheStatistics;
+    }
+
     /**
      * Get the elapsed time (in mSec) between the start of profiling and the buildStarted event.
      * @return
@@ -22,6 +22,8 @@ import org.gradle.api.execution.TaskExecutionListener;
 import org.gradle.api.initialization.Settings;
 import org.gradle.api.invocation.Gradle;
 import org.gradle.api.tasks.TaskState;
+import org.gradle.cache.AutoCloseCacheFactory;
+import org.gradle.cache.CacheFactory;
 
 import java.io.File;
 import java.io.IOException;
@@ -32,9 +34,11 @@ public class ProfileListener implements BuildListener, ProjectEvaluationListener
     private BuildProfile buildProfile;
     private static final SimpleDateFormat FILE_DATE_FORMAT = new SimpleDateFormat("yyyy-MM-dd-HH-mm-ss");
     private long profileStarted;
+    private final CacheFactory cacheFactory;
 
-    public ProfileListener(long profileStarted) {
+    public ProfileListener(long profileStarted, CacheFactory cacheFactory) {
         this.profileStarted = profileStarted;
+        this.cacheFactory = cacheFactory;
     }
 
     // BuildListener
@@ -58,6 +62,9 @@ public class ProfileListener implements BuildListener, ProjectEvaluationListener
 
     public void buildFinished(BuildResult result) {
         buildProfile.setBuildFinished(System.currentTimeMillis());
+        if (cacheFactory instanceof AutoCloseCacheFactory) {
+            buildProfile.setCacheStatistics(((AutoCloseCacheFactory) cacheFactory).getIndexedCacheStatistics());
+        }
 
         HTMLProfileReport report = new HTMLProfileReport(buildProfile);
         File file = new File(result.getGradle().getRootProject().getBuildDir(), "reports/profile/profile-" + FILE_DATE_FORMAT.format(new Date(profileStarted)) + ".html");
@@ -26,7 +26,7 @@ public class InMemoryCacheFactory implements CacheFactory {
     public void close(PersistentCache cache) {
     }
 
-    public PersistentCache open(final File cacheDir, CacheUsage usage, Map<String, ?> properties) {
+    public PersistentCache open(final File cacheDir, CacheUsage usage, Map<String, ?> properties, IndexedCacheStorage indexedCacheStorage) {
         cacheDir.mkdirs();
         return new PersistentCache() {
             public File getBaseDir() {
@@ -29,6 +29,8 @@ import java.io.IOException;
  * @author Hans Dockter
  */
 public class HashUtil {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     public static String createHash(String scriptText) {
         MessageDigest messageDigest;
         try {
@@ -48,7 +50,7 @@ public class HashUtil {
             throw UncheckedException.asUncheckedException(e);
         }
         try {
-            byte[] buffer = new byte[4096];
+            byte[] buffer = new byte[BUFFER_SIZE];
             InputStream instr = new FileInputStream(file);
             try {
                 while (true) {
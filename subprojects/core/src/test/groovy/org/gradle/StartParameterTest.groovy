@@ -61,6 +61,8 @@ class StartParameterTest {
         testObj.cacheUsage = CacheUsage.ON
         testObj.logLevel = LogLevel.WARN
         testObj.colorOutput = false
+        testObj.parallelThreadCount = 4
+        testObj.hashingThreadCount = 2
 
         StartParameter startParameter = testObj.newInstance()
         assertEquals(testObj, startParameter)
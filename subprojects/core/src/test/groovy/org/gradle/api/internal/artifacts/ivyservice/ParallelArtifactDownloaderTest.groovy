@@ -0,0 +1,161 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.apache.ivy.Ivy
+import org.apache.ivy.plugins.resolver.ChainResolver
+import org.apache.ivy.plugins.resolver.DependencyResolver
+import org.apache.ivy.plugins.resolver.RepositoryResolver
+import org.apache.ivy.plugins.resolver.URLResolver
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.artifacts.ResolvedDependency
+import org.gradle.api.internal.artifacts.repositories.ThreadSafeRepository
+import org.gradle.logging.ProgressLogger
+import org.gradle.logging.ProgressLoggerFactory
+import org.gradle.messaging.concurrent.DefaultExecutorFactory
+import spock.lang.Specification
+
+class ParallelArtifactDownloaderTest extends Specification {
+    private final ProgressLoggerFactory progressLoggerFactory = Mock()
+    private final ProgressLogger progressLogger = Mock()
+    private final ThreadSafeRepository repository = Mock()
+    private final Ivy ivy = Ivy.newInstance()
+    private final ParallelArtifactDownloader downloader = new ParallelArtifactDownloader(new DefaultExecutorFactory(), progressLoggerFactory, 2)
+
+    def setup() {
+        _ * progressLoggerFactory.newOperation(ParallelArtifactDownloader) >> progressLogger
+        def resolver = new RepositoryResolver()
+        resolver.name = 'repo'
+        resolver.repository = repository
+        defaultResolver(resolver)
+    }
+
+    def downloadsEachArtifactAndReportsProgress() {
+        def artifacts = (1..5).collect { artifact("artifact$it", module("module$it")) }
+
+        when:
+        downloader.download(ivy, artifacts, 'configuration')
+
+        then:
+        artifacts.each { 1 * it.getFile() }
+        1 * progressLogger.setDescription('Download artifacts for configuration')
+        1 * progressLogger.started()
+        5 * progressLogger.progress({ it ==~ /\d\/5 artifacts/ })
+        1 * progressLogger.completed()
+    }
+
+    def downloadsArtifactsWhichShareAFileOnlyOnce() {
+        def module = module('module')
+        def a = artifact('a', module)
+        def sameAsA = artifact('a', module)
+        def b = artifact('b', module('other'))
+
+        when:
+        downloader.download(ivy, [a, sameAsA, b], 'configuration')
+
+        then:
+        1 * a.getFile()
+        0 * sameAsA.getFile()
+        1 * b.getFile()
+    }
+
+    def downloadsTheArtifactsOfAModuleOneAfterTheOtherInTheSameThread() {
+        def module = module('module')
+        def artifacts = (1..4).collect { artifact("artifact$it", module) }
+        def other = artifact('other', module('other'))
+        def threads = Collections.synchronizedSet(new HashSet())
+
+        when:
+        downloader.download(ivy, artifacts + other, 'configuration')
+
+        then:
+        artifacts.each { 1 * it.getFile() >> { threads << Thread.currentThread(); null } }
+        1 * other.getFile()
+        threads.size() == 1
+    }
+
+    def ignoresDownloadFailures() {
+        def broken = artifact('broken', module('broken'))
+        def ok = artifact('ok', module('ok'))
+
+        when:
+        downloader.download(ivy, [broken, ok], 'configuration')
+
+        then:
+        1 * broken.getFile() >> { throw new RuntimeException('broken') }
+        1 * ok.getFile()
+        1 * progressLogger.completed()
+    }
+
+    def doesNothingForASingleModule() {
+        def module = module('module')
+        def a = artifact('a', module)
+        def b = artifact('b', module)
+
+        when:
+        downloader.download(ivy, [a, b], 'configuration')
+
+        then:
+        0 * a.getFile()
+        0 * b.getFile()
+        0 * progressLoggerFactory._
+    }
+
+    def doesNothingWhenAResolverIsNotThreadSafe() {
+        def chain = new ChainResolver()
+        chain.name = 'chain'
+        def safe = new RepositoryResolver()
+        safe.name = 'safe'
+        safe.repository = repository
+        def unsafe = new URLResolver()
+        unsafe.name = 'unsafe'
+        chain.add(safe)
+        chain.add(unsafe)
+        defaultResolver(chain)
+        def a = artifact('a', module('a'))
+        def b = artifact('b', module('b'))
+
+        when:
+        downloader.download(ivy, [a, b], 'configuration')
+
+        then:
+        0 * a.getFile()
+        0 * b.getFile()
+        0 * progressLoggerFactory._
+    }
+
+    private void defaultResolver(DependencyResolver resolver) {
+        ivy.settings.addResolver(resolver)
+        ivy.settings.defaultResolver = resolver.name
+    }
+
+    private ResolvedDependency module(String name) {
+        ResolvedDependency module = Mock()
+        _ * module.getModuleGroup() >> 'group'
+        _ * module.getModuleName() >> name
+        _ * module.getModuleVersion() >> '1.0'
+        return module
+    }
+
+    private ResolvedArtifact artifact(String name, ResolvedDependency owner) {
+        ResolvedArtifact artifact = Mock()
+        _ * artifact.getName() >> name
+        _ * artifact.getType() >> 'jar'
+        _ * artifact.getExtension() >> 'jar'
+        _ * artifact.getResolvedDependency() >> owner
+        return artifact
+    }
+}
@@ -0,0 +1,260 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.artifacts.ivyservice
+
+import org.apache.ivy.Ivy
+import org.apache.ivy.core.module.descriptor.DefaultArtifact
+import org.apache.ivy.core.module.descriptor.DefaultDependencyDescriptor
+import org.apache.ivy.core.module.descriptor.DefaultModuleDescriptor
+import org.apache.ivy.core.module.id.ModuleRevisionId
+import org.apache.ivy.core.report.ArtifactDownloadReport
+import org.apache.ivy.core.report.ResolveReport
+import org.apache.ivy.core.resolve.ResolveEngine
+import org.gradle.api.artifacts.Configuration
+import org.gradle.api.artifacts.Dependency
+import org.gradle.api.artifacts.DependencyArtifact
+import org.gradle.api.artifacts.ModuleDependency
+import org.gradle.api.artifacts.ResolvedArtifact
+import org.gradle.api.internal.artifacts.DefaultResolvedArtifact
+import org.gradle.api.internal.artifacts.DefaultResolvedDependency
+import org.gradle.cache.CacheBuilder
+import org.gradle.cache.CacheRepository
+import org.gradle.cache.PersistentCache
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.cache.Serializer
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+
+class ResolvedConfigurationCacheTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    private final CacheRepository cacheRepository = Mock()
+    private final CacheBuilder cacheBuilder = Mock()
+    private final PersistentCache persistentCache = Mock()
+    private final Map<String, byte[]> entries = [:]
+    private final Configuration configuration = Mock()
+    private final ModuleDependency dependency = Mock()
+    private final List<ModuleDependency> dependencies = [dependency]
+    private final ResolveEngine resolveEngine = Mock()
+    private final Ivy ivy = Ivy.newInstance()
+    private final ResolvedConfigurationCache cache = new ResolvedConfigurationCache(cacheRepository)
+
+    def setup() {
+        _ * cacheRepository.cache('resolvedConfigurations') >> cacheBuilder
+        _ * cacheBuilder.open() >> persistentCache
+        _ * persistentCache.openIndexedCache(!null) >> { args -> new SerializingIndexedCache(args[0], entries) }
+        _ * configuration.getName() >> 'compile'
+        _ * configuration.getHierarchy() >> ([configuration] as Set)
+        _ * configuration.getAllDependencies(ModuleDependency) >> { dependencies as Set }
+        _ * dependency.getGroup() >> 'group'
+        _ * dependency.getName() >> 'a'
+        _ * dependency.getVersion() >> '1.0'
+        _ * dependency.getConfiguration() >> 'default'
+        _ * dependency.getArtifacts() >> ([] as Set)
+    }
+
+    def returnsNullWhenNothingIsCached() {
+        expect:
+        cache.get('key', configuration, resolveEngine) == null
+    }
+
+    def rebuildsTheResolvedDependencyGraphFromTheCache() {
+        def root = resolvedDependency('root', '1.0', 'compile')
+        def a = resolvedDependency('a', '1.0', 'default')
+        def b = resolvedDependency('b', '2.0', 'default')
+        def aArtifact = artifact(a, 'a')
+        def aSourcesArtifact = artifact(a, 'a', [(Dependency.CLASSIFIER): 'sources'])
+        def bArtifact = artifact(b, 'b')
+        a.moduleArtifacts << aArtifact
+        b.moduleArtifacts << bArtifact
+        root.addChild(a)
+        a.addChild(b)
+        a.addParentSpecificArtifacts(root, [aSourcesArtifact] as Set)
+        def result = new DefaultIvyConversionResult(root, [(dependency): [a] as Set], [aArtifact, aSourcesArtifact, bArtifact] as LinkedHashSet)
+
+        when:
+        cache.put('key', ivy, emptyReport(), result)
+        def cached = cache.get('key', configuration, resolveEngine)
+
+        then:
+        0 * resolveEngine.download(_, _)
+        cached.root.name == 'group:root:1.0'
+        cached.root.children*.name == ['group:a:1.0']
+        def cachedA = cached.firstLevelResolvedDependencies[dependency].iterator().next()
+        cachedA.is(cached.root.children.iterator().next())
+        cachedA.configuration == 'default'
+        cachedA.moduleArtifacts*.name == ['a']
+        cachedA.getParentArtifacts(cached.root)*.ivyArtifact*.qualifiedExtraAttributes == [[(Dependency.CLASSIFIER): 'sources']]
+        cachedA.children*.moduleVersion == ['2.0']
+        cachedA.children.iterator().next().parents == [cachedA] as Set
+        cached.resolvedArtifacts*.name == ['a', 'a', 'b']
+        cached.resolvedArtifacts*.resolvedDependency*.moduleName == ['a', 'a', 'b']
+        cached.resolvedArtifacts*.ivyArtifact*.moduleRevisionId*.toString() == ['group#a;1.0', 'group#a;1.0', 'group#b;2.0']
+    }
+
+    def downloadsArtifactFilesOfCachedResultWhenRequested() {
+        def aJar = tmpDir.createFile('a.jar')
+        def root = resolvedDependency('root', '1.0', 'compile')
+        def a = resolvedDependency('a', '1.0', 'default')
+        def aArtifact = artifact(a, 'a')
+        a.moduleArtifacts << aArtifact
+        root.addChild(a)
+        def result = new DefaultIvyConversionResult(root, [(dependency): [a] as Set], [aArtifact] as Set)
+        cache.put('key', ivy, emptyReport(), result)
+        def cached = cache.get('key', configuration, resolveEngine)
+
+        when:
+        def files = cached.resolvedArtifacts*.file
+
+        then:
+        1 * resolveEngine.download({ it.name == 'a' && it.moduleRevisionId.name == 'a' }, _) >> { args -> downloadReport(args[0], aJar) }
+        files == [aJar]
+    }
+
+    def ignoresCachedResultWhenAModuleDescriptorHasChanged() {
+        def ivyXml = tmpDir.createFile('ivy.xml')
+        def root = resolvedDependency('root', '1.0', 'compile')
+        def result = new DefaultIvyConversionResult(root, [:], [] as Set)
+        def cachedConfiguration = ResolvedConfigurationCache.CachedConfiguration.create(result, [ivyXml])
+
+        expect:
+        cachedConfiguration.upToDate
+
+        when:
+        ivyXml.write('changed')
+
+        then:
+        !cachedConfiguration.upToDate
+    }
+
+    def distinguishesFirstLevelDependenciesOnTheSameModuleWithDifferentArtifacts() {
+        ModuleDependency jdk15Dependency = Mock()
+        DependencyArtifact jdk15Artifact = Mock()
+        _ * jdk15Dependency.getGroup() >> 'group'
+        _ * jdk15Dependency.getName() >> 'a'
+        _ * jdk15Dependency.getVersion() >> '1.0'
+        _ * jdk15Dependency.getConfiguration() >> 'default'
+        _ * jdk15Dependency.getArtifacts() >> ([jdk15Artifact] as Set)
+        _ * jdk15Artifact.getName() >> 'a'
+        _ * jdk15Artifact.getType() >> 'jar'
+        _ * jdk15Artifact.getExtension() >> 'jar'
+        _ * jdk15Artifact.getClassifier() >> 'jdk15'
+        dependencies << jdk15Dependency
+        def root = resolvedDependency('root', '1.0', 'compile')
+        def a = resolvedDependency('a', '1.0', 'default')
+        def aJdk15 = resolvedDependency('a', '1.0', 'jdk15')
+        root.addChild(a)
+        root.addChild(aJdk15)
+        def result = new DefaultIvyConversionResult(root, [(dependency): [a] as Set, (jdk15Dependency): [aJdk15] as Set], [] as Set)
+
+        when:
+        cache.put('key', ivy, emptyReport(), result)
+        def cached = cache.get('key', configuration, resolveEngine)
+
+        then:
+        cached.firstLevelResolvedDependencies[dependency]*.configuration == ['default']
+        cached.firstLevelResolvedDependencies[jdk15Dependency]*.configuration == ['jdk15']
+    }
+
+    def keyChangesWhenDependenciesChange() {
+        def md = moduleDescriptor('1.0')
+        def sameMd = moduleDescriptor('1.0')
+        def otherMd = moduleDescriptor('1.1')
+
+        expect:
+        cache.getKey(configuration, ivy, md) != null
+        cache.getKey(configuration, ivy, md) == cache.getKey(configuration, ivy, sameMd)
+        cache.getKey(configuration, ivy, md) != cache.getKey(configuration, ivy, otherMd)
+    }
+
+    def doesNotCacheDynamicVersions() {
+        def md = moduleDescriptor('1.+')
+
+        expect:
+        cache.getKey(configuration, ivy, md) == null
+    }
+
+    private DefaultResolvedDependency resolvedDependency(String name, String version, String configuration) {
+        return new DefaultResolvedDependency('group', name, version, configuration, new LinkedHashSet<ResolvedArtifact>())
+    }
+
+    private DefaultResolvedArtifact artifact(DefaultResolvedDependency owner, String name, Map<String, String> extraAttributes = [:]) {
+        def id = ModuleRevisionId.newInstance(owner.moduleGroup, owner.moduleName, owner.moduleVersion)
+        def artifact = new DefaultResolvedArtifact(new DefaultArtifact(id, null, name, 'jar', 'jar', null, extraAttributes), resolveEngine)
+        artifact.resolvedDependency = owner
+        return artifact
+    }
+
+    private ArtifactDownloadReport downloadReport(DefaultArtifact artifact, File file) {
+        def report = new ArtifactDownloadReport(artifact)
+        report.localFile = file
+        return report
+    }
+
+    private DefaultModuleDescriptor moduleDescriptor(String... dependencyVersions) {
+        def md = DefaultModuleDescriptor.newDefaultInstance(ModuleRevisionId.newInstance('group', 'root', '1.0'))
+        md.addConfiguration(new org.apache.ivy.core.module.descriptor.Configuration('compile'))
+        dependencyVersions.each { version ->
+            def dd = new DefaultDependencyDescriptor(md, ModuleRevisionId.newInstance('group', 'a', version), false, false, true)
+            dd.addDependencyConfiguration('compile', 'default')
+            md.addDependency(dd)
+        }
+        return md
+    }
+
+    private ResolveReport emptyReport() {
+        return new ResolveReport(moduleDescriptor())
+    }
+
+    private static class SerializingIndexedCache implements PersistentIndexedCache<String, Object> {
+        private final Serializer<Object> serializer
+        private final Map<String, byte[]> entries
+
+        SerializingIndexedCache(Serializer<Object> serializer, Map<String, byte[]> entries) {
+            this.serializer = serializer
+            this.entries = entries
+        }
+
+        Object get(String key) {
+            byte[] content = entries[key]
+            return content == null ? null : serializer.read(new ByteArrayInputStream(content))
+        }
+
+        void put(String key, Object value) {
+            def outstr = new ByteArrayOutputStream()
+            serializer.write(outstr, value)
+            entries[key] = outstr.toByteArray()
+        }
+
+        void remove(String key) {
+            entries.remove(key)
+        }
+
+        Map<String, Object> getAll(Collection<? extends String> keys) {
+            Map<String, Object> result = [:]
+            keys.each { key ->
+                if (entries.containsKey(key)) {
+                    result[key] = get(key)
+                }
+            }
+            return result
+        }
+
+        void putAll(Map<? extends String, ? extends Object> values) {
+            values.each { key, value -> put(key, value) }
+        }
+    }
+}
@@ -16,65 +16,171 @@
 package org.gradle.api.internal.changedetection
 
 import spock.lang.Specification
+import org.gradle.BuildListener
+import org.gradle.api.invocation.Gradle
 import org.gradle.cache.CacheRepository
 import org.gradle.cache.CacheBuilder
 import org.gradle.cache.PersistentCache
-import org.gradle.cache.PersistentIndexedCache
+import org.gradle.api.internal.changedetection.DefaultFileSnapshotter.FileCollectionSnapshotImpl
+import org.gradle.api.internal.changedetection.DefaultFileSnapshotter.FileHashSnapshot
+import org.gradle.api.internal.changedetection.DefaultFileSnapshotter.DirSnapshot
+import org.gradle.api.internal.changedetection.DefaultFileSnapshotter.MissingFileSnapshot
+import org.gradle.api.internal.changedetection.OutputFilesSnapshotter.OutputFilesSnapshot
+import org.gradle.util.ChangeListener
 
 class CacheBackedFileSnapshotRepositoryTest extends Specification {
     final CacheRepository cacheRepository = Mock()
-    final PersistentIndexedCache<Object, Object> indexedCache = Mock()
-    final FileSnapshotRepository repository = new CacheBackedFileSnapshotRepository(cacheRepository)
+    final Gradle gradle = Mock()
+    final InMemoryIndexedCache<Object, Object> indexedCache = new InMemoryIndexedCache<Object, Object>()
+    final List<BuildListener> buildListeners = []
+    final CacheBackedFileSnapshotRepository repository = new CacheBackedFileSnapshotRepository(cacheRepository)
+
+    def setup() {
+        CacheBuilder builder = Mock()
+        PersistentCache cache = Mock()
+        _ * cacheRepository.cache("fileSnapshots") >> builder
+        _ * builder.forObject(gradle) >> builder
+        _ * builder.open() >> cache
+        _ * cache.openIndexedCache() >> indexedCache
+        _ * gradle.addBuildListener(_) >> { BuildListener listener -> buildListeners << listener }
+        repository.open(gradle)
+    }
 
     def "assigns an id when a snapshot is added"() {
-        FileCollectionSnapshot snapshot = Mock()
+        expect:
+        repository.add(files(a: 'hash-a')) == 1
+        repository.add(files(b: 'hash-b')) == 2
+    }
+
+    def "can fetch a snapshot by id"() {
+        def snapshot = files(a: 'hash-a', b: 'hash-b', dir: null, missing: false)
 
         when:
         def id = repository.add(snapshot)
 
         then:
-        id == 4
-        interaction {
-            expectCacheOpened()
-        }
-        1 * indexedCache.get("nextId") >> (4 as Long)
-        1 * indexedCache.put("nextId", 5)
-        1 * indexedCache.put(4, snapshot)
-        0 * _._
+        sameContent(repository.get(id), snapshot)
     }
 
-    def "can fetch a snapshot by id"() {
-        FileCollectionSnapshot snapshot = Mock()
+    def "can fetch an output files snapshot by id"() {
+        def snapshot = new OutputFilesSnapshot(['/out/dir': 12L, '/out/missing': null], files(a: 'hash-a'))
 
         when:
-        def result = repository.get(4)
+        def result = repository.get(repository.add(snapshot))
 
         then:
-        result == snapshot
-        interaction {
-            expectCacheOpened()
-        }
-        1 * indexedCache.get(4) >> snapshot
-        0 * _._
+        result instanceof OutputFilesSnapshot
+        result.rootFileIds == ['/out/dir': 12L, '/out/missing': null]
+        sameContent(result.filesSnapshot, snapshot.filesSnapshot)
+    }
+
+    def "can fetch a snapshot using another repository instance once the build has finished"() {
+        def snapshot = files(a: 'hash-a', b: 'hash-b')
+        def id = repository.add(snapshot)
+
+        when:
+        buildListeners*.buildFinished(null)
+        def result = newRepository().get(id)
+
+        then:
+        sameContent(result, snapshot)
+    }
+
+    def "writes new paths only when the build finishes"() {
+        when:
+        repository.add(files(a: 'hash-a', b: 'hash-b'))
+        repository.add(files(c: 'hash-c'))
+
+        then:
+        storedPathChunks() == 0
+
+        when:
+        buildListeners*.buildFinished(null)
+
+        then:
+        storedPathChunks() == 1
     }
 
-    def "can delete a snapshot by id"() {
+    def "does not find snapshot whose paths were not written and does not reuse their ids"() {
+        def lost = repository.add(files(a: 'hash-a'))
+
+        when:
+        def other = newRepository()
+        def id = other.add(files(b: 'hash-b'))
+
+        then:
+        other.get(lost) == null
+        sameContent(other.get(id), files(b: 'hash-b'))
+    }
+
+    def "stores identical snapshots once"() {
+        when:
+        def id1 = repository.add(files(a: 'hash-a', b: 'hash-b'))
+        def id2 = repository.add(files(b: 'hash-b', a: 'hash-a'))
+        repository.add(files(a: 'hash-a', b: 'other'))
+
+        then:
+        id1 != id2
+        storedSnapshots() == 2
+    }
+
+    def "removes stored snapshot when last id which refers to it is removed"() {
+        def snapshot = files(a: 'hash-a')
+        def id1 = repository.add(snapshot)
+        def id2 = repository.add(files(a: 'hash-a'))
+
+        when:
+        repository.remove(id1)
+
+        then:
+        repository.get(id1) == null
+        sameContent(repository.get(id2), snapshot)
+        storedSnapshots() == 1
+
         when:
-        repository.remove(4)
+        repository.remove(id2)
 
         then:
-        interaction {
-            expectCacheOpened()
+        repository.get(id2) == null
+        storedSnapshots() == 0
+    }
+
+    def newRepository() {
+        def other = new CacheBackedFileSnapshotRepository(cacheRepository)
+        other.open(gradle)
+        return other
+    }
+
+    def storedPathChunks() {
+        return indexedCache.entries.keySet().findAll { it.toString().startsWith('paths:') }.size()
+    }
+
+    def storedSnapshots() {
+        return indexedCache.entries.keySet().findAll { it.toString().startsWith('snapshot:') }.size()
+    }
+
+    def files(Map<String, Object> entries) {
+        Map<String, DefaultFileSnapshotter.FileSnapshot> snapshots = [:]
+        entries.each { path, value ->
+            def key = new File(path).absolutePath
+            if (value == null) {
+                snapshots[key] = new DirSnapshot()
+            } else if (value == false) {
+                snapshots[key] = new MissingFileSnapshot()
+            } else {
+                snapshots[key] = new FileHashSnapshot(value.bytes)
+            }
         }
-        1 * indexedCache.remove(4)
-        0 * _._
+        return new FileCollectionSnapshotImpl(snapshots)
     }
 
-    def expectCacheOpened() {
-        CacheBuilder builder = Mock()
-        PersistentCache cache = Mock()
-        1 * cacheRepository.cache("fileSnapshots") >> builder
-        1 * builder.open() >> cache
-        1 * cache.openIndexedCache() >> indexedCache
+    def sameContent(FileCollectionSnapshot snapshot, FileCollectionSnapshot expected) {
+        def changes = []
+        snapshot.changesSince(expected, [
+                added: { changes << it },
+                removed: { changes << it },
+                changed: { changes << it }
+        ] as ChangeListener)
+        return changes.empty && snapshot.files.files == expected.files.files
     }
 }
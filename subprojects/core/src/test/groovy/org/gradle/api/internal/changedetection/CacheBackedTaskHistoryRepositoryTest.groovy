@@ -0,0 +1,79 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.changedetection
+
+import spock.lang.Specification
+import org.gradle.cache.DefaultSerializer
+import org.gradle.api.internal.changedetection.CacheBackedTaskHistoryRepository.TaskHistory
+import org.gradle.api.internal.changedetection.CacheBackedTaskHistoryRepository.LazyTaskExecution
+import org.gradle.api.internal.changedetection.CacheBackedTaskHistoryRepository.TaskHistorySerializer
+
+class CacheBackedTaskHistoryRepositoryTest extends Specification {
+    final TaskHistorySerializer serializer = new TaskHistorySerializer()
+
+    def "serializer round trips task history"() {
+        TaskHistory history = new TaskHistory()
+        history.configurations << execution('org.gradle.SomeTask', 12, 14, ['/out/a', '/out/b'],
+                [string: 'value', flag: true, count: 12, size: 123L, file: new File('some/file'), list: ['a', 'b'], nothing: null])
+        history.configurations << execution('org.gradle.SomeTask', null, 3, ['/out/a'], [:])
+        history.configurations << execution(null, null, null, null, null)
+
+        when:
+        TaskHistory result = roundTrip(history)
+
+        then:
+        result.configurations.size() == 3
+        result.configurations[0].taskClass == 'org.gradle.SomeTask'
+        result.configurations[0].inputFilesSnapshotId == 12
+        result.configurations[0].outputFilesSnapshotId == 14
+        result.configurations[0].outputFiles == ['/out/a', '/out/b'] as Set
+        result.configurations[0].inputProperties == [string: 'value', flag: true, count: 12, size: 123L, file: new File('some/file'), list: ['a', 'b'], nothing: null]
+        result.configurations[0].inputProperties.count instanceof Integer
+        result.configurations[0].inputProperties.size instanceof Long
+        result.configurations[1].taskClass == 'org.gradle.SomeTask'
+        result.configurations[1].inputFilesSnapshotId == null
+        result.configurations[1].outputFilesSnapshotId == 3
+        result.configurations[1].outputFiles == ['/out/a'] as Set
+        result.configurations[1].inputProperties == [:]
+        result.configurations[2].taskClass == null
+        result.configurations[2].outputFiles == null
+        result.configurations[2].inputProperties == null
+    }
+
+    def "serializer discards history written in an unknown format"() {
+        ByteArrayOutputStream outstr = new ByteArrayOutputStream()
+        new DefaultSerializer<Object>().write(outstr, new ArrayList())
+
+        expect:
+        serializer.read(new ByteArrayInputStream(outstr.toByteArray())) == null
+    }
+
+    def roundTrip(TaskHistory history) {
+        ByteArrayOutputStream outstr = new ByteArrayOutputStream()
+        serializer.write(outstr, history)
+        return serializer.read(new ByteArrayInputStream(outstr.toByteArray()))
+    }
+
+    def execution(String taskClass, Long inputFilesSnapshotId, Long outputFilesSnapshotId, List<String> outputFiles, Map<String, Object> inputProperties) {
+        LazyTaskExecution execution = new LazyTaskExecution()
+        execution.taskClass = taskClass
+        execution.inputFilesSnapshotId = inputFilesSnapshotId
+        execution.outputFilesSnapshotId = outputFilesSnapshotId
+        execution.outputFiles = outputFiles as Set
+        execution.inputProperties = inputProperties == null ? null : new HashMap<String, Object>(inputProperties)
+        return execution
+    }
+}
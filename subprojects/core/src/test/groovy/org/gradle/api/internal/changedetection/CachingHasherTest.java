@@ -43,6 +43,7 @@ public class CachingHasherTest {
     private final byte[] hash = "hash".getBytes();
     private final File file = tmpDir.createFile("testfile").write("content");
     private CachingHasher hasher;
+    private int hasherCount;
 
     @Before
     public void setup() {
@@ -69,11 +70,12 @@ public class CachingHasherTest {
             will(returnValue(null));
             one(delegate).hash(file);
             will(returnValue(hash));
-            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
-                    file.lastModified()))));
+            one(cache).putAll(with(hasEntry(equalTo(file), reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
+                    file.lastModified())))));
         }});
 
         assertThat(hasher.hash(file), sameInstance(hash));
+        hasher.flush();
     }
 
     @Test
@@ -83,11 +85,12 @@ public class CachingHasherTest {
             will(returnValue(new CachingHasher.FileInfo(hash, 1078, file.lastModified())));
             one(delegate).hash(file);
             will(returnValue(hash));
-            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
-                    file.lastModified()))));
+            one(cache).putAll(with(hasEntry(equalTo(file), reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
+                    file.lastModified())))));
         }});
 
         assertThat(hasher.hash(file), sameInstance(hash));
+        hasher.flush();
     }
 
     @Test
@@ -97,11 +100,12 @@ public class CachingHasherTest {
             will(returnValue(new CachingHasher.FileInfo(hash, file.length(), 12)));
             one(delegate).hash(file);
             will(returnValue(hash));
-            one(cache).put(with(equalTo(file)), with(reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
-                    file.lastModified()))));
+            one(cache).putAll(with(hasEntry(equalTo(file), reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
+                    file.lastModified())))));
         }});
 
         assertThat(hasher.hash(file), sameInstance(hash));
+        hasher.flush();
     }
 
     @Test
@@ -113,4 +117,107 @@ public class CachingHasherTest {
 
         assertThat(hasher.hash(file), sameInstance(hash));
     }
+
+    @Test
+    public void doesNotWriteHashToPersistentCacheUntilFlushed() {
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+            one(delegate).hash(file);
+            will(returnValue(hash));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.hash(file), sameInstance(hash));
+
+        context.checking(new Expectations() {{
+            one(cache).putAll(with(hasEntry(equalTo(file), reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
+                    file.lastModified())))));
+        }});
+
+        hasher.flush();
+        hasher.flush();
+    }
+
+    @Test
+    public void usesInMemoryEntryForRepeatedLookups() {
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(new CachingHasher.FileInfo(hash, file.length(), file.lastModified())));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.hash(file), sameInstance(hash));
+        hasher.flush();
+    }
+
+    @Test
+    public void writesChangedEntryToPersistentCacheWhenEvictedFromMemory() {
+        final File other = tmpDir.createFile("other").write("other");
+        final byte[] otherHash = "other".getBytes();
+        hasher = createHasher(new InMemoryFileHashCache(1));
+
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+            one(delegate).hash(file);
+            will(returnValue(hash));
+            one(cache).get(other);
+            will(returnValue(null));
+            one(delegate).hash(other);
+            will(returnValue(otherHash));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        assertThat(hasher.hash(other), sameInstance(otherHash));
+        assertThat(hasher.hash(file), sameInstance(hash));
+
+        context.checking(new Expectations() {{
+            one(cache).putAll(with(allOf(
+                    hasEntry(equalTo(file), reflectionEquals(new CachingHasher.FileInfo(hash, file.length(), file.lastModified()))),
+                    hasEntry(equalTo(other), reflectionEquals(new CachingHasher.FileInfo(otherHash, other.length(), other.lastModified()))))));
+        }});
+
+        hasher.flush();
+    }
+
+    @Test
+    public void usesInMemoryEntriesFromPreviousBuild() {
+        InMemoryFileHashCache inMemoryCache = new InMemoryFileHashCache();
+        hasher = createHasher(inMemoryCache);
+
+        context.checking(new Expectations() {{
+            one(cache).get(file);
+            will(returnValue(null));
+            one(delegate).hash(file);
+            will(returnValue(hash));
+            one(cache).putAll(with(hasEntry(equalTo(file), reflectionEquals(new CachingHasher.FileInfo(hash, file.length(),
+                    file.lastModified())))));
+        }});
+
+        assertThat(hasher.hash(file), sameInstance(hash));
+        hasher.flush();
+
+        CachingHasher nextBuildHasher = createHasher(inMemoryCache);
+        assertThat(nextBuildHasher.hash(file), sameInstance(hash));
+        nextBuildHasher.flush();
+    }
+
+    private CachingHasher createHasher(final InMemoryFileHashCache inMemoryCache) {
+        final String name = String.valueOf(++hasherCount);
+        context.checking(new Expectations() {{
+            CacheBuilder cacheBuilder = context.mock(CacheBuilder.class, "cacheBuilder" + name);
+            PersistentCache persistentCache = context.mock(PersistentCache.class, "persistentCache" + name);
+
+            one(cacheRepository).cache("fileHashes");
+            will(returnValue(cacheBuilder));
+
+            one(cacheBuilder).open();
+            will(returnValue(persistentCache));
+
+            one(persistentCache).openIndexedCache(with(notNullValue(Serializer.class)));
+            will(returnValue(cache));
+        }});
+        return new CachingHasher(delegate, cacheRepository, inMemoryCache);
+    }
 }
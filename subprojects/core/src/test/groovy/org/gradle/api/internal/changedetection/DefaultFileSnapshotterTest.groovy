@@ -29,6 +29,9 @@ import org.gradle.util.TestFile
 import org.gradle.api.file.FileCollection
 import org.gradle.util.ChangeListener
 import org.gradle.api.file.FileTree
+import org.gradle.messaging.concurrent.DefaultExecutorFactory
+import org.gradle.api.internal.file.collections.SimpleFileCollection
+import java.util.concurrent.atomic.AtomicInteger
 
 @RunWith(JMock.class)
 public class DefaultFileSnapshotterTest {
@@ -316,6 +319,61 @@ public class DefaultFileSnapshotterTest {
         target.changesSince(snapshotter.emptySnapshot(), listener)
     }
 
+    @Test
+    public void parallelSnapshotIsTheSameAsSerialSnapshot() {
+        DefaultFileSnapshotter parallelSnapshotter = new DefaultFileSnapshotter(hasher, new DefaultExecutorFactory(), 4)
+        List<File> testFiles = (1..20).collect { tmpDir.file("file$it").write("content $it") }
+        testFiles << tmpDir.createDir('dir')
+        testFiles << tmpDir.file('missing')
+
+        FileCollectionSnapshot serial = snapshotter.snapshot(files(testFiles as File[]))
+        FileCollectionSnapshot parallel = parallelSnapshotter.snapshot(files(testFiles as File[]))
+
+        assertThat(parallel.files.files, equalTo(serial.files.files))
+        parallel.changesSince(serial, listener)
+        serial.changesSince(parallel, listener)
+    }
+
+    @Test
+    public void parallelSnapshotDetectsChangedFile() {
+        DefaultFileSnapshotter parallelSnapshotter = new DefaultFileSnapshotter(hasher, new DefaultExecutorFactory(), 4)
+        List<File> testFiles = (1..10).collect { tmpDir.file("file$it").write("content $it") }
+
+        FileCollectionSnapshot snapshot = parallelSnapshotter.snapshot(files(testFiles as File[]))
+
+        testFiles[5].write('new content')
+
+        context.checking {
+            one(listener).changed(testFiles[5])
+        }
+        parallelSnapshotter.snapshot(files(testFiles as File[])).changesSince(snapshot, listener)
+    }
+
+    @Test
+    public void concurrentSnapshotsShareTheHashingThreads() {
+        AtomicInteger active = new AtomicInteger()
+        AtomicInteger maxActive = new AtomicInteger()
+        Hasher slowHasher = { File file ->
+            int count = active.incrementAndGet()
+            synchronized (maxActive) {
+                maxActive.set(Math.max(maxActive.get(), count))
+            }
+            Thread.sleep(20)
+            active.decrementAndGet()
+            return [1] as byte[]
+        } as Hasher
+        DefaultFileSnapshotter parallelSnapshotter = new DefaultFileSnapshotter(slowHasher, new DefaultExecutorFactory(), 2)
+        List<File> testFiles = (1..10).collect { tmpDir.file("file$it").write("content $it") }
+
+        List<Thread> threads = (1..3).collect {
+            Thread.start { parallelSnapshotter.snapshot(new SimpleFileCollection(testFiles)) }
+        }
+        threads*.join()
+
+        // Each of the 3 snapshotting threads, plus 1 shared hashing thread
+        assertThat(maxActive.get(), lessThanOrEqualTo(4))
+    }
+
     private FileCollection files(File... files) {
         FileTree collection = context.mock(FileTree.class)
         context.checking {
@@ -582,6 +582,9 @@ public class DefaultTaskArtifactStateRepositoryTest {
             atMost(1).of(cacheRepository).cache("fileSnapshots");
             will(returnValue(fileSnapshotCacheBuilder));
 
+            atMost(1).of(fileSnapshotCacheBuilder).forObject(gradle);
+            will(returnValue(fileSnapshotCacheBuilder));
+
             atMost(1).of(fileSnapshotCacheBuilder).open();
             will(returnValue(persistentCache));
 
@@ -55,6 +55,40 @@ public class AbstractFileTreeElementTest {
         dest.assertIsFile();
         assertThat(dest.getText(), equalTo("content"));
     }
+
+    @Test
+    public void copiesToFileWhichIsAlreadyACopy() {
+        TestFile src = tmpDir.file("src");
+        src.write("content");
+        TestFile dest = tmpDir.file("dir/dest");
+
+        assertTrue(new TestFileTreeElement(src).copyTo(dest));
+        assertFalse(new TestFileTreeElement(src).isUpToDate(dest));
+        assertTrue(new TestFileTreeElement(src).copyTo(dest));
+
+        dest.assertIsFile();
+        assertThat(dest.getText(), equalTo("content"));
+    }
+
+    @Test
+    public void fileInFileSystemIsUpToDateWhenTargetHasSameSizeAndTimestamp() {
+        TestFile src = tmpDir.file("src");
+        src.write("content");
+        TestFile dest = tmpDir.file("dir/dest");
+        DefaultFileTreeElement element = new DefaultFileTreeElement(src, new RelativePath(true, "src"));
+
+        assertFalse(element.isUpToDate(dest));
+        element.copyTo(dest);
+        assertTrue(element.isUpToDate(dest));
+
+        dest.write("other");
+        dest.setLastModified(src.lastModified());
+        assertFalse(element.isUpToDate(dest));
+
+        dest.write("1234567");
+        dest.setLastModified(src.lastModified() - 2000);
+        assertFalse(element.isUpToDate(dest));
+    }
     
     private class TestFileTreeElement extends AbstractFileTreeElement {
         private final TestFile file;
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.file.archive;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.tools.zip.ZipOutputStream;
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static java.util.Arrays.asList;
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class ParallelZipWriterTest {
+    @Rule
+    public final TemporaryFolder tmpDir = new TemporaryFolder();
+
+    @Test
+    public void writesEntriesInTheOrderTheyWereAdded() throws IOException {
+        TestFile zipFile = tmpDir.getDir().file("test.zip");
+        ParallelZipWriter writer = new ParallelZipWriter(zipFile, false, new DefaultExecutorFactory(), 4);
+        writer.putDirectory("dir/", 1000, 0755);
+        for (int i = 0; i < 50; i++) {
+            writer.putFile("dir/file" + i, 1000, 0644, stream("file" + i), false);
+        }
+        writer.putFile("stored.jar", 1000, 0644, stream("stored"), true);
+        writer.close();
+
+        ZipFile zip = new ZipFile(zipFile);
+        try {
+            List<String> names = new ArrayList<String>();
+            for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+                names.add(entries.nextElement().getName());
+            }
+            assertThat(names.size(), equalTo(52));
+            assertThat(names.get(0), equalTo("dir/"));
+            assertThat(names.get(1), equalTo("dir/file0"));
+            assertThat(names.get(50), equalTo("dir/file49"));
+            assertThat(names.get(51), equalTo("stored.jar"));
+            assertThat(text(zip, "dir/file17"), equalTo(new String(content("file17"))));
+            assertThat(zip.getEntry("dir/file17").getMethod(), equalTo(ZipEntry.DEFLATED));
+            assertThat(zip.getEntry("stored.jar").getMethod(), equalTo(ZipEntry.STORED));
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void reusesCompressedContentOfUnchangedEntriesOfExistingFile() throws IOException {
+        TestFile zipFile = tmpDir.getDir().file("test.zip");
+        // Create the existing file without compression, so that a reused entry can be told apart by its size
+        ZipOutputStream existing = new ZipOutputStream(zipFile);
+        existing.setLevel(Deflater.NO_COMPRESSION);
+        for (String name : asList("unchanged", "changed")) {
+            existing.putNextEntry(new org.apache.tools.zip.ZipEntry(name));
+            existing.write(content(name));
+            existing.closeEntry();
+        }
+        existing.close();
+
+        ParallelZipWriter writer = new ParallelZipWriter(zipFile, true, new DefaultExecutorFactory(), 2);
+        writer.putFile("unchanged", 1000, 0644, stream("unchanged"), false);
+        writer.putFile("changed", 1000, 0644, stream("new content"), false);
+        writer.putFile("added", 1000, 0644, stream("added"), false);
+        writer.close();
+
+        ZipFile zip = new ZipFile(zipFile);
+        try {
+            assertThat(text(zip, "unchanged"), equalTo(new String(content("unchanged"))));
+            assertThat(text(zip, "changed"), equalTo(new String(content("new content"))));
+            assertThat(text(zip, "added"), equalTo(new String(content("added"))));
+            assertThat(zip.getEntry("unchanged").getCompressedSize(), greaterThan(zip.getEntry("unchanged").getSize()));
+            assertThat(zip.getEntry("changed").getCompressedSize(), lessThan(zip.getEntry("changed").getSize()));
+        } finally {
+            zip.close();
+        }
+        assertThat(asList(tmpDir.getDir().list()), equalTo(asList("test.zip")));
+    }
+
+    @Test
+    public void createsFileFromScratchWhenExistingFileIsNotAZip() throws IOException {
+        TestFile zipFile = tmpDir.getDir().file("test.zip");
+        zipFile.write("not a zip");
+
+        ParallelZipWriter writer = new ParallelZipWriter(zipFile, true, new DefaultExecutorFactory(), 2);
+        writer.putFile("file", 1000, 0644, stream("file"), false);
+        writer.close();
+
+        ZipFile zip = new ZipFile(zipFile);
+        try {
+            assertThat(text(zip, "file"), equalTo(new String(content("file"))));
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void holdsLargeEntriesInTemporaryFiles() throws IOException {
+        TestFile zipFile = tmpDir.getDir().file("test.zip");
+        byte[] large = new byte[10000];
+        new Random(1).nextBytes(large);
+
+        ParallelZipWriter writer = new ParallelZipWriter(zipFile, false, new DefaultExecutorFactory(), 2, 1000);
+        writer.putFile("compressed", 1000, 0644, new ByteArrayInputStream(large), false);
+        writer.putFile("stored", 1000, 0644, new ByteArrayInputStream(large), true);
+        writer.putFile("small", 1000, 0644, stream("small"), false);
+        writer.close();
+
+        ZipFile zip = new ZipFile(zipFile);
+        try {
+            assertThat(IOUtils.toByteArray(zip.getInputStream(zip.getEntry("compressed"))), equalTo(large));
+            assertThat(IOUtils.toByteArray(zip.getInputStream(zip.getEntry("stored"))), equalTo(large));
+            assertThat(text(zip, "small"), equalTo(new String(content("small"))));
+        } finally {
+            zip.close();
+        }
+        assertThat(asList(tmpDir.getDir().list()), equalTo(asList("test.zip")));
+    }
+
+    private InputStream stream(String text) {
+        return new ByteArrayInputStream(content(text));
+    }
+
+    private byte[] content(String text) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append(text).append('\n');
+        }
+        return builder.toString().getBytes();
+    }
+
+    private String text(ZipFile zip, String name) throws IOException {
+        return IOUtils.toString(zip.getInputStream(zip.getEntry(name)));
+    }
+}
@@ -19,7 +19,6 @@ import org.apache.commons.io.IOUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.RelativePath;
-import org.gradle.api.internal.file.copy.ArchiveCopyAction;
 import org.gradle.api.internal.file.copy.ReadableCopySpec;
 import org.gradle.util.TestFile;
 import org.gradle.util.TemporaryFolder;
@@ -36,14 +35,17 @@ import org.junit.Test;
 import org.junit.Before;
 import org.junit.runner.RunWith;
 
-import java.io.OutputStream;
+import java.io.*;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 @RunWith(JMock.class)
 public class ZipCopySpecVisitorTest {
     @Rule
     public final TemporaryFolder tmpDir = new TemporaryFolder();
     private final JUnit4Mockery context = new JUnit4Mockery();
-    private final ArchiveCopyAction copyAction = context.mock(ArchiveCopyAction.class);
+    private final ZipCopyAction copyAction = context.mock(ZipCopyAction.class);
     private final ReadableCopySpec copySpec = context.mock(ReadableCopySpec.class);
     private final ZipCopySpecVisitor visitor = new ZipCopySpecVisitor();
 
@@ -61,10 +63,7 @@ public class ZipCopySpecVisitorTest {
     public void createsZipFile() {
         final TestFile zipFile = tmpDir.getDir().file("test.zip");
 
-        context.checking(new Expectations(){{
-            allowing(copyAction).getArchivePath();
-            will(returnValue(zipFile));
-        }});
+        expectArchive(zipFile, false);
 
         visitor.startVisit(copyAction);
         visitor.visitSpec(copySpec);
@@ -81,14 +80,93 @@ public class ZipCopySpecVisitorTest {
         expandDir.file("file2").assertContents(equalTo("contents of file2"));
     }
 
+    @Test
+    public void createsZipFileUsingParallelCompression() {
+        final TestFile zipFile = tmpDir.getDir().file("test.zip");
+        expectArchive(zipFile, true);
+
+        visitor.startVisit(copyAction);
+        visitor.visitSpec(copySpec);
+
+        visitor.visitDir(dir("dir"));
+        for (int i = 0; i < 20; i++) {
+            visitor.visitFile(file("dir/file" + i));
+        }
+        visitor.visitFile(file("file2"));
+
+        visitor.endVisit();
+
+        TestFile expandDir = tmpDir.getDir().file("expanded");
+        zipFile.unzipTo(expandDir);
+        for (int i = 0; i < 20; i++) {
+            expandDir.file("dir/file" + i).assertContents(equalTo("contents of dir/file" + i));
+        }
+        expandDir.file("file2").assertContents(equalTo("contents of file2"));
+        assertThat(entryNames(zipFile).get(0), equalTo("dir/"));
+        assertThat(entryNames(zipFile).get(21), equalTo("file2"));
+    }
+
+    @Test
+    public void storesFilesWithStoredExtensionsWithoutCompression() throws IOException {
+        createsZipFileWithStoredFiles(false);
+    }
+
+    @Test
+    public void storesFilesWithStoredExtensionsWithoutCompressionUsingParallelCompression() throws IOException {
+        createsZipFileWithStoredFiles(true);
+    }
+
+    private void createsZipFileWithStoredFiles(boolean parallelCompression) throws IOException {
+        final TestFile zipFile = tmpDir.getDir().file("test.zip");
+        expectArchive(zipFile, parallelCompression, "JAR");
+
+        visitor.startVisit(copyAction);
+        visitor.visitSpec(copySpec);
+        visitor.visitFile(file("lib/some.jar"));
+        visitor.visitFile(file("file.txt"));
+        visitor.endVisit();
+
+        ZipFile zip = new ZipFile(zipFile);
+        try {
+            assertThat(zip.getEntry("lib/some.jar").getMethod(), equalTo(ZipEntry.STORED));
+            assertThat(zip.getEntry("file.txt").getMethod(), equalTo(ZipEntry.DEFLATED));
+            assertThat(IOUtils.toString(zip.getInputStream(zip.getEntry("lib/some.jar"))), equalTo("contents of lib/some.jar"));
+        } finally {
+            zip.close();
+        }
+    }
+
+    @Test
+    public void encodesEntryNamesTheSameWayUsingParallelCompression() throws IOException {
+        FileVisitDetails file = file("dir/\u00e9t\u00e9");
+        TestFile serialZipFile = tmpDir.getDir().file("serial.zip");
+        TestFile parallelZipFile = tmpDir.getDir().file("parallel.zip");
+
+        expectArchive(serialZipFile, false);
+        visitor.startVisit(copyAction);
+        visitor.visitSpec(copySpec);
+        visitor.visitFile(file);
+        visitor.endVisit();
+
+        ZipCopySpecVisitor parallelVisitor = new ZipCopySpecVisitor();
+        ZipCopyAction parallelCopyAction = context.mock(ZipCopyAction.class, "parallel");
+        expectArchive(parallelCopyAction, parallelZipFile, true);
+        parallelVisitor.startVisit(parallelCopyAction);
+        parallelVisitor.visitSpec(copySpec);
+        parallelVisitor.visitFile(file);
+        parallelVisitor.endVisit();
+
+        // Compare the general purpose flags and the name of the local file header of the entry
+        byte[] serialHeader = localFileHeader(serialZipFile);
+        byte[] parallelHeader = localFileHeader(parallelZipFile);
+        assertThat(flagsAndName(parallelHeader), equalTo(flagsAndName(serialHeader)));
+    }
+
     @Test
     public void wrapsFailureToOpenOutputFile() {
         final TestFile zipFile = tmpDir.createDir("test.zip");
 
-        context.checking(new Expectations(){{
-            allowing(copyAction).getArchivePath();
-            will(returnValue(zipFile));
-        }});
+        expectArchive(zipFile, false);
 
         try {
             visitor.startVisit(copyAction);
@@ -102,10 +180,7 @@ public class ZipCopySpecVisitorTest {
     public void wrapsFailureToAddElement() {
         final TestFile zipFile = tmpDir.getDir().file("test.zip");
 
-        context.checking(new Expectations(){{
-            allowing(copyAction).getArchivePath();
-            will(returnValue(zipFile));
-        }});
+        expectArchive(zipFile, false);
 
         visitor.startVisit(copyAction);
         visitor.visitSpec(copySpec);
@@ -120,6 +195,62 @@ public class ZipCopySpecVisitorTest {
         }
     }
 
+    private void expectArchive(final TestFile zipFile, final boolean parallelCompression, final String... storedFileExtensions) {
+        expectArchive(copyAction, zipFile, parallelCompression, storedFileExtensions);
+    }
+
+    private void expectArchive(final ZipCopyAction copyAction, final TestFile zipFile, final boolean parallelCompression, final String... storedFileExtensions) {
+        context.checking(new Expectations(){{
+            allowing(copyAction).getArchivePath();
+            will(returnValue(zipFile));
+            allowing(copyAction).isParallelCompression();
+            will(returnValue(parallelCompression));
+            allowing(copyAction).isReuseUnchangedEntries();
+            will(returnValue(false));
+            allowing(copyAction).getStoredFileExtensions();
+            will(returnValue(new HashSet<String>(Arrays.asList(storedFileExtensions))));
+        }});
+    }
+
+    private byte[] localFileHeader(TestFile zipFile) throws IOException {
+        byte[] header = new byte[1024];
+        InputStream instr = new FileInputStream(zipFile);
+        try {
+            IOUtils.read(instr, header);
+        } finally {
+            instr.close();
+        }
+        return header;
+    }
+
+    private List<Integer> flagsAndName(byte[] header) {
+        List<Integer> values = new ArrayList<Integer>();
+        values.add(header[6] & 0xFF);
+        values.add(header[7] & 0xFF);
+        int nameLength = (header[26] & 0xFF) | ((header[27] & 0xFF) << 8);
+        for (int i = 0; i < nameLength; i++) {
+            values.add(header[30 + i] & 0xFF);
+        }
+        return values;
+    }
+
+    private List<String> entryNames(TestFile zipFile) {
+        List<String> names = new ArrayList<String>();
+        try {
+            ZipFile zip = new ZipFile(zipFile);
+            try {
+                for (Enumeration<? extends ZipEntry> entries = zip.entries(); entries.hasMoreElements();) {
+                    names.add(entries.nextElement().getName());
+                }
+            } finally {
+                zip.close();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return names;
+    }
+
     private FileVisitDetails file(final String path) {
         final FileVisitDetails details = context.mock(FileVisitDetails.class, path);
 
@@ -141,6 +272,17 @@ public class ZipCopySpecVisitorTest {
                     return null;
                 }
             });
+
+            allowing(details).open();
+            will(new Action() {
+                public void describeTo(Description description) {
+                    description.appendText("open content");
+                }
+
+                public Object invoke(Invocation invocation) throws Throwable {
+                    return new ByteArrayInputStream(String.format("contents of %s", path).getBytes());
+                }
+            });
         }});
 
         return details;
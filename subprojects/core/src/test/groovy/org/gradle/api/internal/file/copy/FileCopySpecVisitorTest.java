@@ -19,7 +19,9 @@ package org.gradle.api.internal.file.copy;
 import org.gradle.api.InvalidUserDataException;
 import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.file.RelativePath;
+import org.gradle.api.internal.file.DefaultFileTreeElement;
 import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JMock;
 import org.jmock.integration.junit4.JUnit4Mockery;
@@ -60,6 +62,32 @@ public class FileCopySpecVisitorTest {
         visitor.visitFile(file(new RelativePath(true, "subdir", "anotherfile.txt"), new File(destDir, "subdir/anotherfile.txt")));
     }
 
+    @Test
+    public void copiesUnchangedFilesByDefault() {
+        TestFile src = tmpDir.createFile("src.txt");
+        new DefaultFileTreeElement(src, new RelativePath(true, "src.txt")).copyTo(new File(destDir, "src.txt"));
+
+        visitor.startVisit(action(destDir));
+        visitor.visitFile(new TestFileVisitDetails(src));
+
+        assertTrue(visitor.getDidWork());
+    }
+
+    @Test
+    public void skipsUnchangedFilesWhenEnabled() {
+        TestFile src = tmpDir.createFile("src.txt");
+        TestFile changed = tmpDir.createFile("changed.txt");
+        new DefaultFileTreeElement(src, new RelativePath(true, "src.txt")).copyTo(new File(destDir, "src.txt"));
+
+        visitor.startVisit(action(destDir, true));
+        visitor.visitFile(new TestFileVisitDetails(src));
+        assertFalse(visitor.getDidWork());
+
+        visitor.visitFile(new TestFileVisitDetails(changed));
+        assertTrue(visitor.getDidWork());
+        assertTrue(new File(destDir, "changed.txt").isFile());
+    }
+
     @Test
     public void testThrowsExceptionWhenNoDestinationSet() {
         try {
@@ -71,10 +99,16 @@ public class FileCopySpecVisitorTest {
     }
 
     private FileCopyAction action(final File destDir) {
+        return action(destDir, false);
+    }
+
+    private FileCopyAction action(final File destDir, final boolean skipUnchangedFiles) {
         final FileCopyAction action = context.mock(FileCopyAction.class);
         context.checking(new Expectations(){{
             allowing(action).getDestinationDir();
             will(returnValue(destDir));
+            allowing(action).isSkipUnchangedFiles();
+            will(returnValue(skipUnchangedFiles));
         }});
         return action;
     }
@@ -88,4 +122,13 @@ public class FileCopySpecVisitorTest {
         }});
         return details;
     }
+
+    private static class TestFileVisitDetails extends DefaultFileTreeElement implements FileVisitDetails {
+        private TestFileVisitDetails(TestFile file) {
+            super(file, new RelativePath(true, file.getName()));
+        }
+
+        public void stopVisiting() {
+        }
+    }
 }
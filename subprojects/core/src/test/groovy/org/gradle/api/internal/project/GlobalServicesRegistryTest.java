@@ -20,8 +20,11 @@ import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.api.internal.DefaultClassPathProvider;
 import org.gradle.api.internal.DefaultClassPathRegistry;
 import org.gradle.api.internal.GradleDistributionLocator;
+import org.gradle.api.internal.changedetection.InMemoryFileHashCache;
 import org.gradle.cache.AutoCloseCacheFactory;
 import org.gradle.cache.CacheFactory;
+import org.gradle.groovy.scripts.CachingScriptCompilationHandler;
+import org.gradle.groovy.scripts.ScriptCompilationHandler;
 import org.gradle.initialization.ClassLoaderRegistry;
 import org.gradle.initialization.CommandLineConverter;
 import org.gradle.initialization.DefaultClassLoaderRegistry;
@@ -91,4 +94,16 @@ public class GlobalServicesRegistryTest {
     public void providesAClassLoaderFactory() {
         assertThat(registry.get(ClassLoaderFactory.class), instanceOf(DefaultClassLoaderFactory.class));
     }
+
+    @Test
+    public void providesAScriptCompilationHandler() {
+        assertThat(registry.get(ScriptCompilationHandler.class), instanceOf(CachingScriptCompilationHandler.class));
+        assertThat(registry.get(ScriptCompilationHandler.class), sameInstance(registry.get(ScriptCompilationHandler.class)));
+    }
+
+    @Test
+    public void providesAnInMemoryFileHashCache() {
+        assertThat(registry.get(InMemoryFileHashCache.class), instanceOf(InMemoryFileHashCache.class));
+        assertThat(registry.get(InMemoryFileHashCache.class), sameInstance(registry.get(InMemoryFileHashCache.class)));
+    }
 }
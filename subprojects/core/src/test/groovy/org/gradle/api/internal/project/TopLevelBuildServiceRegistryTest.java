@@ -21,6 +21,9 @@ import org.gradle.api.internal.ClassPathRegistry;
 import org.gradle.api.internal.ExceptionAnalyser;
 import org.gradle.api.internal.Factory;
 import org.gradle.api.internal.GradleInternal;
+import org.gradle.api.internal.changedetection.CachingHasher;
+import org.gradle.api.internal.changedetection.Hasher;
+import org.gradle.api.internal.changedetection.InMemoryFileHashCache;
 import org.gradle.api.internal.artifacts.dsl.DefaultPublishArtifactFactory;
 import org.gradle.api.internal.artifacts.dsl.PublishArtifactFactory;
 import org.gradle.api.internal.tasks.execution.ExecuteAtMostOnceTaskExecuter;
@@ -28,11 +31,13 @@ import org.gradle.api.internal.tasks.TaskExecuter;
 import org.gradle.cache.CacheFactory;
 import org.gradle.cache.CacheRepository;
 import org.gradle.cache.DefaultCacheRepository;
+import org.gradle.cache.IndexedCacheStorage;
 import org.gradle.configuration.BuildConfigurer;
 import org.gradle.configuration.DefaultBuildConfigurer;
 import org.gradle.configuration.DefaultScriptPluginFactory;
 import org.gradle.configuration.ScriptPluginFactory;
 import org.gradle.groovy.scripts.DefaultScriptCompilerFactory;
+import org.gradle.groovy.scripts.ScriptCompilationHandler;
 import org.gradle.groovy.scripts.ScriptCompilerFactory;
 import org.gradle.initialization.*;
 import org.gradle.listener.DefaultListenerManager;
@@ -74,6 +79,7 @@ public class TopLevelBuildServiceRegistryTest {
     private final ClassLoaderRegistry classLoaderRegistry = context.mock(ClassLoaderRegistry.class);
     private final Factory<LoggingManagerInternal> loggingManagerFactory = context.mock(Factory.class);
     private final ProgressLoggerFactory progressLoggerFactory = context.mock(ProgressLoggerFactory.class);
+    private final ScriptCompilationHandler scriptCompilationHandler = context.mock(ScriptCompilationHandler.class);
 
     @Before
     public void setUp() {
@@ -89,6 +95,10 @@ public class TopLevelBuildServiceRegistryTest {
             will(returnValue(loggingManagerFactory));
             allowing(parent).get(ProgressLoggerFactory.class);
             will(returnValue(progressLoggerFactory));
+            allowing(parent).get(ScriptCompilationHandler.class);
+            will(returnValue(scriptCompilationHandler));
+            allowing(parent).get(InMemoryFileHashCache.class);
+            will(returnValue(new InMemoryFileHashCache()));
         }});
     }
     
@@ -135,12 +145,22 @@ public class TopLevelBuildServiceRegistryTest {
     public void providesATaskExecuter() {
         expectListenerManagerCreated();
         context.checking(new Expectations(){{
-            allowing(cacheFactory).open(with(notNullValue(File.class)), with(equalTo(startParameter.getCacheUsage())), with(equalTo(Collections.EMPTY_MAP)));
+            allowing(cacheFactory).open(with(notNullValue(File.class)), with(equalTo(startParameter.getCacheUsage())), with(equalTo(Collections.EMPTY_MAP)), with(equalTo(IndexedCacheStorage.FILE)));
         }});
         assertThat(factory.get(TaskExecuter.class), instanceOf(ExecuteAtMostOnceTaskExecuter.class));
         assertThat(factory.get(TaskExecuter.class), sameInstance(factory.get(TaskExecuter.class)));
     }
 
+    @Test
+    public void providesAHasher() {
+        expectListenerManagerCreated();
+        context.checking(new Expectations(){{
+            allowing(cacheFactory).open(with(notNullValue(File.class)), with(equalTo(startParameter.getCacheUsage())), with(equalTo(Collections.EMPTY_MAP)), with(equalTo(IndexedCacheStorage.FILE)));
+        }});
+        assertThat(factory.get(Hasher.class), instanceOf(CachingHasher.class));
+        assertThat(factory.get(Hasher.class), sameInstance(factory.get(Hasher.class)));
+    }
+
     @Test
     public void providesAScriptCompilerFactory() {
         expectListenerManagerCreated();
@@ -190,6 +210,7 @@ public class TopLevelBuildServiceRegistryTest {
 
     @Test
     public void providesAWorkerProcessFactory() {
+        expectListenerManagerCreated();
         allowGetPluginClassLoader();
         assertThat(factory.getFactory(WorkerProcessBuilder.class), instanceOf(DefaultWorkerProcessFactory.class));
     }
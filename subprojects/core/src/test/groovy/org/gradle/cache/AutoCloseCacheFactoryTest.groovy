@@ -26,10 +26,10 @@ public class AutoCloseCacheFactoryTest extends Specification {
         PersistentCache cache = Mock()
 
         when:
-        def retval = factory.open(new File('dir1'), CacheUsage.ON, [:])
+        def retval = factory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE)
 
         then:
-        1 * backingFactory.open(new File('dir1'), CacheUsage.ON, [:]) >> cache
+        1 * backingFactory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE) >> cache
         retval == cache
     }
 
@@ -37,22 +37,34 @@ public class AutoCloseCacheFactoryTest extends Specification {
         PersistentCache cache = Mock()
 
         when:
-        def cache1 = factory.open(new File('dir1'), CacheUsage.ON, [:])
-        def cache2 = factory.open(new File('dir1').canonicalFile, CacheUsage.ON, [:])
+        def cache1 = factory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE)
+        def cache2 = factory.open(new File('dir1').canonicalFile, CacheUsage.ON, [:], IndexedCacheStorage.FILE)
 
         then:
-        1 * backingFactory.open(new File('dir1'), CacheUsage.ON, [:]) >> cache
+        1 * backingFactory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE) >> cache
         cache1 == cache2
     }
 
+    public void failsWhenCacheIsAlreadyOpenWithDifferentIndexedCacheStorage() {
+        PersistentCache cache = Mock()
+
+        when:
+        factory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE)
+        factory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.MAPPED_FILE)
+
+        then:
+        1 * backingFactory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE) >> cache
+        thrown(UnsupportedOperationException)
+    }
+
     public void closesCacheUsingBackingFactory() {
         PersistentCache cache = Mock()
 
         when:
-        factory.open(new File('dir1'), CacheUsage.ON, [:])
+        factory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE)
 
         then:
-        1 * backingFactory.open(new File('dir1'), CacheUsage.ON, [:]) >> cache
+        1 * backingFactory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE) >> cache
 
         when:
         factory.close(cache)
@@ -65,11 +77,11 @@ public class AutoCloseCacheFactoryTest extends Specification {
         PersistentCache cache = Mock()
 
         when:
-        factory.open(new File('dir1'), CacheUsage.ON, [:])
-        factory.open(new File('dir1'), CacheUsage.ON, [:])
+        factory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE)
+        factory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE)
 
         then:
-        1 * backingFactory.open(new File('dir1'), CacheUsage.ON, [:]) >> cache
+        1 * backingFactory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE) >> cache
 
         when:
         factory.close(cache)
@@ -84,12 +96,12 @@ public class AutoCloseCacheFactoryTest extends Specification {
         PersistentCache cache2 = Mock()
 
         when:
-        factory.open(new File('dir1'), CacheUsage.ON, [:])
-        factory.open(new File('dir2'), CacheUsage.ON, [:])
+        factory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE)
+        factory.open(new File('dir2'), CacheUsage.ON, [:], IndexedCacheStorage.FILE)
 
         then:
-        1 * backingFactory.open(new File('dir1'), CacheUsage.ON, [:]) >> cache1
-        1 * backingFactory.open(new File('dir2'), CacheUsage.ON, [:]) >> cache2
+        1 * backingFactory.open(new File('dir1'), CacheUsage.ON, [:], IndexedCacheStorage.FILE) >> cache1
+        1 * backingFactory.open(new File('dir2'), CacheUsage.ON, [:], IndexedCacheStorage.FILE) >> cache2
 
         when:
         factory.close()
@@ -29,7 +29,7 @@ class DefaultCacheFactoryTest extends Specification {
 
     public void createsCache() {
         when:
-        PersistentCache cache = factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'])
+        PersistentCache cache = factory.open(tmpDir.dir, CacheUsage.ON, [prop: 'value'], IndexedCacheStorage.FILE)
 
         then:
         cache instanceof DefaultPersistentDirectoryCache
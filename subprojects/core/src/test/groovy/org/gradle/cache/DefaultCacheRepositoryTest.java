@@ -68,7 +68,7 @@ public class DefaultCacheRepositoryTest {
     @Test
     public void createsGlobalCache() {
         context.checking(new Expectations() {{
-            one(cacheFactory).open(sharedCacheDir.file(version, "a/b/c"), CacheUsage.ON, Collections.EMPTY_MAP);
+            one(cacheFactory).open(sharedCacheDir.file(version, "a/b/c"), CacheUsage.ON, Collections.EMPTY_MAP, IndexedCacheStorage.FILE);
             will(returnValue(cache));
         }});
 
@@ -78,7 +78,7 @@ public class DefaultCacheRepositoryTest {
     @Test
     public void createsGlobalCacheWithProperties() {
         context.checking(new Expectations() {{
-            one(cacheFactory).open(sharedCacheDir.file(version, "a/b/c"), CacheUsage.ON, properties);
+            one(cacheFactory).open(sharedCacheDir.file(version, "a/b/c"), CacheUsage.ON, properties, IndexedCacheStorage.FILE);
             will(returnValue(cache));
         }});
 
@@ -90,7 +90,7 @@ public class DefaultCacheRepositoryTest {
 
         context.checking(new Expectations() {{
             one(cacheFactory).open(buildRootDir.file(".gradle", version, "a/b/c"), CacheUsage.ON,
-                    Collections.EMPTY_MAP);
+                    Collections.EMPTY_MAP, IndexedCacheStorage.FILE);
             will(returnValue(cache));
         }});
 
@@ -102,7 +102,7 @@ public class DefaultCacheRepositoryTest {
         final TestFile dir = tmpDir.createDir("otherDir");
 
         context.checking(new Expectations() {{
-            one(cacheFactory).open(dir.file(".gradle", version, "a/b/c"), CacheUsage.ON, Collections.EMPTY_MAP);
+            one(cacheFactory).open(dir.file(".gradle", version, "a/b/c"), CacheUsage.ON, Collections.EMPTY_MAP, IndexedCacheStorage.FILE);
             will(returnValue(cache));
         }});
 
@@ -113,7 +113,7 @@ public class DefaultCacheRepositoryTest {
     public void createsCrossVersionCache() {
         context.checking(new Expectations() {{
             one(cacheFactory).open(sharedCacheDir.file("noVersion", "a/b/c"), CacheUsage.ON, Collections.singletonMap(
-                    "gradle.version", version));
+                    "gradle.version", version), IndexedCacheStorage.FILE);
             will(returnValue(cache));
         }});
 
@@ -124,10 +124,20 @@ public class DefaultCacheRepositoryTest {
     public void createsCrossVersionCacheForAGradleInstance() {
         context.checking(new Expectations() {{
             one(cacheFactory).open(buildRootDir.file(".gradle", "noVersion", "a/b/c"), CacheUsage.ON,
-                    Collections.singletonMap("gradle.version", version));
+                    Collections.singletonMap("gradle.version", version), IndexedCacheStorage.FILE);
             will(returnValue(cache));
         }});
 
         assertThat(repository.cache("a/b/c").invalidateOnVersionChange().forObject(gradle).open(), sameInstance(cache));
     }
+
+    @Test
+    public void createsCacheWithMappedIndexedCacheStorage() {
+        context.checking(new Expectations() {{
+            one(cacheFactory).open(sharedCacheDir.file(version, "a/b/c"), CacheUsage.ON, Collections.EMPTY_MAP, IndexedCacheStorage.MAPPED_FILE);
+            will(returnValue(cache));
+        }});
+
+        assertThat(repository.cache("a/b/c").withIndexedCacheStorage(IndexedCacheStorage.MAPPED_FILE).open(), sameInstance(cache));
+    }
 }
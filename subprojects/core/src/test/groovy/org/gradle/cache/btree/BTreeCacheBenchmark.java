@@ -0,0 +1,124 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import org.gradle.CacheUsage;
+import org.gradle.cache.DefaultPersistentDirectoryCache;
+import org.gradle.cache.DefaultSerializer;
+
+import java.io.File;
+import java.util.*;
+
+/**
+ * Runs a mix of get, put and remove operations against a btree cache, for each combination of key count and index
+ * block size, and reports the throughput and the statistics of the cache. Run using the btreeCacheBenchmark task of
+ * the core project, so that the cache implementation of this source tree is measured.
+ *
+ * <p>Usage: BTreeCacheBenchmark baseDir [keyCounts [maxChildIndexEntries]], where keyCounts and
+ * maxChildIndexEntries are comma separated lists.</p>
+ */
+public class BTreeCacheBenchmark {
+    private static final int WARM_UP_OPERATIONS = 20000;
+    private static final int OPERATIONS = 200000;
+    private static final long SEED = 1234;
+    private final Map<String, int[]> mixes = new LinkedHashMap<String, int[]>();
+    private final File baseDir;
+    private final List<Integer> keyCounts;
+    private final List<Integer> maxChildIndexEntries;
+
+    public BTreeCacheBenchmark(File baseDir, List<Integer> keyCounts, List<Integer> maxChildIndexEntries) {
+        this.baseDir = baseDir;
+        this.keyCounts = keyCounts;
+        this.maxChildIndexEntries = maxChildIndexEntries;
+        // Percentage of get, put and remove operations in each mix
+        mixes.put("read-mostly", new int[]{90, 8, 2});
+        mixes.put("balanced", new int[]{50, 40, 10});
+        mixes.put("write-mostly", new int[]{10, 70, 20});
+    }
+
+    public static void main(String[] args) {
+        File baseDir = new File(args[0]);
+        List<Integer> keyCounts = args.length > 1 ? parse(args[1]) : Arrays.asList(10000, 100000, 1000000, 10000000);
+        List<Integer> maxChildIndexEntries = args.length > 2 ? parse(args[2]) : Arrays.asList(64, 512);
+        new BTreeCacheBenchmark(baseDir, keyCounts, maxChildIndexEntries).run();
+    }
+
+    private static List<Integer> parse(String values) {
+        List<Integer> result = new ArrayList<Integer>();
+        for (String value : values.split(",")) {
+            result.add(Integer.valueOf(value.trim()));
+        }
+        return result;
+    }
+
+    public void run() {
+        for (int keyCount : keyCounts) {
+            for (int indexEntries : maxChildIndexEntries) {
+                File cacheDir = new File(baseDir, String.format("cache-%s-%s", keyCount, indexEntries));
+                DefaultPersistentDirectoryCache backingCache = new DefaultPersistentDirectoryCache(cacheDir, CacheUsage.REBUILD, Collections.<String, Object>emptyMap());
+                BTreePersistentIndexedCache<String, Integer> cache = new BTreePersistentIndexedCache<String, Integer>(backingCache, new DefaultSerializer<Integer>(), (short) indexEntries, 512);
+                try {
+                    long start = System.nanoTime();
+                    populate(cache, keyCount);
+                    report("populate", keyCount, indexEntries, keyCount, System.nanoTime() - start);
+                    for (Map.Entry<String, int[]> mix : mixes.entrySet()) {
+                        Random random = new Random(SEED);
+                        runOperations(cache, keyCount, mix.getValue(), WARM_UP_OPERATIONS, random);
+                        start = System.nanoTime();
+                        runOperations(cache, keyCount, mix.getValue(), OPERATIONS, random);
+                        report(mix.getKey(), keyCount, indexEntries, OPERATIONS, System.nanoTime() - start);
+                    }
+                    System.out.println("  " + cache.getStatistics());
+                } finally {
+                    cache.close();
+                }
+            }
+        }
+    }
+
+    private void populate(BTreePersistentIndexedCache<String, Integer> cache, int keyCount) {
+        Map<String, Integer> batch = new HashMap<String, Integer>();
+        for (int i = 0; i < keyCount; i++) {
+            batch.put("key-" + i, i);
+            if (batch.size() == 10000) {
+                cache.putAll(batch);
+                batch.clear();
+            }
+        }
+        cache.putAll(batch);
+    }
+
+    private void runOperations(BTreePersistentIndexedCache<String, Integer> cache, int keyCount, int[] mix, int count, Random random) {
+        for (int i = 0; i < count; i++) {
+            int value = random.nextInt(keyCount);
+            String key = "key-" + value;
+            int operation = random.nextInt(100);
+            if (operation < mix[0]) {
+                cache.get(key);
+            } else if (operation < mix[0] + mix[1]) {
+                cache.put(key, value);
+            } else {
+                cache.remove(key);
+            }
+        }
+    }
+
+    private void report(String operation, int keyCount, int indexEntries, int count, long nanos) {
+        double seconds = nanos / 1000000000.0;
+        System.out.println(String.format("%-12s keys: %9d index entries: %4d operations: %9d time: %8.2fs throughput: %10.0f ops/s",
+                operation, keyCount, indexEntries, count, seconds, count / seconds));
+    }
+}
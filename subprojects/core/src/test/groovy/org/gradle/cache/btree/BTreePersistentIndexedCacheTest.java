@@ -16,6 +16,7 @@
 package org.gradle.cache.btree;
 
 import org.gradle.cache.DefaultSerializer;
+import org.gradle.cache.IndexedCacheStorage;
 import org.gradle.cache.PersistentCache;
 import org.gradle.cache.Serializer;
 import org.gradle.util.TestFile;
@@ -90,6 +91,64 @@ public class BTreePersistentIndexedCacheTest {
         cache.verify();
     }
     
+    @Test
+    public void persistsAddedEntriesUsingMappedFileStorage() {
+        cache.close();
+        cache = new BTreePersistentIndexedCache<String, Integer>(backingCache, serializer, (short) 4, 100, IndexedCacheStorage.MAPPED_FILE);
+
+        checkAdds(3, 2, 11, 5, 7, 1, 10, 8, 9, 4, 6, 0);
+        cache.verify();
+    }
+
+    @Test
+    public void persistsEntriesAddedInBulk() {
+        Map<String, Integer> entries = new HashMap<String, Integer>();
+        for (int i = 0; i < 50; i++) {
+            entries.put(String.format("key_%d", i), i);
+        }
+
+        cache.putAll(entries);
+
+        assertThat(cache.getAll(entries.keySet()), equalTo(entries));
+
+        cache.reset();
+
+        for (Map.Entry<String, Integer> entry : entries.entrySet()) {
+            assertThat(cache.get(entry.getKey()), equalTo(entry.getValue()));
+        }
+        cache.verify();
+    }
+
+    @Test
+    public void persistsEntriesReplacedInBulk() {
+        checkAdds(1, 2, 3, 4, 5);
+
+        Map<String, Integer> entries = new HashMap<String, Integer>();
+        entries.put("key_2", 12);
+        entries.put("key_4", 1400);
+        entries.put("key_6", 6);
+        cache.putAll(entries);
+
+        cache.reset();
+
+        assertThat(cache.get("key_1"), equalTo(1));
+        assertThat(cache.get("key_2"), equalTo(12));
+        assertThat(cache.get("key_4"), equalTo(1400));
+        assertThat(cache.get("key_6"), equalTo(6));
+        cache.verify();
+    }
+
+    @Test
+    public void getAllReturnsOnlyEntriesWhichExist() {
+        checkAdds(1, 2, 3);
+
+        Map<String, Integer> result = cache.getAll(Arrays.asList("key_3", "unknown", "key_1"));
+
+        assertThat(result.size(), equalTo(2));
+        assertThat(result.get("key_1"), equalTo(1));
+        assertThat(result.get("key_3"), equalTo(3));
+    }
+
     @Test
     public void persistsReplacedEntries() {
 
@@ -249,6 +308,31 @@ public class BTreePersistentIndexedCacheTest {
         cache.verify();
     }
 
+    @Test
+    public void collectsStatistics() {
+        checkAdds(1, 2, 3, 4, 5, 6, 7, 8);
+
+        BTreeStatistics statistics = cache.getStatistics();
+        assertThat(statistics.getCacheFile(), equalTo((File) tmpDir.getDir().file("cache.bin")));
+        assertThat(statistics.getLookups(), equalTo(24L));
+        assertThat(statistics.getAverageLookupDepth(), equalTo(1.625));
+        assertThat(statistics.getIndexCacheHits(), equalTo(35L));
+        assertThat(statistics.getIndexCacheMisses(), equalTo(4L));
+        assertThat(statistics.getBlockReads(), equalTo(24L));
+        assertThat(statistics.getFreeBlocks(), equalTo(0));
+        assertThat(statistics.getFileSize(), equalTo(tmpDir.getDir().file("cache.bin").length()));
+
+        cache.remove("key_1");
+        cache.remove("key_2");
+
+        statistics = cache.getStatistics();
+        assertThat(statistics.getLookups(), equalTo(26L));
+        assertThat(statistics.getBlockWrites(), equalTo(29L));
+        assertThat(statistics.getFreeBlocks(), equalTo(3));
+        assertThat(statistics.getFreeSpace(), equalTo(328L));
+        assertThat(statistics.getFragmentation(), greaterThan(0.0));
+    }
+
     @Test
     public void canUseFileAsKey() {
 
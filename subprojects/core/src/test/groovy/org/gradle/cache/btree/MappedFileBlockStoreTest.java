@@ -0,0 +1,209 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.cache.btree;
+
+import org.gradle.util.TemporaryFolder;
+import org.gradle.util.TestFile;
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.RandomAccessFile;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+
+public class MappedFileBlockStoreTest {
+    @Rule
+    public TemporaryFolder tmpDir = new TemporaryFolder();
+    private final TestFile cacheFile = tmpDir.getDir().file("cache.bin");
+    private final BlockStore.Factory factory = new BlockStore.Factory() {
+        public Object create(Class<? extends BlockPayload> type) {
+            return new TestBlock();
+        }
+    };
+    private final Runnable initAction = new Runnable() {
+        public void run() {
+        }
+    };
+
+    @Test
+    public void readsBlocksWhichSpanMultipleRegions() {
+        MappedFileBlockStore store = new MappedFileBlockStore(cacheFile, 16);
+        store.open(initAction, factory);
+
+        TestBlock block1 = new TestBlock("a value which is longer than a region");
+        TestBlock block2 = new TestBlock("another value");
+        write(store, block1);
+        write(store, block2);
+
+        assertThat(store.read(block1.getPos(), TestBlock.class).value, equalTo("a value which is longer than a region"));
+        assertThat(store.read(block2.getPos(), TestBlock.class).value, equalTo("another value"));
+
+        store.close();
+    }
+
+    @Test
+    public void persistsBlocksAndTruncatesFileOnClose() {
+        MappedFileBlockStore store = new MappedFileBlockStore(cacheFile, 1024);
+        store.open(initAction, factory);
+        TestBlock block = new TestBlock("value");
+        write(store, block);
+        long end = block.getNextPos().getPos();
+        store.close();
+
+        assertThat(cacheFile.length(), equalTo(end));
+
+        store = new MappedFileBlockStore(cacheFile, 1024);
+        store.open(initAction, factory);
+        assertThat(store.readFirst(TestBlock.class).value, equalTo("value"));
+        store.close();
+    }
+
+    @Test
+    public void recordsLengthInUseWhenFileCannotBeTruncated() {
+        MappedFileBlockStore store = new NonTruncatingStore(cacheFile);
+        store.open(initAction, factory);
+        TestBlock block1 = new TestBlock("value");
+        write(store, block1);
+        store.close();
+
+        long fileLength = cacheFile.length();
+        assertThat(fileLength, greaterThan(block1.getNextPos().getPos()));
+
+        store = new NonTruncatingStore(cacheFile);
+        store.open(initAction, factory);
+        assertThat(store.readFirst(TestBlock.class).value, equalTo("value"));
+        TestBlock block2 = new TestBlock("other");
+        write(store, block2);
+        assertThat(block2.getPos(), equalTo(block1.getNextPos()));
+        store.close();
+
+        assertThat(cacheFile.length(), equalTo(fileLength));
+
+        store = new MappedFileBlockStore(cacheFile, 1024);
+        store.open(initAction, factory);
+        assertThat(store.read(block2.getPos(), TestBlock.class).value, equalTo("other"));
+        store.close();
+
+        assertThat(cacheFile.length(), equalTo(block2.getNextPos().getPos()));
+    }
+
+    @Test
+    public void fileWithTrailerCanBeReadByFileBackedStore() {
+        MappedFileBlockStore store = new NonTruncatingStore(cacheFile);
+        store.open(initAction, factory);
+        write(store, new TestBlock("value"));
+        store.close();
+
+        FileBackedBlockStore fileStore = new FileBackedBlockStore(cacheFile);
+        fileStore.open(initAction, factory);
+        assertThat(fileStore.readFirst(TestBlock.class).value, equalTo("value"));
+        fileStore.close();
+    }
+
+    @Test
+    public void canReadBlocksWrittenByFileBackedStore() {
+        FileBackedBlockStore fileStore = new FileBackedBlockStore(cacheFile);
+        fileStore.open(initAction, factory);
+        write(fileStore, new TestBlock("value"));
+        fileStore.close();
+
+        MappedFileBlockStore store = new MappedFileBlockStore(cacheFile, 16);
+        store.open(initAction, factory);
+        assertThat(store.readFirst(TestBlock.class).value, equalTo("value"));
+        store.close();
+    }
+
+    @Test
+    public void clearDiscardsAllBlocks() {
+        MappedFileBlockStore store = new MappedFileBlockStore(cacheFile, 16);
+        store.open(initAction, factory);
+        write(store, new TestBlock("value"));
+
+        store.clear();
+        TestBlock block = new TestBlock("other");
+        write(store, block);
+        assertThat(block.getPos().getPos(), equalTo(0L));
+        store.close();
+
+        assertThat(cacheFile.length(), equalTo(block.getNextPos().getPos()));
+    }
+
+    @Test
+    public void detectsCorruptedBlock() {
+        MappedFileBlockStore store = new MappedFileBlockStore(cacheFile, 16);
+        store.open(initAction, factory);
+        write(store, new TestBlock("value"));
+
+        try {
+            store.read(new BlockPointer(4), TestBlock.class);
+            fail();
+        } catch (CorruptedCacheException e) {
+            // expected
+        }
+        store.close();
+    }
+
+    private void write(BlockStore store, TestBlock block) {
+        store.attach(block);
+        store.write(block);
+    }
+
+    private static class NonTruncatingStore extends MappedFileBlockStore {
+        private NonTruncatingStore(File cacheFile) {
+            super(cacheFile, 1024);
+        }
+
+        @Override
+        boolean truncate(RandomAccessFile file, long length) {
+            return false;
+        }
+    }
+
+    private static class TestBlock extends BlockPayload {
+        private String value;
+
+        private TestBlock() {
+        }
+
+        private TestBlock(String value) {
+            this.value = value;
+        }
+
+        @Override
+        protected int getSize() {
+            return Block.SHORT_SIZE + value.length();
+        }
+
+        @Override
+        protected int getType() {
+            return 0x44;
+        }
+
+        @Override
+        protected void read(DataInputStream inputStream) throws Exception {
+            value = inputStream.readUTF();
+        }
+
+        @Override
+        protected void write(DataOutputStream outputStream) throws Exception {
+            outputStream.writeUTF(value);
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.gradle.api.tasks.TaskExecutionException;
 import org.gradle.api.tasks.TaskState;
 import org.gradle.listener.ListenerBroadcast;
 import org.gradle.listener.ListenerManager;
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
 import org.gradle.util.TestClosure;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JMock;
@@ -39,8 +40,12 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.gradle.util.HelperUtil.*;
 import static org.gradle.util.WrapUtil.*;
@@ -57,7 +62,7 @@ public class DefaultTaskGraphExecuterTest {
     private final ListenerManager listenerManager = context.mock(ListenerManager.class);
     TaskGraphExecuter taskExecuter;
     ProjectInternal root;
-    List<Task> executedTasks = new ArrayList<Task>();
+    List<Task> executedTasks = Collections.synchronizedList(new ArrayList<Task>());
 
     @Before
     public void setUp() {
@@ -385,6 +390,92 @@ public class DefaultTaskGraphExecuterTest {
         assertThat(taskExecuter.getAllTasks(), equalTo(toList(b, c)));
     }
 
+    @Test
+    public void testExecutesTasksInDependencyOrderWhenExecutingInParallel() {
+        Task a = createTask("a");
+        Task b = createTask("b", a);
+        Task c = createTask("c", a);
+        Task d = createTask("d", b, c);
+
+        createParallelExecuter().execute(toList(d));
+
+        assertThat(executedTasks.size(), equalTo(4));
+        assertThat(executedTasks.get(0), sameInstance(a));
+        assertThat(new HashSet<Task>(executedTasks.subList(1, 3)), equalTo(toSet(b, c)));
+        assertThat(executedTasks.get(3), sameInstance(d));
+    }
+
+    @Test
+    public void testExecutesBatchesInOrderAddedWhenExecutingInParallel() {
+        Task a = createTask("a");
+        Task b = createTask("b");
+        Task c = createTask("c");
+        Task d = createTask("d");
+
+        TaskGraphExecuter parallelExecuter = createParallelExecuter();
+        parallelExecuter.addTasks(toList(c, b));
+        parallelExecuter.addTasks(toList(d, a));
+        parallelExecuter.execute();
+
+        assertThat(executedTasks.size(), equalTo(4));
+        assertThat(new HashSet<Task>(executedTasks.subList(0, 2)), equalTo(toSet(b, c)));
+        assertThat(new HashSet<Task>(executedTasks.subList(2, 4)), equalTo(toSet(a, d)));
+    }
+
+    @Test
+    public void testExecutesIndependentTasksConcurrently() {
+        final CountDownLatch latch = new CountDownLatch(2);
+        Action<Task> action = new Action<Task>() {
+            public void execute(Task task) {
+                latch.countDown();
+                try {
+                    assertTrue(latch.await(20, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+        Task a = createTask("a");
+        a.doLast(action);
+        Task b = createTask("b");
+        b.doLast(action);
+
+        createParallelExecuter().execute(toList(a, b));
+
+        assertThat(new HashSet<Task>(executedTasks), equalTo(toSet(a, b)));
+    }
+
+    @Test
+    public void testStopsExecutingTasksWhenTaskFailsWhenExecutingInParallel() {
+        final RuntimeException failure = new RuntimeException();
+        final Task a = createTask("a");
+        a.doLast(new Action<Task>() {
+            public void execute(Task task) {
+                throw failure;
+            }
+        });
+        Task b = createTask("b", a);
+
+        try {
+            createParallelExecuter().execute(toList(b));
+            fail();
+        } catch (TaskExecutionException e) {
+            assertThat(e.getCause(), sameInstance((Throwable) failure));
+        }
+
+        assertThat(executedTasks, equalTo(toList(a)));
+    }
+
+    private TaskGraphExecuter createParallelExecuter() {
+        context.checking(new Expectations(){{
+            one(listenerManager).createAnonymousBroadcaster(TaskExecutionGraphListener.class);
+            will(returnValue(new ListenerBroadcast<TaskExecutionGraphListener>(TaskExecutionGraphListener.class)));
+            one(listenerManager).createAnonymousBroadcaster(TaskExecutionListener.class);
+            will(returnValue(new ListenerBroadcast<TaskExecutionListener>(TaskExecutionListener.class)));
+        }});
+        return new DefaultTaskGraphExecuter(listenerManager, new DefaultExecutorFactory(), 4);
+    }
+
     private Task createTask(String name, final Task... dependsOn) {
         final TaskInternal task = AbstractTask.injectIntoNewInstance(root, name, new Callable<TaskInternal>() {
             public TaskInternal call() throws Exception {
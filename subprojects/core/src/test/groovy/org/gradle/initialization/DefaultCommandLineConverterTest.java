@@ -65,6 +65,8 @@ public class DefaultCommandLineConverterTest {
     private boolean expectedColorOutput = true;
     private StartParameter actualStartParameter;
     private boolean expectedProfile;
+    private int expectedParallelThreadCount;
+    private int expectedHashingThreadCount;
 
     private final DefaultCommandLineConverter commandLineConverter = new DefaultCommandLineConverter();
 
@@ -96,6 +98,8 @@ public class DefaultCommandLineConverterTest {
         assertEquals(expectedExcludedTasks, startParameter.getExcludedTaskNames());
         assertEquals(expectedInitScripts, startParameter.getInitScripts());
         assertEquals(expectedProfile, startParameter.isProfile());
+        assertEquals(expectedParallelThreadCount, startParameter.getParallelThreadCount());
+        assertEquals(expectedHashingThreadCount, startParameter.getHashingThreadCount());
     }
 
     private void checkConversion(final boolean embedded, String... args) {
@@ -346,6 +350,28 @@ public class DefaultCommandLineConverterTest {
         checkConversion("--profile");
     }
 
+    @Test
+    public void withParallelThreads() {
+        expectedParallelThreadCount = 4;
+        checkConversion("--parallel-threads", "4");
+    }
+
+    @Test(expected = CommandLineArgumentException.class)
+    public void withInvalidParallelThreads() {
+        checkConversion("--parallel-threads", "many");
+    }
+
+    @Test
+    public void withHashingThreads() {
+        expectedHashingThreadCount = 2;
+        checkConversion("--hashing-threads", "2");
+    }
+
+    @Test(expected = CommandLineArgumentException.class)
+    public void withInvalidHashingThreads() {
+        checkConversion("--hashing-threads", "0");
+    }
+
     @Test(expected = CommandLineArgumentException.class)
     public void withUnknownOption() {
         checkConversion("--unknown");
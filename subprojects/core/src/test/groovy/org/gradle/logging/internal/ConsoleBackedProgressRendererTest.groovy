@@ -203,4 +203,22 @@ class ConsoleBackedProgressRendererTest extends OutputSpecification {
         1 * statusBar.setText('')
         0 * statusBar._
     }
+
+    def statusBarTracksConcurrentOperationsWhichCompleteOutOfOrder() {
+        when:
+        renderer.onOutput(new ProgressStartEvent(1, tenAm, 'category', 'description', 'a', null, null))
+        renderer.onOutput(new ProgressStartEvent(2, tenAm, 'category', 'description', 'b', null, null))
+
+        then:
+        1 * statusBar.setText('> a')
+        1 * statusBar.setText('> a > b')
+        0 * statusBar._
+
+        when:
+        renderer.onOutput(new ProgressCompleteEvent(1, tenAm, 'category', 'complete'))
+
+        then:
+        1 * statusBar.setText('> b')
+        0 * statusBar._
+    }
 }
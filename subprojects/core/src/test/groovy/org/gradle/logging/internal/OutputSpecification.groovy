@@ -21,6 +21,9 @@ import org.gradle.util.TextUtil
 import java.text.SimpleDateFormat
 
 class OutputSpecification extends Specification {
+    private final LinkedList<Long> operations = new LinkedList<Long>()
+    private long nextOperationId
+
     protected String toNative(String value) {
         return TextUtil.toPlatformLineSeparators(value)
     }
@@ -57,19 +60,28 @@ class OutputSpecification extends Specification {
         return new LogEvent(tenAm, 'category', LogLevel.INFO, text, throwable)
     }
 
+    /**
+     * Creates a start event for a new operation, nested in the operation which was most recently started and not
+     * completed.
+     */
     ProgressStartEvent start(String description) {
-        return new ProgressStartEvent(tenAm, 'category', description, null, null, null)
+        return start(description: description)
     }
 
     ProgressStartEvent start(Map args) {
-        return new ProgressStartEvent(tenAm, 'category', args.description, args.shortDescription, args.loggingHeader, args.status)
+        long id = ++nextOperationId
+        operations.addLast(id)
+        return new ProgressStartEvent(id, tenAm, 'category', args.description, args.shortDescription, args.loggingHeader, args.status)
     }
 
     ProgressEvent progress(String status) {
-        return new ProgressEvent(tenAm, 'category', status)
+        return new ProgressEvent(operations.last, tenAm, 'category', status)
     }
 
+    /**
+     * Creates a complete event for the operation which was most recently started and not completed.
+     */
     ProgressCompleteEvent complete(String status) {
-        return new ProgressCompleteEvent(tenAm, 'category', status)
+        return new ProgressCompleteEvent(operations.removeLast(), tenAm, 'category', status)
     }
 }
@@ -82,6 +82,30 @@ public class AsyncDispatchTest extends MultithreadedTestCase {
         dispatch.stop()
     }
 
+    @Test
+    public void dispatchesMessagesQueuedDuringPreviousBatchAsSingleBatch() {
+        BatchDispatch<String> target = context.mock(BatchDispatch.class)
+        context.checking {
+            one(target).dispatchAll(['message1'])
+            will {
+                syncAt(1)
+                syncAt(2)
+            }
+            one(target).dispatchAll(['message2', 'message3'])
+        }
+
+        run {
+            dispatch.dispatchBatchesTo(target)
+            dispatch.dispatch('message1')
+            syncAt(1)
+            dispatch.dispatch('message2')
+            dispatch.dispatch('message3')
+            syncAt(2)
+        }
+
+        dispatch.stop()
+    }
+
     @Test
     public void canStopFromMultipleThreads() {
         dispatch.dispatchTo(target1)
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.messaging.remote.internal
+
+import spock.lang.Specification
+
+class DefaultMessageSerializerTest extends Specification {
+    final DefaultMessageSerializer serializer = new DefaultMessageSerializer()
+    final ByteArrayOutputStream outputStream = new ByteArrayOutputStream()
+    final MessageSerializer.Writer writer = serializer.newWriter(outputStream)
+
+    def "can transport registered types"() {
+        def method = new MethodMetaInfo(String.class, String.class.getMethod('substring', int.class))
+
+        expect:
+        transport('some text') == 'some text'
+        transport('') == ''
+        transport(12) == 12
+        transport(-12L) == -12L
+        transport(true) == true
+        transport(null) == null
+        transport(['a', 1, null] as Object[]) == ['a', 1, null] as Object[]
+        transport(new EndOfStreamEvent()) instanceof EndOfStreamEvent
+
+        def channelMessage = transport(new ChannelMessage(1, 'payload'))
+        channelMessage.channel == 1
+        channelMessage.payload == 'payload'
+
+        def metaInfo = transport(new ChannelMetaInfo('channel', 4))
+        metaInfo.channelKey == 'channel'
+        metaInfo.channelId == 4
+
+        def invocation = transport(new RemoteMethodInvocation(2L, [1, 'a'] as Object[]))
+        invocation.key == 2L
+        invocation.arguments == [1, 'a'] as Object[]
+
+        transport(new ChannelMessage(1, method)).payload == method
+    }
+
+    def "uses java serialization for other types"() {
+        expect:
+        transport(new ChannelMessage(1, [a: [1, 2]])).payload == [a: [1, 2]]
+        transport(new ChannelMessage(1, new TestPayload(value: 'a'))).payload.value == 'a'
+    }
+
+    def "can transport many messages over a single stream"() {
+        when:
+        writer.write(new ChannelMessage(1, new TestPayload(value: 'a')))
+        writer.write('text')
+        writer.write(new ChannelMessage(1, new TestPayload(value: 'b')))
+        writer.write(new RemoteMethodInvocation(1, [new TestPayload(value: 'c')] as Object[]))
+        writer.flush()
+        def reader = newReader()
+
+        then:
+        reader.read().payload.value == 'a'
+        reader.read() == 'text'
+        reader.read().payload.value == 'b'
+        reader.read().arguments[0].value == 'c'
+
+        when:
+        reader.read()
+
+        then:
+        thrown(EOFException)
+    }
+
+    def "writes class descriptor only once for each connection"() {
+        when:
+        writer.write(new TestPayload(value: 'a'))
+        writer.flush()
+        def firstSize = outputStream.size()
+        writer.write(new TestPayload(value: 'a'))
+        writer.flush()
+        def secondSize = outputStream.size() - firstSize
+
+        then:
+        secondSize < firstSize / 2
+
+        and:
+        def reader = newReader()
+        reader.read().value == 'a'
+        reader.read().value == 'a'
+    }
+
+    def "discards a message which cannot be written"() {
+        when:
+        writer.write('before')
+        writer.write(new ChannelMessage(1, new TestPayload(value: new Object())))
+
+        then:
+        thrown(NotSerializableException)
+
+        when:
+        writer.write(new ChannelMessage(1, new TestPayload(value: 'a')))
+        writer.write(new ChannelMessage(1, new TestPayload(value: 'b')))
+        writer.flush()
+        def reader = newReader()
+
+        then:
+        reader.read() == 'before'
+        reader.read().payload.value == 'a'
+        reader.read().payload.value == 'b'
+    }
+
+    def "replaces unserializable exceptions with placeholder"() {
+        def original = new UnserializableException("message", new RuntimeException("nested"))
+
+        when:
+        def transported = transport(new ChannelMessage(1, original)).payload
+
+        then:
+        transported instanceof PlaceholderException
+        transported.message == UnserializableException.class.name + ": " + original.message
+        transported.stackTrace == original.stackTrace
+        transported.cause.class == RuntimeException
+        transported.cause.message == "nested"
+    }
+
+    def "can register additional types"() {
+        serializer.register(TestPayload, new DefaultMessageSerializer.TypeSerializer<TestPayload>() {
+            void write(DefaultMessageSerializer.Encoder encoder, TestPayload value) {
+                encoder.writeValue(value.value)
+            }
+
+            TestPayload read(DefaultMessageSerializer.Decoder decoder) {
+                return new TestPayload(value: decoder.readValue())
+            }
+        })
+
+        expect:
+        transport(new TestPayload(value: 'a')).value == 'a'
+    }
+
+    def "cannot register a type twice"() {
+        when:
+        serializer.register(String, Mock(DefaultMessageSerializer.TypeSerializer))
+
+        then:
+        thrown(IllegalArgumentException)
+    }
+
+    private Object transport(Object message) {
+        outputStream.reset()
+        def writer = serializer.newWriter(outputStream)
+        writer.write(message)
+        writer.flush()
+        return newReader().read()
+    }
+
+    private MessageSerializer.Reader newReader() {
+        return serializer.newReader(new ByteArrayInputStream(outputStream.toByteArray()), getClass().classLoader)
+    }
+}
+
+class TestPayload implements Serializable {
+    Object value
+}
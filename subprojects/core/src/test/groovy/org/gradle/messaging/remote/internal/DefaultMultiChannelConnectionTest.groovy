@@ -24,8 +24,10 @@ import org.gradle.messaging.dispatch.Dispatch
 import org.gradle.util.JUnit4GroovyMockery
 import org.gradle.util.MultithreadedTestCase
 import org.jmock.integration.junit4.JMock
+import org.junit.Before
 import org.junit.Test
 import org.junit.runner.RunWith
+import static org.hamcrest.Matchers.*
 
 @RunWith(JMock.class)
 public class DefaultMultiChannelConnectionTest extends MultithreadedTestCase {
@@ -34,6 +36,16 @@ public class DefaultMultiChannelConnectionTest extends MultithreadedTestCase {
     private final TestMessage message = new TestMessage()
     private DefaultMultiChannelConnection connection
 
+    @Before
+    public void setup() {
+        context.checking {
+            allowing(target).dispatchAll(withParam(notNullValue()))
+            will { List messages ->
+                messages.each { target.dispatch(it) }
+            }
+        }
+    }
+
     @Test
     public void dispatchesOutgoingMessageToTargetConnection() {
         clockTick(1).hasParticipants(2)
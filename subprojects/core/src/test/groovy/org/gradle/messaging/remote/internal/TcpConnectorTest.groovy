@@ -16,8 +16,11 @@
 package org.gradle.messaging.remote.internal
 
 import org.gradle.api.Action
+import org.gradle.api.GradleException
+import org.gradle.messaging.remote.ConnectEvent
 import org.gradle.util.MultithreadedTestCase
 import org.junit.Test
+import static org.hamcrest.Matchers.*
 import static org.junit.Assert.*
 
 class TcpConnectorTest extends MultithreadedTestCase {
@@ -36,6 +39,33 @@ class TcpConnectorTest extends MultithreadedTestCase {
         incomingConnector.requestStop()
     }
 
+    @Test
+    public void writesRemainingMessagesOfBatchWhenOneMessageCannotBeWritten() {
+        TcpOutgoingConnector outgoingConnector = new TcpOutgoingConnector(getClass().classLoader)
+        TcpIncomingConnector incomingConnector = new TcpIncomingConnector(executorFactory, getClass().classLoader)
+        def received = []
+
+        Action action = { ConnectEvent event ->
+            received << event.connection.receive()
+            received << event.connection.receive()
+            syncAt(1)
+        } as Action
+        def address = incomingConnector.accept(action)
+
+        def connection = outgoingConnector.connect(address)
+        try {
+            connection.dispatchAll(['message1', new Object(), 'message2'])
+            fail()
+        } catch (GradleException e) {
+            assertThat(e.cause, instanceOf(NotSerializableException))
+        }
+        run { syncAt(1) }
+
+        assertThat(received, equalTo(['message1', 'message2']))
+        connection.stop()
+        incomingConnector.requestStop()
+    }
+
     @Test
     public void outgoingConnectorThrowsConnectExceptionWhenCannotConnect() {
         TcpOutgoingConnector outgoingConnector = new TcpOutgoingConnector(getClass().classLoader)
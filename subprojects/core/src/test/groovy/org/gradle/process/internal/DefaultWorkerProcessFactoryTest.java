@@ -32,6 +32,7 @@ import org.jmock.integration.junit4.JUnit4Mockery;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.ObjectInputStream;
 import java.io.Serializable;
@@ -91,6 +92,42 @@ public class DefaultWorkerProcessFactoryTest {
         assertThat(instr.readObject(), instanceOf(IsolatedApplicationClassLoaderWorker.class));
     }
 
+    @Test
+    public void createsAReusableWorkerProcessWhichRunsInThePool() throws Exception {
+        final Set<File> processClassPath = Collections.singleton(new File("something.jar"));
+        DefaultWorkerProcessFactory factory = new DefaultWorkerProcessFactory(LogLevel.LIFECYCLE, messagingServer,
+                classPathRegistry, fileResolver, idGenerator, new WorkerProcessPool(messagingServer));
+
+        context.checking(new Expectations() {{
+            one(classPathRegistry).getClassPathFiles("WORKER_PROCESS");
+            will(returnValue(processClassPath));
+            allowing(fileResolver).resolveLater(".");
+            allowing(fileResolver).resolveFiles(with(Matchers.<Object>notNullValue()));
+            will(returnValue(new SimpleFileCollection()));
+        }});
+
+        WorkerProcessBuilder builder = factory.create();
+        builder.worker(new TestAction());
+        builder.applicationClasspath(Arrays.asList(new File("app.jar")));
+        builder.setReusable(true);
+
+        final URI serverAddress = new URI("test:something");
+
+        context.checking(new Expectations(){{
+            one(messagingServer).accept(with(notNullValue(Action.class)));
+            will(returnValue(serverAddress));
+            one(idGenerator).generateId();
+            will(returnValue("<id>"));
+        }});
+
+        WorkerProcess process = builder.build();
+
+        assertThat(process, instanceOf(PooledWorkerProcess.class));
+
+        ObjectInputStream instr = new ObjectInputStream(new ByteArrayInputStream(((PooledWorkerProcess) process).getSerializedJob()));
+        assertThat(instr.readObject(), instanceOf(IsolatedApplicationClassLoaderWorker.class));
+    }
+
     private static class TestAction implements Action<WorkerProcessContext>, Serializable {
         public void execute(WorkerProcessContext workerProcessContext) {
             throw new UnsupportedOperationException();
@@ -160,6 +160,40 @@ class DefaultWorkerProcessTest extends MultithreadedTestCase {
         workerProcess.waitForStop()
     }
 
+    @Test
+    public void runsStopActionsWhenChildProcessStops() {
+        def listener = expectAttachesListener()
+        ExecResult execResult = context.mock(ExecResult.class)
+        Runnable action1 = context.mock(Runnable.class, 'action1')
+        Runnable action2 = context.mock(Runnable.class, 'action2')
+
+        context.checking {
+            one(execHandle).start()
+            will {
+                workerProcess.getConnectAction().execute(new ConnectEvent<ObjectConnection>(connection, null, null))
+            }
+        }
+
+        workerProcess.start()
+        workerProcess.whenStopped(action1)
+
+        context.checking {
+            allowing(execResult).rethrowFailure()
+            will(returnValue(execResult))
+            allowing(execResult).assertNormalExitValue()
+            will(returnValue(execResult))
+            one(action1).run()
+        }
+
+        listener.executionFinished(execHandle, execResult)
+
+        context.checking {
+            one(action2).run()
+        }
+
+        workerProcess.whenStopped(action2)
+    }
+
     private ExecHandleListener expectAttachesListener() {
         ExecHandleListener listener
         context.checking {
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gradle.process.internal.child;
+
+import org.gradle.messaging.remote.MessagingClient;
+import org.gradle.messaging.remote.ObjectConnection;
+import org.gradle.util.GUtil;
+import org.hamcrest.Description;
+import org.jmock.Expectations;
+import org.jmock.Sequence;
+import org.jmock.api.Action;
+import org.jmock.api.Invocation;
+import org.jmock.integration.junit4.JMock;
+import org.jmock.integration.junit4.JUnit4Mockery;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.Serializable;
+import java.util.concurrent.Callable;
+
+import static org.hamcrest.Matchers.*;
+
+@RunWith(JMock.class)
+public class ReusableWorkerTest {
+    private final JUnit4Mockery context = new JUnit4Mockery();
+    private final MessagingClient client = context.mock(MessagingClient.class);
+    private final ObjectConnection connection = context.mock(ObjectConnection.class);
+    private final WorkerJobListener listener = context.mock(WorkerJobListener.class);
+    private final ReusableWorker worker = new ReusableWorker(null) {
+        @Override
+        MessagingClient createClient() {
+            return client;
+        }
+    };
+
+    @Test
+    public void executesEachJobUntilStopped() throws Exception {
+        final Sequence sequence = context.sequence("jobs");
+
+        context.checking(new Expectations() {{
+            allowing(client).getConnection();
+            will(returnValue(connection));
+
+            one(connection).addIncoming(with(equalTo(WorkerJobExecutor.class)), with(notNullValue(WorkerJobExecutor.class)));
+            will(sendJobs(new SucceedingJob(), new FailingJob()));
+
+            one(connection).addOutgoing(WorkerJobListener.class);
+            will(returnValue(listener));
+
+            one(listener).jobCompleted(null);
+            inSequence(sequence);
+
+            one(listener).jobCompleted(with(instanceOf(UnsupportedOperationException.class)));
+            inSequence(sequence);
+
+            one(client).stop();
+            inSequence(sequence);
+        }});
+
+        worker.call();
+    }
+
+    private Action sendJobs(final Callable<?>... jobs) {
+        return new Action() {
+            public Object invoke(Invocation invocation) throws Throwable {
+                WorkerJobExecutor executor = (WorkerJobExecutor) invocation.getParameter(1);
+                for (Callable<?> job : jobs) {
+                    executor.execute(GUtil.serialize(job));
+                }
+                executor.stop();
+                return null;
+            }
+
+            public void describeTo(Description description) {
+                description.appendText("send jobs");
+            }
+        };
+    }
+
+    private static class SucceedingJob implements Callable<Object>, Serializable {
+        public Object call() throws Exception {
+            return null;
+        }
+    }
+
+    private static class FailingJob implements Callable<Object>, Serializable {
+        public Object call() throws Exception {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
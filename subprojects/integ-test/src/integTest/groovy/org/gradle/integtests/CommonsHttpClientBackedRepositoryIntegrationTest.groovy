@@ -0,0 +1,176 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.integtests
+
+import javax.servlet.http.HttpServletRequest
+import javax.servlet.http.HttpServletResponse
+import org.gradle.api.internal.artifacts.repositories.CommonsHttpClientBackedRepository
+import org.gradle.integtests.fixtures.HttpServer
+import org.gradle.util.TemporaryFolder
+import org.junit.Before
+import org.junit.Rule
+import org.junit.Test
+import org.mortbay.jetty.handler.AbstractHandler
+import static org.hamcrest.Matchers.*
+import static org.junit.Assert.*
+
+class CommonsHttpClientBackedRepositoryIntegrationTest {
+    @Rule public final HttpServer server = new HttpServer()
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    private final List<Map<String, String>> requests = Collections.synchronizedList([])
+    private final long lastModified = 1000000000000
+    private boolean headSupported = true
+
+    @Before
+    public void setup() {
+        server.allow('/repo', true, new AbstractHandler() {
+            void handle(String target, HttpServletRequest request, HttpServletResponse response, int dispatch) {
+                requests << [method: request.method, path: request.pathInfo, ifNoneMatch: request.getHeader('If-None-Match'), ifModifiedSince: request.getHeader('If-Modified-Since')]
+                if (request.pathInfo.endsWith('/')) {
+                    response.contentType = 'text/html'
+                    response.writer.print('<html><body><a href="../">Parent</a> <a href="a.jar">a.jar</a> <a href="b.jar">b.jar</a></body></html>')
+                    return
+                }
+                if (request.pathInfo.contains('missing')) {
+                    response.sendError(404, "'$target' does not exist")
+                    return
+                }
+                if (request.method == 'HEAD' && !headSupported) {
+                    response.sendError(405, 'HEAD is not supported')
+                    return
+                }
+                if (request.getHeader('If-None-Match') == '"v1"') {
+                    response.status = 304
+                    return
+                }
+                response.setHeader('ETag', '"v1"')
+                response.setDateHeader('Last-Modified', lastModified)
+                response.setContentLength(7)
+                response.outputStream.bytes = 'content'.bytes
+            }
+        })
+        server.start()
+    }
+
+    @Test
+    public void getsAResourceWhichHasNotBeenSeenBeforeWithASingleGet() {
+        def repository = new CommonsHttpClientBackedRepository(null, null)
+        def file = tmpDir.file('a.jar')
+
+        def resource = repository.getResource(url('/repo/a.jar'))
+        repository.get(url('/repo/a.jar'), file)
+
+        assertTrue(resource.exists())
+        assertThat(resource.lastModified, equalTo(lastModified))
+        assertThat(resource.contentLength, equalTo(7L))
+        file.assertContents(equalTo('content'))
+        assertThat(requests, equalTo([[method: 'GET', path: '/repo/a.jar', ifNoneMatch: null, ifModifiedSince: null]]))
+    }
+
+    @Test
+    public void revalidatesAResourceWhichHasBeenSeenBeforeWithAConditionalHead() {
+        def repository = new CommonsHttpClientBackedRepository(null, null)
+        repository.getResource(url('/repo/a.jar'))
+        requests.clear()
+
+        def resource = repository.getResource(url('/repo/a.jar'))
+
+        assertTrue(resource.exists())
+        assertThat(resource.lastModified, equalTo(lastModified))
+        assertThat(requests.size(), equalTo(1))
+        assertThat(requests[0].method, equalTo('HEAD'))
+        assertThat(requests[0].ifNoneMatch, equalTo('"v1"'))
+        assertThat(requests[0].ifModifiedSince, notNullValue())
+    }
+
+    @Test
+    public void revalidatesWithAConditionalGetWhenServerDoesNotSupportHead() {
+        headSupported = false
+        def repository = new CommonsHttpClientBackedRepository(null, null)
+        repository.getResource(url('/repo/a.jar'))
+        requests.clear()
+
+        def resource = repository.getResource(url('/repo/a.jar'))
+
+        assertTrue(resource.exists())
+        assertThat(resource.lastModified, equalTo(lastModified))
+        assertThat(requests*.method, equalTo(['HEAD', 'GET']))
+        assertThat(requests[1].ifNoneMatch, equalTo('"v1"'))
+    }
+
+    @Test
+    public void doesNotRevalidateAResourceWithinTheCacheTimeout() {
+        def repository = new CommonsHttpClientBackedRepository(null, null, null, 60000)
+
+        repository.getResource(url('/repo/a.jar'))
+        def resource = repository.getResource(url('/repo/a.jar'))
+
+        assertTrue(resource.exists())
+        assertThat(requests*.method, equalTo(['GET']))
+    }
+
+    @Test
+    public void reportsMissingResource() {
+        def repository = new CommonsHttpClientBackedRepository(null, null)
+
+        assertFalse(repository.getResource(url('/repo/missing.jar')).exists())
+        assertThat(requests*.method, equalTo(['GET']))
+    }
+
+    @Test(timeout = 60000L)
+    public void releasesConnectionsOfResponsesWhichAreNotDownloaded() {
+        // Uses more connections than the pool holds, so this hangs if a connection is not released
+        def repository = new CommonsHttpClientBackedRepository(null, null)
+        def file = tmpDir.file('a.jar')
+
+        30.times { assertTrue(repository.getResource(url("/repo/a${it}.jar")).exists()) }
+        30.times { assertTrue(repository.getResource(url("/repo/a${it}.jar")).exists()) }
+        30.times { assertFalse(repository.getResource(url("/repo/missing${it}.jar")).exists()) }
+        30.times { repository.get(url("/repo/a${it}.jar"), file) }
+
+        assertThat(requests.size(), equalTo(120))
+        file.assertContents(equalTo('content'))
+    }
+
+    @Test
+    public void listsResourcesInDirectory() {
+        def repository = new CommonsHttpClientBackedRepository(null, null)
+
+        def resources = repository.list(url('/repo/dir/'))
+
+        assertThat(resources, equalTo([url('/repo/dir/a.jar'), url('/repo/dir/b.jar')]))
+    }
+
+    @Test
+    public void usesProxyFromSystemProperties() {
+        def properties = new Properties()
+        properties.putAll(System.properties)
+        try {
+            System.setProperty('http.proxyHost', 'localhost')
+            System.setProperty('http.proxyPort', String.valueOf(server.port))
+            def repository = new CommonsHttpClientBackedRepository(null, null)
+
+            assertTrue(repository.getResource('http://unknown.host.invalid/repo/a.jar').exists())
+            assertThat(requests*.path, equalTo(['/repo/a.jar']))
+        } finally {
+            System.properties = properties
+        }
+    }
+
+    private String url(String path) {
+        return "http://localhost:${server.port}$path"
+    }
+}
@@ -68,6 +68,23 @@ class IncrementalJavaCompileIntegrationTest {
         failure.assertHasDescription("Execution failed for task ':app:compileJava'.");
     }
 
+    @Test
+    public void recompilesDependentClassesAcrossProjectBoundariesUsingIncrementalCompile() {
+        resources.maybeCopy('IncrementalJavaCompileIntegrationTest/recompilesDependentClassesAcrossProjectBoundaries')
+        distribution.testFile('build.gradle').text += '''
+            subprojects {
+                compileJava.options.incremental = true
+            }
+'''
+        executer.withTasks("app:classes").run();
+
+        // Update interface, compile should fail
+        distribution.testFile('lib/src/main/java/IPerson.java').assertIsFile().copyFrom(distribution.testFile('NewIPerson.java'))
+
+        ExecutionFailure failure = executer.withTasks("app:classes").runWithFailure();
+        failure.assertHasDescription("Execution failed for task ':app:compileJava'.");
+    }
+
     @Test
     public void recompilesDependentClassesWhenUsingAntDepend() {
         distribution.testFile("build.gradle").writelns(
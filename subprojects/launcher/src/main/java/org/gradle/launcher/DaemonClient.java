@@ -15,6 +15,7 @@
  */
 package org.gradle.launcher;
 
+import org.gradle.api.GradleException;
 import org.gradle.api.logging.Logger;
 import org.gradle.api.logging.Logging;
 import org.gradle.initialization.BuildClientMetaData;
@@ -24,6 +25,8 @@ import org.gradle.logging.internal.OutputEvent;
 import org.gradle.logging.internal.OutputEventListener;
 import org.gradle.messaging.remote.internal.Connection;
 
+import java.util.List;
+
 /**
  * The client piece of the build daemon.
  *
@@ -35,13 +38,19 @@ import org.gradle.messaging.remote.internal.Connection;
  *
  * <li>Server sends zero or more {@link org.gradle.logging.internal.OutputEvent} messages. Note that the server may send output messages before it receives the command message. </li>
  *
- * <li>Server sends a {@link org.gradle.launcher.protocol.CommandComplete} message.</li>
+ * <li>Server sends a {@link org.gradle.launcher.protocol.CommandComplete} message. A daemon which is already running
+ * a build responds to a {@link org.gradle.launcher.protocol.Build} command with a {@link
+ * org.gradle.launcher.protocol.DaemonBusy} message, and the client tries another daemon.</li>
  *
  * <li>Connection is closed.</li>
  *
  * </ol>
  */
 public class DaemonClient implements GradleLauncherActionExecuter<BuildActionParameters> {
+    /**
+     * The maximum number of daemons to try before giving up, when each daemon tried is busy.
+     */
+    public static final int MAX_BUSY_RETRIES = 10;
     private static final Logger LOGGER = Logging.getLogger(DaemonClient.class);
     private final DaemonConnector connector;
     private final BuildClientMetaData clientMetaData;
@@ -54,15 +63,17 @@ public class DaemonClient implements GradleLauncherActionExecuter<BuildActionPar
     }
 
     /**
-     * Stops the daemon, if it is running.
+     * Stops the daemons, if any are running.
      */
     public void stop() {
-        Connection<Object> connection = connector.maybeConnect();
-        if (connection == null) {
+        List<Connection<Object>> connections = connector.connectToAll();
+        if (connections.isEmpty()) {
             LOGGER.lifecycle("Gradle daemon is not running.");
             return;
         }
-        run(new Stop(clientMetaData), connection);
+        for (Connection<Object> connection : connections) {
+            run(new Stop(clientMetaData), connection);
+        }
         LOGGER.lifecycle("Gradle daemon stopped.");
     }
 
@@ -75,9 +86,15 @@ public class DaemonClient implements GradleLauncherActionExecuter<BuildActionPar
     public <T> T execute(GradleLauncherAction<T> action, BuildActionParameters parameters) {
         LOGGER.warn("Note: the Gradle build daemon is an experimental feature.");
         LOGGER.warn("As such, you may experience unexpected build failures. You may need to occasionally stop the daemon.");
-        Connection<Object> connection = connector.connect();
-        Result result = (Result) run(new Build(action, parameters), connection);
-        return (T) result.getResult();
+        for (int attempt = 1; attempt <= MAX_BUSY_RETRIES; attempt++) {
+            Connection<Object> connection = connector.connect();
+            CommandComplete result = run(new Build(action, parameters), connection);
+            if (!(result instanceof DaemonBusy)) {
+                return (T) ((Result) result).getResult();
+            }
+            LOGGER.info("Gradle daemon {} is busy. Trying another daemon.", connection);
+        }
+        throw new GradleException(String.format("Could not run the build, as each of the %s Gradle daemons tried was busy running another build.", MAX_BUSY_RETRIES));
     }
 
     private CommandComplete run(Command command, Connection<Object> connection) {
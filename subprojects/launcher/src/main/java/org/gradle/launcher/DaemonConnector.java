@@ -23,7 +23,6 @@ import org.gradle.api.logging.Logging;
 import org.gradle.initialization.DefaultCommandLineConverter;
 import org.gradle.messaging.concurrent.CompositeStoppable;
 import org.gradle.messaging.concurrent.DefaultExecutorFactory;
-import org.gradle.messaging.concurrent.Stoppable;
 import org.gradle.messaging.remote.ConnectEvent;
 import org.gradle.messaging.remote.internal.ConnectException;
 import org.gradle.messaging.remote.internal.Connection;
@@ -34,67 +33,93 @@ import org.gradle.util.GradleVersion;
 import org.gradle.util.Jvm;
 import org.gradle.util.UncheckedException;
 
-import java.io.*;
+import java.io.File;
+import java.lang.management.ManagementFactory;
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
+/**
+ * Locates and starts daemons. Several daemons may run for a given Gradle user home, each registered in a {@link
+ * DaemonRegistry}. A client uses an idle daemon which runs in a compatible JVM, starting a new daemon when there is no
+ * such daemon. A daemon stops when it has been idle for the idle timeout.
+ */
 public class DaemonConnector {
+    /**
+     * The system property which specifies the idle timeout of a daemon, in milliseconds.
+     */
+    public static final String IDLE_TIMEOUT_PROPERTY = "org.gradle.daemon.idletimeout";
+    public static final int DEFAULT_IDLE_TIMEOUT = 3 * 60 * 60 * 1000;
+    private static final List<String> DAEMON_JVM_ARGS = Arrays.asList("-Xmx1024m", "-XX:MaxPermSize=256m");
     private static final Logger LOGGER = Logging.getLogger(DaemonConnector.class);
     private final File userHomeDir;
+    private final DaemonRegistry registry;
+    private final int idleTimeout;
 
     public DaemonConnector(File userHomeDir) {
+        this(userHomeDir, Integer.getInteger(IDLE_TIMEOUT_PROPERTY, DEFAULT_IDLE_TIMEOUT));
+    }
+
+    public DaemonConnector(File userHomeDir, int idleTimeout) {
         this.userHomeDir = userHomeDir;
+        this.idleTimeout = idleTimeout;
+        registry = new DaemonRegistry(new File(userHomeDir, String.format("daemon/%s/registry", GradleVersion.current().getVersion())));
     }
 
     /**
-     * Attempts to connect to the daemon, if it is running.
+     * Attempts to connect to each daemon which is running, whether it is idle or busy.
      *
-     * @return The connection, or null if not running.
+     * @return The connections. Empty if no daemon is running.
      */
-    public Connection<Object> maybeConnect() {
-        URI uri = loadDaemonAddress();
-        if (uri == null) {
-            return null;
+    public List<Connection<Object>> connectToAll() {
+        List<Connection<Object>> connections = new ArrayList<Connection<Object>>();
+        for (DaemonRegistry.Entry entry : registry.getAll()) {
+            Connection<Object> connection = maybeConnect(entry);
+            if (connection != null) {
+                connections.add(connection);
+            }
         }
-        try {
-            return new TcpOutgoingConnector(getClass().getClassLoader()).connect(uri);
-        } catch (ConnectException e) {
-            // Ignore
-            return null;
+        return connections;
+    }
+
+    /**
+     * Attempts to connect to an idle daemon which runs in a JVM compatible with this client.
+     *
+     * @return The connection, or null if there is no such daemon.
+     */
+    public Connection<Object> maybeConnect() {
+        File javaHome = Jvm.current().getJavaHome();
+        for (DaemonRegistry.Entry entry : registry.getAll()) {
+            DaemonInfo info = entry.getInfo();
+            if (!info.isIdle() || !info.isCompatibleWith(javaHome, DAEMON_JVM_ARGS)) {
+                continue;
+            }
+            Connection<Object> connection = maybeConnect(entry);
+            if (connection != null) {
+                return connection;
+            }
         }
+        return null;
     }
 
-    private URI loadDaemonAddress() {
+    private Connection<Object> maybeConnect(DaemonRegistry.Entry entry) {
         try {
-            FileInputStream inputStream = new FileInputStream(getRegistryFile());
-            try {
-                // Acquire shared lock on file while reading it
-                inputStream.getChannel().lock(0, Long.MAX_VALUE, true);
-                DataInputStream dataInputStream = new DataInputStream(inputStream);
-                return new URI(dataInputStream.readUTF());
-            } finally {
-                // Also releases the lock
-                inputStream.close();
-            }
-        } catch (FileNotFoundException e) {
-            // Ignore
-            return null;
-        } catch (EOFException e) {
-            // Daemon has created empty file, but not yet locked it or written anything to it.
-            // Or has crashed while writing the registry file.
+            return new TcpOutgoingConnector(getClass().getClassLoader()).connect(entry.getInfo().getAddress());
+        } catch (ConnectException e) {
+            // The daemon has crashed without removing its entry
+            LOGGER.info("Removing registry entry for {}, as it cannot be reached.", entry.getInfo());
+            entry.remove();
             return null;
-        } catch (Exception e) {
-            throw UncheckedException.asUncheckedException(e);
         }
     }
 
     /**
-     * Connects to the daemon, starting it if required.
+     * Connects to an idle daemon, starting one if required.
      *
      * @return The connection. Never returns null.
      */
@@ -125,14 +150,14 @@ public class DaemonConnector {
     private void startDaemon() {
         List<String> daemonArgs = new ArrayList<String>();
         daemonArgs.add(Jvm.current().getJavaExecutable().getAbsolutePath());
-        daemonArgs.add("-Xmx1024m");
-        daemonArgs.add("-XX:MaxPermSize=256m");
+        daemonArgs.addAll(DAEMON_JVM_ARGS);
         daemonArgs.add("-cp");
         daemonArgs.add(GUtil.join(new DefaultClassPathRegistry().getClassPathFiles("GRADLE_RUNTIME"),
                 File.pathSeparator));
         daemonArgs.add(GradleDaemon.class.getName());
         daemonArgs.add(String.format("-%s", DefaultCommandLineConverter.GRADLE_USER_HOME));
         daemonArgs.add(userHomeDir.getAbsolutePath());
+        daemonArgs.add(String.format("-D%s=%s", IDLE_TIMEOUT_PROPERTY, idleTimeout));
         DaemonStartAction daemon = new DaemonStartAction();
         daemon.args(daemonArgs);
         daemon.workingDir(userHomeDir);
@@ -147,7 +172,7 @@ public class DaemonConnector {
     void accept(final IncomingConnectionHandler handler) {
         DefaultExecutorFactory executorFactory = new DefaultExecutorFactory();
         TcpIncomingConnector incomingConnector = new TcpIncomingConnector(executorFactory, getClass().getClassLoader());
-        final CompletionHandler finished = new CompletionHandler();
+        final CompletionHandler finished = new CompletionHandler(idleTimeout);
 
         LOGGER.lifecycle("Awaiting requests.");
 
@@ -163,50 +188,30 @@ public class DaemonConnector {
             }
         });
 
-        storeDaemonAddress(uri);
+        List<String> jvmArgs = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        DaemonInfo info = new DaemonInfo(uri, Jvm.current().getJavaHome(), jvmArgs, true);
+        finished.registryEntry = registry.register(info);
 
         boolean stopped = finished.awaitStop();
         if (!stopped) {
             LOGGER.lifecycle("Time-out waiting for requests. Stopping.");
         }
+        finished.registryEntry.remove();
         new CompositeStoppable(incomingConnector, executorFactory).stop();
-
-        getRegistryFile().delete();
     }
 
-    private void storeDaemonAddress(URI uri) {
-        try {
-            File registryFile = getRegistryFile();
-            registryFile.getParentFile().mkdirs();
-            FileOutputStream outputStream = new FileOutputStream(registryFile);
-            try {
-                // Lock file while writing to it
-                outputStream.getChannel().lock();
-                DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
-                dataOutputStream.writeUTF(uri.toString());
-                dataOutputStream.flush();
-            } finally {
-                // Also releases the lock
-                outputStream.close();
-            }
-        } catch (IOException e) {
-            throw UncheckedException.asUncheckedException(e);
-        }
-    }
-
-    private File getRegistryFile() {
-        return new File(userHomeDir, String.format("daemon/%s/registry.bin", GradleVersion.current().getVersion()));
-    }
-
-    private static class CompletionHandler implements Stoppable {
-        private static final int THREE_HOURS = 3 * 60 * 60 * 1000;
+    private static class CompletionHandler implements DaemonControl {
+        private final int idleTimeout;
         private final Lock lock = new ReentrantLock();
         private final Condition condition = lock.newCondition();
-        private boolean running;
+        private int activeConnections;
+        private boolean busy;
         private boolean stopped;
         private long expiry;
+        private DaemonRegistry.Entry registryEntry;
 
-        CompletionHandler() {
+        CompletionHandler(int idleTimeout) {
+            this.idleTimeout = idleTimeout;
             resetTimer();
         }
 
@@ -218,9 +223,9 @@ public class DaemonConnector {
         public boolean awaitStop() {
             lock.lock();
             try {
-                while (running || (!stopped && System.currentTimeMillis() < expiry)) {
+                while (activeConnections > 0 || (!stopped && System.currentTimeMillis() < expiry)) {
                     try {
-                        if (running) {
+                        if (activeConnections > 0) {
                             condition.await();
                         } else {
                             condition.awaitUntil(new Date(expiry));
@@ -229,7 +234,6 @@ public class DaemonConnector {
                         throw UncheckedException.asUncheckedException(e);
                     }
                 }
-                assert !running;
                 return stopped;
             } finally {
                 lock.unlock();
@@ -246,11 +250,37 @@ public class DaemonConnector {
             }
         }
 
+        public boolean startBuild() {
+            lock.lock();
+            try {
+                if (busy) {
+                    return false;
+                }
+                busy = true;
+                registryEntry.store(registryEntry.getInfo().withIdle(false));
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        public void buildComplete() {
+            lock.lock();
+            try {
+                assert busy;
+                busy = false;
+                if (!stopped) {
+                    registryEntry.store(registryEntry.getInfo().withIdle(true));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
         public void onStartActivity() {
             lock.lock();
             try {
-                assert !running;
-                running = true;
+                activeConnections++;
                 condition.signalAll();
             } finally {
                 lock.unlock();
@@ -260,8 +290,8 @@ public class DaemonConnector {
         public void onActivityComplete() {
             lock.lock();
             try {
-                assert running;
-                running = false;
+                assert activeConnections > 0;
+                activeConnections--;
                 resetTimer();
                 condition.signalAll();
             } finally {
@@ -270,7 +300,7 @@ public class DaemonConnector {
         }
 
         private void resetTimer() {
-            expiry = System.currentTimeMillis() + THREE_HOURS;
+            expiry = System.currentTimeMillis() + idleTimeout;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher;
+
+import org.gradle.messaging.concurrent.Stoppable;
+
+/**
+ * Allows an {@link IncomingConnectionHandler} to control the daemon which accepted the connection.
+ */
+public interface DaemonControl extends Stoppable {
+    /**
+     * Marks the daemon as busy running a build.
+     *
+     * @return false if the daemon is already running a build.
+     */
+    boolean startBuild();
+
+    /**
+     * Marks the daemon as idle again.
+     */
+    void buildComplete();
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher;
+
+import java.io.File;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes a running daemon: where it can be reached, the JVM it runs in, and whether it is running a build.
+ */
+public class DaemonInfo {
+    private final URI address;
+    private final File javaHome;
+    private final List<String> jvmArgs;
+    private final boolean idle;
+
+    public DaemonInfo(URI address, File javaHome, List<String> jvmArgs, boolean idle) {
+        this.address = address;
+        this.javaHome = javaHome;
+        this.jvmArgs = new ArrayList<String>(jvmArgs);
+        this.idle = idle;
+    }
+
+    public URI getAddress() {
+        return address;
+    }
+
+    public File getJavaHome() {
+        return javaHome;
+    }
+
+    public List<String> getJvmArgs() {
+        return jvmArgs;
+    }
+
+    public boolean isIdle() {
+        return idle;
+    }
+
+    /**
+     * Returns true if this daemon runs in a JVM with the given Java home, which was started with the given JVM
+     * arguments. Any other arguments which the JVM reports, such as those added by the JVM itself or by the
+     * environment, are ignored.
+     */
+    public boolean isCompatibleWith(File javaHome, List<String> requiredJvmArgs) {
+        return this.javaHome.equals(javaHome) && this.jvmArgs.containsAll(requiredJvmArgs);
+    }
+
+    public DaemonInfo withIdle(boolean idle) {
+        return new DaemonInfo(address, javaHome, jvmArgs, idle);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("daemon at %s (%s)", address, idle ? "idle" : "busy");
+    }
+}
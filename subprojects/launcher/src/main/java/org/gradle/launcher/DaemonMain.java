@@ -55,7 +55,9 @@ public class DaemonMain implements Runnable {
 
     public static void main(String[] args) throws IOException {
         StartParameter startParameter = new DefaultCommandLineConverter().convert(Arrays.asList(args));
-        DaemonConnector connector = new DaemonConnector(startParameter.getGradleUserHomeDir());
+        String idleTimeout = startParameter.getSystemPropertiesArgs().get(DaemonConnector.IDLE_TIMEOUT_PROPERTY);
+        DaemonConnector connector = new DaemonConnector(startParameter.getGradleUserHomeDir(),
+                idleTimeout == null ? DaemonConnector.DEFAULT_IDLE_TIMEOUT : Integer.parseInt(idleTimeout));
         redirectOutputsAndInput(startParameter);
         LoggingServiceRegistry loggingServices = LoggingServiceRegistry.newChildProcessLogging();
         new DaemonMain(loggingServices, connector).run();
@@ -79,29 +81,28 @@ public class DaemonMain implements Runnable {
 
     public void run() {
         connector.accept(new IncomingConnectionHandler() {
-            public void handle(Connection<Object> connection, Stoppable serverControl) {
-                doRun(connection, serverControl);
+            public void handle(Connection<Object> connection, DaemonControl daemonControl) {
+                doRun(connection, daemonControl);
             }
         });
     }
 
-    private void doRun(final Connection<Object> connection, Stoppable serverControl) {
+    private void doRun(final Connection<Object> connection, DaemonControl daemonControl) {
         CommandComplete result = null;
         Throwable failure = null;
         try {
-            LoggingOutputInternal loggingOutput = loggingServices.get(LoggingOutputInternal.class);
-            OutputEventListener listener = new OutputEventListener() {
-                public void onOutput(OutputEvent event) {
-                    connection.dispatch(event);
-                }
-            };
-
-            // Perform as much as possible of the interaction while the logging is routed to the client
-            loggingOutput.addOutputEventListener(listener);
+            Command command = (Command) connection.receive();
+            if (command instanceof Build && !daemonControl.startBuild()) {
+                LOGGER.info("Rejecting {}, as a build is already running.", command);
+                connection.dispatch(new DaemonBusy());
+                return;
+            }
             try {
-                result = doRunWithLogging(connection, serverControl);
+                result = doRunWithLogging(connection, command, daemonControl);
             } finally {
-                loggingOutput.removeOutputEventListener(listener);
+                if (command instanceof Build) {
+                    daemonControl.buildComplete();
+                }
             }
         } catch (ReportedException e) {
             failure = e;
@@ -116,8 +117,24 @@ public class DaemonMain implements Runnable {
         connection.dispatch(result);
     }
 
-    private CommandComplete doRunWithLogging(Connection<Object> connection, Stoppable serverControl) {
-        Command command = (Command) connection.receive();
+    private CommandComplete doRunWithLogging(final Connection<Object> connection, Command command, Stoppable serverControl) {
+        LoggingOutputInternal loggingOutput = loggingServices.get(LoggingOutputInternal.class);
+        OutputEventListener listener = new OutputEventListener() {
+            public void onOutput(OutputEvent event) {
+                connection.dispatch(event);
+            }
+        };
+
+        // Perform as much as possible of the interaction while the logging is routed to the client
+        loggingOutput.addOutputEventListener(listener);
+        try {
+            return doRunWithReporting(command, serverControl);
+        } finally {
+            loggingOutput.removeOutputEventListener(listener);
+        }
+    }
+
+    private CommandComplete doRunWithReporting(Command command, Stoppable serverControl) {
         try {
             return doRunWithExceptionHandling(command, serverControl);
         } catch (ReportedException e) {
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher;
+
+import org.gradle.util.UncheckedException;
+
+import java.io.*;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Tracks the daemons which are running for a given Gradle user home and Gradle version. Each daemon owns a separate
+ * file in the registry directory, which it updates as it changes state and deletes when it stops. This means daemons
+ * do not contend with each other when updating the registry.
+ */
+public class DaemonRegistry {
+    private final File registryDir;
+
+    public DaemonRegistry(File registryDir) {
+        this.registryDir = registryDir;
+    }
+
+    /**
+     * Returns the daemons which are currently registered, both idle and busy.
+     */
+    public List<Entry> getAll() {
+        List<Entry> entries = new ArrayList<Entry>();
+        File[] files = registryDir.listFiles();
+        if (files == null) {
+            return entries;
+        }
+        for (File file : files) {
+            if (!file.getName().endsWith(".bin")) {
+                continue;
+            }
+            Entry entry = new Entry(file);
+            if (entry.load()) {
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Registers a new daemon.
+     */
+    public Entry register(DaemonInfo info) {
+        registryDir.mkdirs();
+        Entry entry = new Entry(new File(registryDir, String.format("daemon-%s.bin", UUID.randomUUID())));
+        entry.store(info);
+        return entry;
+    }
+
+    public static class Entry {
+        private final File file;
+        private DaemonInfo info;
+
+        private Entry(File file) {
+            this.file = file;
+        }
+
+        public DaemonInfo getInfo() {
+            return info;
+        }
+
+        public void store(DaemonInfo info) {
+            try {
+                FileOutputStream outputStream = new FileOutputStream(file);
+                try {
+                    // Lock file while writing to it
+                    outputStream.getChannel().lock();
+                    DataOutputStream dataOutputStream = new DataOutputStream(outputStream);
+                    dataOutputStream.writeUTF(info.getAddress().toString());
+                    dataOutputStream.writeUTF(info.getJavaHome().getPath());
+                    dataOutputStream.writeInt(info.getJvmArgs().size());
+                    for (String jvmArg : info.getJvmArgs()) {
+                        dataOutputStream.writeUTF(jvmArg);
+                    }
+                    dataOutputStream.writeBoolean(info.isIdle());
+                    dataOutputStream.flush();
+                } finally {
+                    // Also releases the lock
+                    outputStream.close();
+                }
+            } catch (IOException e) {
+                throw UncheckedException.asUncheckedException(e);
+            }
+            this.info = info;
+        }
+
+        public void remove() {
+            file.delete();
+        }
+
+        private boolean load() {
+            try {
+                FileInputStream inputStream = new FileInputStream(file);
+                try {
+                    // Acquire shared lock on file while reading it
+                    inputStream.getChannel().lock(0, Long.MAX_VALUE, true);
+                    DataInputStream dataInputStream = new DataInputStream(inputStream);
+                    URI address = new URI(dataInputStream.readUTF());
+                    File javaHome = new File(dataInputStream.readUTF());
+                    int jvmArgCount = dataInputStream.readInt();
+                    List<String> jvmArgs = new ArrayList<String>();
+                    for (int i = 0; i < jvmArgCount; i++) {
+                        jvmArgs.add(dataInputStream.readUTF());
+                    }
+                    boolean idle = dataInputStream.readBoolean();
+                    info = new DaemonInfo(address, javaHome, jvmArgs, idle);
+                    return true;
+                } finally {
+                    // Also releases the lock
+                    inputStream.close();
+                }
+            } catch (FileNotFoundException e) {
+                // Daemon has stopped
+                return false;
+            } catch (EOFException e) {
+                // Daemon has created empty file, but not yet locked it or written anything to it.
+                // Or has crashed while writing the registry file.
+                return false;
+            } catch (Exception e) {
+                throw UncheckedException.asUncheckedException(e);
+            }
+        }
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2009 the original author or authors.
+ * Copyright 2011 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -13,12 +13,13 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
-package org.gradle.api.internal.tasks.testing.detection;
+package org.gradle.launcher.protocol;
 
 /**
- * @author Tom Eyckmans
+ * Sent by a daemon in response to a {@link Build} command when it is already running a build.
  */
-public interface JarFilePackageListener {
-    void receivePackage(String packageName);
+public class DaemonBusy extends CommandComplete {
+    public DaemonBusy() {
+        super(null);
+    }
 }
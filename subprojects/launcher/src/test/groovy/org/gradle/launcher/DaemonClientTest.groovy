@@ -15,10 +15,12 @@
  */
 package org.gradle.launcher
 
+import org.gradle.api.GradleException
 import org.gradle.initialization.BuildClientMetaData
 import org.gradle.initialization.GradleLauncherAction
 import org.gradle.launcher.protocol.Build
 import org.gradle.launcher.protocol.CommandComplete
+import org.gradle.launcher.protocol.DaemonBusy
 import org.gradle.launcher.protocol.Result
 import org.gradle.launcher.protocol.Stop
 import org.gradle.logging.internal.OutputEventListener
@@ -37,7 +39,7 @@ class DaemonClientTest extends Specification {
         client.stop()
 
         then:
-        1 * connector.maybeConnect() >> connection
+        1 * connector.connectToAll() >> [connection]
         1 * connection.dispatch({it instanceof Stop})
         1 * connection.receive() >> new CommandComplete(null)
         1 * connection.stop()
@@ -49,7 +51,7 @@ class DaemonClientTest extends Specification {
         client.stop()
 
         then:
-        1 * connector.maybeConnect() >> null
+        1 * connector.connectToAll() >> []
         0 * _._
     }
 
@@ -62,7 +64,7 @@ class DaemonClientTest extends Specification {
         then:
         RuntimeException e = thrown()
         e == failure
-        1 * connector.maybeConnect() >> connection
+        1 * connector.connectToAll() >> [connection]
         1 * connection.dispatch({it instanceof Stop})
         1 * connection.receive() >> new CommandComplete(failure)
         1 * connection.stop()
@@ -84,6 +86,56 @@ class DaemonClientTest extends Specification {
         1 * connection.stop()
     }
 
+    def stopsEachRunningDaemon() {
+        Connection<Object> connection2 = Mock()
+
+        when:
+        client.stop()
+
+        then:
+        1 * connector.connectToAll() >> [connection, connection2]
+        1 * connection.dispatch({it instanceof Stop})
+        1 * connection.receive() >> new CommandComplete(null)
+        1 * connection.stop()
+        1 * connection2.dispatch({it instanceof Stop})
+        1 * connection2.receive() >> new CommandComplete(null)
+        1 * connection2.stop()
+        0 * _._
+    }
+
+    def triesAnotherDaemonWhenDaemonIsBusy() {
+        GradleLauncherAction<String> action = Mock()
+        BuildActionParameters parameters = Mock()
+        Connection<Object> connection2 = Mock()
+
+        when:
+        def result = client.execute(action, parameters)
+
+        then:
+        result == '[result]'
+        2 * connector.connect() >>> [connection, connection2]
+        1 * connection.dispatch({it instanceof Build})
+        1 * connection.receive() >> new DaemonBusy()
+        1 * connection.stop()
+        1 * connection2.dispatch({it instanceof Build})
+        1 * connection2.receive() >> new Result('[result]')
+        1 * connection2.stop()
+    }
+
+    def givesUpWhenEachDaemonTriedIsBusy() {
+        GradleLauncherAction<String> action = Mock()
+        BuildActionParameters parameters = Mock()
+
+        when:
+        client.execute(action, parameters)
+
+        then:
+        GradleException e = thrown()
+        e.message.contains('busy')
+        DaemonClient.MAX_BUSY_RETRIES * connector.connect() >> connection
+        DaemonClient.MAX_BUSY_RETRIES * connection.receive() >> new DaemonBusy()
+    }
+
     def rethrowsFailureToExecuteAction() {
         GradleLauncherAction<String> action = Mock()
         BuildActionParameters parameters = Mock()
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher
+
+import spock.lang.Specification
+
+class DaemonInfoTest extends Specification {
+    final File javaHome = new File('java-home')
+    final DaemonInfo info = new DaemonInfo(new URI('tcp://localhost:1234'), javaHome, ['-Xmx1024m', '-Dsome.prop=value', '-XX:MaxPermSize=256m'], true)
+
+    def isCompatibleWithJvmWhichHasTheRequiredArguments() {
+        expect:
+        info.isCompatibleWith(javaHome, ['-Xmx1024m', '-XX:MaxPermSize=256m'])
+        info.isCompatibleWith(javaHome, [])
+    }
+
+    def isNotCompatibleWithJvmWhichIsMissingARequiredArgument() {
+        expect:
+        !info.isCompatibleWith(javaHome, ['-Xmx1024m', '-Xss4m'])
+        !info.isCompatibleWith(javaHome, ['-Xmx512m'])
+    }
+
+    def isNotCompatibleWithDifferentJavaHome() {
+        expect:
+        !info.isCompatibleWith(new File('other'), ['-Xmx1024m'])
+    }
+}
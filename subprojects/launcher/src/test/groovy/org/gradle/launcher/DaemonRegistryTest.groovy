@@ -0,0 +1,84 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.launcher
+
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+
+class DaemonRegistryTest extends Specification {
+    @Rule final TemporaryFolder tmpDir = new TemporaryFolder()
+    final File javaHome = new File('java-home')
+
+    def "is empty when no daemons are registered"() {
+        def registry = new DaemonRegistry(tmpDir.file('registry'))
+
+        expect:
+        registry.all.empty
+    }
+
+    def "tracks each registered daemon"() {
+        def registry = new DaemonRegistry(tmpDir.file('registry'))
+
+        when:
+        registry.register(new DaemonInfo(new URI('tcp://localhost:1234'), javaHome, ['-Xmx1024m'], true))
+        registry.register(new DaemonInfo(new URI('tcp://localhost:5678'), javaHome, [], false))
+
+        then:
+        def daemons = new DaemonRegistry(tmpDir.file('registry')).all*.info
+        daemons.size() == 2
+        def idle = daemons.find { it.idle }
+        idle.address == new URI('tcp://localhost:1234')
+        idle.javaHome == javaHome
+        idle.jvmArgs == ['-Xmx1024m']
+        def busy = daemons.find { !it.idle }
+        busy.address == new URI('tcp://localhost:5678')
+        busy.jvmArgs == []
+    }
+
+    def "entry reflects updated state"() {
+        def registry = new DaemonRegistry(tmpDir.file('registry'))
+        def entry = registry.register(new DaemonInfo(new URI('tcp://localhost:1234'), javaHome, [], true))
+
+        when:
+        entry.store(entry.info.withIdle(false))
+
+        then:
+        registry.all.size() == 1
+        !registry.all[0].info.idle
+    }
+
+    def "daemon is no longer tracked once removed"() {
+        def registry = new DaemonRegistry(tmpDir.file('registry'))
+        def entry = registry.register(new DaemonInfo(new URI('tcp://localhost:1234'), javaHome, [], true))
+
+        when:
+        entry.remove()
+
+        then:
+        registry.all.empty
+    }
+
+    def "daemon is compatible when it uses the same java home and jvm args"() {
+        def info = new DaemonInfo(new URI('tcp://localhost:1234'), javaHome, ['-Xmx1024m', '-ea'], true)
+
+        expect:
+        info.isCompatibleWith(javaHome, ['-Xmx1024m', '-ea'])
+        !info.isCompatibleWith(new File('other'), ['-Xmx1024m', '-ea'])
+        !info.isCompatibleWith(javaHome, ['-Xmx1024m'])
+        !info.isCompatibleWith(javaHome, ['-ea', '-Xmx1024m'])
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.compile;
+
+import org.gradle.api.UncheckedIOException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.tools.*;
+import java.io.*;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * A {@link JavaFileManager} which lists the classes of the compile classpath itself, using a {@link JarIndexCache} for
+ * the JAR files, and delegates everything else to the compiler's standard file manager. The JAR files which the
+ * compiler reads from are opened once per compilation and closed by {@link #close()}.
+ *
+ * <p>Only class files are listed from the classpath, as the source path is always set.</p>
+ */
+public class CachingJavaFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CachingJavaFileManager.class);
+    private final List<File> classpath;
+    private final JarIndexCache jarIndexCache;
+    private final Map<File, ZipFile> openJars = new HashMap<File, ZipFile>();
+
+    public CachingJavaFileManager(StandardJavaFileManager fileManager, List<File> classpath, JarIndexCache jarIndexCache) {
+        super(fileManager);
+        this.classpath = classpath;
+        this.jarIndexCache = jarIndexCache;
+    }
+
+    @Override
+    public Iterable<JavaFileObject> list(Location location, String packageName, Set<JavaFileObject.Kind> kinds, boolean recurse) throws IOException {
+        if (location != StandardLocation.CLASS_PATH) {
+            return super.list(location, packageName, kinds, recurse);
+        }
+        String packagePath = packageName.replace('.', '/');
+        List<JavaFileObject> files = new ArrayList<JavaFileObject>();
+        for (File entry : classpath) {
+            if (entry.isDirectory()) {
+                listDirectory(new File(entry, packagePath), packagePath, kinds, recurse, files);
+            } else if (entry.isFile()) {
+                listJar(entry, packagePath, kinds, recurse, files);
+            }
+        }
+        return files;
+    }
+
+    @Override
+    public String inferBinaryName(Location location, JavaFileObject file) {
+        if (file instanceof ClasspathFileObject) {
+            return ((ClasspathFileObject) file).binaryName;
+        }
+        return super.inferBinaryName(location, file);
+    }
+
+    @Override
+    public boolean isSameFile(FileObject a, FileObject b) {
+        if (a instanceof ClasspathFileObject || b instanceof ClasspathFileObject) {
+            return a.toUri().equals(b.toUri());
+        }
+        return super.isSameFile(a, b);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            for (ZipFile zipFile : openJars.values()) {
+                zipFile.close();
+            }
+            openJars.clear();
+        } finally {
+            super.close();
+        }
+    }
+
+    private void listDirectory(File dir, String packagePath, Set<JavaFileObject.Kind> kinds, boolean recurse, List<JavaFileObject> files) {
+        File[] children = dir.listFiles();
+        if (children == null) {
+            return;
+        }
+        String prefix = packagePath.length() == 0 ? "" : packagePath + "/";
+        for (File child : children) {
+            if (child.isDirectory()) {
+                if (recurse) {
+                    listDirectory(child, prefix + child.getName(), kinds, recurse, files);
+                }
+                continue;
+            }
+            JavaFileObject.Kind kind = getKind(child.getName(), kinds);
+            if (kind != null) {
+                files.add(new DirectoryFileObject(child, kind, toBinaryName(prefix + child.getName(), kind)));
+            }
+        }
+    }
+
+    private void listJar(File jarFile, String packagePath, Set<JavaFileObject.Kind> kinds, boolean recurse, List<JavaFileObject> files) {
+        JarIndexCache.JarIndex index;
+        try {
+            index = jarIndexCache.get(jarFile);
+        } catch (UncheckedIOException e) {
+            // The compiler ignores classpath entries it cannot read, so do the same
+            LOGGER.debug(String.format("Could not read classpath entry '%s'.", jarFile), e);
+            return;
+        }
+        for (String name : index.getEntries(packagePath, recurse)) {
+            JavaFileObject.Kind kind = getKind(name, kinds);
+            if (kind != null) {
+                files.add(new JarEntryFileObject(jarFile, name, kind, toBinaryName(name, kind)));
+            }
+        }
+    }
+
+    private static JavaFileObject.Kind getKind(String fileName, Set<JavaFileObject.Kind> kinds) {
+        JavaFileObject.Kind kind = JavaFileObject.Kind.CLASS;
+        return kinds.contains(kind) && fileName.endsWith(kind.extension) ? kind : null;
+    }
+
+    private static String toBinaryName(String path, JavaFileObject.Kind kind) {
+        return path.substring(0, path.length() - kind.extension.length()).replace('/', '.');
+    }
+
+    private synchronized InputStream openJarEntry(File jarFile, String name) throws IOException {
+        ZipFile zipFile = openJars.get(jarFile);
+        if (zipFile == null) {
+            zipFile = new ZipFile(jarFile);
+            openJars.put(jarFile, zipFile);
+        }
+        ZipEntry entry = zipFile.getEntry(name);
+        if (entry == null) {
+            throw new FileNotFoundException(String.format("Could not find '%s' in JAR file '%s'.", name, jarFile));
+        }
+        return zipFile.getInputStream(entry);
+    }
+
+    private static abstract class ClasspathFileObject extends SimpleJavaFileObject {
+        private final String binaryName;
+
+        protected ClasspathFileObject(URI uri, Kind kind, String binaryName) {
+            super(uri, kind);
+            this.binaryName = binaryName;
+        }
+
+        @Override
+        public boolean isNameCompatible(String simpleName, Kind kind) {
+            return this.kind == kind && (binaryName.equals(simpleName) || binaryName.endsWith("." + simpleName));
+        }
+    }
+
+    private static class DirectoryFileObject extends ClasspathFileObject {
+        private final File file;
+
+        private DirectoryFileObject(File file, Kind kind, String binaryName) {
+            super(file.toURI(), kind, binaryName);
+            this.file = file;
+        }
+
+        @Override
+        public String getName() {
+            return file.getPath();
+        }
+
+        @Override
+        public InputStream openInputStream() throws IOException {
+            return new FileInputStream(file);
+        }
+
+        @Override
+        public long getLastModified() {
+            return file.lastModified();
+        }
+    }
+
+    private class JarEntryFileObject extends ClasspathFileObject {
+        private final File jarFile;
+        private final String name;
+
+        private JarEntryFileObject(File jarFile, String name, Kind kind, String binaryName) {
+            super(toJarEntryUri(jarFile, name), kind, binaryName);
+            this.jarFile = jarFile;
+            this.name = name;
+        }
+
+        @Override
+        public String getName() {
+            return String.format("%s(%s)", jarFile.getPath(), name);
+        }
+
+        @Override
+        public InputStream openInputStream() throws IOException {
+            return openJarEntry(jarFile, name);
+        }
+
+        @Override
+        public long getLastModified() {
+            return jarFile.lastModified();
+        }
+    }
+
+    private static URI toJarEntryUri(File jarFile, String name) {
+        // Uses a hierarchical URI, as SimpleJavaFileObject requires a path
+        try {
+            return new URI("jar", null, jarFile.toURI().getPath() + "!/" + name, null, null);
+        } catch (URISyntaxException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.compile;
+
+import java.io.Serializable;
+import java.util.*;
+
+/**
+ * The dependencies between the source files, compiled classes and classpath classes of a compilation, as they were at
+ * the end of the previous compilation.
+ */
+public class ClassDependencyGraph implements Serializable {
+    private final Map<String, Long> sources = new HashMap<String, Long>();
+    private final Map<String, CompiledClass> classes = new HashMap<String, CompiledClass>();
+    private final Map<String, ClasspathClass> classpathClasses = new HashMap<String, ClasspathClass>();
+    private final Map<String, Long> classpathJars = new HashMap<String, Long>();
+
+    /**
+     * Returns the fingerprints of the source files, keyed by path relative to the source root.
+     */
+    public Map<String, Long> getSources() {
+        return sources;
+    }
+
+    /**
+     * Returns the compiled classes, keyed by internal name.
+     */
+    public Map<String, CompiledClass> getClasses() {
+        return classes;
+    }
+
+    /**
+     * Returns the classes which the compiled classes refer to and which are not compiled classes themselves, along
+     * with the supertypes of these classes, keyed by internal name. Includes classes which were not found on the
+     * classpath, such as the classes of the Java runtime.
+     */
+    public Map<String, ClasspathClass> getClasspathClasses() {
+        return classpathClasses;
+    }
+
+    /**
+     * Returns the fingerprints of the JAR files on the classpath, keyed by absolute path.
+     */
+    public Map<String, Long> getClasspathJars() {
+        return classpathJars;
+    }
+
+    /**
+     * Returns the names of the classes which refer to classes outside this compilation.
+     */
+    public Set<String> getReferencedClasspathClasses() {
+        Set<String> names = new HashSet<String>();
+        for (CompiledClass compiledClass : classes.values()) {
+            for (String dependency : compiledClass.getDependencies()) {
+                if (!classes.containsKey(dependency)) {
+                    names.add(dependency);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Determines which source files need to be compiled again, given the current source files and the classpath
+     * classes which have changed since the previous compilation. These are the changed and removed source files, and
+     * the source files of all classes which depend directly or transitively on the classes of those source files, on
+     * the changed classpath classes, or on classpath classes which are replaced by new source files. A classpath class
+     * depends on its supertypes, so a change to a supertype affects the classes which use its subtypes.
+     *
+     * @param currentSources The fingerprints of the current source files.
+     * @param changedClasspathClasses The changed classpath classes.
+     * @return The source files, or null when every source file needs to be compiled again.
+     */
+    public Set<String> getStaleSources(Map<String, Long> currentSources, Collection<String> changedClasspathClasses) {
+        Map<String, Set<String>> classesBySource = new HashMap<String, Set<String>>();
+        Map<String, Set<String>> dependents = new HashMap<String, Set<String>>();
+        for (CompiledClass compiledClass : classes.values()) {
+            add(classesBySource, compiledClass.getSource(), compiledClass.getName());
+            for (String dependency : compiledClass.getDependencies()) {
+                add(dependents, dependency, compiledClass.getName());
+            }
+        }
+        for (Map.Entry<String, ClasspathClass> entry : classpathClasses.entrySet()) {
+            for (String supertype : entry.getValue().getSupertypes()) {
+                add(dependents, supertype, entry.getKey());
+            }
+        }
+
+        Set<String> staleSources = new HashSet<String>();
+        LinkedList<String> queue = new LinkedList<String>();
+        for (Map.Entry<String, Long> entry : sources.entrySet()) {
+            if (!entry.getValue().equals(currentSources.get(entry.getKey()))) {
+                staleSources.add(entry.getKey());
+                Set<String> classNames = classesBySource.get(entry.getKey());
+                if (classNames == null) {
+                    continue;
+                }
+                for (String className : classNames) {
+                    if (classes.get(className).isDeclaresConstants()) {
+                        // Constants are inlined into the classes which use them, so these classes cannot be found
+                        return null;
+                    }
+                    queue.add(className);
+                }
+            }
+        }
+        for (String source : currentSources.keySet()) {
+            String className = source.replaceFirst("\\.java$", "");
+            if (!sources.containsKey(source) && classpathClasses.containsKey(className)) {
+                // A new source file which replaces a classpath class
+                queue.add(className);
+            }
+        }
+        queue.addAll(changedClasspathClasses);
+
+        Set<String> seen = new HashSet<String>(queue);
+        while (!queue.isEmpty()) {
+            String className = queue.removeFirst();
+            Set<String> classDependents = dependents.get(className);
+            if (classDependents == null) {
+                continue;
+            }
+            for (String dependent : classDependents) {
+                if (!classes.containsKey(dependent)) {
+                    // A classpath class which extends or implements the class
+                    if (seen.add(dependent)) {
+                        queue.add(dependent);
+                    }
+                    continue;
+                }
+                String source = classes.get(dependent).getSource();
+                staleSources.add(source);
+                for (String sourceClass : classesBySource.get(source)) {
+                    if (seen.add(sourceClass)) {
+                        queue.add(sourceClass);
+                    }
+                }
+            }
+        }
+        return staleSources;
+    }
+
+    /**
+     * Returns the names of the classes compiled from the given source files.
+     */
+    public Set<String> getClassesForSources(Collection<String> sourcePaths) {
+        Set<String> names = new HashSet<String>();
+        for (CompiledClass compiledClass : classes.values()) {
+            if (sourcePaths.contains(compiledClass.getSource())) {
+                names.add(compiledClass.getName());
+            }
+        }
+        return names;
+    }
+
+    private static void add(Map<String, Set<String>> map, String key, String value) {
+        Set<String> values = map.get(key);
+        if (values == null) {
+            values = new HashSet<String>();
+            map.put(key, values);
+        }
+        values.add(value);
+    }
+
+    /**
+     * A class compiled from one of the source files.
+     */
+    public static class CompiledClass implements Serializable {
+        private final String name;
+        private final String source;
+        private final long fingerprint;
+        private final Set<String> dependencies;
+        private final boolean declaresConstants;
+
+        public CompiledClass(String name, String source, long fingerprint, Set<String> dependencies, boolean declaresConstants) {
+            this.name = name;
+            this.source = source;
+            this.fingerprint = fingerprint;
+            this.dependencies = dependencies;
+            this.declaresConstants = declaresConstants;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        public Set<String> getDependencies() {
+            return dependencies;
+        }
+
+        public boolean isDeclaresConstants() {
+            return declaresConstants;
+        }
+    }
+
+    /**
+     * A class which one of the compiled classes refers to, or a supertype of such a class.
+     */
+    public static class ClasspathClass implements Serializable {
+        private final String location;
+        private final long fingerprint;
+        private final Set<String> supertypes;
+        private final boolean declaresConstants;
+
+        public ClasspathClass(String location, long fingerprint, Set<String> supertypes, boolean declaresConstants) {
+            this.location = location;
+            this.fingerprint = fingerprint;
+            this.supertypes = supertypes;
+            this.declaresConstants = declaresConstants;
+        }
+
+        /**
+         * Returns the absolute path of the classpath entry which contains the class, or null if the class was not
+         * found.
+         */
+        public String getLocation() {
+            return location;
+        }
+
+        public long getFingerprint() {
+            return fingerprint;
+        }
+
+        /**
+         * Returns the internal names of the superclass and interfaces of the class, or an empty set if the class was
+         * not found.
+         */
+        public Set<String> getSupertypes() {
+            return supertypes;
+        }
+
+        public boolean isDeclaresConstants() {
+            return declaresConstants;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj == null || obj.getClass() != getClass()) {
+                return false;
+            }
+            ClasspathClass other = (ClasspathClass) obj;
+            return fingerprint == other.fingerprint && (location == null ? other.location == null : location.equals(other.location));
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) fingerprint ^ (location == null ? 0 : location.hashCode());
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.compile;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.cache.PersistentCache;
+import org.gradle.cache.PersistentStateCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Deletes the classes which need to be compiled again, using the class dependencies recorded at the end of the
+ * previous compilation. The classes of a source file are deleted when the source file has changed, or when it depends
+ * directly or transitively on a changed class, whether the changed class is compiled from another source file or comes
+ * from the classpath. The compiler then compiles the source files whose classes are missing. For classpath classes, the
+ * supertypes of each class which is used are recorded as well, as a change to a supertype can break the code which
+ * uses the class.
+ *
+ * <p>Deletes all previous classes when there is no usable record of the previous compilation, or when a changed class
+ * declares constants, or declared constants in the previous compilation.</p>
+ */
+public class ClassDependencyStaleClassCleaner extends StaleClassCleaner {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassDependencyStaleClassCleaner.class);
+    private final TaskOutputsInternal taskOutputs;
+    private final PersistentCache cache;
+    private final PersistentStateCache<ClassDependencyGraph> stateCache;
+    private Iterable<File> classpath;
+    private ClassDependencyGraph previous;
+    private Map<String, Long> sources;
+
+    public ClassDependencyStaleClassCleaner(TaskOutputsInternal taskOutputs, PersistentCache cache) {
+        this.taskOutputs = taskOutputs;
+        this.cache = cache;
+        stateCache = cache.openStateCache();
+    }
+
+    public Iterable<File> getClasspath() {
+        return classpath;
+    }
+
+    public void setClasspath(Iterable<File> classpath) {
+        this.classpath = classpath;
+    }
+
+    @Override
+    public void execute() {
+        sources = snapshotSources();
+        previous = cache.isValid() ? stateCache.get() : null;
+        Set<String> staleSources = previous == null ? null : findStaleSources();
+        if (staleSources == null) {
+            LOGGER.info("Compiling all source files of {}.", getDestinationDir());
+            previous = null;
+            SimpleStaleClassCleaner cleaner = new SimpleStaleClassCleaner(taskOutputs);
+            cleaner.setDestinationDir(getDestinationDir());
+            cleaner.execute();
+            return;
+        }
+
+        LOGGER.info("Compiling {} changed or dependent source files of {}.", staleSources.size(), getDestinationDir());
+        for (String className : previous.getClassesForSources(staleSources)) {
+            new File(getDestinationDir(), className + ".class").delete();
+        }
+    }
+
+    /**
+     * Records the class dependencies of the classes in the destination directory, for the next compilation.
+     */
+    @Override
+    public void compilationComplete() {
+        ClassDependencyGraph graph = new ClassDependencyGraph();
+        graph.getSources().putAll(sources);
+        addClasses(getDestinationDir(), "", graph);
+        graph.getClasspathClasses().putAll(snapshotClasspath(graph.getReferencedClasspathClasses(), graph.getClasspathJars()));
+        stateCache.set(graph);
+    }
+
+    private Set<String> findStaleSources() {
+        Map<String, ClassDependencyGraph.ClasspathClass> previousClasspathClasses = previous.getClasspathClasses();
+        Map<String, ClassDependencyGraph.ClasspathClass> classpathClasses = snapshotClasspath(previousClasspathClasses.keySet(), new HashMap<String, Long>());
+        List<String> changedClasspathClasses = new ArrayList<String>();
+        for (Map.Entry<String, ClassDependencyGraph.ClasspathClass> entry : classpathClasses.entrySet()) {
+            ClassDependencyGraph.ClasspathClass previousClass = previousClasspathClasses.get(entry.getKey());
+            if (entry.getValue().equals(previousClass)) {
+                continue;
+            }
+            if (entry.getValue().isDeclaresConstants() || previousClass != null && previousClass.isDeclaresConstants()) {
+                // Constants are inlined into the classes which use them, so these classes cannot be found
+                return null;
+            }
+            changedClasspathClasses.add(entry.getKey());
+        }
+        return previous.getStaleSources(sources, changedClasspathClasses);
+    }
+
+    private Map<String, Long> snapshotSources() {
+        final Map<String, Long> sources = new HashMap<String, Long>();
+        getSource().getAsFileTree().visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                sources.put(fileDetails.getRelativePath().getPathString(), fingerprint(fileDetails.getFile()));
+            }
+        });
+        return sources;
+    }
+
+    private void addClasses(File dir, String prefix, ClassDependencyGraph graph) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                addClasses(file, prefix + file.getName() + "/", graph);
+            } else if (file.getName().endsWith(".class")) {
+                String className = prefix + file.getName().substring(0, file.getName().length() - 6);
+                long fingerprint = fingerprint(file);
+                ClassDependencyGraph.CompiledClass compiledClass = previous == null ? null : previous.getClasses().get(className);
+                if (compiledClass == null || compiledClass.getFingerprint() != fingerprint) {
+                    ClassFileInfo info = ClassFileInfo.read(file);
+                    String source = info.getSourceFile();
+                    if (source == null) {
+                        source = className.replaceFirst("\\$.*", "") + ".java";
+                    }
+                    compiledClass = new ClassDependencyGraph.CompiledClass(className, source, fingerprint, info.getDependencies(), info.isDeclaresConstants());
+                }
+                graph.getClasses().put(className, compiledClass);
+            }
+        }
+    }
+
+    /**
+     * Locates the given classes and their supertypes on the classpath. The JARs whose content has not changed since
+     * the previous compilation are not opened, where possible.
+     */
+    private Map<String, ClassDependencyGraph.ClasspathClass> snapshotClasspath(Set<String> classNames, Map<String, Long> jars) {
+        Map<String, ClassDependencyGraph.ClasspathClass> classes = new HashMap<String, ClassDependencyGraph.ClasspathClass>();
+        Set<String> remaining = new HashSet<String>(classNames);
+        while (!remaining.isEmpty()) {
+            Map<String, ClassDependencyGraph.ClasspathClass> located = new HashMap<String, ClassDependencyGraph.ClasspathClass>();
+            locateClasses(remaining, jars, located);
+            classes.putAll(located);
+            remaining = new HashSet<String>();
+            for (ClassDependencyGraph.ClasspathClass classpathClass : located.values()) {
+                for (String supertype : classpathClass.getSupertypes()) {
+                    if (!classes.containsKey(supertype)) {
+                        remaining.add(supertype);
+                    }
+                }
+            }
+        }
+        return classes;
+    }
+
+    private void locateClasses(Set<String> classNames, Map<String, Long> jars, Map<String, ClassDependencyGraph.ClasspathClass> classes) {
+        Set<String> remaining = new HashSet<String>(classNames);
+        for (File entry : classpath) {
+            if (remaining.isEmpty()) {
+                break;
+            }
+            String location = entry.getAbsolutePath();
+            if (entry.isDirectory()) {
+                for (Iterator<String> iterator = remaining.iterator(); iterator.hasNext();) {
+                    String className = iterator.next();
+                    File classFile = new File(entry, className + ".class");
+                    if (classFile.isFile()) {
+                        ClassFileInfo info = ClassFileInfo.read(classFile);
+                        classes.put(className, new ClassDependencyGraph.ClasspathClass(location, fingerprint(classFile), info.getSupertypes(), info.isDeclaresConstants()));
+                        iterator.remove();
+                    }
+                }
+            } else if (entry.isFile()) {
+                long fingerprint = fingerprint(entry);
+                jars.put(location, fingerprint);
+                if (previous != null && Long.valueOf(fingerprint).equals(previous.getClasspathJars().get(location))
+                        && previous.getClasspathClasses().keySet().containsAll(remaining)) {
+                    for (Iterator<String> iterator = remaining.iterator(); iterator.hasNext();) {
+                        String className = iterator.next();
+                        ClassDependencyGraph.ClasspathClass classpathClass = previous.getClasspathClasses().get(className);
+                        if (location.equals(classpathClass.getLocation())) {
+                            classes.put(className, classpathClass);
+                            iterator.remove();
+                        }
+                    }
+                } else {
+                    snapshotJar(entry, remaining, classes);
+                }
+            }
+        }
+        for (String className : remaining) {
+            classes.put(className, new ClassDependencyGraph.ClasspathClass(null, 0, Collections.<String>emptySet(), false));
+        }
+    }
+
+    private void snapshotJar(File jar, Set<String> remaining, Map<String, ClassDependencyGraph.ClasspathClass> classes) {
+        try {
+            ZipFile zipFile = new ZipFile(jar);
+            try {
+                for (Iterator<String> iterator = remaining.iterator(); iterator.hasNext();) {
+                    String className = iterator.next();
+                    ZipEntry entry = zipFile.getEntry(className + ".class");
+                    if (entry != null) {
+                        ClassFileInfo info = readClass(zipFile, entry);
+                        classes.put(className, new ClassDependencyGraph.ClasspathClass(jar.getAbsolutePath(), 31 * entry.getCrc() + entry.getSize(), info.getSupertypes(), info.isDeclaresConstants()));
+                        iterator.remove();
+                    }
+                }
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            // Not a JAR, so treat it as empty. The compiler will report it if it matters
+            LOGGER.debug(String.format("Could not read classpath entry '%s'.", jar), e);
+        }
+    }
+
+    private ClassFileInfo readClass(ZipFile zipFile, ZipEntry entry) {
+        try {
+            InputStream instr = zipFile.getInputStream(entry);
+            try {
+                return ClassFileInfo.read(instr);
+            } finally {
+                instr.close();
+            }
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not read class '%s' from '%s'.", entry.getName(), zipFile.getName()), e);
+        }
+    }
+
+    private static long fingerprint(File file) {
+        return 31 * file.lastModified() + file.length();
+    }
+}
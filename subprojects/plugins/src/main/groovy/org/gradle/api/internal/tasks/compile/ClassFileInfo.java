@@ -0,0 +1,267 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.compile;
+
+import org.gradle.api.GradleException;
+
+import java.io.*;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * The dependency information of a compiled class, read from its class file. The classes which a class depends on are
+ * taken from its constant pool, which lists every class the bytecode refers to, along with the type descriptors of the
+ * fields and methods it declares or uses.
+ *
+ * <p>Compile-time constants are inlined by the compiler, so a class which uses a constant of another class does not
+ * refer to that class. {@link #isDeclaresConstants()} is used to detect this case.</p>
+ */
+public class ClassFileInfo {
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_INTEGER = 3;
+    private static final int CONSTANT_FLOAT = 4;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_STRING = 8;
+    private static final int CONSTANT_FIELD_REF = 9;
+    private static final int CONSTANT_METHOD_REF = 10;
+    private static final int CONSTANT_INTERFACE_METHOD_REF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+    private static final int CONSTANT_METHOD_HANDLE = 15;
+    private static final int CONSTANT_METHOD_TYPE = 16;
+    private static final int CONSTANT_INVOKE_DYNAMIC = 18;
+    private final String className;
+    private final String sourceFile;
+    private final Set<String> dependencies;
+    private final Set<String> supertypes;
+    private final boolean declaresConstants;
+
+    public ClassFileInfo(String className, String sourceFile, Set<String> dependencies, Set<String> supertypes, boolean declaresConstants) {
+        this.className = className;
+        this.sourceFile = sourceFile;
+        this.dependencies = dependencies;
+        this.supertypes = supertypes;
+        this.declaresConstants = declaresConstants;
+    }
+
+    /**
+     * Returns the internal name of this class, for example {@code org/gradle/Foo$Bar}.
+     */
+    public String getClassName() {
+        return className;
+    }
+
+    /**
+     * Returns the path of the source file of this class, relative to the source root, for example {@code
+     * org/gradle/Foo.java}. Returns null when the class file does not record its source file.
+     */
+    public String getSourceFile() {
+        return sourceFile;
+    }
+
+    /**
+     * Returns the internal names of the classes which this class refers to, not including this class.
+     */
+    public Set<String> getDependencies() {
+        return dependencies;
+    }
+
+    /**
+     * Returns the internal names of the superclass and the interfaces which this class directly extends or implements.
+     */
+    public Set<String> getSupertypes() {
+        return supertypes;
+    }
+
+    /**
+     * Returns true if this class declares fields with a constant value.
+     */
+    public boolean isDeclaresConstants() {
+        return declaresConstants;
+    }
+
+    public static ClassFileInfo read(File classFile) {
+        try {
+            InputStream instr = new FileInputStream(classFile);
+            try {
+                return read(instr);
+            } finally {
+                instr.close();
+            }
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not read class file '%s'.", classFile), e);
+        }
+    }
+
+    public static ClassFileInfo read(InputStream classFile) throws IOException {
+        DataInputStream instr = new DataInputStream(new BufferedInputStream(classFile));
+        if (instr.readInt() != 0xCAFEBABE) {
+            throw new IOException("Not a class file.");
+        }
+        instr.readUnsignedShort();
+        instr.readUnsignedShort();
+
+        int count = instr.readUnsignedShort();
+        String[] strings = new String[count];
+        // The name index of each class entry, by constant pool index
+        int[] classes = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = instr.readUnsignedByte();
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    strings[i] = instr.readUTF();
+                    break;
+                case CONSTANT_CLASS:
+                    classes[i] = instr.readUnsignedShort();
+                    break;
+                case CONSTANT_STRING:
+                case CONSTANT_METHOD_TYPE:
+                    instr.readUnsignedShort();
+                    break;
+                case CONSTANT_METHOD_HANDLE:
+                    instr.readUnsignedByte();
+                    instr.readUnsignedShort();
+                    break;
+                case CONSTANT_INTEGER:
+                case CONSTANT_FLOAT:
+                case CONSTANT_FIELD_REF:
+                case CONSTANT_METHOD_REF:
+                case CONSTANT_INTERFACE_METHOD_REF:
+                case CONSTANT_NAME_AND_TYPE:
+                case CONSTANT_INVOKE_DYNAMIC:
+                    instr.readInt();
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    instr.readLong();
+                    // These take up two entries
+                    i++;
+                    break;
+                default:
+                    throw new IOException(String.format("Unknown constant pool tag %s.", tag));
+            }
+        }
+
+        instr.readUnsignedShort();
+        String className = strings[classes[instr.readUnsignedShort()]];
+        Set<String> supertypes = new LinkedHashSet<String>();
+        int superClass = instr.readUnsignedShort();
+        if (superClass != 0) {
+            supertypes.add(strings[classes[superClass]]);
+        }
+        int interfaceCount = instr.readUnsignedShort();
+        for (int i = 0; i < interfaceCount; i++) {
+            supertypes.add(strings[classes[instr.readUnsignedShort()]]);
+        }
+
+        Set<String> dependencies = new HashSet<String>();
+        for (int nameIndex : classes) {
+            if (nameIndex != 0) {
+                addClassName(strings[nameIndex], dependencies);
+            }
+        }
+        boolean declaresConstants = false;
+        for (String string : strings) {
+            if (string == null) {
+                continue;
+            }
+            // Pick up the classes in field and method descriptors and generic signatures
+            addDescriptorClassNames(string, dependencies);
+            if (string.equals("ConstantValue")) {
+                declaresConstants = true;
+            }
+        }
+        dependencies.remove(className);
+
+        String sourceFile = readSourceFile(instr, strings);
+        if (sourceFile != null) {
+            int pos = className.lastIndexOf('/');
+            sourceFile = pos < 0 ? sourceFile : className.substring(0, pos + 1) + sourceFile;
+        }
+
+        return new ClassFileInfo(className, sourceFile, dependencies, supertypes, declaresConstants);
+    }
+
+    private static String readSourceFile(DataInputStream instr, String[] strings) throws IOException {
+        for (int members = 0; members < 2; members++) {
+            int memberCount = instr.readUnsignedShort();
+            for (int i = 0; i < memberCount; i++) {
+                skip(instr, 6);
+                skipAttributes(instr);
+            }
+        }
+        int attributeCount = instr.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            String name = strings[instr.readUnsignedShort()];
+            int length = instr.readInt();
+            if ("SourceFile".equals(name)) {
+                return strings[instr.readUnsignedShort()];
+            }
+            skip(instr, length);
+        }
+        return null;
+    }
+
+    private static void skipAttributes(DataInputStream instr) throws IOException {
+        int attributeCount = instr.readUnsignedShort();
+        for (int i = 0; i < attributeCount; i++) {
+            instr.readUnsignedShort();
+            skip(instr, instr.readInt());
+        }
+    }
+
+    private static void skip(DataInputStream instr, int count) throws IOException {
+        int remaining = count;
+        while (remaining > 0) {
+            int skipped = instr.skipBytes(remaining);
+            if (skipped <= 0) {
+                throw new EOFException();
+            }
+            remaining -= skipped;
+        }
+    }
+
+    private static void addClassName(String name, Set<String> classNames) {
+        if (name.startsWith("[")) {
+            addDescriptorClassNames(name, classNames);
+        } else {
+            classNames.add(name);
+        }
+    }
+
+    private static void addDescriptorClassNames(String descriptor, Set<String> classNames) {
+        int pos = descriptor.indexOf('L');
+        while (pos >= 0) {
+            int end = findEndOfClassName(descriptor, pos + 1);
+            if (end > pos + 1 && end < descriptor.length() && (descriptor.charAt(end) == ';' || descriptor.charAt(end) == '<')) {
+                classNames.add(descriptor.substring(pos + 1, end));
+            }
+            pos = descriptor.indexOf('L', end);
+        }
+    }
+
+    private static int findEndOfClassName(String descriptor, int start) {
+        for (int i = start; i < descriptor.length(); i++) {
+            char ch = descriptor.charAt(i);
+            if (ch == ';' || ch == '<' || ch == '.' || ch == '(' || ch == ')' || ch == ':' || ch == ' ') {
+                return i;
+            }
+        }
+        return descriptor.length();
+    }
+}
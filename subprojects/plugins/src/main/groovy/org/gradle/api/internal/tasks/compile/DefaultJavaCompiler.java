@@ -0,0 +1,113 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.compile;
+
+import org.gradle.api.AntBuilder;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.internal.Factory;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.api.tasks.compile.CompileOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+
+/**
+ * Compiles using an {@link InProcessJavaCompiler} when {@link CompileOptions#isUseCompilerApi()} is true and the
+ * Java compiler API can be used with the compile options, and using an {@link AntJavaCompiler} otherwise.
+ */
+public class DefaultJavaCompiler implements JavaCompiler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DefaultJavaCompiler.class);
+    private final Factory<AntBuilder> antBuilderFactory;
+    private final CompileOptions compileOptions = new CompileOptions();
+    private FileCollection source;
+    private File destinationDir;
+    private Iterable<File> classpath;
+    private String sourceCompatibility;
+    private String targetCompatibility;
+    private File dependencyCacheDir;
+
+    public DefaultJavaCompiler(Factory<AntBuilder> antBuilderFactory) {
+        this.antBuilderFactory = antBuilderFactory;
+    }
+
+    public CompileOptions getCompileOptions() {
+        return compileOptions;
+    }
+
+    public void setSource(FileCollection source) {
+        this.source = source;
+    }
+
+    public void setDestinationDir(File destinationDir) {
+        this.destinationDir = destinationDir;
+    }
+
+    public void setClasspath(Iterable<File> classpath) {
+        this.classpath = classpath;
+    }
+
+    public void setSourceCompatibility(String sourceCompatibility) {
+        this.sourceCompatibility = sourceCompatibility;
+    }
+
+    public void setTargetCompatibility(String targetCompatibility) {
+        this.targetCompatibility = targetCompatibility;
+    }
+
+    public void setDependencyCacheDir(File dir) {
+        this.dependencyCacheDir = dir;
+    }
+
+    public WorkResult execute() {
+        JavaCompiler compiler;
+        if (canUseCompilerApi()) {
+            InProcessJavaCompiler inProcessCompiler = new InProcessJavaCompiler();
+            inProcessCompiler.setCompileOptions(compileOptions);
+            compiler = inProcessCompiler;
+        } else {
+            AntJavaCompiler antCompiler = new AntJavaCompiler(antBuilderFactory);
+            antCompiler.setCompileOptions(compileOptions);
+            compiler = antCompiler;
+        }
+        compiler.setSource(source);
+        compiler.setDestinationDir(destinationDir);
+        compiler.setClasspath(classpath);
+        compiler.setSourceCompatibility(sourceCompatibility);
+        compiler.setTargetCompatibility(targetCompatibility);
+        compiler.setDependencyCacheDir(dependencyCacheDir);
+        return compiler.execute();
+    }
+
+    private boolean canUseCompilerApi() {
+        if (!compileOptions.isUseCompilerApi()) {
+            return false;
+        }
+        if (compileOptions.isFork() || compileOptions.getCompiler() != null || compileOptions.isIncludeJavaRuntime()) {
+            LOGGER.info("Not using the Java compiler API, as the compile options require the Ant javac task.");
+            return false;
+        }
+        try {
+            if (InProcessJavaCompiler.isAvailable()) {
+                return true;
+            }
+        } catch (NoClassDefFoundError e) {
+            // Running on Java 5, which does not include the compiler API
+        }
+        LOGGER.info("Not using the Java compiler API, as it is not available in this JVM.");
+        return false;
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.compile;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.UncheckedIOException;
+import org.gradle.api.file.EmptyFileVisitor;
+import org.gradle.api.file.FileCollection;
+import org.gradle.api.file.FileVisitDetails;
+import org.gradle.api.tasks.WorkResult;
+import org.gradle.api.tasks.compile.CompileOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compiles Java source files using the Java compiler API, in the build process. The compiler instance and the
+ * indexes of the classpath JAR files are shared by all compilations in the build process.
+ *
+ * <p>As with the Ant javac task, only the source files whose class file is missing or older than the source file
+ * are compiled.</p>
+ */
+public class InProcessJavaCompiler implements JavaCompiler {
+    private static final Logger LOGGER = LoggerFactory.getLogger(InProcessJavaCompiler.class);
+    private static final JarIndexCache JAR_INDEX_CACHE = new JarIndexCache();
+    private FileCollection source;
+    private File destinationDir;
+    private Iterable<File> classpath;
+    private String sourceCompatibility;
+    private String targetCompatibility;
+    private CompileOptions compileOptions = new CompileOptions();
+
+    /**
+     * Returns true if the Java compiler API is available in this process. It is not available when running on a JRE.
+     */
+    public static boolean isAvailable() {
+        return ToolProvider.getSystemJavaCompiler() != null;
+    }
+
+    public CompileOptions getCompileOptions() {
+        return compileOptions;
+    }
+
+    public void setCompileOptions(CompileOptions compileOptions) {
+        this.compileOptions = compileOptions;
+    }
+
+    public void setSource(FileCollection source) {
+        this.source = source;
+    }
+
+    public void setDestinationDir(File destinationDir) {
+        this.destinationDir = destinationDir;
+    }
+
+    public void setClasspath(Iterable<File> classpath) {
+        this.classpath = classpath;
+    }
+
+    public void setSourceCompatibility(String sourceCompatibility) {
+        this.sourceCompatibility = sourceCompatibility;
+    }
+
+    public void setTargetCompatibility(String targetCompatibility) {
+        this.targetCompatibility = targetCompatibility;
+    }
+
+    public void setDependencyCacheDir(File dir) {
+        // don't care
+    }
+
+    public WorkResult execute() {
+        List<File> sourceFiles = findOutOfDateSources();
+        if (!sourceFiles.isEmpty()) {
+            LOGGER.info("Compiling {} source files to {}", sourceFiles.size(), destinationDir);
+            if (compileOptions.isListFiles()) {
+                for (File sourceFile : sourceFiles) {
+                    LOGGER.info("    {}", sourceFile);
+                }
+            }
+            compile(sourceFiles);
+        }
+
+        final boolean didWork = !sourceFiles.isEmpty();
+        return new WorkResult() {
+            public boolean getDidWork() {
+                return didWork;
+            }
+        };
+    }
+
+    private void compile(List<File> sourceFiles) {
+        // Only the out-of-date sources are compiled, so the compiler must find the other classes in the destination dir
+        List<File> classpathFiles = new ArrayList<File>();
+        classpathFiles.add(destinationDir);
+        if (classpath != null) {
+            for (File file : classpath) {
+                classpathFiles.add(file);
+            }
+        }
+        List<String> options = createOptions();
+        LOGGER.debug("Running the Java compiler with the following options {}", options);
+
+        javax.tools.JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager standardFileManager = compiler.getStandardFileManager(null, null, null);
+        CachingJavaFileManager fileManager = new CachingJavaFileManager(standardFileManager, classpathFiles, JAR_INDEX_CACHE);
+        boolean success;
+        try {
+            try {
+                standardFileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singletonList(destinationDir));
+                standardFileManager.setLocation(StandardLocation.CLASS_PATH, classpathFiles);
+                standardFileManager.setLocation(StandardLocation.SOURCE_PATH, Collections.<File>emptyList());
+                Iterable<? extends JavaFileObject> compilationUnits = standardFileManager.getJavaFileObjectsFromFiles(sourceFiles);
+                success = compiler.getTask(null, fileManager, null, options, null, compilationUnits).call();
+            } finally {
+                fileManager.close();
+                JAR_INDEX_CACHE.removeMissing();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (!success) {
+            if (compileOptions.isFailOnError()) {
+                throw new GradleException("Compile failed; see the compiler error output for details.");
+            }
+            LOGGER.warn("Compile failed; see the compiler error output for details.");
+        }
+    }
+
+    private List<String> createOptions() {
+        List<String> options = new ArrayList<String>();
+        if (sourceCompatibility != null) {
+            options.add("-source");
+            options.add(sourceCompatibility);
+        }
+        if (targetCompatibility != null) {
+            options.add("-target");
+            options.add(targetCompatibility);
+        }
+        if (compileOptions.isDebug()) {
+            String debugLevel = compileOptions.getDebugOptions().getDebugLevel();
+            options.add(debugLevel == null ? "-g" : "-g:" + debugLevel);
+        } else {
+            options.add("-g:none");
+        }
+        if (!compileOptions.isWarnings()) {
+            options.add("-nowarn");
+        }
+        if (compileOptions.isDeprecation()) {
+            options.add("-deprecation");
+        }
+        if (compileOptions.isVerbose()) {
+            options.add("-verbose");
+        }
+        if (compileOptions.getEncoding() != null) {
+            options.add("-encoding");
+            options.add(compileOptions.getEncoding());
+        }
+        if (compileOptions.getBootClasspath() != null) {
+            options.add("-bootclasspath");
+            options.add(compileOptions.getBootClasspath());
+        }
+        if (compileOptions.getExtensionDirs() != null) {
+            options.add("-extdirs");
+            options.add(compileOptions.getExtensionDirs());
+        }
+        for (Object arg : compileOptions.getCompilerArgs()) {
+            options.add(arg.toString());
+        }
+        return options;
+    }
+
+    private List<File> findOutOfDateSources() {
+        final List<File> sourceFiles = new ArrayList<File>();
+        source.getAsFileTree().visit(new EmptyFileVisitor() {
+            @Override
+            public void visitFile(FileVisitDetails fileDetails) {
+                String path = fileDetails.getRelativePath().getPathString();
+                if (!path.endsWith(".java")) {
+                    return;
+                }
+                File classFile = new File(destinationDir, path.substring(0, path.length() - 5) + ".class");
+                if (!classFile.isFile() || fileDetails.getLastModified() > classFile.lastModified()) {
+                    sourceFiles.add(fileDetails.getFile());
+                }
+            }
+        });
+        return sourceFiles;
+    }
+}
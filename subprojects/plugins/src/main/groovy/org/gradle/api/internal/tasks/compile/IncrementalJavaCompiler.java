@@ -16,21 +16,33 @@
 package org.gradle.api.internal.tasks.compile;
 
 import org.gradle.api.AntBuilder;
+import org.gradle.api.Task;
 import org.gradle.api.internal.Factory;
 import org.gradle.api.internal.TaskOutputsInternal;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentCache;
+import org.gradle.util.GUtil;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 public class IncrementalJavaCompiler extends IncrementalJavaSourceCompiler<JavaCompiler> implements JavaCompiler {
     private final Factory<AntBuilder> antBuilderFactory;
     private final TaskOutputsInternal taskOutputs;
+    private final CacheRepository cacheRepository;
+    private final Task task;
     private File dependencyCacheDir;
 
     public IncrementalJavaCompiler(JavaCompiler compiler, Factory<AntBuilder> antBuilderFactory,
-                                    TaskOutputsInternal taskOutputs) {
+                                    TaskOutputsInternal taskOutputs, CacheRepository cacheRepository, Task task) {
         super(compiler);
         this.antBuilderFactory = antBuilderFactory;
         this.taskOutputs = taskOutputs;
+        this.cacheRepository = cacheRepository;
+        this.task = task;
     }
 
     public void setDependencyCacheDir(File dir) {
@@ -43,8 +55,33 @@ public class IncrementalJavaCompiler extends IncrementalJavaSourceCompiler<JavaC
             AntDependsStaleClassCleaner cleaner = new AntDependsStaleClassCleaner((Factory) antBuilderFactory);
             cleaner.setDependencyCacheDir(dependencyCacheDir);
             return cleaner;
+        } else if (getCompileOptions().isIncremental()) {
+            ClassDependencyStaleClassCleaner cleaner = new ClassDependencyStaleClassCleaner(taskOutputs, openClassDependencyCache());
+            cleaner.setClasspath(getClasspath());
+            return cleaner;
         } else {
             return new SimpleStaleClassCleaner(taskOutputs);
         }
     }
+
+    /**
+     * Opens the cache which holds the class dependencies of the previous compilation of the task. The cache is kept
+     * in a directory of the build's cache named after the task path. It is discarded when the compiler settings or the
+     * classpath entries change, as any of these can change the compiled classes.
+     */
+    private PersistentCache openClassDependencyCache() {
+        List<String> classpath = new ArrayList<String>();
+        for (File file : getClasspath()) {
+            classpath.add(file.getAbsolutePath());
+        }
+        Map<String, Object> settings = new HashMap<String, Object>();
+        settings.put("sourceCompatibility", String.valueOf(getSourceCompatibility()));
+        settings.put("targetCompatibility", String.valueOf(getTargetCompatibility()));
+        settings.put("options", String.valueOf(getCompileOptions().optionMap()));
+        settings.put("compilerArgs", String.valueOf(getCompileOptions().getCompilerArgs()));
+        settings.put("destinationDir", getDestinationDir().getAbsolutePath());
+        settings.put("classpath", GUtil.join(classpath, File.pathSeparator));
+        String key = "classDependencies" + task.getPath().replace(':', '/');
+        return cacheRepository.cache(key).forObject(task.getProject().getGradle()).withProperties(settings).open();
+    }
 }
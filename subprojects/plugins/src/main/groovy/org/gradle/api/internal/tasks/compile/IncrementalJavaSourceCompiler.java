@@ -28,6 +28,9 @@ public abstract class IncrementalJavaSourceCompiler<T extends JavaSourceCompiler
     private final T compiler;
     private FileCollection source;
     private File destinationDir;
+    private Iterable<File> classpath;
+    private String sourceCompatibility;
+    private String targetCompatibility;
 
     public IncrementalJavaSourceCompiler(T compiler) {
         this.compiler = compiler;
@@ -41,11 +44,21 @@ public abstract class IncrementalJavaSourceCompiler<T extends JavaSourceCompiler
         return compiler.getCompileOptions();
     }
 
+    public String getSourceCompatibility() {
+        return sourceCompatibility;
+    }
+
     public void setSourceCompatibility(String sourceCompatibility) {
+        this.sourceCompatibility = sourceCompatibility;
         compiler.setSourceCompatibility(sourceCompatibility);
     }
 
+    public String getTargetCompatibility() {
+        return targetCompatibility;
+    }
+
     public void setTargetCompatibility(String targetCompatibility) {
+        this.targetCompatibility = targetCompatibility;
         compiler.setTargetCompatibility(targetCompatibility);
     }
 
@@ -54,12 +67,21 @@ public abstract class IncrementalJavaSourceCompiler<T extends JavaSourceCompiler
         compiler.setSource(source);
     }
 
+    public File getDestinationDir() {
+        return destinationDir;
+    }
+
     public void setDestinationDir(File destinationDir) {
         this.destinationDir = destinationDir;
         compiler.setDestinationDir(destinationDir);
     }
 
+    public Iterable<File> getClasspath() {
+        return classpath;
+    }
+
     public void setClasspath(Iterable<File> classpath) {
+        this.classpath = classpath;
         compiler.setClasspath(classpath);
     }
 
@@ -70,7 +92,9 @@ public abstract class IncrementalJavaSourceCompiler<T extends JavaSourceCompiler
         cleaner.setCompileOptions(compiler.getCompileOptions());
         cleaner.execute();
 
-        return compiler.execute();
+        WorkResult result = compiler.execute();
+        cleaner.compilationComplete();
+        return result;
     }
 
     protected abstract StaleClassCleaner createCleaner();
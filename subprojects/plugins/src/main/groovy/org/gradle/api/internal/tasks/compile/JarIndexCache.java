@@ -0,0 +1,111 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.compile;
+
+import org.gradle.api.UncheckedIOException;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Caches the entry names of JAR files, grouped by package, so that a JAR does not need to be opened and scanned each
+ * time it is used. An index is discarded when the size or timestamp of its JAR file changes. The JAR files are not
+ * held open.
+ */
+public class JarIndexCache {
+    private final Map<File, JarIndex> indexes = new HashMap<File, JarIndex>();
+
+    /**
+     * Returns the index of the given JAR file, creating it if required.
+     */
+    public synchronized JarIndex get(File jarFile) {
+        JarIndex index = indexes.get(jarFile);
+        if (index == null || index.lastModified != jarFile.lastModified() || index.length != jarFile.length()) {
+            index = new JarIndex(jarFile);
+            indexes.put(jarFile, index);
+        }
+        return index;
+    }
+
+    /**
+     * Discards the indexes of JAR files which no longer exist.
+     */
+    public synchronized void removeMissing() {
+        for (Iterator<File> iterator = indexes.keySet().iterator(); iterator.hasNext();) {
+            if (!iterator.next().isFile()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public static class JarIndex {
+        private final long lastModified;
+        private final long length;
+        private final Map<String, List<String>> entriesByPackage = new HashMap<String, List<String>>();
+
+        private JarIndex(File jarFile) {
+            lastModified = jarFile.lastModified();
+            length = jarFile.length();
+            try {
+                ZipFile zipFile = new ZipFile(jarFile);
+                try {
+                    Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                    while (entries.hasMoreElements()) {
+                        ZipEntry entry = entries.nextElement();
+                        if (entry.isDirectory()) {
+                            continue;
+                        }
+                        String name = entry.getName();
+                        int pos = name.lastIndexOf('/');
+                        String packagePath = pos < 0 ? "" : name.substring(0, pos);
+                        List<String> names = entriesByPackage.get(packagePath);
+                        if (names == null) {
+                            names = new ArrayList<String>();
+                            entriesByPackage.put(packagePath, names);
+                        }
+                        names.add(name);
+                    }
+                } finally {
+                    zipFile.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(String.format("Could not read JAR file '%s'.", jarFile), e);
+            }
+        }
+
+        /**
+         * Returns the names of the entries in the given package, for example {@code org/gradle}, and optionally its
+         * sub-packages.
+         */
+        public List<String> getEntries(String packagePath, boolean recurse) {
+            if (!recurse) {
+                List<String> names = entriesByPackage.get(packagePath);
+                return names == null ? Collections.<String>emptyList() : names;
+            }
+            List<String> names = new ArrayList<String>();
+            String prefix = packagePath + "/";
+            for (Map.Entry<String, List<String>> entry : entriesByPackage.entrySet()) {
+                if (packagePath.length() == 0 || entry.getKey().equals(packagePath) || entry.getKey().startsWith(prefix)) {
+                    names.addAll(entry.getValue());
+                }
+            }
+            return names;
+        }
+    }
+}
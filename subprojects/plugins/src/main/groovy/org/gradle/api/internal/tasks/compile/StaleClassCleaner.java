@@ -27,6 +27,12 @@ public abstract class StaleClassCleaner {
 
     public abstract void execute();
 
+    /**
+     * Called after the compiler has run successfully. Does nothing by default.
+     */
+    public void compilationComplete() {
+    }
+
     public CompileOptions getCompileOptions() {
         return compileOptions;
     }
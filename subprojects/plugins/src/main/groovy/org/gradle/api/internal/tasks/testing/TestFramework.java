@@ -49,4 +49,11 @@ public interface TestFramework {
      * executed before starting each worker process.
      */
     Action<WorkerProcessBuilder> getWorkerConfigurationAction();
+
+    /**
+     * Returns true if the test processors for this framework execute each test class as soon as it is received, and
+     * report the test class as completed once it has been executed. Returns false if test classes may not be executed
+     * until the test processor is stopped.
+     */
+    boolean executesTestClassesOnReceipt();
 }
@@ -24,25 +24,35 @@ import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
+ * Detects test classes by scanning the test class files, and the class files of their super classes. Super classes in
+ * library jars are looked up in a {@link ClassHierarchyIndex}, rather than being scanned.
+ *
+ * <p>Test class files may be processed concurrently.</p>
+ *
  * @author Tom Eyckmans
  */
 public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor> implements TestFrameworkDetector {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractTestFrameworkDetector.class);
     protected static final String TEST_CASE = "junit/framework/TestCase";
     protected static final String GROOVY_TEST_CASE = "groovy/util/GroovyTestCase";
 
     private final File testClassesDirectory;
     private final FileCollection testClasspath;
     private List<File> testClassDirectories;
-    private ClassFileExtractionManager classFileExtractionManager;
-    private final Map<File, Boolean> superClasses;
+    private List<File> libraryJars;
+    private ClassHierarchyIndex classHierarchyIndex;
+    private final Map<String, Boolean> superClasses;
 
     protected TestClassProcessor testClassProcessor;
 
@@ -51,44 +61,53 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
     protected AbstractTestFrameworkDetector(File testClassesDirectory, FileCollection testClasspath) {
         this.testClassesDirectory = testClassesDirectory;
         this.testClasspath = testClasspath;
-        this.superClasses = new HashMap<File, Boolean>();
+        this.superClasses = new ConcurrentHashMap<String, Boolean>();
         this.knownTestCaseClassNames = new ArrayList<String>();
         addKnownTestCaseClassNames(TEST_CASE, GROOVY_TEST_CASE);
     }
 
     protected abstract T createClassVisitor();
 
+    public void setClassHierarchyIndex(ClassHierarchyIndex classHierarchyIndex) {
+        this.classHierarchyIndex = classHierarchyIndex;
+    }
+
     protected File getSuperTestClassFile(String superClassName) {
         prepareClasspath();
         if (StringUtils.isEmpty(superClassName)) {
             throw new IllegalArgumentException("superClassName is empty!");
         }
 
-        final Iterator<File> testClassDirectoriesIt = testClassDirectories.iterator();
-
-        File superTestClassFile = null;
-        while (superTestClassFile == null && testClassDirectoriesIt.hasNext()) {
-            final File testClassDirectory = testClassDirectoriesIt.next();
-            final File superTestClassFileCandidate = new File(testClassDirectory, superClassName + ".class");
-            if (superTestClassFileCandidate.exists()) {
-                superTestClassFile = superTestClassFileCandidate;
+        for (File testClassDirectory : testClassDirectories) {
+            final File superTestClassFile = new File(testClassDirectory, superClassName + ".class");
+            if (superTestClassFile.exists()) {
+                return superTestClassFile;
             }
         }
+        return null;
+    }
 
-        if (superTestClassFile != null) {
-            return superTestClassFile;
-        } else { // super test class file not in test class directories
-            return classFileExtractionManager.getLibraryClassFile(superClassName);
+    protected ClassHierarchyIndex.ClassInfo getLibraryClassInfo(String className) {
+        prepareClasspath();
+        if (classHierarchyIndex == null) {
+            return null;
+        }
+        for (File libraryJar : libraryJars) {
+            ClassHierarchyIndex.ClassInfo classInfo = classHierarchyIndex.getClasses(libraryJar).get(className);
+            if (classInfo != null) {
+                return classInfo;
+            }
         }
+        return null;
     }
 
-    private void prepareClasspath() {
-        if (classFileExtractionManager != null) {
+    private synchronized void prepareClasspath() {
+        if (testClassDirectories != null) {
             return;
         }
 
-        classFileExtractionManager = new ClassFileExtractionManager();
-        testClassDirectories = new ArrayList<File>();
+        List<File> testClassDirectories = new ArrayList<File>();
+        libraryJars = new ArrayList<File>();
 
         testClassDirectories.add(testClassesDirectory);
         if (testClasspath != null) {
@@ -96,10 +115,11 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
                 if (file.isDirectory()) {
                     testClassDirectories.add(file);
                 } else if (file.isFile() && file.getName().endsWith(".jar")) {
-                    classFileExtractionManager.addLibraryJar(file);
+                    libraryJars.add(file);
                 }
             }
         }
+        this.testClassDirectories = testClassDirectories;
     }
 
     protected TestClassVisitor classVisitor(final File testClassFile) {
@@ -125,19 +145,41 @@ public abstract class AbstractTestFrameworkDetector<T extends TestClassVisitor>
 
     protected abstract boolean processTestClass(File testClassFile, boolean superClass);
 
-    protected boolean processSuperClass(File testClassFile) {
-        boolean isTest = false;
+    /**
+     * Determines whether the given class from a library jar is a test class.
+     */
+    protected abstract boolean isLibraryTestClass(ClassHierarchyIndex.ClassInfo classInfo);
 
-        Boolean isSuperTest = superClasses.get(testClassFile);
+    /**
+     * Determines whether the given super class is a test class. The super class is scanned when it is in a test class
+     * directory, and otherwise looked up in the library jars. The result is remembered for each super class.
+     */
+    protected boolean processSuperClass(String superClassName) {
+        if (StringUtils.isEmpty(superClassName) || superClassName.startsWith("java/")) {
+            // Classes of the JDK are not tests, and are not on the test classpath
+            return false;
+        }
 
-        if (isSuperTest == null) {
-            isTest = processTestClass(testClassFile, true);
+        Boolean isSuperTest = superClasses.get(superClassName);
+        if (isSuperTest != null) {
+            return isSuperTest;
+        }
 
-            superClasses.put(testClassFile, isTest);
+        boolean isTest = false;
+        final File superClassFile = getSuperTestClassFile(superClassName);
+        if (superClassFile != null) {
+            isTest = processTestClass(superClassFile, true);
         } else {
-            isTest = isSuperTest;
+            final ClassHierarchyIndex.ClassInfo superClassInfo = getLibraryClassInfo(superClassName);
+            if (superClassInfo != null) {
+                isTest = isLibraryTestClass(superClassInfo);
+            } else {
+                LOGGER.debug("test-class-scan : failed to scan parent class {}, could not find the class file",
+                        superClassName);
+            }
         }
 
+        superClasses.put(superClassName, isTest);
         return isTest;
     }
 
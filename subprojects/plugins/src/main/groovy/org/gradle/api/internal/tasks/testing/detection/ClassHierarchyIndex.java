@@ -0,0 +1,221 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.detection;
+
+import org.gradle.api.GradleException;
+import org.gradle.api.internal.changedetection.Hasher;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.Serializer;
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.EmptyVisitor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.util.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * An index of the classes in library jars, which maps each class to its super class and the annotations it uses.
+ *
+ * <p>A jar is indexed by reading the header of each class file in the jar, without extracting anything. The index of
+ * each jar is persisted in a cache keyed by the hash of the jar's content, so a jar is only read again when it
+ * changes.</p>
+ */
+public class ClassHierarchyIndex {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ClassHierarchyIndex.class);
+    private final CacheRepository cacheRepository;
+    private final Hasher hasher;
+    private final Map<File, Map<String, ClassInfo>> jars = new HashMap<File, Map<String, ClassInfo>>();
+    private PersistentIndexedCache<String, Map<String, ClassInfo>> cache;
+
+    public ClassHierarchyIndex(CacheRepository cacheRepository, Hasher hasher) {
+        this.cacheRepository = cacheRepository;
+        this.hasher = hasher;
+    }
+
+    /**
+     * Returns the classes in the given jar, indexed by internal class name.
+     */
+    public synchronized Map<String, ClassInfo> getClasses(File jar) {
+        Map<String, ClassInfo> classes = jars.get(jar);
+        if (classes == null) {
+            if (cache == null) {
+                cache = cacheRepository.cache("classHierarchy").open().openIndexedCache(new JarIndexSerializer());
+            }
+            String key = new BigInteger(1, hasher.hash(jar)).toString(16);
+            classes = cache.get(key);
+            if (classes == null) {
+                classes = indexJar(jar);
+                cache.put(key, classes);
+            }
+            jars.put(jar, classes);
+        }
+        return classes;
+    }
+
+    private Map<String, ClassInfo> indexJar(File jar) {
+        LOGGER.debug("indexing classes in {}", jar);
+        Map<String, ClassInfo> classes = new HashMap<String, ClassInfo>();
+        try {
+            ZipFile zipFile = new ZipFile(jar);
+            try {
+                Enumeration<? extends ZipEntry> entries = zipFile.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (entry.isDirectory() || !entry.getName().endsWith(".class")) {
+                        continue;
+                    }
+                    InputStream classStream = new BufferedInputStream(zipFile.getInputStream(entry));
+                    try {
+                        ClassInfoVisitor visitor = new ClassInfoVisitor();
+                        new ClassReader(classStream).accept(visitor, ClassReader.SKIP_DEBUG | ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+                        classes.put(visitor.className, visitor.classInfo);
+                    } finally {
+                        classStream.close();
+                    }
+                }
+            } finally {
+                zipFile.close();
+            }
+        } catch (IOException e) {
+            throw new GradleException("failed to index classes in jar file (" + jar.getAbsolutePath() + ")", e);
+        }
+        return classes;
+    }
+
+    /**
+     * The details of a class which are needed to decide whether it is a test class.
+     */
+    public static class ClassInfo {
+        private final String superClassName;
+        private final boolean isAbstract;
+        private final Set<String> annotations = new HashSet<String>();
+        private final Set<String> methodAnnotations = new HashSet<String>();
+
+        ClassInfo(String superClassName, boolean isAbstract) {
+            this.superClassName = superClassName;
+            this.isAbstract = isAbstract;
+        }
+
+        /**
+         * Returns the internal name of the super class, or null for {@code java.lang.Object}.
+         */
+        public String getSuperClassName() {
+            return superClassName;
+        }
+
+        public boolean isAbstract() {
+            return isAbstract;
+        }
+
+        /**
+         * Returns the descriptors of the annotations of this class.
+         */
+        public Set<String> getAnnotations() {
+            return annotations;
+        }
+
+        /**
+         * Returns the descriptors of the annotations of the methods declared by this class.
+         */
+        public Set<String> getMethodAnnotations() {
+            return methodAnnotations;
+        }
+    }
+
+    private static class ClassInfoVisitor extends EmptyVisitor {
+        private String className;
+        private ClassInfo classInfo;
+
+        @Override
+        public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+            className = name;
+            classInfo = new ClassInfo(superName, (access & Opcodes.ACC_ABSTRACT) != 0);
+        }
+
+        @Override
+        public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+            classInfo.annotations.add(desc);
+            return new EmptyVisitor();
+        }
+
+        @Override
+        public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+            return new EmptyVisitor() {
+                @Override
+                public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+                    classInfo.methodAnnotations.add(desc);
+                    return new EmptyVisitor();
+                }
+            };
+        }
+    }
+
+    private static class JarIndexSerializer implements Serializer<Map<String, ClassInfo>> {
+        public Map<String, ClassInfo> read(InputStream instr) throws Exception {
+            DataInputStream input = new DataInputStream(new BufferedInputStream(instr));
+            int count = input.readInt();
+            Map<String, ClassInfo> classes = new HashMap<String, ClassInfo>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String className = input.readUTF();
+                String superClassName = input.readBoolean() ? input.readUTF() : null;
+                ClassInfo classInfo = new ClassInfo(superClassName, input.readBoolean());
+                readStrings(input, classInfo.annotations);
+                readStrings(input, classInfo.methodAnnotations);
+                classes.put(className, classInfo);
+            }
+            return classes;
+        }
+
+        public void write(OutputStream outstr, Map<String, ClassInfo> value) throws Exception {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(outstr));
+            output.writeInt(value.size());
+            for (Map.Entry<String, ClassInfo> entry : value.entrySet()) {
+                ClassInfo classInfo = entry.getValue();
+                output.writeUTF(entry.getKey());
+                output.writeBoolean(classInfo.superClassName != null);
+                if (classInfo.superClassName != null) {
+                    output.writeUTF(classInfo.superClassName);
+                }
+                output.writeBoolean(classInfo.isAbstract);
+                writeStrings(output, classInfo.annotations);
+                writeStrings(output, classInfo.methodAnnotations);
+            }
+            output.flush();
+        }
+
+        private void readStrings(DataInputStream input, Set<String> strings) throws IOException {
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                strings.add(input.readUTF());
+            }
+        }
+
+        private void writeStrings(DataOutputStream output, Set<String> strings) throws IOException {
+            output.writeInt(strings.size());
+            for (String string : strings) {
+                output.writeUTF(string);
+            }
+        }
+    }
+}
@@ -22,12 +22,17 @@ import org.gradle.api.file.FileVisitDetails;
 import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The default test class scanner depending on the availability of a test framework detecter a detection or filename
- * scan is performed to find test classes.
+ * scan is performed to find test classes. When detecting, the class files can be processed using several threads.
  *
  * @author Tom Eyckmans
  */
@@ -35,12 +40,22 @@ public class DefaultTestClassScanner implements Runnable {
     private final FileTree candidateClassFiles;
     private final TestFrameworkDetector testFrameworkDetector;
     private final TestClassProcessor testClassProcessor;
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
 
     public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
                                    TestClassProcessor testClassProcessor) {
+        this(candidateClassFiles, testFrameworkDetector, testClassProcessor, null, 1);
+    }
+
+    public DefaultTestClassScanner(FileTree candidateClassFiles, TestFrameworkDetector testFrameworkDetector,
+                                   TestClassProcessor testClassProcessor, ExecutorFactory executorFactory,
+                                   int maxThreads) {
         this.candidateClassFiles = candidateClassFiles;
         this.testFrameworkDetector = testFrameworkDetector;
         this.testClassProcessor = testClassProcessor;
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
     }
 
     public void run() {
@@ -53,11 +68,36 @@ public class DefaultTestClassScanner implements Runnable {
 
     private void detectionScan() {
         testFrameworkDetector.startDetection(testClassProcessor);
+        final List<File> classFiles = new ArrayList<File>();
         candidateClassFiles.visit(new ClassFileVisitor() {
             public void visitClassFile(FileVisitDetails fileDetails) {
-                testFrameworkDetector.processTestClass(fileDetails.getFile());
+                classFiles.add(fileDetails.getFile());
             }
         });
+
+        int threads = Math.min(maxThreads, classFiles.size());
+        if (executorFactory == null || threads <= 1) {
+            for (File classFile : classFiles) {
+                testFrameworkDetector.processTestClass(classFile);
+            }
+            return;
+        }
+
+        final AtomicInteger next = new AtomicInteger();
+        StoppableExecutor executor = executorFactory.create("Test class scanner");
+        try {
+            for (int i = 0; i < threads; i++) {
+                executor.execute(new Runnable() {
+                    public void run() {
+                        for (int index = next.getAndIncrement(); index < classFiles.size(); index = next.getAndIncrement()) {
+                            testFrameworkDetector.processTestClass(classFiles.get(index));
+                        }
+                    }
+                });
+            }
+        } finally {
+            executor.stop();
+        }
     }
 
     private void filenameScan() {
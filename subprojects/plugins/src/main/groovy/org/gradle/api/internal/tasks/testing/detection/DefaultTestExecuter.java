@@ -18,16 +18,18 @@ package org.gradle.api.internal.tasks.testing.detection;
 
 import org.gradle.api.file.FileTree;
 import org.gradle.api.internal.Factory;
+import org.gradle.api.internal.changedetection.Hasher;
 import org.gradle.api.internal.tasks.testing.TestClassProcessor;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
 import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
-import org.gradle.api.internal.tasks.testing.processors.MaxNParallelTestClassProcessor;
-import org.gradle.api.internal.tasks.testing.processors.RestartEveryNTestClassProcessor;
-import org.gradle.api.internal.tasks.testing.processors.TestMainAction;
+import org.gradle.api.internal.tasks.testing.processors.*;
+import org.gradle.api.internal.tasks.testing.results.CacheBackedTestClassHistory;
 import org.gradle.api.internal.tasks.testing.worker.ForkingTestClassProcessor;
 import org.gradle.api.tasks.testing.Test;
+import org.gradle.cache.CacheRepository;
 import org.gradle.messaging.actor.ActorFactory;
+import org.gradle.messaging.concurrent.ExecutorFactory;
 import org.gradle.process.internal.WorkerProcessBuilder;
 import org.gradle.util.TrueTimeProvider;
 
@@ -39,19 +41,27 @@ import org.gradle.util.TrueTimeProvider;
 public class DefaultTestExecuter implements TestExecuter {
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final ActorFactory actorFactor;
+    private final CacheRepository cacheRepository;
+    private final Hasher hasher;
+    private final ExecutorFactory executorFactory;
 
-    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor) {
+    public DefaultTestExecuter(Factory<WorkerProcessBuilder> workerFactory, ActorFactory actorFactor, CacheRepository cacheRepository,
+                               Hasher hasher, ExecutorFactory executorFactory) {
         this.workerFactory = workerFactory;
         this.actorFactor = actorFactor;
+        this.cacheRepository = cacheRepository;
+        this.hasher = hasher;
+        this.executorFactory = executorFactory;
     }
 
     public void execute(final Test testTask, TestResultProcessor testResultProcessor) {
         final TestFramework testFramework = testTask.getTestFramework();
         final WorkerTestClassProcessorFactory testInstanceFactory = testFramework.getProcessorFactory();
+        final boolean reuseForks = testTask.isReuseForks() && testTask.getForkEvery() == 0;
         final Factory<TestClassProcessor> forkingProcessorFactory = new Factory<TestClassProcessor>() {
             public TestClassProcessor create() {
                 return new ForkingTestClassProcessor(workerFactory, testInstanceFactory, testTask,
-                        testTask.getClasspath(), testFramework.getWorkerConfigurationAction());
+                        testTask.getClasspath(), testFramework.getWorkerConfigurationAction(), reuseForks);
             }
         };
         Factory<TestClassProcessor> reforkingProcessorFactory = new Factory<TestClassProcessor>() {
@@ -60,18 +70,30 @@ public class DefaultTestExecuter implements TestExecuter {
             }
         };
 
+        // Run the test classes which failed last time first, then balance the remaining classes across the workers by
+        // starting the longest running classes first
+        CacheBackedTestClassHistory history = new CacheBackedTestClassHistory(cacheRepository, testTask);
         TestClassProcessor processor = new MaxNParallelTestClassProcessor(testTask.getMaxParallelForks(),
-                reforkingProcessorFactory, actorFactor);
+                reforkingProcessorFactory, actorFactor, testFramework.executesTestClassesOnReceipt(),
+                new FailedFirstTestClassOrder(history, new LongestFirstTestClassOrder(history)));
 
         final FileTree testClassFiles = testTask.getCandidateClassFiles();
 
         Runnable detector;
         if (testTask.isScanForTestClasses()) {
             TestFrameworkDetector testFrameworkDetector = testTask.getTestFramework().getDetector();
-            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor);
+            testFrameworkDetector.setClassHierarchyIndex(new ClassHierarchyIndex(cacheRepository, hasher));
+            detector = new DefaultTestClassScanner(testClassFiles, testFrameworkDetector, processor, executorFactory,
+                    Runtime.getRuntime().availableProcessors());
         } else {
             detector = new DefaultTestClassScanner(testClassFiles, null, processor);
         }
-        new TestMainAction(detector, processor, testResultProcessor, new TrueTimeProvider()).run();
+        testTask.addTestListener(history);
+        try {
+            new TestMainAction(detector, processor, testResultProcessor, new TrueTimeProvider()).run();
+        } finally {
+            testTask.removeTestListener(history);
+            history.save();
+        }
     }
 }
@@ -25,5 +25,10 @@ import java.io.File;
 public interface TestFrameworkDetector {
     void startDetection(TestClassProcessor testClassProcessor);
 
+    /**
+     * Sets the index to use to look up classes in library jars.
+     */
+    void setClassHierarchyIndex(ClassHierarchyIndex classHierarchyIndex);
+
     boolean processTestClass(File testClassFile);
 }
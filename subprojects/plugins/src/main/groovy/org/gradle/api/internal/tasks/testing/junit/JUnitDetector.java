@@ -18,8 +18,7 @@ package org.gradle.api.internal.tasks.testing.junit;
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.tasks.testing.detection.TestClassVisitor;
 import org.gradle.api.internal.tasks.testing.detection.AbstractTestFrameworkDetector;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.gradle.api.internal.tasks.testing.detection.ClassHierarchyIndex;
 
 import java.io.File;
 
@@ -27,8 +26,6 @@ import java.io.File;
  * @author Tom Eyckmans
  */
 public class JUnitDetector extends AbstractTestFrameworkDetector<JUnitTestClassDetecter> {
-    private static final Logger LOGGER = LoggerFactory.getLogger(JUnitDetector.class);
-
     JUnitDetector(File testClassesDirectory, FileCollection testClasspath) {
         super(testClassesDirectory, testClasspath);
     }
@@ -45,22 +42,22 @@ public class JUnitDetector extends AbstractTestFrameworkDetector<JUnitTestClassD
         if (!isTest) { // scan parent class
             final String superClassName = classVisitor.getSuperClassName();
 
-            if (isKnownTestCaseClassName(superClassName)) {
-                isTest = true;
-            } else {
-                final File superClassFile = getSuperTestClassFile(superClassName);
-
-                if (superClassFile != null) {
-                    isTest = processSuperClass(superClassFile);
-                } else {
-                    LOGGER.debug("test-class-scan : failed to scan parent class {}, could not find the class file",
-                            superClassName);
-                }
-            }
+            isTest = isKnownTestCaseClassName(superClassName) || processSuperClass(superClassName);
         }
 
         publishTestClass(isTest, classVisitor, superClass);
 
         return isTest;
     }
+
+    protected boolean isLibraryTestClass(ClassHierarchyIndex.ClassInfo classInfo) {
+        if (classInfo.getAnnotations().contains(JUnitTestClassDetecter.RUN_WITH)
+                || classInfo.getMethodAnnotations().contains(JUnitTestMethodDetecter.TEST)) {
+            return true;
+        }
+
+        final String superClassName = classInfo.getSuperClassName();
+
+        return isKnownTestCaseClassName(superClassName) || processSuperClass(superClassName);
+    }
 }
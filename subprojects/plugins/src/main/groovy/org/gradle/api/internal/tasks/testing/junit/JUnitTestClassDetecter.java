@@ -26,6 +26,8 @@ import org.objectweb.asm.commons.EmptyVisitor;
  * @author Tom Eyckmans
  */
 class JUnitTestClassDetecter extends TestClassVisitor {
+    static final String RUN_WITH = "Lorg/junit/runner/RunWith;";
+
     private boolean isAbstract;
     private String className;
     private String superClassName;
@@ -74,7 +76,7 @@ class JUnitTestClassDetecter extends TestClassVisitor {
      *         this annotation.
      */
     public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-        if ("Lorg/junit/runner/RunWith;".equals(desc)) {
+        if (RUN_WITH.equals(desc)) {
             test = true;
         }
 
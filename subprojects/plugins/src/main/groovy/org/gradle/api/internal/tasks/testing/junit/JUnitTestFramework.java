@@ -62,6 +62,10 @@ public class JUnitTestFramework implements TestFramework {
         };
     }
 
+    public boolean executesTestClassesOnReceipt() {
+        return true;
+    }
+
     public void report() {
         if (!testTask.isTestReport()) {
             return;
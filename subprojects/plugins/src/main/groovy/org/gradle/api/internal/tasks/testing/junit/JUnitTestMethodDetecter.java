@@ -22,6 +22,7 @@ import org.objectweb.asm.commons.EmptyVisitor;
  * @author Tom Eyckmans
  */
 class JUnitTestMethodDetecter extends EmptyVisitor {
+    static final String TEST = "Lorg/junit/Test;";
 
     private final JUnitTestClassDetecter testClassDetecter;
 
@@ -30,7 +31,7 @@ class JUnitTestMethodDetecter extends EmptyVisitor {
     }
 
     public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-        if ("Lorg/junit/Test;".equals(desc)) {
+        if (TEST.equals(desc)) {
             testClassDetecter.setTest(true);
         }
         return new EmptyVisitor();
@@ -18,6 +18,7 @@ package org.gradle.api.internal.tasks.testing.junit;
 
 import org.apache.tools.ant.util.DOMElementWriter;
 import org.apache.tools.ant.util.DateUtils;
+import org.apache.tools.ant.util.StringUtils;
 import org.gradle.api.GradleException;
 import org.gradle.api.internal.tasks.testing.TestDescriptorInternal;
 import org.gradle.api.internal.tasks.testing.TestOutputEvent;
@@ -27,7 +28,6 @@ import org.gradle.util.UncheckedException;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import java.io.*;
 import java.net.InetAddress;
@@ -35,20 +35,29 @@ import java.net.UnknownHostException;
 import java.util.EnumMap;
 import java.util.Map;
 
+/**
+ * Writes a JUnit XML result file for each test class.
+ *
+ * <p>The results are streamed to disk as the tests of a class execute: each test case element is written to a spool
+ * file as soon as the test completes, and the output of the class is written to a spool file as it is received. The
+ * result file is assembled from the spool files when the class completes, so memory use does not depend on the number
+ * of tests in the class or the amount of output they generate.</p>
+ */
 public class JUnitXmlReportGenerator extends StateTrackingTestResultProcessor {
+    private static final String INDENT = "  ";
     private final File testResultsDir;
-    private final DocumentBuilder documentBuilder;
+    private final Document document;
+    private final DOMElementWriter elementWriter = new DOMElementWriter(true);
     private final String hostName;
-    private Document testSuiteReport;
     private TestState testSuite;
-    private Element rootElement;
-    private Map<TestOutputEvent.Destination, StringBuilder> outputs
-            = new EnumMap<TestOutputEvent.Destination, StringBuilder>(TestOutputEvent.Destination.class);
+    private SpoolFile testCases;
+    private final Map<TestOutputEvent.Destination, SpoolFile> outputs
+            = new EnumMap<TestOutputEvent.Destination, SpoolFile>(TestOutputEvent.Destination.class);
 
     public JUnitXmlReportGenerator(File testResultsDir) {
         this.testResultsDir = testResultsDir;
         try {
-            documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
         } catch (Exception e) {
             throw UncheckedException.asUncheckedException(e);
         }
@@ -57,78 +66,125 @@ public class JUnitXmlReportGenerator extends StateTrackingTestResultProcessor {
 
     @Override
     public void output(Object testId, TestOutputEvent event) {
-        outputs.get(event.getDestination()).append(event.getMessage());
+        SpoolFile output = outputs.get(event.getDestination());
+        if (output == null) {
+            return;
+        }
+        try {
+            output.writer.write(event.getMessage());
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not write output of test class '%s'.", testSuite.test.getClassName()), e);
+        }
     }
 
     @Override
     protected void started(TestState state) {
         TestDescriptorInternal test = state.test;
         if (test.getName().equals(test.getClassName())) {
-            testSuiteReport = documentBuilder.newDocument();
-            rootElement = testSuiteReport.createElement("testsuite");
-            testSuiteReport.appendChild(rootElement);
-            // Add an empty properties element for compatibility
-            rootElement.appendChild(testSuiteReport.createElement("properties"));
-            outputs.put(TestOutputEvent.Destination.StdOut, new StringBuilder());
-            outputs.put(TestOutputEvent.Destination.StdErr, new StringBuilder());
             testSuite = state;
+            testCases = new SpoolFile(testResultsDir, false);
+            outputs.put(TestOutputEvent.Destination.StdOut, new SpoolFile(testResultsDir, true));
+            outputs.put(TestOutputEvent.Destination.StdErr, new SpoolFile(testResultsDir, true));
         }
     }
 
     @Override
     protected void completed(TestState state) {
-        String testClassName = state.test.getClassName();
-        Element element;
-        if (!state.equals(testSuite)) {
-            element = testSuiteReport.createElement(state.resultType == TestResult.ResultType.SKIPPED ? "ignored-testcase" : "testcase");
-            element.setAttribute("name", state.test.getName());
-            element.setAttribute("classname", testClassName);
-            rootElement.appendChild(element);
-        } else {
-            element = rootElement;
-            rootElement.setAttribute("name", testClassName);
-            rootElement.setAttribute("tests", String.valueOf(state.testCount));
-            rootElement.setAttribute("failures", String.valueOf(state.failedCount));
-            rootElement.setAttribute("errors", "0");
-            rootElement.setAttribute("timestamp", DateUtils.format(state.getStartTime(), DateUtils.ISO8601_DATETIME_PATTERN));
-            rootElement.setAttribute("hostname", hostName);
-            Element stdoutElement = testSuiteReport.createElement("system-out");
-            stdoutElement.appendChild(testSuiteReport.createCDATASection(outputs.get(TestOutputEvent.Destination.StdOut)
-                    .toString()));
-            rootElement.appendChild(stdoutElement);
-            Element stderrElement = testSuiteReport.createElement("system-err");
-            stderrElement.appendChild(testSuiteReport.createCDATASection(outputs.get(TestOutputEvent.Destination.StdErr)
-                    .toString()));
-            rootElement.appendChild(stderrElement);
-        }
-
-        element.setAttribute("time", String.valueOf(state.getExecutionTime() / 1000.0));
-        for (Throwable failure : state.failures) {
-            Element failureElement = testSuiteReport.createElement("failure");
-            element.appendChild(failureElement);
-            failureElement.setAttribute("message", failureMessage(failure));
-            failureElement.setAttribute("type", failure.getClass().getName());
-            failureElement.appendChild(testSuiteReport.createTextNode(stackTrace(failure)));
+        if (testSuite == null) {
+            return;
+        }
+        try {
+            if (!state.equals(testSuite)) {
+                Element element = document.createElement(state.resultType == TestResult.ResultType.SKIPPED ? "ignored-testcase" : "testcase");
+                element.setAttribute("name", state.test.getName());
+                element.setAttribute("classname", state.test.getClassName());
+                element.setAttribute("time", String.valueOf(state.getExecutionTime() / 1000.0));
+                appendFailures(element, state);
+                elementWriter.write(element, testCases.writer, 1, INDENT);
+            } else {
+                writeSuite(state);
+            }
+        } catch (IOException e) {
+            throw new GradleException(String.format("Could not write test report for test class '%s'.", state.test.getClassName()), e);
         }
+    }
 
-        if (state.equals(testSuite)) {
-            File reportFile = new File(testResultsDir, "TEST-" + testClassName + ".xml");
+    private void writeSuite(TestState state) throws IOException {
+        String testClassName = state.test.getClassName();
+        File reportFile = new File(testResultsDir, "TEST-" + testClassName + ".xml");
+        try {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(reportFile), "UTF-8"));
             try {
-                OutputStream outstr = new BufferedOutputStream(new FileOutputStream(reportFile));
-                try {
-                    new DOMElementWriter(true).write(rootElement, outstr);
-                } finally {
-                    outstr.close();
+                elementWriter.writeXMLDeclaration(writer);
+                writer.write("<testsuite");
+                writeAttribute(writer, "name", testClassName);
+                writeAttribute(writer, "tests", String.valueOf(state.testCount));
+                writeAttribute(writer, "failures", String.valueOf(state.failedCount));
+                writeAttribute(writer, "errors", "0");
+                writeAttribute(writer, "timestamp", DateUtils.format(state.getStartTime(), DateUtils.ISO8601_DATETIME_PATTERN));
+                writeAttribute(writer, "hostname", hostName);
+                writeAttribute(writer, "time", String.valueOf(state.getExecutionTime() / 1000.0));
+                writer.write(">");
+                writer.write(StringUtils.LINE_SEP);
+
+                // Add an empty properties element for compatibility
+                elementWriter.write(document.createElement("properties"), writer, 1, INDENT);
+                testCases.copyTo(writer);
+                writeOutput(writer, "system-out", outputs.get(TestOutputEvent.Destination.StdOut));
+                writeOutput(writer, "system-err", outputs.get(TestOutputEvent.Destination.StdErr));
+                for (Throwable failure : state.failures) {
+                    elementWriter.write(createFailure(failure), writer, 1, INDENT);
                 }
-            } catch (IOException e) {
-                throw new GradleException(String.format("Could not write test report file '%s'.", reportFile), e);
+                writer.write("</testsuite>");
+                writer.write(StringUtils.LINE_SEP);
+            } finally {
+                writer.close();
             }
-
+        } finally {
             testSuite = null;
+            testCases.delete();
+            testCases = null;
+            for (SpoolFile output : outputs.values()) {
+                output.delete();
+            }
             outputs.clear();
         }
     }
 
+    private void writeAttribute(Writer writer, String name, String value) throws IOException {
+        writer.write(" ");
+        writer.write(name);
+        writer.write("=\"");
+        writer.write(elementWriter.encode(value));
+        writer.write("\"");
+    }
+
+    private void writeOutput(Writer writer, String elementName, SpoolFile output) throws IOException {
+        writer.write(INDENT);
+        writer.write("<");
+        writer.write(elementName);
+        writer.write("><![CDATA[");
+        output.copyTo(writer);
+        writer.write("]]></");
+        writer.write(elementName);
+        writer.write(">");
+        writer.write(StringUtils.LINE_SEP);
+    }
+
+    private void appendFailures(Element element, TestState state) {
+        for (Throwable failure : state.failures) {
+            element.appendChild(createFailure(failure));
+        }
+    }
+
+    private Element createFailure(Throwable failure) {
+        Element failureElement = document.createElement("failure");
+        failureElement.setAttribute("message", failureMessage(failure));
+        failureElement.setAttribute("type", failure.getClass().getName());
+        failureElement.appendChild(document.createTextNode(stackTrace(failure)));
+        return failureElement;
+    }
+
     private String stackTrace(Throwable throwable) {
         try {
             StringWriter stringWriter = new StringWriter();
@@ -161,4 +217,88 @@ public class JUnitXmlReportGenerator extends StateTrackingTestResultProcessor {
             return "localhost";
         }
     }
+
+    /**
+     * A temporary file which holds part of a result file until the test class completes.
+     */
+    private static class SpoolFile {
+        private final File file;
+        private final Writer writer;
+
+        private SpoolFile(File dir, boolean cdata) {
+            try {
+                dir.mkdirs();
+                file = File.createTempFile("spool", ".tmp", dir);
+                Writer fileWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+                writer = cdata ? new CDataWriter(fileWriter) : fileWriter;
+            } catch (IOException e) {
+                throw new GradleException(String.format("Could not create a temporary file in '%s'.", dir), e);
+            }
+        }
+
+        void copyTo(Writer target) throws IOException {
+            writer.close();
+            Reader reader = new InputStreamReader(new BufferedInputStream(new FileInputStream(file)), "UTF-8");
+            try {
+                char[] buffer = new char[8192];
+                for (int count = reader.read(buffer); count >= 0; count = reader.read(buffer)) {
+                    target.write(buffer, 0, count);
+                }
+            } finally {
+                reader.close();
+            }
+        }
+
+        void delete() {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            file.delete();
+        }
+    }
+
+    /**
+     * Escapes text for use in a CDATA section. Removes characters which are not legal in XML, and splits the section
+     * wherever the text contains the {@code ]]>} terminator. Tracks the trailing {@code ]} characters across writes,
+     * so the text can be written in arbitrary pieces.
+     */
+    private static class CDataWriter extends FilterWriter {
+        private int brackets;
+
+        private CDataWriter(Writer out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int c) throws IOException {
+            if (!isLegal((char) c)) {
+                return;
+            }
+            if (c == '>' && brackets >= 2) {
+                out.write("]]><![CDATA[");
+            }
+            brackets = c == ']' ? brackets + 1 : 0;
+            out.write(c);
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                write(cbuf[i]);
+            }
+        }
+
+        @Override
+        public void write(String str, int off, int len) throws IOException {
+            for (int i = off; i < off + len; i++) {
+                write(str.charAt(i));
+            }
+        }
+
+        private boolean isLegal(char c) {
+            return c == 0x9 || c == 0xA || c == 0xD || (c >= 0x20 && c <= 0xFFFD);
+        }
+    }
 }
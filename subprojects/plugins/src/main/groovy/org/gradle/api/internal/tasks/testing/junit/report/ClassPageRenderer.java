@@ -73,14 +73,14 @@ class ClassPageRenderer extends PageRenderer<ClassTestResults> {
                 renderTests(element);
             }
         });
-        if (getResults().getStandardOutput().length() > 0) {
+        if (getResults().hasStandardOutput()) {
             addTab("Standard output", new Action<Element>() {
                 public void execute(Element element) {
                     renderStdOut(element);
                 }
             });
         }
-        if (getResults().getStandardError().length() > 0) {
+        if (getResults().hasStandardError()) {
             addTab("Standard error", new Action<Element>() {
                 public void execute(Element element) {
                     renderStdErr(element);
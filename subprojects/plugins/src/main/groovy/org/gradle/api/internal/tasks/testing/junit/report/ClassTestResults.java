@@ -17,9 +17,7 @@ package org.gradle.api.internal.tasks.testing.junit.report;
 
 import org.apache.commons.lang.StringUtils;
 
-import java.util.Collection;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.*;
 
 /**
  * Test results for a given class.
@@ -28,8 +26,9 @@ public class ClassTestResults extends CompositeTestResults {
     private final String name;
     private final PackageTestResults packageResults;
     private final Set<TestResult> results = new TreeSet<TestResult>();
-    private final StringBuilder standardOutput = new StringBuilder();
-    private final StringBuilder standardError = new StringBuilder();
+    private final List<TestResultFile> outputFiles = new ArrayList<TestResultFile>();
+    private boolean hasStandardOutput;
+    private boolean hasStandardError;
 
     public ClassTestResults(String name, PackageTestResults packageResults) {
         super(packageResults);
@@ -62,12 +61,26 @@ public class ClassTestResults extends CompositeTestResults {
         return results;
     }
 
+    public boolean hasStandardOutput() {
+        return hasStandardOutput;
+    }
+
+    public boolean hasStandardError() {
+        return hasStandardError;
+    }
+
+    /**
+     * Reads the standard error of this class from the result files. The output is not held by this model.
+     */
     public CharSequence getStandardError() {
-        return standardError;
+        return readOutput("system-err");
     }
 
+    /**
+     * Reads the standard output of this class from the result files. The output is not held by this model.
+     */
     public CharSequence getStandardOutput() {
-        return standardOutput;
+        return readOutput("system-out");
     }
 
     public TestResult addTest(String testName, long duration) {
@@ -76,11 +89,17 @@ public class ClassTestResults extends CompositeTestResults {
         return addTest(test);
     }
 
-    public void addStandardOutput(String textContent) {
-        standardOutput.append(textContent);
+    void addOutput(TestResultFile resultFile, boolean hasStandardOutput, boolean hasStandardError) {
+        outputFiles.add(resultFile);
+        this.hasStandardOutput |= hasStandardOutput;
+        this.hasStandardError |= hasStandardError;
     }
 
-    public void addStandardError(String textContent) {
-        standardError.append(textContent);
+    private CharSequence readOutput(String elementName) {
+        StringBuilder output = new StringBuilder();
+        for (TestResultFile outputFile : outputFiles) {
+            outputFile.readOutput(elementName, output);
+        }
+        return output;
     }
 }
@@ -17,10 +17,10 @@ package org.gradle.api.internal.tasks.testing.junit.report;
 
 import org.apache.commons.io.IOUtils;
 import org.gradle.api.GradleException;
+import org.gradle.messaging.concurrent.DefaultExecutorFactory;
+import org.gradle.messaging.concurrent.ExecutorFactory;
+import org.gradle.messaging.concurrent.StoppableExecutor;
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
@@ -30,13 +30,30 @@ import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
 import javax.xml.transform.stream.StreamResult;
 import java.io.*;
-import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Generates the HTML test report from the JUnit XML result files.
+ *
+ * <p>The model holds the test results, but not the test output, which is read from the result files as each class
+ * page is rendered. The class pages are rendered in parallel.</p>
+ */
 public class DefaultTestReport implements TestReporter {
+    private final ExecutorFactory executorFactory;
+    private final int maxThreads;
     private File resultDir;
     private File reportDir;
-    private DocumentBuilder documentBuilder;
-    private Transformer transformer;
+
+    public DefaultTestReport() {
+        this(new DefaultExecutorFactory(), Runtime.getRuntime().availableProcessors());
+    }
+
+    public DefaultTestReport(ExecutorFactory executorFactory, int maxThreads) {
+        this.executorFactory = executorFactory;
+        this.maxThreads = maxThreads;
+    }
 
     public void setTestResultsDir(File resultDir) {
         this.resultDir = resultDir;
@@ -56,66 +73,41 @@ public class DefaultTestReport implements TestReporter {
         if (resultDir.exists()) {
             for (File file : resultDir.listFiles()) {
                 if (file.getName().startsWith("TEST-") && file.getName().endsWith(".xml")) {
-                    mergeFromFile(file, model);
+                    new TestResultFile(file).mergeInto(model);
                 }
             }
         }
         return model;
     }
 
-    private void mergeFromFile(File file, AllTestResults model) {
-        try {
-            InputStream inputStream = new FileInputStream(file);
-            Document document;
-            try {
-                document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new InputSource(inputStream));
-            } finally {
-                inputStream.close();
-            }
-            NodeList testCases = document.getElementsByTagName("testcase");
-            for (int i = 0; i < testCases.getLength(); i++) {
-                Element testCase = (Element) testCases.item(i);
-                String className = testCase.getAttribute("classname");
-                String testName = testCase.getAttribute("name");
-                LocaleSafeDecimalFormat format = new LocaleSafeDecimalFormat();
-                BigDecimal duration = format.parse(testCase.getAttribute("time"));
-                duration = duration.multiply(BigDecimal.valueOf(1000));
-                NodeList failures = testCase.getElementsByTagName("failure");
-                TestResult testResult = model.addTest(className, testName, duration.longValue());
-                for (int j = 0; j < failures.getLength(); j++) {
-                    Element failure = (Element) failures.item(j);
-                    testResult.addFailure(failure.getAttribute("message"), failure.getTextContent());
-                }
-            }
-            NodeList ignoredTestCases = document.getElementsByTagName("ignored-testcase");
-            for (int i = 0; i < ignoredTestCases.getLength(); i++) {
-                Element testCase = (Element) ignoredTestCases.item(i);
-                String className = testCase.getAttribute("classname");
-                String testName = testCase.getAttribute("name");
-                model.addTest(className, testName, 0).ignored();
-            }
-            String suiteClassName = document.getDocumentElement().getAttribute("name");
-            ClassTestResults suiteResults = model.addTestClass(suiteClassName);
-            NodeList stdOutElements = document.getElementsByTagName("system-out");
-            for (int i = 0; i < stdOutElements.getLength(); i++) {
-                suiteResults.addStandardOutput(stdOutElements.item(i).getTextContent());
-            }
-            NodeList stdErrElements = document.getElementsByTagName("system-err");
-            for (int i = 0; i < stdErrElements.getLength(); i++) {
-                suiteResults.addStandardError(stdErrElements.item(i).getTextContent());
-            }
-        } catch (Exception e) {
-            throw new GradleException(String.format("Could not load test results from '%s'.", file), e);
-        }
-    }
-
     private void generateFiles(AllTestResults model) {
         try {
-            generatePage(model, new OverviewPageRenderer(), new File(reportDir, "index.html"));
+            PageWriter pageWriter = new PageWriter();
+            final List<ClassTestResults> classes = new ArrayList<ClassTestResults>();
+            pageWriter.generatePage(model, new OverviewPageRenderer(), new File(reportDir, "index.html"));
             for (PackageTestResults packageResults : model.getPackages()) {
-                generatePage(packageResults, new PackagePageRenderer(), new File(reportDir, packageResults.getName() + ".html"));
-                for (ClassTestResults classResults : packageResults.getClasses()) {
-                    generatePage(classResults, new ClassPageRenderer(), new File(reportDir, classResults.getName() + ".html"));
+                pageWriter.generatePage(packageResults, new PackagePageRenderer(), new File(reportDir, packageResults.getName() + ".html"));
+                classes.addAll(packageResults.getClasses());
+            }
+
+            int threads = Math.min(maxThreads, classes.size());
+            if (threads <= 1) {
+                for (ClassTestResults classResults : classes) {
+                    pageWriter.generatePage(classResults, new ClassPageRenderer(), new File(reportDir, classResults.getName() + ".html"));
+                }
+            } else {
+                final AtomicInteger next = new AtomicInteger();
+                StoppableExecutor executor = executorFactory.create("Test report");
+                try {
+                    for (int i = 0; i < threads; i++) {
+                        executor.execute(new Runnable() {
+                            public void run() {
+                                generateClassPages(classes, next);
+                            }
+                        });
+                    }
+                } finally {
+                    executor.stop();
                 }
             }
 
@@ -126,28 +118,16 @@ public class DefaultTestReport implements TestReporter {
         }
     }
 
-    private <T extends CompositeTestResults> void generatePage(T model, PageRenderer<T> renderer, File outputFile) throws Exception {
-        if (documentBuilder == null) {
-            documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
-        }
-        Document document = documentBuilder.newDocument();
-        renderer.render(document, model);
-
-        if (transformer == null) {
-            TransformerFactory factory = TransformerFactory.newInstance();
-            transformer = factory.newTransformer();
-            transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-            transformer.setOutputProperty(OutputKeys.METHOD, "html");
-            transformer.setOutputProperty(OutputKeys.MEDIA_TYPE, "text/html");
-        }
-
-        outputFile.getParentFile().mkdirs();
-        Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), "utf-8"));
-        try {
-            writer.write("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\" \"http://www.w3.org/TR/html4/strict.dtd\">\n");
-            transformer.transform(new DOMSource(document), new StreamResult(writer));
-        } finally {
-            writer.close();
+    private void generateClassPages(List<ClassTestResults> classes, AtomicInteger next) {
+        PageWriter pageWriter = new PageWriter();
+        for (int index = next.getAndIncrement(); index < classes.size(); index = next.getAndIncrement()) {
+            ClassTestResults classResults = classes.get(index);
+            File outputFile = new File(reportDir, classResults.getName() + ".html");
+            try {
+                pageWriter.generatePage(classResults, new ClassPageRenderer(), outputFile);
+            } catch (Exception e) {
+                throw new GradleException(String.format("Could not generate test report file '%s'.", outputFile), e);
+            }
         }
     }
 
@@ -171,4 +151,37 @@ public class DefaultTestReport implements TestReporter {
             outputStream.close();
         }
     }
+
+    /**
+     * Renders pages to HTML files. Not thread-safe, so each thread uses its own instance.
+     */
+    private static class PageWriter {
+        private DocumentBuilder documentBuilder;
+        private Transformer transformer;
+
+        <T extends CompositeTestResults> void generatePage(T model, PageRenderer<T> renderer, File outputFile) throws Exception {
+            if (documentBuilder == null) {
+                documentBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+            }
+            Document document = documentBuilder.newDocument();
+            renderer.render(document, model);
+
+            if (transformer == null) {
+                TransformerFactory factory = TransformerFactory.newInstance();
+                transformer = factory.newTransformer();
+                transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+                transformer.setOutputProperty(OutputKeys.METHOD, "html");
+                transformer.setOutputProperty(OutputKeys.MEDIA_TYPE, "text/html");
+            }
+
+            outputFile.getParentFile().mkdirs();
+            Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile), "utf-8"));
+            try {
+                writer.write("<!DOCTYPE HTML PUBLIC \"-//W3C//DTD HTML 4.01//EN\" \"http://www.w3.org/TR/html4/strict.dtd\">\n");
+                transformer.transform(new DOMSource(document), new StreamResult(writer));
+            } finally {
+                writer.close();
+            }
+        }
+    }
 }
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.junit.report;
+
+import org.gradle.api.GradleException;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.File;
+import java.math.BigDecimal;
+
+/**
+ * A JUnit XML result file. The file is read using SAX, so that the file does not need to be held in memory. The test
+ * output is not loaded into the model, but is read from the file again when it is needed.
+ */
+class TestResultFile {
+    private static final SAXParserFactory PARSER_FACTORY = SAXParserFactory.newInstance();
+    private final File file;
+
+    TestResultFile(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Adds the test results in this file to the given model.
+     */
+    void mergeInto(AllTestResults model) {
+        ResultHandler handler = new ResultHandler(model);
+        parse(handler);
+        ClassTestResults suiteResults = model.addTestClass(handler.suiteName);
+        suiteResults.addOutput(this, handler.hasStandardOutput, handler.hasStandardError);
+    }
+
+    /**
+     * Appends the text of the given output element in this file to the given builder.
+     */
+    void readOutput(String elementName, StringBuilder output) {
+        parse(new OutputHandler(elementName, output));
+    }
+
+    private void parse(DefaultHandler handler) {
+        try {
+            SAXParser parser;
+            synchronized (PARSER_FACTORY) {
+                parser = PARSER_FACTORY.newSAXParser();
+            }
+            parser.parse(file, handler);
+        } catch (Exception e) {
+            throw new GradleException(String.format("Could not load test results from '%s'.", file), e);
+        }
+    }
+
+    private static class ResultHandler extends DefaultHandler {
+        private final AllTestResults model;
+        private final LocaleSafeDecimalFormat format = new LocaleSafeDecimalFormat();
+        private String suiteName = "";
+        private TestResult testResult;
+        private String failureMessage;
+        private StringBuilder failureText;
+        private String outputElement;
+        private boolean hasStandardOutput;
+        private boolean hasStandardError;
+
+        private ResultHandler(AllTestResults model) {
+            this.model = model;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            if (qName.equals("testsuite")) {
+                suiteName = valueOf(attributes, "name");
+            } else if (qName.equals("testcase")) {
+                try {
+                    BigDecimal duration = format.parse(valueOf(attributes, "time"));
+                    duration = duration.multiply(BigDecimal.valueOf(1000));
+                    testResult = model.addTest(valueOf(attributes, "classname"), valueOf(attributes, "name"), duration.longValue());
+                } catch (Exception e) {
+                    throw new IllegalArgumentException(String.format("Could not parse duration of test case '%s'.",
+                            valueOf(attributes, "name")), e);
+                }
+            } else if (qName.equals("ignored-testcase")) {
+                model.addTest(valueOf(attributes, "classname"), valueOf(attributes, "name"), 0).ignored();
+            } else if (qName.equals("failure") && testResult != null) {
+                failureMessage = valueOf(attributes, "message");
+                failureText = new StringBuilder();
+            } else if (qName.equals("system-out") || qName.equals("system-err")) {
+                outputElement = qName;
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (failureText != null) {
+                failureText.append(ch, start, length);
+            } else if (outputElement != null && length > 0) {
+                if (outputElement.equals("system-out")) {
+                    hasStandardOutput = true;
+                } else {
+                    hasStandardError = true;
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            if (qName.equals("testcase")) {
+                testResult = null;
+            } else if (qName.equals("failure") && failureText != null) {
+                testResult.addFailure(failureMessage, failureText.toString());
+                failureText = null;
+            } else if (qName.equals(outputElement)) {
+                outputElement = null;
+            }
+        }
+
+        private String valueOf(Attributes attributes, String name) {
+            String value = attributes.getValue(name);
+            return value == null ? "" : value;
+        }
+    }
+
+    private static class OutputHandler extends DefaultHandler {
+        private final String elementName;
+        private final StringBuilder output;
+        private boolean inElement;
+
+        private OutputHandler(String elementName, StringBuilder output) {
+            this.elementName = elementName;
+            this.output = output;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            inElement = qName.equals(elementName);
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inElement) {
+                output.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            inElement = false;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+
+import java.util.Comparator;
+
+/**
+ * Orders test classes so that those which failed last time they were executed come first, so that failures are
+ * reported as early as possible. Test classes are otherwise ordered using the given order.
+ */
+public class FailedFirstTestClassOrder implements Comparator<TestClassRunInfo> {
+    private final TestClassHistory history;
+    private final Comparator<? super TestClassRunInfo> order;
+
+    public FailedFirstTestClassOrder(TestClassHistory history, Comparator<? super TestClassRunInfo> order) {
+        this.history = history;
+        this.order = order;
+    }
+
+    public int compare(TestClassRunInfo test1, TestClassRunInfo test2) {
+        boolean failed1 = history.isFailed(test1.getTestClassName());
+        boolean failed2 = history.isFailed(test2.getTestClassName());
+        if (failed1 != failed2) {
+            return failed1 ? -1 : 1;
+        }
+        return order.compare(test1, test2);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.processors;
+
+import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
+
+import java.util.Comparator;
+
+/**
+ * Orders test classes so that those which took longest to execute last time come first. This keeps long running test
+ * classes from being left until the end of a parallel run. Test classes with no recorded duration come before all
+ * others, as nothing is known about how long they will take.
+ */
+public class LongestFirstTestClassOrder implements Comparator<TestClassRunInfo> {
+    private final TestClassHistory history;
+
+    public LongestFirstTestClassOrder(TestClassHistory history) {
+        this.history = history;
+    }
+
+    public int compare(TestClassRunInfo test1, TestClassRunInfo test2) {
+        Long duration1 = history.getDuration(test1.getTestClassName());
+        Long duration2 = history.getDuration(test2.getTestClassName());
+        if (duration1 == null || duration2 == null) {
+            return duration1 == null ? (duration2 == null ? 0 : -1) : 1;
+        }
+        return duration2.compareTo(duration1);
+    }
+}
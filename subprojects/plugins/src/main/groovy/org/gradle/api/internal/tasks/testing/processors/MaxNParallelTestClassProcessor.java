@@ -17,36 +17,68 @@
 package org.gradle.api.internal.tasks.testing.processors;
 
 import org.gradle.api.internal.Factory;
-import org.gradle.api.internal.tasks.testing.TestClassProcessor;
-import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
-import org.gradle.api.internal.tasks.testing.TestResultProcessor;
+import org.gradle.api.internal.tasks.testing.*;
+import org.gradle.api.tasks.testing.TestResult;
 import org.gradle.messaging.actor.Actor;
 import org.gradle.messaging.actor.ActorFactory;
 import org.gradle.messaging.concurrent.CompositeStoppable;
 import org.gradle.messaging.dispatch.DispatchException;
 import org.gradle.util.UncheckedException;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Manages a set of parallel TestClassProcessors. Uses a simple round-robin algorithm to assign test classes to
- * processors.
+ * Manages a set of parallel TestClassProcessors.
+ *
+ * <p>When the processors execute each test class as it is received, test classes are queued and each processor is
+ * given the next test class from the queue when it reports that it has completed one of its current test classes.
+ * Each processor is given up to {@value #MAX_TEST_CLASSES_PER_PROCESSOR} test classes at a time, so that it does
+ * not sit idle while waiting for its next test class. This way, a processor which draws some slow test classes does
+ * not hold up the others. The queue can optionally be ordered, for example so that the longest running test classes
+ * are started first. When a processor fails, the test classes it has been given are failed, and the queued test
+ * classes are given to the other processors.</p>
+ *
+ * <p>Otherwise, test classes are assigned to the processors round-robin as they are received.</p>
  */
 public class MaxNParallelTestClassProcessor implements TestClassProcessor {
+    public static final int MAX_TEST_CLASSES_PER_PROCESSOR = 2;
     private final int maxProcessors;
     private final Factory<TestClassProcessor> factory;
     private final ActorFactory actorFactory;
+    private final boolean assignWhenIdle;
+    private final Comparator<? super TestClassRunInfo> order;
+    private final Lock lock = new ReentrantLock();
+    private final Condition condition = lock.newCondition();
+    private final Queue<QueuedTestClass> queue = new PriorityQueue<QueuedTestClass>();
+    private long queued;
+    private int dispatching;
     private TestResultProcessor resultProcessor;
     private int pos;
+    private List<Worker> workers = new ArrayList<Worker>();
     private List<TestClassProcessor> processors = new ArrayList<TestClassProcessor>();
     private List<Actor> actors = new ArrayList<Actor>();
     private Actor resultProcessorActor;
 
     public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory) {
+        this(maxProcessors, factory, actorFactory, true, null);
+    }
+
+    /**
+     * @param assignWhenIdle true if the processors execute each test class as it is received, so that test classes
+     * can be held back until a processor is idle.
+     * @param order the order to execute queued test classes in, or null to execute them in the order they are
+     * received.
+     */
+    public MaxNParallelTestClassProcessor(int maxProcessors, Factory<TestClassProcessor> factory, ActorFactory actorFactory,
+                                          boolean assignWhenIdle, Comparator<? super TestClassRunInfo> order) {
         this.maxProcessors = maxProcessors;
         this.factory = factory;
         this.actorFactory = actorFactory;
+        this.assignWhenIdle = assignWhenIdle;
+        this.order = order;
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -55,26 +87,296 @@ public class MaxNParallelTestClassProcessor implements TestClassProcessor {
     }
 
     public void processTestClass(TestClassRunInfo testClass) {
-        TestClassProcessor processor;
-        if (processors.size() < maxProcessors) {
-            processor = factory.create();
-            Actor actor = actorFactory.createActor(processor);
-            processor = actor.getProxy(TestClassProcessor.class);
-            actors.add(actor);
-            processors.add(processor);
-            processor.startProcessing(resultProcessor);
-        } else {
-            processor = processors.get(pos);
-            pos = (pos + 1) % processors.size();
-        }
-        processor.processTestClass(testClass);
+        if (!assignWhenIdle) {
+            Worker worker;
+            lock.lock();
+            try {
+                if (workers.size() < maxProcessors) {
+                    worker = startWorker();
+                } else {
+                    worker = workers.get(pos);
+                    pos = (pos + 1) % workers.size();
+                }
+            } finally {
+                lock.unlock();
+            }
+            worker.processor.processTestClass(testClass);
+            return;
+        }
+
+        List<AssignedTestClass> assigned;
+        lock.lock();
+        try {
+            queue.add(new QueuedTestClass(testClass, queued++));
+            assigned = assignTestClasses();
+        } finally {
+            lock.unlock();
+        }
+        dispatch(assigned);
+    }
+
+    /**
+     * Takes test classes from the queue for the processors which can accept them. The returned test classes must be
+     * passed to {@link #dispatch(List)} once the lock has been released.
+     */
+    private List<AssignedTestClass> assignTestClasses() {
+        List<AssignedTestClass> assigned = new ArrayList<AssignedTestClass>();
+        while (!queue.isEmpty()) {
+            Worker worker = selectWorker();
+            if (worker == null) {
+                break;
+            }
+            AssignedTestClass testClass = new AssignedTestClass(worker, queue.remove().testClass);
+            worker.assigned.add(testClass);
+            assigned.add(testClass);
+        }
+        if (!assigned.isEmpty()) {
+            dispatching++;
+        }
+        condition.signalAll();
+        return assigned;
+    }
+
+    private Worker selectWorker() {
+        Worker leastBusy = null;
+        for (Worker worker : workers) {
+            if (leastBusy == null || worker.assigned.size() < leastBusy.assigned.size()) {
+                leastBusy = worker;
+            }
+        }
+        if (leastBusy != null && leastBusy.assigned.isEmpty()) {
+            return leastBusy;
+        }
+        if (workers.size() < maxProcessors) {
+            return startWorker();
+        }
+        if (leastBusy != null && leastBusy.assigned.size() < MAX_TEST_CLASSES_PER_PROCESSOR) {
+            return leastBusy;
+        }
+        return null;
+    }
+
+    private void dispatch(List<AssignedTestClass> assigned) {
+        if (assigned.isEmpty()) {
+            return;
+        }
+        try {
+            for (AssignedTestClass testClass : assigned) {
+                testClass.worker.processor.processTestClass(testClass.testClass);
+            }
+        } finally {
+            lock.lock();
+            try {
+                dispatching--;
+                condition.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private Worker startWorker() {
+        Worker worker = new Worker();
+        TestClassProcessor processor = factory.create();
+        if (assignWhenIdle) {
+            processor = new FailureDetectingTestClassProcessor(processor, worker);
+        }
+        Actor actor = actorFactory.createActor(processor);
+        processor = actor.getProxy(TestClassProcessor.class);
+        actors.add(actor);
+        processors.add(processor);
+        worker.processor = processor;
+        workers.add(worker);
+        processor.startProcessing(assignWhenIdle ? worker : resultProcessor);
+        return worker;
+    }
+
+    private void testClassCompleted(AssignedTestClass testClass) {
+        List<AssignedTestClass> assigned;
+        lock.lock();
+        try {
+            testClass.worker.assigned.remove(testClass);
+            assigned = assignTestClasses();
+        } finally {
+            lock.unlock();
+        }
+        dispatch(assigned);
+    }
+
+    private void processorFailed(Worker worker, Throwable failure) {
+        List<AssignedTestClass> failed;
+        List<AssignedTestClass> assigned;
+        lock.lock();
+        try {
+            // Replace the processor, so that the queued test classes are given to a working processor
+            workers.remove(worker);
+            failed = new ArrayList<AssignedTestClass>(worker.assigned);
+            worker.assigned.clear();
+            assigned = assignTestClasses();
+        } finally {
+            lock.unlock();
+        }
+        long now = System.currentTimeMillis();
+        for (AssignedTestClass testClass : failed) {
+            Object testId = testClass.testId;
+            if (testId == null) {
+                testId = String.format("failed:%s", testClass.testClass.getTestClassName());
+                resultProcessor.started(new DefaultTestClassDescriptor(testId, testClass.testClass.getTestClassName()), new TestStartEvent(now));
+            }
+            resultProcessor.failure(testId, failure);
+            resultProcessor.completed(testId, new TestCompleteEvent(now, TestResult.ResultType.FAILURE));
+        }
+        dispatch(assigned);
     }
 
     public void stop() {
+        lock.lock();
+        try {
+            while (!queue.isEmpty() || dispatching > 0) {
+                condition.await();
+            }
+        } catch (InterruptedException e) {
+            throw new UncheckedException(e);
+        } finally {
+            lock.unlock();
+        }
+
         try {
             new CompositeStoppable(processors).add(actors).add(resultProcessorActor).stop();
         } catch (DispatchException e) {
             throw UncheckedException.asUncheckedException(e.getCause());
         }
     }
+
+    private class QueuedTestClass implements Comparable<QueuedTestClass> {
+        private final TestClassRunInfo testClass;
+        private final long sequence;
+
+        private QueuedTestClass(TestClassRunInfo testClass, long sequence) {
+            this.testClass = testClass;
+            this.sequence = sequence;
+        }
+
+        public int compareTo(QueuedTestClass other) {
+            if (order != null) {
+                int diff = order.compare(testClass, other.testClass);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return sequence < other.sequence ? -1 : sequence > other.sequence ? 1 : 0;
+        }
+    }
+
+    /**
+     * A test class which has been given to a processor, along with the id of its class level test once the processor
+     * has started it.
+     */
+    private static class AssignedTestClass {
+        private final Worker worker;
+        private final TestClassRunInfo testClass;
+        private Object testId;
+
+        private AssignedTestClass(Worker worker, TestClassRunInfo testClass) {
+            this.worker = worker;
+            this.testClass = testClass;
+        }
+    }
+
+    /**
+     * A processor, along with the test classes it has been given. Watches the results from the processor to find out
+     * when each test class has completed.
+     */
+    private class Worker implements TestResultProcessor {
+        private final List<AssignedTestClass> assigned = new ArrayList<AssignedTestClass>();
+        private TestClassProcessor processor;
+
+        public void started(TestDescriptorInternal test, TestStartEvent event) {
+            if (test.isComposite() && test.getClassName() != null) {
+                lock.lock();
+                try {
+                    for (AssignedTestClass testClass : assigned) {
+                        if (testClass.testId == null && test.getClassName().equals(testClass.testClass.getTestClassName())) {
+                            testClass.testId = test.getId();
+                            break;
+                        }
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            }
+            resultProcessor.started(test, event);
+        }
+
+        public void completed(Object testId, TestCompleteEvent event) {
+            resultProcessor.completed(testId, event);
+            AssignedTestClass completed = null;
+            lock.lock();
+            try {
+                for (AssignedTestClass testClass : assigned) {
+                    if (testId.equals(testClass.testId)) {
+                        completed = testClass;
+                        break;
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (completed != null) {
+                testClassCompleted(completed);
+            }
+        }
+
+        public void output(Object testId, TestOutputEvent event) {
+            resultProcessor.output(testId, event);
+        }
+
+        public void failure(Object testId, Throwable result) {
+            resultProcessor.failure(testId, result);
+        }
+    }
+
+    /**
+     * Notifies this processor when the target processor fails, and ignores the test classes given to the target
+     * processor after that, as they have already been failed.
+     */
+    private class FailureDetectingTestClassProcessor implements TestClassProcessor {
+        private final TestClassProcessor processor;
+        private final Worker worker;
+        private boolean failed;
+
+        private FailureDetectingTestClassProcessor(TestClassProcessor processor, Worker worker) {
+            this.processor = processor;
+            this.worker = worker;
+        }
+
+        public void startProcessing(TestResultProcessor resultProcessor) {
+            try {
+                processor.startProcessing(resultProcessor);
+            } catch (Throwable t) {
+                failed(t);
+            }
+        }
+
+        public void processTestClass(TestClassRunInfo testClass) {
+            if (failed) {
+                return;
+            }
+            try {
+                processor.processTestClass(testClass);
+            } catch (Throwable t) {
+                failed(t);
+            }
+        }
+
+        public void stop() {
+            processor.stop();
+        }
+
+        private void failed(Throwable failure) {
+            failed = true;
+            processorFailed(worker, failure);
+            throw UncheckedException.asUncheckedException(failure);
+        }
+    }
 }
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.processors;
+
+/**
+ * Information about earlier executions of test classes.
+ */
+public interface TestClassHistory {
+    /**
+     * Returns the time taken to execute the given test class the last time it was executed, in milliseconds.
+     *
+     * @return The duration, or null if not known.
+     */
+    Long getDuration(String testClassName);
+
+    /**
+     * Returns true if the given test class had failures the last time it was executed.
+     */
+    boolean isFailed(String testClassName);
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.results;
+
+import org.gradle.api.Task;
+import org.gradle.api.internal.tasks.testing.processors.TestClassHistory;
+import org.gradle.api.tasks.testing.TestDescriptor;
+import org.gradle.api.tasks.testing.TestListener;
+import org.gradle.api.tasks.testing.TestResult;
+import org.gradle.cache.CacheRepository;
+import org.gradle.cache.PersistentIndexedCache;
+import org.gradle.cache.Serializer;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A {@link TestClassHistory} which is persisted in the build's cache, keyed by the path of the given test task. Listens
+ * for the test results of the current execution, which are written to the cache by {@link #save()}. The history of test
+ * classes which are not executed is retained.
+ */
+public class CacheBackedTestClassHistory implements TestClassHistory, TestListener {
+    private static final TestClassExecution UNKNOWN = new TestClassExecution();
+    private final PersistentIndexedCache<String, TestClassExecution> cache;
+    private final String taskPath;
+    private final Map<String, TestClassExecution> previous = new HashMap<String, TestClassExecution>();
+    private final Map<String, TestClassExecution> current = new HashMap<String, TestClassExecution>();
+
+    public CacheBackedTestClassHistory(CacheRepository cacheRepository, Task testTask) {
+        cache = cacheRepository.cache("testHistory").forObject(testTask.getProject().getGradle()).open().openIndexedCache(new TestClassExecutionSerializer());
+        taskPath = testTask.getPath();
+    }
+
+    public Long getDuration(String testClassName) {
+        TestClassExecution execution = previousExecution(testClassName);
+        return execution == UNKNOWN ? null : execution.duration;
+    }
+
+    public boolean isFailed(String testClassName) {
+        return previousExecution(testClassName).failed;
+    }
+
+    private synchronized TestClassExecution previousExecution(String testClassName) {
+        TestClassExecution execution = previous.get(testClassName);
+        if (execution == null) {
+            execution = cache.get(key(testClassName));
+            if (execution == null) {
+                execution = UNKNOWN;
+            }
+            previous.put(testClassName, execution);
+        }
+        return execution;
+    }
+
+    /**
+     * Writes the results of the current execution to the cache.
+     */
+    public synchronized void save() {
+        Map<String, TestClassExecution> entries = new HashMap<String, TestClassExecution>();
+        for (Map.Entry<String, TestClassExecution> entry : current.entrySet()) {
+            entries.put(key(entry.getKey()), entry.getValue());
+        }
+        cache.putAll(entries);
+    }
+
+    private String key(String testClassName) {
+        return taskPath + ":" + testClassName;
+    }
+
+    public void beforeSuite(TestDescriptor suite) {
+    }
+
+    public synchronized void afterSuite(TestDescriptor suite, TestResult result) {
+        if (suite.getClassName() == null) {
+            return;
+        }
+        // The suite for a test class includes the class level setup and tear down, so use its time rather than the
+        // sum of the times of its tests
+        TestClassExecution execution = currentExecution(suite.getClassName());
+        execution.duration = result.getEndTime() - result.getStartTime();
+        execution.failed |= result.getResultType() == TestResult.ResultType.FAILURE;
+    }
+
+    public void beforeTest(TestDescriptor testDescriptor) {
+    }
+
+    public synchronized void afterTest(TestDescriptor testDescriptor, TestResult result) {
+        if (testDescriptor.getClassName() == null) {
+            return;
+        }
+        TestClassExecution execution = currentExecution(testDescriptor.getClassName());
+        execution.duration += result.getEndTime() - result.getStartTime();
+        execution.failed |= result.getResultType() == TestResult.ResultType.FAILURE;
+    }
+
+    private TestClassExecution currentExecution(String testClassName) {
+        TestClassExecution execution = current.get(testClassName);
+        if (execution == null) {
+            execution = new TestClassExecution();
+            current.put(testClassName, execution);
+        }
+        return execution;
+    }
+
+    static class TestClassExecution {
+        long duration;
+        boolean failed;
+    }
+
+    private static class TestClassExecutionSerializer implements Serializer<TestClassExecution> {
+        public TestClassExecution read(InputStream instr) throws Exception {
+            DataInputStream input = new DataInputStream(instr);
+            TestClassExecution execution = new TestClassExecution();
+            execution.duration = input.readLong();
+            execution.failed = input.readBoolean();
+            return execution;
+        }
+
+        public void write(OutputStream outstr, TestClassExecution value) throws Exception {
+            DataOutputStream output = new DataOutputStream(outstr);
+            output.writeLong(value.duration);
+            output.writeBoolean(value.failed);
+            output.flush();
+        }
+    }
+}
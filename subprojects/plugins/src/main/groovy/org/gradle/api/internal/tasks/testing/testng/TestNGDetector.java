@@ -17,9 +17,8 @@ package org.gradle.api.internal.tasks.testing.testng;
 
 import org.gradle.api.file.FileCollection;
 import org.gradle.api.internal.tasks.testing.detection.AbstractTestFrameworkDetector;
+import org.gradle.api.internal.tasks.testing.detection.ClassHierarchyIndex;
 import org.gradle.api.internal.tasks.testing.detection.TestClassVisitor;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import java.io.File;
 
@@ -27,8 +26,6 @@ import java.io.File;
  * @author Tom Eyckmans
  */
 class TestNGDetector extends AbstractTestFrameworkDetector<TestNGTestClassDetecter> {
-    private static final Logger LOGGER = LoggerFactory.getLogger(TestNGDetector.class);
-
     TestNGDetector(File testClassesDirectory, FileCollection testClasspath) {
         super(testClassesDirectory, testClasspath);
     }
@@ -56,20 +53,26 @@ class TestNGDetector extends AbstractTestFrameworkDetector<TestNGTestClassDetect
         boolean isTest = classVisitor.isTest();
 
         if (!isTest) {
-            final String superClassName = classVisitor.getSuperClassName();
-
-            final File superClassFile = getSuperTestClassFile(superClassName);
-
-            if (superClassFile != null) {
-                isTest = processSuperClass(superClassFile);
-            } else {
-                LOGGER.debug("test-class-scan : failed to scan parent class {}, could not find the class file",
-                        superClassName);
-            }
+            isTest = processSuperClass(classVisitor.getSuperClassName());
         }
 
         publishTestClass(isTest, classVisitor, superClass);
 
         return isTest;
     }
+
+    protected boolean isLibraryTestClass(ClassHierarchyIndex.ClassInfo classInfo) {
+        if (classInfo.getAnnotations().contains(TestNGTestClassDetecter.TEST)) {
+            return true;
+        }
+        if (!classInfo.isAbstract()) {
+            for (String annotation : classInfo.getMethodAnnotations()) {
+                if (TestNGTestMethodDetecter.TEST_METHOD_ANNOTATIONS.contains(annotation)) {
+                    return true;
+                }
+            }
+        }
+
+        return processSuperClass(classInfo.getSuperClassName());
+    }
 }
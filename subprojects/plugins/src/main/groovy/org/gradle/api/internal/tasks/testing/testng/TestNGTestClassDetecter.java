@@ -26,6 +26,8 @@ import org.objectweb.asm.commons.EmptyVisitor;
  * @author Tom Eyckmans
  */
 class TestNGTestClassDetecter extends TestClassVisitor {
+    static final String TEST = "Lorg/testng/annotations/Test;";
+
     private boolean isAbstract;
     private String className;
     private String superClassName;
@@ -67,7 +69,7 @@ class TestNGTestClassDetecter extends TestClassVisitor {
      *         this annotation.
      */
     public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-        if ("Lorg/testng/annotations/Test;".equals(desc)) {
+        if (TEST.equals(desc)) {
             test = true;
         }
         return new EmptyVisitor();
@@ -62,6 +62,11 @@ public class TestNGTestFramework implements TestFramework {
         };
     }
 
+    public boolean executesTestClassesOnReceipt() {
+        // TestNG runs all of the test classes together, once processing stops
+        return false;
+    }
+
     public void report() {
         // TODO currently reports are always generated because the antTestNGExecute task uses the
         // default listeners and these generate reports by default.
@@ -25,22 +25,26 @@ import java.util.Set;
  * @author Tom Eyckmans
  */
 class TestNGTestMethodDetecter extends EmptyVisitor {
+    static final Set<String> TEST_METHOD_ANNOTATIONS = new HashSet<String>();
+
+    static {
+        TEST_METHOD_ANNOTATIONS.add("Lorg/testng/annotations/Test;");
+        TEST_METHOD_ANNOTATIONS.add("Lorg/testng/annotations/BeforeSuite;");
+        TEST_METHOD_ANNOTATIONS.add("Lorg/testng/annotations/AfterSuite;");
+        TEST_METHOD_ANNOTATIONS.add("Lorg/testng/annotations/BeforeTest;");
+        TEST_METHOD_ANNOTATIONS.add("Lorg/testng/annotations/AfterTest;");
+        TEST_METHOD_ANNOTATIONS.add("Lorg/testng/annotations/BeforeGroups;");
+        TEST_METHOD_ANNOTATIONS.add("Lorg/testng/annotations/AfterGroups;");
+    }
+
     private final TestNGTestClassDetecter testClassDetecter;
-    private final Set<String> testMethodAnnotations = new HashSet<String>();
 
     public TestNGTestMethodDetecter(TestNGTestClassDetecter testClassDetecter) {
         this.testClassDetecter = testClassDetecter;
-        testMethodAnnotations.add("Lorg/testng/annotations/Test;");
-        testMethodAnnotations.add("Lorg/testng/annotations/BeforeSuite;");
-        testMethodAnnotations.add("Lorg/testng/annotations/AfterSuite;");
-        testMethodAnnotations.add("Lorg/testng/annotations/BeforeTest;");
-        testMethodAnnotations.add("Lorg/testng/annotations/AfterTest;");
-        testMethodAnnotations.add("Lorg/testng/annotations/BeforeGroups;");
-        testMethodAnnotations.add("Lorg/testng/annotations/AfterGroups;");
     }
 
     public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
-        if (testMethodAnnotations.contains(desc)) {
+        if (TEST_METHOD_ANNOTATIONS.contains(desc)) {
             testClassDetecter.setTest(true);
         }
         return new EmptyVisitor();
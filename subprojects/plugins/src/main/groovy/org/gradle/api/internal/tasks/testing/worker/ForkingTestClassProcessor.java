@@ -18,32 +18,53 @@ package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
 import org.gradle.api.internal.Factory;
-import org.gradle.api.internal.tasks.testing.TestClassProcessor;
-import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
-import org.gradle.api.internal.tasks.testing.TestResultProcessor;
-import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.*;
+import org.gradle.api.tasks.testing.TestResult;
 import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.ExecException;
 import org.gradle.process.internal.WorkerProcess;
 import org.gradle.process.internal.WorkerProcessBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.ListIterator;
 
+/**
+ * Executes test classes in a worker process. When the worker process stops unexpectedly, the test classes it has not
+ * finished are failed, and a new worker process is started for the next test class.
+ */
 public class ForkingTestClassProcessor implements TestClassProcessor {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ForkingTestClassProcessor.class);
     private final Factory<WorkerProcessBuilder> workerFactory;
     private final WorkerTestClassProcessorFactory processorFactory;
     private final JavaForkOptions options;
     private final Iterable<File> classPath;
     private final Action<WorkerProcessBuilder> buildConfigAction;
+    private final boolean reuseProcess;
     private RemoteTestClassProcessor remoteProcessor;
     private WorkerProcess workerProcess;
+    private WorkerResults workerResults;
     private TestResultProcessor resultProcessor;
 
     public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction) {
+        this(workerFactory, processorFactory, options, classPath, buildConfigAction, false);
+    }
+
+    /**
+     * @param reuseProcess true if the tests can be executed in a process which is shared with other test processors,
+     * false if the tests must be executed in a new process.
+     */
+    public ForkingTestClassProcessor(Factory<WorkerProcessBuilder> workerFactory, WorkerTestClassProcessorFactory processorFactory, JavaForkOptions options, Iterable<File> classPath, Action<WorkerProcessBuilder> buildConfigAction, boolean reuseProcess) {
         this.workerFactory = workerFactory;
         this.processorFactory = processorFactory;
         this.options = options;
         this.classPath = classPath;
         this.buildConfigAction = buildConfigAction;
+        this.reuseProcess = reuseProcess;
     }
 
     public void startProcessing(TestResultProcessor resultProcessor) {
@@ -51,10 +72,17 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
     }
 
     public void processTestClass(TestClassRunInfo testClass) {
+        if (remoteProcessor != null && workerResults.isWorkerStopped()) {
+            discardStoppedWorker();
+        }
         if (remoteProcessor == null) {
             WorkerProcessBuilder builder = workerFactory.create();
             builder.applicationClasspath(classPath);
-            builder.setLoadApplicationInSystemClassLoader(true);
+            if (reuseProcess) {
+                builder.setReusable(true);
+            } else {
+                builder.setLoadApplicationInSystemClassLoader(true);
+            }
             builder.worker(new TestWorker(processorFactory));
             options.copyTo(builder.getJavaCommand());
             buildConfigAction.execute(builder);
@@ -62,19 +90,151 @@ public class ForkingTestClassProcessor implements TestClassProcessor {
             workerProcess = builder.build();
             workerProcess.start();
 
-            workerProcess.getConnection().addIncoming(TestResultProcessor.class, resultProcessor);
+            final WorkerResults results = new WorkerResults(resultProcessor, workerProcess.toString());
+            workerProcess.getConnection().addIncoming(TestResultProcessor.class, results);
             remoteProcessor = workerProcess.getConnection().addOutgoing(RemoteTestClassProcessor.class);
+            workerResults = results;
+            workerProcess.whenStopped(new Runnable() {
+                public void run() {
+                    results.workerStopped();
+                }
+            });
 
             remoteProcessor.startProcessing();
         }
 
-        remoteProcessor.processTestClass(testClass);
+        if (workerResults.testClassSent(testClass)) {
+            remoteProcessor.processTestClass(testClass);
+        }
+    }
+
+    private void discardStoppedWorker() {
+        try {
+            workerProcess.waitForStop();
+        } catch (Exception e) {
+            // Already reported as a failure of the test classes the worker was executing
+            LOGGER.debug(String.format("%s stopped unexpectedly.", workerProcess), e);
+        } finally {
+            remoteProcessor = null;
+            workerProcess = null;
+            workerResults = null;
+        }
     }
 
     public void stop() {
         if (remoteProcessor != null) {
-            remoteProcessor.stop();
+            if (workerResults.stopRequested()) {
+                remoteProcessor.stop();
+            }
             workerProcess.waitForStop();
         }
     }
+
+    /**
+     * Forwards the results of a worker process, and keeps track of the test classes and tests the worker has not
+     * finished. If the worker process stops without being asked to, these are completed as failed, so that the
+     * consumer of the results is not left waiting for them.
+     */
+    private static class WorkerResults implements TestResultProcessor {
+        private final TestResultProcessor resultProcessor;
+        private final String displayName;
+        private final List<TestClassRunInfo> notStarted = new LinkedList<TestClassRunInfo>();
+        private final LinkedList<Object> running = new LinkedList<Object>();
+        private boolean stopRequested;
+        private boolean workerStopped;
+
+        private WorkerResults(TestResultProcessor resultProcessor, String displayName) {
+            this.resultProcessor = resultProcessor;
+            this.displayName = displayName;
+        }
+
+        synchronized boolean isWorkerStopped() {
+            return workerStopped;
+        }
+
+        /**
+         * Returns true if the worker is still running, so the test class should be sent to it.
+         */
+        synchronized boolean testClassSent(TestClassRunInfo testClass) {
+            if (workerStopped) {
+                failTestClass(testClass, new ExecException(String.format("%s stopped unexpectedly.", displayName)));
+                return false;
+            }
+            notStarted.add(testClass);
+            return true;
+        }
+
+        /**
+         * Returns true if the worker is still running, so it can be asked to stop.
+         */
+        synchronized boolean stopRequested() {
+            stopRequested = true;
+            return !workerStopped;
+        }
+
+        synchronized void workerStopped() {
+            if (stopRequested || workerStopped) {
+                return;
+            }
+            workerStopped = true;
+            ExecException failure = new ExecException(String.format("%s stopped unexpectedly.", displayName));
+            long now = System.currentTimeMillis();
+            // Complete the running tests innermost first, attaching the failure to the innermost
+            if (!running.isEmpty()) {
+                resultProcessor.failure(running.getLast(), failure);
+            }
+            for (ListIterator<Object> iterator = running.listIterator(running.size()); iterator.hasPrevious();) {
+                resultProcessor.completed(iterator.previous(), new TestCompleteEvent(now, TestResult.ResultType.FAILURE));
+            }
+            running.clear();
+            for (TestClassRunInfo testClass : notStarted) {
+                failTestClass(testClass, failure);
+            }
+            notStarted.clear();
+        }
+
+        private void failTestClass(TestClassRunInfo testClass, Throwable failure) {
+            long now = System.currentTimeMillis();
+            Object testId = String.format("%s:%s", displayName, testClass.getTestClassName());
+            resultProcessor.started(new DefaultTestClassDescriptor(testId, testClass.getTestClassName()), new TestStartEvent(now));
+            resultProcessor.failure(testId, failure);
+            resultProcessor.completed(testId, new TestCompleteEvent(now, TestResult.ResultType.FAILURE));
+        }
+
+        public synchronized void started(TestDescriptorInternal test, TestStartEvent event) {
+            if (workerStopped) {
+                return;
+            }
+            if (test.isComposite() && test.getClassName() != null) {
+                for (Iterator<TestClassRunInfo> iterator = notStarted.iterator(); iterator.hasNext();) {
+                    if (iterator.next().getTestClassName().equals(test.getClassName())) {
+                        iterator.remove();
+                        break;
+                    }
+                }
+            }
+            running.add(test.getId());
+            resultProcessor.started(test, event);
+        }
+
+        public synchronized void completed(Object testId, TestCompleteEvent event) {
+            if (workerStopped) {
+                return;
+            }
+            running.remove(testId);
+            resultProcessor.completed(testId, event);
+        }
+
+        public synchronized void output(Object testId, TestOutputEvent event) {
+            if (!workerStopped) {
+                resultProcessor.output(testId, event);
+            }
+        }
+
+        public synchronized void failure(Object testId, Throwable result) {
+            if (!workerStopped) {
+                resultProcessor.failure(testId, result);
+            }
+        }
+    }
 }
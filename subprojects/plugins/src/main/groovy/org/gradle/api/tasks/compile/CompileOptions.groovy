@@ -79,6 +79,21 @@ class CompileOptions extends AbstractOptions {
      */
     boolean useDepend = false
 
+    /**
+     * Specifies whether to compile only the source files which are affected by the changes since the previous
+     * compilation. The affected source files are found using the dependencies between the compiled classes, which are
+     * recorded at the end of each compilation. Ignored when {@link #useDepend} is true.
+     */
+    boolean incremental = false
+
+    /**
+     * Specifies whether to compile using the Java compiler API directly, in the build process, rather than using the
+     * Ant {@code <javac>} task. The compiler and the indexes of the classpath JARs are reused across compilations.
+     * Ignored when {@link #fork} is true, when {@link #compiler} is set, when {@link #includeJavaRuntime} is true, or
+     * when the compiler API is not available.
+     */
+    boolean useCompilerApi = false
+
     /**
      * The options for using the Ant {@code <depend>} task.
      */
@@ -134,7 +149,7 @@ class CompileOptions extends AbstractOptions {
     }
 
     List excludedFieldsFromOptionMap() {
-        ['debugOptions', 'forkOptions', 'compilerArgs', 'dependOptions', 'useDepend']
+        ['debugOptions', 'forkOptions', 'compilerArgs', 'dependOptions', 'useDepend', 'incremental', 'useCompilerApi']
     }
 
     Map fieldName2AntMap() {
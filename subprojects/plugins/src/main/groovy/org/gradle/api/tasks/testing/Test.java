@@ -22,6 +22,7 @@ import org.gradle.api.file.FileCollection;
 import org.gradle.api.file.FileTree;
 import org.gradle.api.file.FileTreeElement;
 import org.gradle.api.internal.ConventionTask;
+import org.gradle.api.internal.changedetection.Hasher;
 import org.gradle.api.internal.file.FileResolver;
 import org.gradle.api.internal.tasks.testing.TestFramework;
 import org.gradle.api.internal.tasks.testing.TestResultProcessor;
@@ -36,10 +37,12 @@ import org.gradle.api.specs.Spec;
 import org.gradle.api.tasks.*;
 import org.gradle.api.tasks.util.PatternFilterable;
 import org.gradle.api.tasks.util.PatternSet;
+import org.gradle.cache.CacheRepository;
 import org.gradle.listener.ListenerBroadcast;
 import org.gradle.listener.ListenerManager;
 import org.gradle.logging.ProgressLoggerFactory;
 import org.gradle.messaging.actor.ActorFactory;
+import org.gradle.messaging.concurrent.ExecutorFactory;
 import org.gradle.process.JavaForkOptions;
 import org.gradle.process.ProcessForkOptions;
 import org.gradle.process.internal.DefaultJavaForkOptions;
@@ -73,13 +76,15 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
     private boolean scanForTestClasses = true;
     private long forkEvery;
     private int maxParallelForks = 1;
+    private boolean reuseForks;
     private ListenerBroadcast<TestListener> testListenerBroadcaster;
 
     public Test() {
         testListenerBroadcaster = getServices().get(ListenerManager.class).createAnonymousBroadcaster(
                 TestListener.class);
         this.testExecuter = new DefaultTestExecuter(getServices().getFactory(WorkerProcessBuilder.class), getServices().get(
-                ActorFactory.class));
+                ActorFactory.class), getServices().get(CacheRepository.class), getServices().get(Hasher.class),
+                getServices().get(ExecutorFactory.class));
         options = new DefaultJavaForkOptions(getServices().get(FileResolver.class));
         options.setEnableAssertions(true);
     }
@@ -771,6 +776,27 @@ public class Test extends ConventionTask implements JavaForkOptions, PatternFilt
         this.maxParallelForks = maxParallelForks;
     }
 
+    /**
+     * Returns whether the forked test processes can be reused. When true, a test process is not stopped when this task
+     * completes, and may go on to execute the tests of other test tasks in the build which use the same fork options.
+     * The test classes are loaded in an isolated ClassLoader in the test process. This property is ignored when
+     * {@link #getForkEvery()} is greater than 0. The default value is false.
+     *
+     * @return true if the forked test processes can be reused.
+     */
+    public boolean isReuseForks() {
+        return reuseForks;
+    }
+
+    /**
+     * Sets whether the forked test processes can be reused.
+     *
+     * @param reuseForks true if the forked test processes can be reused.
+     */
+    public void setReuseForks(boolean reuseForks) {
+        this.reuseForks = reuseForks;
+    }
+
     /**
      * Returns the classes files to scan for test classes.
      *
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.compile
+
+import spock.lang.Specification
+
+class ClassDependencyGraphTest extends Specification {
+    private final ClassDependencyGraph graph = new ClassDependencyGraph()
+
+    def setup() {
+        source('p/A.java', 1)
+        source('p/B.java', 2)
+        source('p/C.java', 3)
+        source('p/D.java', 4)
+        compiled('p/A', 'p/A.java', ['p/B', 'java/lang/Object'])
+        compiled('p/A$Inner', 'p/A.java', ['p/A'])
+        compiled('p/B', 'p/B.java', ['p/C', 'lib/Lib'])
+        compiled('p/C', 'p/C.java', [])
+        compiled('p/D', 'p/D.java', ['java/lang/Object'])
+        graph.classpathClasses['java/lang/Object'] = new ClassDependencyGraph.ClasspathClass(null, 0, [] as Set, false)
+        graph.classpathClasses['lib/Lib'] = new ClassDependencyGraph.ClasspathClass('lib.jar', 12, ['lib/Base'] as Set, false)
+        graph.classpathClasses['lib/Base'] = new ClassDependencyGraph.ClasspathClass('lib.jar', 13, ['java/lang/Object'] as Set, false)
+    }
+
+    def noSourcesAreStaleWhenNothingHasChanged() {
+        expect:
+        graph.getStaleSources(currentSources(), []) == [] as Set
+    }
+
+    def changedSourceAndItsDependentsAreStale() {
+        expect:
+        graph.getStaleSources(currentSources('p/C.java': 33), []) == ['p/A.java', 'p/B.java', 'p/C.java'] as Set
+        graph.getStaleSources(currentSources('p/A.java': 11), []) == ['p/A.java'] as Set
+    }
+
+    def removedSourceAndItsDependentsAreStale() {
+        def sources = currentSources()
+        sources.remove('p/B.java')
+
+        expect:
+        graph.getStaleSources(sources, []) == ['p/A.java', 'p/B.java'] as Set
+    }
+
+    def newSourceIsNotStale() {
+        expect:
+        graph.getStaleSources(currentSources('p/E.java': 5), []) == [] as Set
+    }
+
+    def dependentsOfChangedClasspathClassAreStale() {
+        expect:
+        graph.getStaleSources(currentSources(), ['lib/Lib']) == ['p/A.java', 'p/B.java'] as Set
+        graph.getStaleSources(currentSources(), ['java/lang/Object']) == ['p/A.java', 'p/B.java', 'p/D.java'] as Set
+    }
+
+    def dependentsOfClasspathClassWhoseSupertypeHasChangedAreStale() {
+        expect:
+        graph.getStaleSources(currentSources(), ['lib/Base']) == ['p/A.java', 'p/B.java'] as Set
+    }
+
+    def dependentsOfClasspathClassReplacedByNewSourceAreStale() {
+        expect:
+        graph.getStaleSources(currentSources('lib/Lib.java': 5), []) == ['p/A.java', 'p/B.java'] as Set
+    }
+
+    def allSourcesAreStaleWhenChangedSourceDeclaresConstants() {
+        compiled('p/C', 'p/C.java', [], true)
+
+        expect:
+        graph.getStaleSources(currentSources('p/C.java': 33), []) == null
+        graph.getStaleSources(currentSources('p/D.java': 44), []) == ['p/D.java'] as Set
+    }
+
+    def findsClassesForSources() {
+        expect:
+        graph.getClassesForSources(['p/A.java', 'p/C.java']) == ['p/A', 'p/A$Inner', 'p/C'] as Set
+    }
+
+    def findsReferencedClasspathClasses() {
+        expect:
+        graph.referencedClasspathClasses == ['java/lang/Object', 'lib/Lib'] as Set
+    }
+
+    private void source(String path, long fingerprint) {
+        graph.sources[path] = fingerprint
+    }
+
+    private void compiled(String name, String source, List<String> dependencies, boolean declaresConstants = false) {
+        graph.classes[name] = new ClassDependencyGraph.CompiledClass(name, source, 0, dependencies as Set, declaresConstants)
+    }
+
+    private Map<String, Long> currentSources(Map<String, Long> changes = [:]) {
+        Map<String, Long> sources = new HashMap<String, Long>(graph.sources)
+        sources.putAll(changes)
+        return sources
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.compile
+
+import org.gradle.CacheUsage
+import org.gradle.api.Project
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.cache.DefaultPersistentDirectoryCache
+import org.gradle.util.HelperUtil
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+class ClassDependencyStaleClassCleanerTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    private final TaskOutputsInternal outputs = Mock()
+    private final InProcessJavaCompiler compiler = new InProcessJavaCompiler()
+    private Project project
+    private TestFile srcDir
+    private TestFile classesDir
+    private TestFile libJar
+    private long timestamp = 1000000000000
+
+    def setup() {
+        project = HelperUtil.createRootProject(tmpDir.dir)
+        srcDir = tmpDir.file('src')
+        classesDir = tmpDir.file('classes').createDir()
+        libJar = tmpDir.file('lib.jar')
+        _ * outputs.previousFiles >> { project.fileTree(classesDir) }
+        lib('lib/Base1.java': 'package lib; public class Base1 { public void m() { } }',
+                'lib/Base2.java': 'package lib; public class Base2 extends Base1 { }',
+                'lib/Other.java': 'package lib; public class Other { }',
+                'lib/Constants.java': 'package lib; public class Constants { public static final String VALUE = "value"; public void m() { } }')
+        source('A.java', 'class A { void m() { new lib.Base2().m(); } }')
+        source('B.java', 'class B { A a; }')
+        source('C.java', 'class C { lib.Other other; }')
+        source('D.java', 'class D { String v = lib.Constants.VALUE; lib.Constants c; }')
+        source('E.java', 'class E { }')
+        build()
+    }
+
+    def deletesAllClassesOnFirstCompilation() {
+        def cleaner = cleaner(tmpDir.file('other-cache'))
+
+        when:
+        cleaner.execute()
+
+        then:
+        classNames().empty
+    }
+
+    def deletesNothingWhenNothingHasChanged() {
+        expect:
+        clean() == [] as Set
+    }
+
+    def deletesClassesOfChangedSourceAndItsDependents() {
+        when:
+        source('A.java', 'class A { void m() { } }')
+
+        then:
+        clean() == ['A', 'B'] as Set
+        classNames() == ['C', 'D', 'E'] as Set
+    }
+
+    def deletesClassesOfRemovedSourceAndItsDependents() {
+        when:
+        srcDir.file('A.java').delete()
+
+        then:
+        clean() == ['A', 'B'] as Set
+    }
+
+    def deletesClassesWhichDependOnChangedClasspathClass() {
+        when:
+        lib('lib/Base1.java': 'package lib; public class Base1 { public void m() { } }',
+                'lib/Base2.java': 'package lib; public class Base2 extends Base1 { }',
+                'lib/Other.java': 'package lib; public class Other { public void n() { } }',
+                'lib/Constants.java': 'package lib; public class Constants { public static final String VALUE = "value"; public void m() { } }')
+
+        then:
+        clean() == ['C'] as Set
+    }
+
+    def deletesClassesWhichUseSubtypeOfChangedClasspathClass() {
+        when:
+        lib('lib/Base1.java': 'package lib; public class Base1 { }',
+                'lib/Base2.java': 'package lib; public class Base2 extends Base1 { }',
+                'lib/Other.java': 'package lib; public class Other { }',
+                'lib/Constants.java': 'package lib; public class Constants { public static final String VALUE = "value"; public void m() { } }')
+
+        then:
+        clean() == ['A', 'B'] as Set
+    }
+
+    def deletesAllClassesWhenChangedClasspathClassDeclaresConstants() {
+        when:
+        lib('lib/Base1.java': 'package lib; public class Base1 { public void m() { } }',
+                'lib/Base2.java': 'package lib; public class Base2 extends Base1 { }',
+                'lib/Other.java': 'package lib; public class Other { }',
+                'lib/Constants.java': 'package lib; public class Constants { public static final String VALUE = "changed"; public void m() { } }')
+
+        then:
+        clean() == ['A', 'B', 'C', 'D', 'E'] as Set
+    }
+
+    def deletesAllClassesWhenChangedClasspathClassDeclaredConstantsPreviously() {
+        when:
+        lib('lib/Base1.java': 'package lib; public class Base1 { public void m() { } }',
+                'lib/Base2.java': 'package lib; public class Base2 extends Base1 { }',
+                'lib/Other.java': 'package lib; public class Other { }',
+                'lib/Constants.java': 'package lib; public class Constants { public static String VALUE = "value"; public void m() { } }')
+
+        then:
+        clean() == ['A', 'B', 'C', 'D', 'E'] as Set
+    }
+
+    private Set<String> clean() {
+        def cleaner = cleaner(tmpDir.file('cache'))
+        def before = classNames()
+        cleaner.execute()
+        return before - classNames()
+    }
+
+    private void build() {
+        def cleaner = cleaner(tmpDir.file('cache'))
+        cleaner.execute()
+        compiler.source = project.fileTree(srcDir)
+        compiler.destinationDir = classesDir
+        compiler.classpath = [libJar]
+        assert compiler.execute().didWork
+        cleaner.compilationComplete()
+    }
+
+    private ClassDependencyStaleClassCleaner cleaner(TestFile cacheDir) {
+        def cleaner = new ClassDependencyStaleClassCleaner(outputs, new DefaultPersistentDirectoryCache(cacheDir, CacheUsage.ON, [:]))
+        cleaner.source = project.fileTree(srcDir)
+        cleaner.destinationDir = classesDir
+        cleaner.classpath = [libJar]
+        return cleaner
+    }
+
+    private Set<String> classNames() {
+        return classesDir.list().collect { it.replaceFirst('\\.class$', '') } as Set
+    }
+
+    private void source(String path, String text) {
+        // The fingerprint of a source file includes its timestamp, which may not change between writes
+        srcDir.file(path).write(text).setLastModified(timestamp += 10000)
+    }
+
+    private void lib(Map<String, String> sources) {
+        def libSrcDir = tmpDir.file('lib/src')
+        def libClassesDir = tmpDir.file('lib/classes')
+        libSrcDir.deleteDir()
+        libClassesDir.deleteDir()
+        sources.each { path, text -> libSrcDir.file(path).write(text) }
+        def libCompiler = new InProcessJavaCompiler()
+        libCompiler.source = project.fileTree(libSrcDir)
+        libCompiler.destinationDir = libClassesDir.createDir()
+        libCompiler.classpath = []
+        assert libCompiler.execute().didWork
+        libJar.delete()
+        libClassesDir.zipTo(libJar)
+        libJar.setLastModified(timestamp += 10000)
+    }
+}
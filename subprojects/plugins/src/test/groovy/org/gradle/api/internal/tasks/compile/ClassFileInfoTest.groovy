@@ -0,0 +1,58 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.compile
+
+import spock.lang.Specification
+
+class ClassFileInfoTest extends Specification {
+    def readsClassNameSourceFileAndDependencies() {
+        when:
+        def info = read(ClassDependencyGraph)
+
+        then:
+        info.className == 'org/gradle/api/internal/tasks/compile/ClassDependencyGraph'
+        info.sourceFile == 'org/gradle/api/internal/tasks/compile/ClassDependencyGraph.java'
+        info.dependencies.containsAll(['java/util/Map', 'java/util/HashMap', 'java/io/Serializable',
+                'org/gradle/api/internal/tasks/compile/ClassDependencyGraph$CompiledClass'])
+        !info.dependencies.contains(info.className)
+        info.supertypes == ['java/lang/Object', 'java/io/Serializable'] as Set
+        !info.declaresConstants
+    }
+
+    def readsInnerClass() {
+        when:
+        def info = read(ClassDependencyGraph.CompiledClass)
+
+        then:
+        info.className == 'org/gradle/api/internal/tasks/compile/ClassDependencyGraph$CompiledClass'
+        info.sourceFile == 'org/gradle/api/internal/tasks/compile/ClassDependencyGraph.java'
+        info.dependencies.contains('java/util/Set')
+    }
+
+    def detectsClassWhichDeclaresConstants() {
+        expect:
+        read(ClassFileInfo).declaresConstants
+    }
+
+    private ClassFileInfo read(Class type) {
+        def instr = type.getResourceAsStream("/${type.name.replace('.', '/')}.class")
+        try {
+            return ClassFileInfo.read(instr)
+        } finally {
+            instr.close()
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.compile
+
+import org.gradle.api.GradleException
+import org.gradle.api.Project
+import org.gradle.util.HelperUtil
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import spock.lang.Specification
+
+class InProcessJavaCompilerTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    private final InProcessJavaCompiler compiler = new InProcessJavaCompiler()
+    private Project project
+
+    def setup() {
+        project = HelperUtil.createRootProject(tmpDir.dir)
+    }
+
+    def compilesAgainstClassesInJarsAndDirectories() {
+        def jarClasses = compile('jarlib', 'jarlib/JarLib.java': 'package jarlib; public class JarLib { }')
+        def jar = tmpDir.file('lib.jar')
+        jarClasses.zipTo(jar)
+        def dirClasses = compile('dirlib', 'dirlib/DirLib.java': 'package dirlib; public class DirLib { }')
+
+        when:
+        def classesDir = compile('app', [jar, dirClasses], 'app/App.java': 'package app; class App { jarlib.JarLib a; dirlib.DirLib b; java.util.List<String> c; }')
+
+        then:
+        classesDir.file('app/App.class').file
+        !classesDir.file('jarlib/JarLib.class').exists()
+        !classesDir.file('dirlib/DirLib.class').exists()
+    }
+
+    def compilesOnlySourcesWhichAreOutOfDate() {
+        def srcDir = tmpDir.file('src')
+        srcDir.file('A.java').write('class A { }')
+        srcDir.file('B.java').write('class B { }')
+        def classesDir = tmpDir.file('classes').createDir()
+        configure(srcDir, classesDir, [])
+
+        when:
+        def result = compiler.execute()
+
+        then:
+        result.didWork
+        classesDir.file('A.class').file
+        classesDir.file('B.class').file
+
+        when:
+        result = compiler.execute()
+
+        then:
+        !result.didWork
+
+        when:
+        classesDir.file('B.class').delete()
+        result = compiler.execute()
+
+        then:
+        result.didWork
+        classesDir.file('B.class').file
+    }
+
+    def compilesOutOfDateSourceAgainstClassesInDestinationDir() {
+        def srcDir = tmpDir.file('src')
+        srcDir.file('p/A.java').write('package p; public class A { }')
+        srcDir.file('p/B.java').write('package p; class B { A a; }')
+        srcDir.file('C.java').write('class C { p.A a; }')
+        def classesDir = tmpDir.file('classes').createDir()
+        configure(srcDir, classesDir, [])
+        compiler.execute()
+
+        when:
+        classesDir.file('p/B.class').delete()
+        classesDir.file('C.class').delete()
+        def result = compiler.execute()
+
+        then:
+        result.didWork
+        classesDir.file('p/B.class').file
+        classesDir.file('C.class').file
+    }
+
+    def failsWhenSourceDoesNotCompile() {
+        def srcDir = tmpDir.file('src')
+        srcDir.file('A.java').write('class A extends Unknown { }')
+        configure(srcDir, tmpDir.file('classes').createDir(), [])
+
+        when:
+        compiler.execute()
+
+        then:
+        GradleException e = thrown()
+        e.message == 'Compile failed; see the compiler error output for details.'
+    }
+
+    def doesNotFailWhenSourceDoesNotCompileAndFailOnErrorIsFalse() {
+        def srcDir = tmpDir.file('src')
+        srcDir.file('A.java').write('class A extends Unknown { }')
+        configure(srcDir, tmpDir.file('classes').createDir(), [])
+        compiler.compileOptions.failOnError = false
+
+        when:
+        def result = compiler.execute()
+
+        then:
+        result.didWork
+    }
+
+    private TestFile compile(Map<String, String> sources, String name, List<File> classpath = []) {
+        def srcDir = tmpDir.file("$name/src")
+        sources.each { path, text -> srcDir.file(path).write(text) }
+        def classesDir = tmpDir.file("$name/classes").createDir()
+        configure(srcDir, classesDir, classpath)
+        assert compiler.execute().didWork
+        return classesDir
+    }
+
+    private void configure(File srcDir, File classesDir, List<File> classpath) {
+        compiler.source = project.fileTree(srcDir)
+        compiler.destinationDir = classesDir
+        compiler.classpath = classpath
+    }
+}
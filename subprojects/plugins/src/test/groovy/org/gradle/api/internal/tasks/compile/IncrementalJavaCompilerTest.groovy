@@ -0,0 +1,66 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.compile
+
+import org.gradle.CacheUsage
+import org.gradle.api.AntBuilder
+import org.gradle.api.internal.Factory
+import org.gradle.api.internal.TaskOutputsInternal
+import org.gradle.api.tasks.compile.CompileOptions
+import org.gradle.cache.DefaultCacheFactory
+import org.gradle.cache.DefaultCacheRepository
+import org.gradle.util.GradleVersion
+import org.gradle.util.HelperUtil
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+
+class IncrementalJavaCompilerTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    final JavaCompiler target = Mock()
+    final Factory<AntBuilder> antBuilderFactory = Mock()
+    final TaskOutputsInternal taskOutputs = Mock()
+    final CompileOptions options = new CompileOptions()
+
+    def setup() {
+        _ * target.compileOptions >> options
+        options.incremental = true
+    }
+
+    def "keeps class dependencies of each task in the build's cache"() {
+        def rootProject = HelperUtil.createRootProject(tmpDir.createDir('project'))
+        def childProject = HelperUtil.createChildProject(rootProject, 'child')
+        def repository = new DefaultCacheRepository(tmpDir.createDir('home'), CacheUsage.ON, new DefaultCacheFactory())
+        def cacheDir = rootProject.file(".gradle/${GradleVersion.current().version}/classDependencies")
+
+        when:
+        def rootCleaner = compiler(repository, rootProject.tasks.add('compileJava')).createCleaner()
+        def childCleaner = compiler(repository, childProject.tasks.add('compileJava')).createCleaner()
+
+        then:
+        rootCleaner instanceof ClassDependencyStaleClassCleaner
+        childCleaner instanceof ClassDependencyStaleClassCleaner
+        new File(cacheDir, 'compileJava').directory
+        new File(cacheDir, 'child/compileJava').directory
+    }
+
+    def compiler(DefaultCacheRepository repository, def task) {
+        def compiler = new IncrementalJavaCompiler(target, antBuilderFactory, taskOutputs, repository, task)
+        compiler.destinationDir = tmpDir.file('classes')
+        compiler.classpath = []
+        return compiler
+    }
+}
@@ -44,5 +44,8 @@ class IncrementalJavaSourceCompilerTest extends Specification {
         1 * cleaner.setSource(source)
         1 * cleaner.execute()
         1 * target.execute() >> result
+
+        then:
+        1 * cleaner.compilationComplete()
     }
 }
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.detection
+
+import org.gradle.api.internal.changedetection.Hasher
+import org.gradle.cache.CacheBuilder
+import org.gradle.cache.CacheRepository
+import org.gradle.cache.PersistentCache
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.util.TemporaryFolder
+import org.gradle.util.TestFile
+import org.junit.Rule
+import org.junit.runner.RunWith
+import org.junit.runners.JUnit4
+import spock.lang.Specification
+
+class ClassHierarchyIndexTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    final CacheRepository cacheRepository = Mock()
+    final Hasher hasher = Mock()
+    final PersistentIndexedCache<String, Map> indexedCache = Mock()
+    final ClassHierarchyIndex index = new ClassHierarchyIndex(cacheRepository, hasher)
+
+    def setup() {
+        CacheBuilder builder = Mock()
+        PersistentCache cache = Mock()
+        _ * cacheRepository.cache("classHierarchy") >> builder
+        _ * builder.open() >> cache
+        _ * cache.openIndexedCache(!null) >> indexedCache
+        _ * hasher.hash(!null) >> ([1, 2] as byte[])
+    }
+
+    def "indexes super class and annotations of each class in jar"() {
+        TestFile jar = jarWith(SomeTestBase, SomeRunWithTest)
+
+        when:
+        def classes = index.getClasses(jar)
+
+        then:
+        1 * indexedCache.get('102') >> null
+        1 * indexedCache.put('102', !null)
+
+        and:
+        classes.keySet() == [internalName(SomeTestBase), internalName(SomeRunWithTest)] as Set
+
+        def base = classes[internalName(SomeTestBase)]
+        base.superClassName == 'java/lang/Object'
+        base.abstract
+        base.methodAnnotations.contains('Lorg/junit/Test;')
+
+        def runWith = classes[internalName(SomeRunWithTest)]
+        runWith.superClassName == internalName(SomeTestBase)
+        !runWith.abstract
+        runWith.annotations.contains('Lorg/junit/runner/RunWith;')
+    }
+
+    def "uses cached index when jar has not changed"() {
+        TestFile jar = tmpDir.createFile('broken.jar')
+        def cached = [:]
+
+        when:
+        def classes = index.getClasses(jar)
+
+        then:
+        classes.is(cached)
+        1 * indexedCache.get('102') >> cached
+        0 * indexedCache.put(_, _)
+    }
+
+    def "looks up each jar only once"() {
+        TestFile jar = tmpDir.createFile('some.jar')
+
+        when:
+        index.getClasses(jar)
+        index.getClasses(jar)
+
+        then:
+        1 * indexedCache.get('102') >> [:]
+    }
+
+    private TestFile jarWith(Class... classes) {
+        TestFile classesDir = tmpDir.file('classes')
+        classes.each { Class type ->
+            TestFile classFile = classesDir.file("${internalName(type)}.class")
+            classFile.parentFile.mkdirs()
+            classFile.bytes = type.classLoader.getResourceAsStream("${internalName(type)}.class").bytes
+        }
+        TestFile jar = tmpDir.file('test.jar')
+        classesDir.zipTo(jar)
+        return jar
+    }
+
+    private String internalName(Class type) {
+        return type.name.replace('.', '/')
+    }
+}
+
+abstract class SomeTestBase {
+    @org.junit.Test
+    void test() {
+    }
+}
+
+@RunWith(JUnit4)
+class SomeRunWithTest extends SomeTestBase {
+}
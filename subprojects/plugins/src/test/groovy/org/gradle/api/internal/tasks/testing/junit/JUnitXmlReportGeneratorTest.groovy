@@ -0,0 +1,76 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.junit
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestMethodDescriptor
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
+import org.gradle.api.internal.tasks.testing.TestOutputEvent
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+
+class JUnitXmlReportGeneratorTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    final JUnitXmlReportGenerator generator = new JUnitXmlReportGenerator(tmpDir.dir)
+
+    def "writes result file for each test class"() {
+        when:
+        generator.started(new DefaultTestClassDescriptor(1, 'org.gradle.Test'), new TestStartEvent(100))
+        generator.started(new DefaultTestMethodDescriptor(2, 'org.gradle.Test', 'ok'), new TestStartEvent(100, 1))
+        generator.output(2, new TestOutputEvent(TestOutputEvent.Destination.StdOut, 'some output\n'))
+        generator.completed(2, new TestCompleteEvent(200))
+        generator.started(new DefaultTestMethodDescriptor(3, 'org.gradle.Test', 'broken'), new TestStartEvent(200, 1))
+        generator.output(3, new TestOutputEvent(TestOutputEvent.Destination.StdErr, 'some error\n'))
+        generator.failure(3, new RuntimeException('broken'))
+        generator.completed(3, new TestCompleteEvent(300))
+        generator.started(new DefaultTestMethodDescriptor(4, 'org.gradle.Test', 'ignored'), new TestStartEvent(300, 1))
+        generator.completed(4, new TestCompleteEvent(300, TestResult.ResultType.SKIPPED))
+        generator.completed(1, new TestCompleteEvent(400))
+
+        then:
+        tmpDir.dir.list() as List == ['TEST-org.gradle.Test.xml']
+
+        def suite = new XmlSlurper().parse(tmpDir.file('TEST-org.gradle.Test.xml'))
+        suite.@name.text() == 'org.gradle.Test'
+        suite.@tests.text() == '3'
+        suite.@failures.text() == '1'
+        suite.@time.text() == '0.3'
+        suite.properties.size() == 1
+        suite.testcase.size() == 2
+        suite.testcase[0].@name.text() == 'ok'
+        suite.testcase[0].@time.text() == '0.1'
+        suite.testcase[1].@name.text() == 'broken'
+        suite.testcase[1].failure.@message.text() == 'java.lang.RuntimeException: broken'
+        suite.'ignored-testcase'.@name.text() == 'ignored'
+        suite.'system-out'.text() == 'some output\n'
+        suite.'system-err'.text() == 'some error\n'
+    }
+
+    def "escapes output which is not legal in a CDATA section"() {
+        when:
+        generator.started(new DefaultTestClassDescriptor(1, 'org.gradle.Test'), new TestStartEvent(100))
+        generator.output(1, new TestOutputEvent(TestOutputEvent.Destination.StdOut, 'a]]>b]'))
+        generator.output(1, new TestOutputEvent(TestOutputEvent.Destination.StdOut, ']>c\u0000'))
+        generator.completed(1, new TestCompleteEvent(200))
+
+        then:
+        def suite = new XmlSlurper().parse(tmpDir.file('TEST-org.gradle.Test.xml'))
+        suite.'system-out'.text() == 'a]]>b]]>c'
+    }
+}
@@ -15,6 +15,7 @@
  */
 package org.gradle.api.internal.tasks.testing.junit.report
 
+import org.gradle.messaging.concurrent.DefaultExecutorFactory
 import org.gradle.util.TemporaryFolder
 import org.gradle.util.TestFile
 import org.junit.Rule
@@ -253,6 +254,32 @@ message">this is a failure.</failure></testcase>
         results(indexFile).assertHasTests(1)
     }
 
+    def generatesClassPagesInParallel() {
+        DefaultTestReport report = new DefaultTestReport(new DefaultExecutorFactory(), 4)
+        report.testReportDir = reportDir
+        report.testResultsDir = resultsDir
+        10.times { i ->
+            resultsDir.file("TEST-org.gradle.Test${i}.xml") << """
+<testsuite name="org.gradle.Test${i}">
+    <testcase classname="org.gradle.Test${i}" name="test1" time="0"/>
+    <system-out>output ${i}</system-out>
+    <system-err></system-err>
+</testsuite>
+"""
+        }
+
+        when:
+        report.generateReport()
+
+        then:
+        results(indexFile).assertHasTests(10)
+        10.times { i ->
+            def testClassFile = results(reportDir.file("org.gradle.Test${i}.html"))
+            testClassFile.assertHasTest('test1')
+            testClassFile.assertHasStandardOutput("output ${i}")
+        }
+    }
+
     def results(TestFile file) {
         return new TestResultsFixture(file)
     }
@@ -0,0 +1,35 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import spock.lang.Specification
+
+class FailedFirstTestClassOrderTest extends Specification {
+    final TestClassHistory history = Mock()
+    final FailedFirstTestClassOrder order = new FailedFirstTestClassOrder(history, { a, b -> a.testClassName <=> b.testClassName } as Comparator)
+
+    def "orders failed test classes first then uses the given order"() {
+        _ * history.isFailed('b') >> true
+        _ * history.isFailed('d') >> true
+        _ * history.isFailed(_) >> false
+
+        def classes = ['d', 'c', 'b', 'a'].collect { new DefaultTestClassRunInfo(it) }
+
+        expect:
+        classes.sort(order).collect { it.testClassName } == ['b', 'd', 'a', 'c']
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.processors
+
+import org.gradle.api.internal.tasks.testing.DefaultTestClassRunInfo
+import spock.lang.Specification
+
+class LongestFirstTestClassOrderTest extends Specification {
+    final TestClassHistory history = Mock()
+    final LongestFirstTestClassOrder order = new LongestFirstTestClassOrder(history)
+
+    def "orders test classes by decreasing duration with unknown test classes first"() {
+        _ * history.getDuration('fast') >> 10L
+        _ * history.getDuration('slow') >> 1000L
+        _ * history.getDuration('medium') >> 200L
+        _ * history.getDuration(_) >> null
+
+        def classes = ['fast', 'new', 'slow', 'medium'].collect { new DefaultTestClassRunInfo(it) }
+
+        expect:
+        classes.sort(order).collect { it.testClassName } == ['new', 'slow', 'medium', 'fast']
+    }
+}
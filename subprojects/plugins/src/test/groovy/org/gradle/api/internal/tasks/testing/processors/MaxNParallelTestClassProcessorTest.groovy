@@ -16,9 +16,14 @@
 
 package org.gradle.api.internal.tasks.testing.processors
 
+import org.gradle.api.internal.tasks.testing.DefaultTestClassDescriptor
+import org.gradle.api.internal.tasks.testing.DefaultTestMethodDescriptor
 import org.gradle.api.internal.tasks.testing.TestClassProcessor
 import org.gradle.api.internal.tasks.testing.TestClassRunInfo
+import org.gradle.api.internal.tasks.testing.TestCompleteEvent
 import org.gradle.api.internal.tasks.testing.TestResultProcessor
+import org.gradle.api.internal.tasks.testing.TestStartEvent
+import org.gradle.api.tasks.testing.TestResult
 import org.gradle.messaging.actor.Actor
 import org.gradle.messaging.actor.ActorFactory
 import spock.lang.Specification
@@ -30,7 +35,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
     private final TestResultProcessor asyncResultProcessor = Mock()
     private final Actor resultProcessorActor = Mock()
     private final ActorFactory actorFactory = Mock()
-    private final MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory)
+    private MaxNParallelTestClassProcessor processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory)
 
     def createsThreadSafeWrapperForResultProcessorOnStart() {
         when:
@@ -59,7 +64,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
     }
 
     def startsProcessorsOnDemandAndStopsAtEnd() {
-        TestClassRunInfo test = Mock()
+        TestClassRunInfo test = testClass('Test1')
         TestClassProcessor processor1 = Mock()
         TestClassProcessor asyncProcessor1 = Mock()
         Actor actor1 = Mock()
@@ -71,9 +76,9 @@ class MaxNParallelTestClassProcessorTest extends Specification {
 
         then:
         1 * factory.create() >> processor1
-        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actorFactory.createActor(!null) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
+        1 * asyncProcessor1.startProcessing(!null)
         1 * asyncProcessor1.processTestClass(test)
 
         when:
@@ -86,7 +91,8 @@ class MaxNParallelTestClassProcessorTest extends Specification {
     }
 
     def startsMultipleProcessorsOnDemandAndStopsAtEnd() {
-        TestClassRunInfo test = Mock()
+        TestClassRunInfo test1 = testClass('Test1')
+        TestClassRunInfo test2 = testClass('Test2')
         TestClassProcessor processor1 = Mock()
         TestClassProcessor processor2 = Mock()
         TestClassProcessor asyncProcessor1 = Mock()
@@ -97,24 +103,24 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         startProcessor()
 
         when:
-        processor.processTestClass(test)
+        processor.processTestClass(test1)
 
         then:
         1 * factory.create() >> processor1
-        1 * actorFactory.createActor(processor1) >> actor1
+        1 * actorFactory.createActor(!null) >> actor1
         1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
-        1 * asyncProcessor1.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor1.processTestClass(test)
+        1 * asyncProcessor1.startProcessing(!null)
+        1 * asyncProcessor1.processTestClass(test1)
 
         when:
-        processor.processTestClass(test)
+        processor.processTestClass(test2)
 
         then:
         1 * factory.create() >> processor2
-        1 * actorFactory.createActor(processor2) >> actor2
+        1 * actorFactory.createActor(!null) >> actor2
         1 * actor2.getProxy(TestClassProcessor) >> asyncProcessor2
-        1 * asyncProcessor2.startProcessing(asyncResultProcessor)
-        1 * asyncProcessor2.processTestClass(test)
+        1 * asyncProcessor2.startProcessing(!null)
+        1 * asyncProcessor2.processTestClass(test2)
 
         when:
         processor.stop()
@@ -124,7 +130,267 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         1 * asyncProcessor2.stop()
     }
 
-    def roundRobinsTestClassesToProcessors() {
+    def forwardsResultsFromProcessors() {
+        TestClassRunInfo test = testClass('Test1')
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestResultProcessor results1
+        def descriptor = new DefaultTestClassDescriptor(1, 'Test1')
+        def startEvent = new TestStartEvent(100)
+        def completeEvent = new TestCompleteEvent(200)
+
+        startProcessor()
+        startsProcessor(asyncProcessor1) { results1 = it }
+        processor.processTestClass(test)
+
+        when:
+        results1.started(descriptor, startEvent)
+        results1.completed(1, completeEvent)
+
+        then:
+        1 * asyncResultProcessor.started(descriptor, startEvent)
+        1 * asyncResultProcessor.completed(1, completeEvent)
+    }
+
+    def givesEachProcessorASecondTestClassBeforeQueueingTestClasses() {
+        TestClassRunInfo test1 = testClass('Test1')
+        TestClassRunInfo test2 = testClass('Test2')
+        TestClassRunInfo test3 = testClass('Test3')
+        TestClassRunInfo test4 = testClass('Test4')
+        TestClassRunInfo test5 = testClass('Test5')
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+
+        startProcessor()
+        startsProcessor(asyncProcessor1) { }
+        startsProcessor(asyncProcessor2) { }
+
+        when:
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+
+        then:
+        1 * asyncProcessor1.processTestClass(test1)
+        1 * asyncProcessor2.processTestClass(test2)
+
+        when:
+        processor.processTestClass(test3)
+        processor.processTestClass(test4)
+        processor.processTestClass(test5)
+
+        then:
+        1 * asyncProcessor1.processTestClass(test3)
+        1 * asyncProcessor2.processTestClass(test4)
+        0 * asyncProcessor1._
+        0 * asyncProcessor2._
+    }
+
+    def assignsQueuedTestClassToProcessorWhenItCompletesOneOfItsCurrentTestClasses() {
+        TestClassRunInfo test1 = testClass('Test1')
+        TestClassRunInfo test2 = testClass('Test2')
+        TestClassRunInfo test3 = testClass('Test3')
+        TestClassRunInfo test4 = testClass('Test4')
+        TestClassRunInfo test5 = testClass('Test5')
+        TestClassRunInfo test6 = testClass('Test6')
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        TestResultProcessor results2
+
+        startProcessor()
+        startsProcessor(asyncProcessor1) { }
+        startsProcessor(asyncProcessor2) { results2 = it }
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.processTestClass(test3)
+        processor.processTestClass(test4)
+
+        when:
+        processor.processTestClass(test5)
+        processor.processTestClass(test6)
+
+        then:
+        0 * asyncProcessor1._
+        0 * asyncProcessor2._
+
+        when:
+        completeTestClass(results2, 'Test2')
+
+        then:
+        1 * asyncProcessor2.processTestClass(test5)
+        0 * asyncProcessor1._
+
+        when:
+        completeTestClass(results2, 'Test5')
+
+        then:
+        1 * asyncProcessor2.processTestClass(test6)
+        0 * asyncProcessor1._
+    }
+
+    def testClassIsNotCompleteUntilItsClassLevelTestCompletes() {
+        TestClassRunInfo test1 = testClass('Test1')
+        TestClassRunInfo test2 = testClass('Test2')
+        TestClassRunInfo test3 = testClass('Test3')
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestResultProcessor results1
+        def classDescriptor = new DefaultTestClassDescriptor(1, 'Test1')
+        def methodDescriptor = new DefaultTestMethodDescriptor(2, 'Test1', 'method')
+
+        processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory)
+        startProcessor()
+        startsProcessor(asyncProcessor1) { results1 = it }
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.processTestClass(test3)
+
+        when:
+        results1.started(classDescriptor, new TestStartEvent(100))
+        results1.started(methodDescriptor, new TestStartEvent(100, 1))
+        results1.completed(2, new TestCompleteEvent(200))
+
+        then:
+        0 * asyncProcessor1.processTestClass(_)
+
+        when:
+        results1.completed(1, new TestCompleteEvent(200))
+
+        then:
+        1 * asyncProcessor1.processTestClass(test3)
+    }
+
+    def executesQueuedTestClassesInGivenOrder() {
+        TestClassRunInfo test1 = testClass('Test1')
+        TestClassRunInfo test2 = testClass('Test2')
+        TestClassRunInfo test3 = testClass('Test3')
+        TestClassRunInfo test4 = testClass('Test4')
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestResultProcessor results1
+        Comparator<TestClassRunInfo> order = { a, b -> b.testClassName <=> a.testClassName } as Comparator
+
+        processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory, true, order)
+        startProcessor()
+        startsProcessor(asyncProcessor1) { results1 = it }
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.processTestClass(test3)
+        processor.processTestClass(test4)
+
+        when:
+        completeTestClass(results1, 'Test1')
+
+        then:
+        1 * asyncProcessor1.processTestClass(test4)
+
+        when:
+        completeTestClass(results1, 'Test4')
+
+        then:
+        1 * asyncProcessor1.processTestClass(test3)
+    }
+
+    def stopWaitsUntilAllQueuedTestClassesHaveBeenAssigned() {
+        TestClassRunInfo test1 = testClass('Test1')
+        TestClassRunInfo test2 = testClass('Test2')
+        TestClassRunInfo test3 = testClass('Test3')
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestResultProcessor results1
+
+        processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory)
+        startProcessor()
+        startsProcessor(asyncProcessor1) { results1 = it }
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.processTestClass(test3)
+
+        when:
+        Thread.start {
+            Thread.sleep(200)
+            completeTestClass(results1, 'Test1')
+        }
+        processor.stop()
+
+        then:
+        1 * asyncProcessor1.processTestClass(test3)
+
+        then:
+        1 * asyncProcessor1.stop()
+    }
+
+    def failsTestClassesOfProcessorWhenItFailsAndGivesQueuedTestClassesToAnotherProcessor() {
+        TestClassRunInfo test1 = testClass('Test1')
+        TestClassRunInfo test2 = testClass('Test2')
+        TestClassRunInfo test3 = testClass('Test3')
+        TestClassProcessor target1 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        TestClassProcessor asyncProcessor2 = Mock()
+        Actor actor1 = Mock()
+        TestClassProcessor failureDetector
+        TestResultProcessor results1
+        RuntimeException failure = new RuntimeException('broken')
+        def classDescriptor = new DefaultTestClassDescriptor(1, 'Test1')
+
+        processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory)
+        startProcessor()
+        1 * factory.create() >> target1
+        1 * actorFactory.createActor(!null) >> { failureDetector = it[0]; actor1 }
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        1 * asyncProcessor1.startProcessing(!null) >> { results1 = it[0] }
+        startsProcessor(asyncProcessor2) { }
+        processor.processTestClass(test1)
+        processor.processTestClass(test2)
+        processor.processTestClass(test3)
+        results1.started(classDescriptor, new TestStartEvent(100))
+
+        when:
+        failureDetector.processTestClass(test1)
+
+        then:
+        RuntimeException e = thrown()
+        e == failure
+        1 * target1.processTestClass(test1) >> { throw failure }
+        1 * asyncResultProcessor.failure(1, failure)
+        1 * asyncResultProcessor.completed(1, { it.resultType == TestResult.ResultType.FAILURE })
+        1 * asyncResultProcessor.started({ it.className == 'Test2' }, !null)
+        1 * asyncResultProcessor.failure({ it != 1 }, failure)
+        1 * asyncResultProcessor.completed({ it != 1 }, { it.resultType == TestResult.ResultType.FAILURE })
+        1 * asyncProcessor2.processTestClass(test3)
+
+        when:
+        failureDetector.processTestClass(test2)
+
+        then:
+        0 * target1._
+    }
+
+    def stopDoesNotWaitForTestClassesOfFailedProcessor() {
+        TestClassRunInfo test1 = testClass('Test1')
+        TestClassProcessor target1 = Mock()
+        TestClassProcessor asyncProcessor1 = Mock()
+        Actor actor1 = Mock()
+        TestClassProcessor failureDetector
+
+        processor = new MaxNParallelTestClassProcessor(1, factory, actorFactory)
+        startProcessor()
+        1 * factory.create() >> target1
+        1 * actorFactory.createActor(!null) >> { failureDetector = it[0]; actor1 }
+        1 * actor1.getProxy(TestClassProcessor) >> asyncProcessor1
+        processor.processTestClass(test1)
+        1 * target1.processTestClass(test1) >> { throw new RuntimeException('broken') }
+        try {
+            failureDetector.processTestClass(test1)
+        } catch (RuntimeException e) {
+            // Expected
+        }
+
+        when:
+        processor.stop()
+
+        then:
+        1 * asyncProcessor1.stop()
+        1 * actor1.stop()
+        1 * resultProcessorActor.stop()
+    }
+
+    def roundRobinsTestClassesToProcessorsWhenProcessorsDoNotExecuteTestClassesOnReceipt() {
         TestClassRunInfo test = Mock()
         TestClassProcessor processor1 = Mock()
         TestClassProcessor processor2 = Mock()
@@ -133,6 +399,7 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         Actor actor1 = Mock()
         Actor actor2 = Mock()
 
+        processor = new MaxNParallelTestClassProcessor(2, factory, actorFactory, false, null)
         startProcessor()
 
         when:
@@ -167,4 +434,25 @@ class MaxNParallelTestClassProcessorTest extends Specification {
         then:
         1 * asyncProcessor2.processTestClass(test)
     }
+
+    def startsProcessor(TestClassProcessor asyncProcessor, Closure resultProcessorReceived) {
+        TestClassProcessor target = Mock()
+        Actor actor = Mock()
+        1 * factory.create() >> target
+        1 * actorFactory.createActor(!null) >> actor
+        1 * actor.getProxy(TestClassProcessor) >> asyncProcessor
+        1 * asyncProcessor.startProcessing(!null) >> { resultProcessorReceived.call(it[0]) }
+    }
+
+    def completeTestClass(TestResultProcessor results, String className) {
+        def id = "${className}-id"
+        results.started(new DefaultTestClassDescriptor(id, className), new TestStartEvent(100))
+        results.completed(id, new TestCompleteEvent(200))
+    }
+
+    def testClass(String className) {
+        TestClassRunInfo test = Mock()
+        _ * test.testClassName >> className
+        return test
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2011 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.gradle.api.internal.tasks.testing.results
+
+import org.gradle.CacheUsage
+import org.gradle.api.Project
+import org.gradle.api.Task
+import org.gradle.api.invocation.Gradle
+import org.gradle.api.tasks.testing.Test
+import org.gradle.api.tasks.testing.TestDescriptor
+import org.gradle.api.tasks.testing.TestResult
+import org.gradle.api.tasks.testing.TestResult.ResultType
+import org.gradle.cache.CacheBuilder
+import org.gradle.cache.CacheRepository
+import org.gradle.cache.DefaultCacheFactory
+import org.gradle.cache.DefaultCacheRepository
+import org.gradle.cache.PersistentCache
+import org.gradle.cache.PersistentIndexedCache
+import org.gradle.util.HelperUtil
+import org.gradle.util.TemporaryFolder
+import org.junit.Rule
+import spock.lang.Specification
+
+class CacheBackedTestClassHistoryTest extends Specification {
+    @Rule public final TemporaryFolder tmpDir = new TemporaryFolder()
+    final CacheRepository cacheRepository = Mock()
+    final PersistentIndexedCache<String, Object> indexedCache = Mock()
+    final Task testTask = Mock()
+    CacheBackedTestClassHistory history
+
+    def setup() {
+        CacheBuilder builder = Mock()
+        PersistentCache cache = Mock()
+        Project project = Mock()
+        Gradle gradle = Mock()
+        _ * testTask.project >> project
+        _ * testTask.path >> ':test'
+        _ * project.gradle >> gradle
+        _ * cacheRepository.cache("testHistory") >> builder
+        _ * builder.forObject(gradle) >> builder
+        _ * builder.open() >> cache
+        _ * cache.openIndexedCache(!null) >> indexedCache
+        history = new CacheBackedTestClassHistory(cacheRepository, testTask)
+    }
+
+    def "has no history for unknown test class"() {
+        when:
+        def duration = history.getDuration('SomeTest')
+        def failed = history.isFailed('SomeTest')
+
+        then:
+        duration == null
+        !failed
+        1 * indexedCache.get(':test:SomeTest') >> null
+    }
+
+    def "records duration and failure of each test class"() {
+        Map<String, Object> saved
+
+        when:
+        history.afterTest(test('Test1', 'ok'), result(100, 150, ResultType.SUCCESS))
+        history.afterTest(test('Test1', 'broken'), result(150, 250, ResultType.FAILURE))
+        history.afterTest(test('Test2', 'ok'), result(100, 120, ResultType.SUCCESS))
+        history.afterTest(test('Test2', 'ok2'), result(120, 130, ResultType.SKIPPED))
+        history.save()
+
+        then:
+        1 * indexedCache.putAll(!null) >> { saved = it[0] }
+        saved.keySet() == [':test:Test1', ':test:Test2'] as Set
+        saved[':test:Test1'].duration == 150
+        saved[':test:Test1'].failed
+        saved[':test:Test2'].duration == 30
+        !saved[':test:Test2'].failed
+    }
+
+    def "uses duration of test class suite when present"() {
+        Map<String, Object> saved
+
+        when:
+        history.afterTest(test('Test1', 'ok'), result(100, 150, ResultType.SUCCESS))
+        history.afterSuite(test('Test1', 'Test1'), result(50, 200, ResultType.SUCCESS))
+        history.afterSuite(test(null, 'worker'), result(0, 1000, ResultType.FAILURE))
+        history.save()
+
+        then:
+        1 * indexedCache.putAll(!null) >> { saved = it[0] }
+        saved.keySet() == [':test:Test1'] as Set
+        saved[':test:Test1'].duration == 150
+        !saved[':test:Test1'].failed
+    }
+
+    def "reports history from previous execution"() {
+        def stored = new CacheBackedTestClassHistory.TestClassExecution(duration: 120, failed: true)
+
+        when:
+        def duration = history.getDuration('Test1')
+        def failed = history.isFailed('Test1')
+
+        then:
+        duration == 120
+        failed
+        1 * indexedCache.get(':test:Test1') >> stored
+    }
+
+    def "persists history of each test task in the build's cache"() {
+        def project = HelperUtil.createRootProject(tmpDir.createDir('project'))
+        def task = project.tasks.add('test', Test)
+        def otherTask = project.tasks.add('otherTest', Test)
+        def history = new CacheBackedTestClassHistory(newCacheRepository(), task)
+        history.afterTest(test('Test1', 'ok'), result(100, 150, ResultType.FAILURE))
+        history.save()
+
+        when:
+        def repository = newCacheRepository()
+        def reloaded = new CacheBackedTestClassHistory(repository, task)
+        def other = new CacheBackedTestClassHistory(repository, otherTask)
+
+        then:
+        reloaded.getDuration('Test1') == 50
+        reloaded.isFailed('Test1')
+        other.getDuration('Test1') == null
+        !other.isFailed('Test1')
+    }
+
+    def newCacheRepository() {
+        return new DefaultCacheRepository(tmpDir.file('home'), CacheUsage.ON, new DefaultCacheFactory())
+    }
+
+    def test(String className, String name) {
+        TestDescriptor descriptor = Mock()
+        _ * descriptor.className >> className
+        _ * descriptor.name >> name
+        return descriptor
+    }
+
+    def result(long start, long end, ResultType resultType) {
+        TestResult result = Mock()
+        _ * result.startTime >> start
+        _ * result.endTime >> end
+        _ * result.resultType >> resultType
+        return result
+    }
+}
@@ -18,14 +18,14 @@ package org.gradle.api.internal.tasks.testing.worker;
 
 import org.gradle.api.Action;
 import org.gradle.api.internal.Factory;
-import org.gradle.api.internal.tasks.testing.TestClassRunInfo;
-import org.gradle.api.internal.tasks.testing.TestResultProcessor;
-import org.gradle.api.internal.tasks.testing.WorkerTestClassProcessorFactory;
+import org.gradle.api.internal.tasks.testing.*;
 import org.gradle.messaging.remote.ObjectConnection;
 import org.gradle.process.JavaForkOptions;
+import org.gradle.process.internal.ExecException;
 import org.gradle.process.internal.JavaExecHandleBuilder;
 import org.gradle.process.internal.WorkerProcess;
 import org.gradle.process.internal.WorkerProcessBuilder;
+import org.gradle.util.Matchers.Collector;
 import org.jmock.Expectations;
 import org.jmock.integration.junit4.JMock;
 import org.jmock.integration.junit4.JUnit4Mockery;
@@ -37,6 +37,8 @@ import java.io.File;
 import java.util.List;
 
 import static java.util.Arrays.asList;
+import static org.gradle.util.Matchers.collector;
+import static org.gradle.util.Matchers.collectTo;
 import static org.hamcrest.Matchers.notNullValue;
 
 @RunWith(JMock.class)
@@ -55,6 +57,7 @@ public class ForkingTestClassProcessorTest {
     private final JavaForkOptions options = context.mock(JavaForkOptions.class);
     private final Action<WorkerProcessBuilder> action = context.mock(Action.class);
     private final ForkingTestClassProcessor processor = new ForkingTestClassProcessor(workerFactory, processorFactory, options, appClassPath, action);
+    private final Collector<Runnable> stopAction = collector();
 
     @Test
     public void onFirstTestCaseStartsWorkerProcess() {
@@ -94,6 +97,25 @@ public class ForkingTestClassProcessorTest {
         processor.stop();
     }
 
+    @Test
+    public void failsUnfinishedTestClassesWhenWorkerProcessStopsUnexpectedly() {
+        expectWorkerProcessStarted();
+        context.checking(new Expectations() {{
+            allowing(test1).getTestClassName();
+            will(returnValue("Test1"));
+            one(worker).processTestClass(test1);
+            one(resultProcessor).started(with(notNullValue(TestDescriptorInternal.class)), with(notNullValue(TestStartEvent.class)));
+            one(resultProcessor).failure(with(notNullValue()), with(a(ExecException.class)));
+            one(resultProcessor).completed(with(notNullValue()), with(notNullValue(TestCompleteEvent.class)));
+            one(workerProcess).waitForStop();
+        }});
+
+        processor.startProcessing(resultProcessor);
+        processor.processTestClass(test1);
+        stopAction.get().run();
+        processor.stop();
+    }
+
     @Test
     public void onEndProcessingDoesNothingIfNoTestsProcessed() {
         processor.startProcessing(resultProcessor);
@@ -128,13 +150,16 @@ public class ForkingTestClassProcessorTest {
             allowing(workerProcess).getConnection();
             will(returnValue(connection));
 
-            one(connection).addIncoming(TestResultProcessor.class, resultProcessor);
+            one(connection).addIncoming(with(equal(TestResultProcessor.class)), with(notNullValue(TestResultProcessor.class)));
             
             one(connection).addOutgoing(RemoteTestClassProcessor.class);
             will(returnValue(worker));
 
             one(workerProcess).start();
 
+            one(workerProcess).whenStopped(with(notNullValue(Runnable.class)));
+            will(collectTo(stopAction));
+
             one(worker).startProcessing();
         }});
     }